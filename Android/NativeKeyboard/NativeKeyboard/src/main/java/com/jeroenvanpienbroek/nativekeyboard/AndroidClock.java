@@ -0,0 +1,18 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.os.SystemClock;
+
+/** Clock that uses the time since boot of the device */
+public class AndroidClock implements IClock
+{
+    @Override
+    public long elapsedRealtime()
+    {
+        return SystemClock.elapsedRealtime();
+    }
+}
@@ -0,0 +1,65 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.view.inputmethod.InputMethodManager;
+import android.view.inputmethod.InputMethodSubtype;
+
+/** Input method that uses the InputMethodManager of the device for the current view of the keyboard */
+public class AndroidInputMethod implements IInputMethod
+{
+    private InputMethodManager inputMethodManager;
+    private NativeKeyboard keyboard;
+
+    public AndroidInputMethod(InputMethodManager inputMethodManager, NativeKeyboard keyboard)
+    {
+        this.inputMethodManager = inputMethodManager;
+        this.keyboard = keyboard;
+    }
+
+    @Override
+    public void focus()
+    {
+        keyboard.currentView.requestFocus();
+    }
+
+    @Override
+    public void clearFocus()
+    {
+        keyboard.currentView.clearFocus();
+    }
+
+    @Override
+    public void showSoftInput(boolean forced)
+    {
+        inputMethodManager.showSoftInput(keyboard.currentView, forced ? InputMethodManager.SHOW_FORCED : InputMethodManager.SHOW_IMPLICIT);
+    }
+
+    @Override
+    public void hideSoftInput()
+    {
+        inputMethodManager.hideSoftInputFromWindow(keyboard.currentView.getWindowToken(), 0);
+    }
+
+    @Override
+    public void restartInput()
+    {
+        inputMethodManager.restartInput(keyboard.currentView);
+    }
+
+    @Override
+    public boolean isActive()
+    {
+        return inputMethodManager.isActive();
+    }
+
+    @Override
+    public boolean isSubtypeActive()
+    {
+        InputMethodSubtype subType = inputMethodManager.getCurrentInputMethodSubtype();
+        return (subType != null && subType.getMode() != null && subType.getMode().length() > 0);
+    }
+}
@@ -0,0 +1,32 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.app.Activity;
+import android.graphics.Rect;
+import android.view.View;
+
+/** Keyboard window that measures the visible display frame of an Activity */
+public class AndroidKeyboardWindow implements IKeyboardWindow
+{
+    private Activity activity;
+    private Rect rect;
+
+    public AndroidKeyboardWindow(Activity activity)
+    {
+        this.activity = activity;
+        this.rect = new Rect();
+    }
+
+    @Override
+    public int getKeyboardHeight()
+    {
+        View view = activity.getWindow().getDecorView();
+        view.getWindowVisibleDisplayFrame(rect);
+
+        return Math.round(view.getHeight() - rect.height());
+    }
+}
@@ -10,17 +10,21 @@ import android.graphics.Canvas;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
+import android.view.inputmethod.BaseInputConnection;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
 import android.view.inputmethod.InputConnectionWrapper;
 import android.widget.EditText;
 
 /** Class the acts a Dummy for text interaction and manipulation */
-public class DummyView extends EditText
+public class DummyView extends EditText implements TextEditSync.Target
 {
     public static final String TAG = "DummyView";
     public NativeKeyboard.AutofillType autofillType;
 
+    /** The signature this view is currently configured with */
+    public DummyViewSignature signature;
+
     private class DummyViewInputConnection extends InputConnectionWrapper
     {
         public DummyViewInputConnection(InputConnection target, boolean mutable)
@@ -28,6 +32,60 @@ public class DummyView extends EditText
             super(target, mutable);
         }
 
+        @Override
+        public boolean beginBatchEdit()
+        {
+            batchEditDepth++;
+            return super.beginBatchEdit();
+        }
+
+        @Override
+        public boolean endBatchEdit()
+        {
+            boolean result = super.endBatchEdit();
+            if(batchEditDepth > 0)
+            {
+                batchEditDepth--;
+                if(batchEditDepth == 0 && onBatchEditEndedListener != null)
+                {
+                    onBatchEditEndedListener.onBatchEditEnded();
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean setComposingText(CharSequence text, int newCursorPosition)
+        {
+            boolean result = super.setComposingText(text, newCursorPosition);
+            notifyComposingRegionChanged();
+            return result;
+        }
+
+        @Override
+        public boolean setComposingRegion(int start, int end)
+        {
+            boolean result = super.setComposingRegion(start, end);
+            notifyComposingRegionChanged();
+            return result;
+        }
+
+        @Override
+        public boolean finishComposingText()
+        {
+            boolean result = super.finishComposingText();
+            notifyComposingRegionChanged();
+            return result;
+        }
+
+        private void notifyComposingRegionChanged()
+        {
+            if(onComposingRegionChangedListener != null)
+            {
+                onComposingRegionChangedListener.onComposingRegionChanged();
+            }
+        }
+
         @Override
         public boolean sendKeyEvent(KeyEvent event)
         {
@@ -59,6 +117,9 @@ public class DummyView extends EditText
     public interface OnSpecialKeyPressedListener
     {
         public void onSpecialKeyPressed(NativeKeyboard.SpecialKeyCode specialKeyCode);
+
+        /** Called when a (hardware) key is being held down and repeats */
+        public void onKeyRepeated();
     }
 
     public interface OnSelectionChangedListener
@@ -66,8 +127,23 @@ public class DummyView extends EditText
         public void onSelectionChanged(int selectionStart, int selectionEnd);
     }
 
+    public interface OnBatchEditEndedListener
+    {
+        public void onBatchEditEnded();
+    }
+
+    public interface OnComposingRegionChangedListener
+    {
+        public void onComposingRegionChanged();
+    }
+
     private OnSpecialKeyPressedListener onSpecialKeyPressedListener;
     private OnSelectionChangedListener onSelectionChangedListener;
+    private OnBatchEditEndedListener onBatchEditEndedListener;
+    private OnComposingRegionChangedListener onComposingRegionChangedListener;
+
+    /** The amount of nested batch edits the IME currently has open */
+    private int batchEditDepth;
 
     public DummyView(Context context)
     {
@@ -84,9 +160,38 @@ public class DummyView extends EditText
         onSelectionChangedListener = listener;
     }
 
+    public void setOnBatchEditEndedListener(OnBatchEditEndedListener listener)
+    {
+        onBatchEditEndedListener = listener;
+    }
+
+    public void setOnComposingRegionChangedListener(OnComposingRegionChangedListener listener)
+    {
+        onComposingRegionChangedListener = listener;
+    }
+
+    /** Gets the start of the text the IME is composing, -1 when not composing */
+    public int getComposingRegionStart()
+    {
+        return BaseInputConnection.getComposingSpanStart(getText());
+    }
+
+    /** Gets the end of the text the IME is composing, -1 when not composing */
+    public int getComposingRegionEnd()
+    {
+        return BaseInputConnection.getComposingSpanEnd(getText());
+    }
+
+    /** Checks whether the IME is in the middle of a batch edit, changes will be followed by an onBatchEditEnded callback */
+    public boolean isInBatchEdit()
+    {
+        return (batchEditDepth > 0);
+    }
+
     @Override
     public InputConnection onCreateInputConnection(EditorInfo outAttrs)
     {
+        batchEditDepth = 0; //Batch edits of a previous connection won't be ended anymore
         return new DummyViewInputConnection(super.onCreateInputConnection(outAttrs), true);
     }
 
@@ -109,6 +214,16 @@ public class DummyView extends EditText
         return super.onKeyPreIme(keyCode, event);
     }
 
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event)
+    {
+        if(event.getRepeatCount() > 0 && onSpecialKeyPressedListener != null)
+        {
+            onSpecialKeyPressedListener.onKeyRepeated();
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+
     @Override
     protected void onSelectionChanged(int selStart, int selEnd)
     {
@@ -0,0 +1,130 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+/** Zero-size container that hosts all DummyViews.
+ *  Layout requests of the DummyViews are handled locally, so they don't cause layout passes of the whole activity.
+ */
+public class DummyViewContainer extends ViewGroup
+{
+    public static final int CHILD_WIDTH = 250;
+    public static final int CHILD_HEIGHT = 50;
+
+    /** Rough estimate of the memory (in bytes) a DummyView retains, excluding its text */
+    private static final int VIEW_MEMORY_ESTIMATE = 8 * 1024;
+
+    private Runnable localLayoutRunnable;
+    private boolean localLayoutPending;
+    /** Whether the activity laid out this container at least once (View.isLaidOut() requires API 19) */
+    private boolean laidOut;
+    private int layoutPassCount;
+    private int localLayoutRequestCount;
+
+    public DummyViewContainer(Context context)
+    {
+        super(context);
+        setClipChildren(false); //Keep the DummyViews "visible" for the autofill service
+        setWillNotDraw(true);
+        localLayoutRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                localLayoutPending = false;
+                measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(0, MeasureSpec.EXACTLY));
+                layout(getLeft(), getTop(), getRight(), getBottom());
+            }
+        };
+    }
+
+    /** The amount of times the DummyViews got laid out */
+    public int getLayoutPassCount() { return layoutPassCount; }
+
+    /** The amount of layout requests that were handled without a layout pass of the activity */
+    public int getLocalLayoutRequestCount() { return localLayoutRequestCount; }
+
+    public int getRetainedViewCount() { return getChildCount(); }
+
+    /** Rough estimate of the memory retained by the DummyViews (in bytes) */
+    public long getRetainedMemoryEstimate()
+    {
+        long memory = 0;
+        int length = getChildCount();
+        for(int i = 0; i < length; i++)
+        {
+            memory += VIEW_MEMORY_ESTIMATE;
+
+            View child = getChildAt(i);
+            if(child instanceof DummyView)
+            {
+                CharSequence text = ((DummyView)child).getText();
+                if(text != null) { memory += text.length() * 2; }
+            }
+        }
+
+        return memory;
+    }
+
+    public void addDummyView(DummyView view)
+    {
+        addView(view, new LayoutParams(CHILD_WIDTH, CHILD_HEIGHT));
+    }
+
+    @Override
+    public void requestLayout()
+    {
+        if(localLayoutRunnable == null || getParent() == null || !laidOut)
+        {
+            super.requestLayout(); //Initial layout needs to be done by the activity
+            return;
+        }
+
+        localLayoutRequestCount++;
+        forceLayout();
+        if(!localLayoutPending)
+        {
+            localLayoutPending = true;
+            post(localLayoutRunnable);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(CHILD_WIDTH, MeasureSpec.EXACTLY);
+        int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(CHILD_HEIGHT, MeasureSpec.EXACTLY);
+        int length = getChildCount();
+        for(int i = 0; i < length; i++)
+        {
+            getChildAt(i).measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        }
+
+        setMeasuredDimension(0, 0);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom)
+    {
+        layoutPassCount++;
+        laidOut = true;
+
+        int length = getChildCount();
+        for(int i = 0; i < length; i++)
+        {
+            getChildAt(i).layout(0, 0, CHILD_WIDTH, CHILD_HEIGHT);
+        }
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Bounded pool of DummyViews keyed by the signature they're configured with, least recently used views get recycled first */
+public class DummyViewPool
+{
+    public interface ViewFactory
+    {
+        public DummyView createView();
+    }
+
+    private final int capacity;
+    private final ViewFactory viewFactory;
+    private final LinkedHashMap<DummyViewSignature, DummyView> views;
+    private int hitCount;
+    private int missCount;
+
+    public DummyViewPool(int capacity, ViewFactory viewFactory)
+    {
+        this.capacity = Math.max(capacity, 2);
+        this.viewFactory = viewFactory;
+        this.views = new LinkedHashMap<DummyViewSignature, DummyView>(this.capacity, 0.75f, true); //Access order for LRU
+    }
+
+    public int getCapacity() { return capacity; }
+    public int getCount() { return views.size(); }
+    public int getHitCount() { return hitCount; }
+    public int getMissCount() { return missCount; }
+
+    /** Gets the view for given signature. On a miss a new view gets created or the least recently used view gets recycled.
+     *  The caller should configure the view when its signature doesn't match.
+     * @param signature The signature the view should have
+     * @param viewInUse The view that shouldn't be recycled (for example because it's connected to the IME), can be null
+     */
+    public DummyView obtain(DummyViewSignature signature, DummyView viewInUse)
+    {
+        DummyView view = views.get(signature);
+        if(view != null)
+        {
+            hitCount++;
+            return view;
+        }
+
+        missCount++;
+        if(views.size() < capacity)
+        {
+            view = viewFactory.createView();
+        }
+        else
+        {
+            Iterator<Map.Entry<DummyViewSignature, DummyView>> iterator = views.entrySet().iterator();
+            while(iterator.hasNext())
+            {
+                DummyView eldestView = iterator.next().getValue();
+                if(eldestView != viewInUse)
+                {
+                    iterator.remove();
+                    view = eldestView;
+                    break;
+                }
+            }
+        }
+
+        views.put(signature, view);
+        return view;
+    }
+
+    /** Checks whether given view is owned by this pool */
+    public boolean contains(DummyView view)
+    {
+        return views.containsValue(view);
+    }
+
+    public void resetCounts()
+    {
+        hitCount = 0;
+        missCount = 0;
+    }
+}
@@ -0,0 +1,61 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+/** The computed settings a DummyView gets configured with (EditorInfo values, line type and input filters) */
+public class DummyViewSignature
+{
+    /** Signature of a view that hasn't been configured yet */
+    public static final DummyViewSignature EMPTY = new DummyViewSignature(0, 0, NativeKeyboard.LineType.SINGLE_LINE, 0, true, EmojiExcludeFilter.Mode.REJECT, false);
+
+    public final int inputType;
+    public final int imeOptions;
+    public final NativeKeyboard.LineType lineType;
+    public final int characterLimit;
+    public final boolean emojisAllowed;
+    public final EmojiExcludeFilter.Mode emojiFilterMode;
+    public final boolean digitsKeyListener;
+
+    public DummyViewSignature(int inputType, int imeOptions, NativeKeyboard.LineType lineType, int characterLimit, boolean emojisAllowed, EmojiExcludeFilter.Mode emojiFilterMode, boolean digitsKeyListener)
+    {
+        this.inputType = inputType;
+        this.imeOptions = imeOptions;
+        this.lineType = lineType;
+        this.characterLimit = characterLimit;
+        this.emojisAllowed = emojisAllowed;
+        this.emojiFilterMode = emojiFilterMode;
+        this.digitsKeyListener = digitsKeyListener;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if(this == other) { return true; }
+        if(!(other instanceof DummyViewSignature)) { return false; }
+
+        DummyViewSignature signature = (DummyViewSignature)other;
+        return inputType == signature.inputType
+                && imeOptions == signature.imeOptions
+                && lineType == signature.lineType
+                && characterLimit == signature.characterLimit
+                && emojisAllowed == signature.emojisAllowed
+                && emojiFilterMode == signature.emojiFilterMode
+                && digitsKeyListener == signature.digitsKeyListener;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = inputType;
+        hash = 31 * hash + imeOptions;
+        hash = 31 * hash + (lineType != null ? lineType.ordinal() : -1);
+        hash = 31 * hash + characterLimit;
+        hash = 31 * hash + (emojisAllowed ? 1 : 0);
+        hash = 31 * hash + (emojiFilterMode != null ? emojiFilterMode.ordinal() : -1);
+        hash = 31 * hash + (digitsKeyListener ? 1 : 0);
+        return hash;
+    }
+}
@@ -6,13 +6,57 @@
 package com.jeroenvanpienbroek.nativekeyboard;
 
 import android.text.InputFilter;
+import android.text.SpannableStringBuilder;
 import android.text.Spanned;
 
 public class EmojiExcludeFilter implements InputFilter
 {
+    public enum Mode
+    {
+        /** Rejects the whole inserted text when it contains an emoji */
+        REJECT,
+        /** Removes only the emoji (including their sequences) from the inserted text */
+        STRIP
+    }
+
+    /** Sorted, non-overlapping emoji code point ranges (start and end inclusive, stored as pairs) */
+    private static final int[] EMOJI_RANGES = new int[]
+    {
+        0x00A9, 0x00A9, 0x00AE, 0x00AE, 0x203C, 0x203C, 0x2049, 0x2049, 0x2122, 0x2122, 0x2139, 0x2139,
+        0x2194, 0x2199, 0x21A9, 0x21AA, 0x231A, 0x231B, 0x2328, 0x2328, 0x23CF, 0x23CF, 0x23E9, 0x23F3,
+        0x23F8, 0x23FA, 0x24C2, 0x24C2, 0x25AA, 0x25AB, 0x25B6, 0x25B6, 0x25C0, 0x25C0, 0x25FB, 0x25FE,
+        0x2600, 0x27BF, 0x2934, 0x2935, 0x2B05, 0x2B07, 0x2B1B, 0x2B1C, 0x2B50, 0x2B50, 0x2B55, 0x2B55,
+        0x3030, 0x3030, 0x303D, 0x303D, 0x3297, 0x3297, 0x3299, 0x3299, 0x1F000, 0x1FAFF
+    };
+
+    private static final int ZERO_WIDTH_JOINER = 0x200D;
+    private static final int COMBINING_ENCLOSING_KEYCAP = 0x20E3;
+
+    private Mode mode;
+
+    public EmojiExcludeFilter()
+    {
+        this(Mode.REJECT);
+    }
+
+    public EmojiExcludeFilter(Mode mode)
+    {
+        this.mode = mode;
+    }
+
+    public Mode getMode()
+    {
+        return mode;
+    }
+
     @Override
     public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend)
     {
+        if(mode == Mode.STRIP)
+        {
+            return strip(source, start, end);
+        }
+
         for (int i = start; i < end; i++)
         {
             int type = Character.getType(source.charAt(i));
@@ -23,4 +67,117 @@ public class EmojiExcludeFilter implements InputFilter
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /** Removes emoji and their sequences (ZWJ, variation selectors, skin tones, keycaps and tags)
+     * @return The filtered text or null if the text doesn't contain emoji
+     */
+    public static CharSequence strip(CharSequence source, int start, int end)
+    {
+        SpannableStringBuilder builder = null; //Only allocated when something needs to be removed
+        int keptStart = start; //Start of the range that hasn't been appended to the builder yet
+        boolean inSequence = false;
+
+        int i = start;
+        while(i < end)
+        {
+            int codePoint = Character.codePointAt(source, i);
+            int length = Character.charCount(codePoint);
+            boolean remove;
+
+            if(isEmoji(codePoint))
+            {
+                remove = true;
+                inSequence = true;
+            }
+            else if(isSequenceComponent(codePoint))
+            {
+                remove = inSequence || (codePoint == ZERO_WIDTH_JOINER && i + length < end && isEmoji(Character.codePointAt(source, i + length)));
+                inSequence = remove;
+            }
+            else if(isKeycapBase(codePoint) && isKeycapSequence(source, i + length, end))
+            {
+                remove = true;
+                inSequence = true;
+            }
+            else
+            {
+                remove = false;
+                inSequence = false;
+            }
+
+            if(remove)
+            {
+                if(builder == null)
+                {
+                    builder = new SpannableStringBuilder();
+                }
+
+                if(i > keptStart)
+                {
+                    builder.append(source, keptStart, i); //Copies the kept range with its spans
+                }
+                keptStart = i + length;
+            }
+
+            i += length;
+        }
+
+        if(builder != null && keptStart < end)
+        {
+            builder.append(source, keptStart, end);
+        }
+
+        return builder;
+    }
+
+    public static boolean isEmoji(int codePoint)
+    {
+        if(codePoint < EMOJI_RANGES[0]) { return false; } //Fast path for ASCII
+
+        int low = 0;
+        int high = (EMOJI_RANGES.length / 2) - 1;
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if(codePoint < EMOJI_RANGES[middle * 2])
+            {
+                high = middle - 1;
+            }
+            else if(codePoint > EMOJI_RANGES[(middle * 2) + 1])
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /** Checks whether given code point only has a meaning as part of an emoji sequence (when following an emoji) */
+    private static boolean isSequenceComponent(int codePoint)
+    {
+        return codePoint == ZERO_WIDTH_JOINER
+                || codePoint == COMBINING_ENCLOSING_KEYCAP
+                || (codePoint >= 0xFE00 && codePoint <= 0xFE0F) //Variation selectors
+                || (codePoint >= 0xE0020 && codePoint <= 0xE007F); //Tags (subdivision flags)
+    }
+
+    private static boolean isKeycapBase(int codePoint)
+    {
+        return (codePoint >= '0' && codePoint <= '9') || codePoint == '#' || codePoint == '*';
+    }
+
+    /** Checks for an (optionally variation selected) combining enclosing keycap at given position (like in the keycap digit one emoji) */
+    private static boolean isKeycapSequence(CharSequence source, int index, int end)
+    {
+        if(index < end && source.charAt(index) == 0xFE0F)
+        {
+            index++;
+        }
+
+        return (index < end && source.charAt(index) == COMBINING_ENCLOSING_KEYCAP);
+    }
+}
@@ -0,0 +1,13 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+/** Source of the time used by the keyboard logic, can be replaced to drive the logic with a simulated time */
+public interface IClock
+{
+    /** Gets the monotonic time (in milliseconds) */
+    long elapsedRealtime();
+}
@@ -0,0 +1,33 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+/** The input method (IME) and the view connected to it, can be replaced to simulate an IME */
+public interface IInputMethod
+{
+    /** Requests focus for the view that receives the input */
+    void focus();
+
+    /** Clears the focus of the view that receives the input */
+    void clearFocus();
+
+    /** Requests the input method to show for the view that receives the input
+     * @param forced Whether to force showing it, instead of only when it was implicitly requested
+     */
+    void showSoftInput(boolean forced);
+
+    /** Requests the input method to hide for the window of the view that receives the input */
+    void hideSoftInput();
+
+    /** Restarts the input connection of the view that receives the input, so the input method picks up its new EditorInfo */
+    void restartInput();
+
+    /** Whether the input method is active for any view */
+    boolean isActive();
+
+    /** Whether the input method uses a subtype with a mode (like voice input), which can hide the keyboard temporarily */
+    boolean isSubtypeActive();
+}
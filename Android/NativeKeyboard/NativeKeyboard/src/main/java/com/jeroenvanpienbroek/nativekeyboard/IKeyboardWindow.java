@@ -0,0 +1,13 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+/** The window the keyboard gets shown over, can be replaced to simulate keyboard animations and rotations */
+public interface IKeyboardWindow
+{
+    /** Gets the height (in pixels) of the window that is covered by the keyboard and system bars */
+    int getKeyboardHeight();
+}
@@ -10,6 +10,11 @@ public interface INativeKeyboardCallback
     public void OnKeyboardNext();
     public void OnKeyboardCancel();
     public void OnSpecialKeyPressed(int specialKeyCode);
+    public void OnSpecialKeyRepeated(int specialKeyCode, int repeatCount);
     public void OnKeyboardHeightChanged(int height);
     public void OnHardwareKeyboardChanged(boolean connected);
+    public void OnOneTimeCodeSessionEnded(int outcome);
+    public void OnComposingRegionChanged(int composingRegionStart, int composingRegionEnd);
+    public void OnTextStyleRunsChanged(int startRun, int removedRunCount, int offsetShift, int[] runs);
+    public void OnStatsUpdate(String statsJSON);
 }
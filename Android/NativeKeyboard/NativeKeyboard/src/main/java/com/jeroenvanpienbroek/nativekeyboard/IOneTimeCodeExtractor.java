@@ -0,0 +1,12 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+public interface IOneTimeCodeExtractor
+{
+    /** Extracts the one time code from given (SMS) message, returns null if no code could be found */
+    String extract(String message);
+}
@@ -0,0 +1,92 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+/** Filters sampled keyboard heights, so transient heights (IME animations, suggestion strip toggles, emoji panel switches) don't get reported */
+public class KeyboardHeightFilter
+{
+    /** Default minimum height difference (in pixels) to report */
+    public static final int DEFAULT_MIN_DELTA = 1;
+
+    /** Default time (in milliseconds) a lower height needs to be stable before reporting it */
+    public static final int DEFAULT_SETTLE_TIME = 200;
+
+    private int minDelta;
+    private int settleTime;
+    private int pendingHeight;
+    private long pendingStartTime;
+
+    public KeyboardHeightFilter()
+    {
+        minDelta = DEFAULT_MIN_DELTA;
+        settleTime = DEFAULT_SETTLE_TIME;
+        pendingHeight = -1;
+    }
+
+    public int getMinDelta() { return minDelta; }
+    public int getSettleTime() { return settleTime; }
+
+    public void configure(int minDelta, int settleTime)
+    {
+        this.minDelta = Math.max(minDelta, 1);
+        this.settleTime = Math.max(settleTime, 0);
+        pendingHeight = -1;
+    }
+
+    /** Checks whether a sampled height should be reported.
+     *  Increases and expected changes get accepted immediately, decreases need to be stable for the settle time.
+     *  A decrease that recovers within the settle time is a layout transient and doesn't get reported at all.
+     * @param height The sampled height
+     * @param lastHeight The last reported height
+     * @param time The current time in milliseconds
+     * @param expected Whether the keyboard is expected to change height (pending show or hide)
+     */
+    public boolean accept(int height, int lastHeight, long time, boolean expected)
+    {
+        if(height == lastHeight)
+        {
+            pendingHeight = -1; //Height recovered, so it was a transient
+            return false;
+        }
+
+        if(expected)
+        {
+            pendingHeight = -1;
+            return true;
+        }
+
+        if(Math.abs(height - lastHeight) < minDelta)
+        {
+            return false;
+        }
+
+        if(height > lastHeight) //Growing keyboard can't cause a false dismissal, so no need to wait
+        {
+            pendingHeight = -1;
+            return true;
+        }
+
+        if(height != pendingHeight)
+        {
+            pendingHeight = height;
+            pendingStartTime = time;
+            return (settleTime == 0);
+        }
+
+        if(time - pendingStartTime >= settleTime)
+        {
+            pendingHeight = -1;
+            return true;
+        }
+
+        return false;
+    }
+
+    public void reset()
+    {
+        pendingHeight = -1;
+    }
+}
@@ -0,0 +1,306 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard.KeyboardState;
+
+/** Tracks the show/hide state and the reported height of the keyboard.
+ *  Only uses platform-neutral types, so it can be driven on a desktop JVM with a simulated clock, input method and window.
+ */
+public class KeyboardStateMachine
+{
+    /** Receives the transitions of the keyboard state machine */
+    public interface Listener
+    {
+        /** The keyboard finished showing */
+        void onKeyboardShow();
+
+        /** The keyboard finished hiding */
+        void onKeyboardHide();
+
+        /** The keyboard got hidden by the user or the system */
+        void onKeyboardCancel();
+
+        /** The keyboard height (excluding the bottom offset) to report changed */
+        void onKeyboardHeightChanged(int keyboardHeight);
+
+        /** The measured keyboard height changed, before filtering */
+        void onKeyboardHeightMeasured(int keyboardHeight);
+    }
+
+    /** Minimum time between repeated show or hide requests during a transition */
+    private static final int SOFT_INPUT_REQUEST_INTERVAL = 100;
+
+    private static final int MIN_VISIBLE_TIME_FOR_CANCEL = 1500;
+
+    private static final int MAX_PENDING_TIME = 1500;
+
+    /** Time to keep the reported keyboard height stable after switching to the next inputfield */
+    private static final int FIELD_SWITCH_SETTLE_TIME = 300;
+
+    private IClock clock;
+    private IInputMethod inputMethod;
+    private IKeyboardWindow keyboardWindow;
+    private KeyboardHeightFilter keyboardHeightFilter;
+    private Listener listener;
+
+    private KeyboardState state;
+    private boolean keyboardVisible;
+    private long visibleStartTime;
+    private int bottomOffset;
+    private int lastKeyboardHeight;
+    private long pendingStartTime;
+    private long lastSoftInputRequestTime;
+    private long fieldSwitchStartTime;
+
+    public KeyboardStateMachine(IClock clock, IInputMethod inputMethod, IKeyboardWindow keyboardWindow, KeyboardHeightFilter keyboardHeightFilter, Listener listener)
+    {
+        this.clock = clock;
+        this.inputMethod = inputMethod;
+        this.keyboardWindow = keyboardWindow;
+        this.keyboardHeightFilter = keyboardHeightFilter;
+        this.listener = listener;
+        this.state = KeyboardState.HIDDEN;
+        this.fieldSwitchStartTime = -FIELD_SWITCH_SETTLE_TIME - 1; //No field switch yet
+    }
+
+    public KeyboardState getState() { return state; }
+    public boolean isKeyboardVisible() { return keyboardVisible; }
+    public int getBottomOffset() { return bottomOffset; }
+    public int getLastKeyboardHeight() { return lastKeyboardHeight; }
+
+    /** Whether the keyboard is showing, hiding or reloading */
+    public boolean isTransitioning()
+    {
+        return (state == KeyboardState.PENDING_SHOW || state == KeyboardState.PENDING_HIDE || state == KeyboardState.PENDING_RELOAD);
+    }
+
+    /** Whether the measured keyboard height differs from the last processed height, for example while it's animating */
+    public boolean isKeyboardHeightChanging()
+    {
+        return (keyboardWindow.getKeyboardHeight() != lastKeyboardHeight);
+    }
+
+    /** Progresses the pending show, hide or reload transition
+     * @return Whether the Unity events can be processed, false while the keyboard is reloading
+     */
+    public boolean update()
+    {
+        if(state == KeyboardState.PENDING_RELOAD)
+        {
+            updateKeyboardVisibility();
+
+            if(!keyboardVisible)
+            {
+                state = KeyboardState.PENDING_SHOW;
+                inputMethod.focus();
+                inputMethod.showSoftInput(true);
+            }
+            return false;
+        }
+        else if(state == KeyboardState.PENDING_SHOW)
+        {
+            updateKeyboardVisibility();
+
+            if(!keyboardVisible && clock.elapsedRealtime() - pendingStartTime <= MAX_PENDING_TIME)
+            {
+                if(shouldRepeatSoftInputRequest())
+                {
+                    inputMethod.focus();
+                    inputMethod.showSoftInput(true);
+                }
+                return false;
+            }
+
+            state = KeyboardState.VISIBLE;
+            visibleStartTime = clock.elapsedRealtime();
+            listener.onKeyboardShow();
+        }
+        else if(state == KeyboardState.PENDING_HIDE)
+        {
+            updateKeyboardVisibility();
+
+            if(keyboardVisible && clock.elapsedRealtime() - pendingStartTime <= MAX_PENDING_TIME)
+            {
+                if(shouldRepeatSoftInputRequest())
+                {
+                    inputMethod.hideSoftInput();
+                }
+                return false;
+            }
+
+            inputMethod.clearFocus();
+            state = KeyboardState.HIDDEN;
+            listener.onKeyboardHide();
+        }
+
+        if(state == KeyboardState.VISIBLE)
+        {
+            if(!inputMethod.isActive())
+            {
+                inputMethod.focus();
+                inputMethod.showSoftInput(false);
+            }
+        }
+
+        return true;
+    }
+
+    /** Limits how often a show or hide request gets repeated during a frame aligned transition */
+    private boolean shouldRepeatSoftInputRequest()
+    {
+        long time = clock.elapsedRealtime();
+        if(time - lastSoftInputRequestTime < SOFT_INPUT_REQUEST_INTERVAL)
+        {
+            return false;
+        }
+
+        lastSoftInputRequestTime = time;
+        return true;
+    }
+
+    /** Prepares to show the keyboard for an inputfield
+     * @return Whether the keyboard is already visible, so it can switch to the inputfield without hiding
+     */
+    public boolean prepareShow()
+    {
+        keyboardHeightFilter.reset();
+
+        int keyboardHeight = keyboardWindow.getKeyboardHeight();
+        if(state == KeyboardState.VISIBLE && keyboardHeight > bottomOffset)
+        {
+            return true;
+        }
+
+        if(state == KeyboardState.HIDDEN)
+        {
+            bottomOffset = keyboardHeight; //Get the offset caused by the navigation bar if any
+        }
+        return false;
+    }
+
+    /** Requests the input method to show the keyboard and waits until it's visible */
+    public void requestShow()
+    {
+        state = KeyboardState.PENDING_SHOW;
+        pendingStartTime = clock.elapsedRealtime();
+        visibleStartTime = clock.elapsedRealtime();
+        inputMethod.focus();
+        inputMethod.showSoftInput(true);
+    }
+
+    /** Hides the keyboard of the current view, so it can be shown again for a different view */
+    public void requestReload()
+    {
+        state = KeyboardState.PENDING_RELOAD;
+        inputMethod.hideSoftInput();
+    }
+
+    /** Keeps the keyboard visible for the same inputfield that got shown again */
+    public void keepVisible()
+    {
+        visibleStartTime = clock.elapsedRealtime();
+    }
+
+    /** Switches the visible keyboard to the next inputfield, keeping the reported height stable during the switch
+     * @param restartInput Whether the view connected to the input method changed
+     */
+    public void switchField(boolean restartInput)
+    {
+        if(restartInput)
+        {
+            inputMethod.focus();
+            inputMethod.restartInput(); //Restart once, so the IME picks up the new EditorInfo without hiding
+        }
+
+        fieldSwitchStartTime = clock.elapsedRealtime();
+        visibleStartTime = clock.elapsedRealtime();
+    }
+
+    /** Requests the input method to hide the keyboard and waits until it's hidden
+     * @param reportZeroHeight Whether to report a zero height immediately, for when updates are disabled
+     */
+    public void requestHide(boolean reportZeroHeight)
+    {
+        keyboardHeightFilter.reset();
+        state = KeyboardState.PENDING_HIDE;
+        pendingStartTime = clock.elapsedRealtime();
+        inputMethod.hideSoftInput();
+        if(reportZeroHeight)
+        {
+            lastKeyboardHeight = 0;
+            listener.onKeyboardHeightChanged(lastKeyboardHeight);
+        }
+    }
+
+    /** Marks the keyboard as hidden by the user or the system */
+    public void cancel()
+    {
+        state = KeyboardState.HIDDEN;
+        listener.onKeyboardCancel();
+    }
+
+    /** Reports the keyboard height when it changed and is stable */
+    public void updateKeyboardHeight()
+    {
+        int keyboardHeight = keyboardWindow.getKeyboardHeight();
+        if(keyboardHeight == lastKeyboardHeight)
+        {
+            keyboardHeightFilter.reset(); //A pending lower height recovered, so it was a layout transient
+        }
+        else
+        {
+            listener.onKeyboardHeightMeasured(keyboardHeight);
+
+            long time = clock.elapsedRealtime();
+            if(time - fieldSwitchStartTime <= FIELD_SWITCH_SETTLE_TIME)
+            {
+                return; //Keyboard is switching to the next inputfield, report the final height when it's done
+            }
+
+            boolean expected = (state != KeyboardState.VISIBLE);
+            if(!keyboardHeightFilter.accept(keyboardHeight, lastKeyboardHeight, time, expected))
+            {
+                return; //Height isn't stable yet
+            }
+
+            if(keyboardHeight < lastKeyboardHeight && state == KeyboardState.VISIBLE)
+            {
+                long timeElapsed = time - visibleStartTime;
+                if(timeElapsed >= MIN_VISIBLE_TIME_FOR_CANCEL && !inputMethod.isSubtypeActive())
+                {
+                    cancel();
+                }
+            }
+
+            if(keyboardHeight == bottomOffset && (state == KeyboardState.PENDING_SHOW || state == KeyboardState.VISIBLE))
+            {
+                return;
+            }
+            else if(keyboardHeight > bottomOffset && (state == KeyboardState.PENDING_HIDE || state == KeyboardState.HIDDEN))
+            {
+                return;
+            }
+
+            listener.onKeyboardHeightChanged(keyboardHeight - bottomOffset);
+        }
+
+        lastKeyboardHeight = keyboardHeight;
+    }
+
+    private void updateKeyboardVisibility()
+    {
+        int keyboardHeight = keyboardWindow.getKeyboardHeight();
+        if(keyboardHeight > bottomOffset && state == KeyboardState.PENDING_SHOW)
+        {
+            keyboardVisible = true;
+        }
+        else if(keyboardHeight == bottomOffset && (state == KeyboardState.PENDING_HIDE || state == KeyboardState.PENDING_RELOAD))
+        {
+            keyboardVisible = false;
+        }
+    }
+}
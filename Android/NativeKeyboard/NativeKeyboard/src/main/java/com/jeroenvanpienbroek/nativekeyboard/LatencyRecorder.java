@@ -0,0 +1,105 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Keeps the most recent latency samples of a round trip to report percentiles and compare them against a budget.
+ *  Recording doesn't lock or allocate, samples get written into a ring buffer at an atomically reserved index.
+ */
+public class LatencyRecorder
+{
+    private final AtomicLongArray samples;
+    /** The amount of samples recorded since the last clear, also determines the next index in the ring buffer */
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong overBudgetCount = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private volatile long budget;
+
+    /** @param capacity The amount of most recent samples to keep
+     *  @param budget The maximum latency (in microseconds) a sample should have, 0 for no budget
+     */
+    public LatencyRecorder(int capacity, long budget)
+    {
+        this.samples = new AtomicLongArray(capacity);
+        this.budget = budget;
+    }
+
+    public void setBudget(long budget)
+    {
+        this.budget = budget;
+    }
+
+    /** Removes all samples, samples recorded at the same time can be kept */
+    public void clear()
+    {
+        totalCount.set(0);
+        overBudgetCount.set(0);
+        max.set(0);
+    }
+
+    /** @param latency The latency in microseconds, can be called from any thread */
+    public void record(long latency)
+    {
+        long index = totalCount.getAndIncrement();
+        samples.set((int)(index % samples.length()), latency);
+
+        long currentMax = max.get();
+        while(latency > currentMax && !max.compareAndSet(currentMax, latency))
+        {
+            currentMax = max.get();
+        }
+
+        long budget = this.budget;
+        if(budget > 0 && latency > budget)
+        {
+            overBudgetCount.incrementAndGet();
+        }
+    }
+
+    /** Creates a snapshot with the percentiles (in microseconds) of the kept samples.
+     *  Samples recorded during the snapshot can be missing from it or replace an older sample.
+     */
+    public JSONObject toJSON() throws JSONException
+    {
+        long totalCount = this.totalCount.get();
+        int sampleCount = (int)Math.min(totalCount, samples.length());
+        long[] sortedSamples = new long[sampleCount];
+        for(int i = 0; i < sampleCount; i++)
+        {
+            sortedSamples[i] = samples.get(i);
+        }
+        Arrays.sort(sortedSamples);
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("count", totalCount);
+        jsonObject.put("p50", getPercentile(sortedSamples, 50));
+        jsonObject.put("p95", getPercentile(sortedSamples, 95));
+        jsonObject.put("p99", getPercentile(sortedSamples, 99));
+        jsonObject.put("max", max.get());
+        jsonObject.put("budget", budget);
+        jsonObject.put("overBudget", overBudgetCount.get());
+        return jsonObject;
+    }
+
+    /** Gets the nearest-rank percentile of given sorted samples, 0 when there are no samples */
+    private static long getPercentile(long[] sortedSamples, int percentile)
+    {
+        int length = sortedSamples.length;
+        if(length == 0)
+        {
+            return 0;
+        }
+
+        int rank = (int)Math.ceil((percentile / 100.0) * length);
+        return sortedSamples[Math.max(rank, 1) - 1];
+    }
+}
@@ -9,19 +9,18 @@ import android.app.Activity;
 import android.app.Fragment;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.Configuration;
 import android.graphics.Rect;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.os.SystemClock;
 import android.text.Editable;
 import android.text.InputFilter;
 import android.text.TextWatcher;
 import android.text.method.DigitsKeyListener;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.Window;
@@ -29,7 +28,6 @@ import android.view.WindowManager;
 import android.view.autofill.AutofillManager;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
-import android.view.inputmethod.InputMethodSubtype;
 import android.widget.LinearLayout;
 import android.widget.TabHost;
 import android.widget.TextView;
@@ -37,16 +35,17 @@ import android.widget.TextView;
 import androidx.autofill.HintConstants;
 
 import com.google.android.gms.auth.api.phone.SmsRetriever;
-import com.google.android.gms.auth.api.phone.SmsRetrieverClient;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
 import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterValidator;
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterValidatorProfile;
 import com.jeroenvanpienbroek.nativekeyboard.textvalidator.TextValidator;
 import com.unity3d.player.UnityPlayer;
 
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import static android.text.InputType.TYPE_CLASS_NUMBER;
@@ -70,7 +69,7 @@ import static android.text.InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD;
 // Debug.
 
 /** Fragment class that manages the TouchScreenKeyboard */
-public class NativeKeyboard extends Fragment implements TextWatcher, TextView.OnEditorActionListener, DummyView.OnSpecialKeyPressedListener, DummyView.OnSelectionChangedListener
+public class NativeKeyboard extends Fragment implements TextView.OnEditorActionListener, DummyView.OnSpecialKeyPressedListener, DummyView.OnSelectionChangedListener, DummyView.OnBatchEditEndedListener, DummyView.OnComposingRegionChangedListener, KeyboardStateMachine.Listener, TextEditFilter.Host
 {
     //region CONSTANTS
     public enum KeyboardState
@@ -106,6 +105,8 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         SENTENCE,
         CUSTOM,
         DECIMAL_FORCE_POINT,
+        PATTERN_MASK,
+        IP_ADDRESS_V6,
     }
 
     public enum LineType
@@ -185,20 +186,19 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     /** Reference array to convert int to ReturnKeyType */
     private final ReturnKeyType[] returnKeyTypeValues = ReturnKeyType.values();
 
-    /** Determines how often to update */
+    /** Determines how often to update while waiting for external changes (like keyboard height) */
     private final int UPDATE_FREQUENCY = 100;
 
-    /** Determines how often to check for hardware keyboard connectivity */
-    private final int HARDWARE_KEYBOARD_FREQUENCY = 3000;
-
-    private final int MIN_VISIBLE_TIME_FOR_CANCEL = 1500;
-
-    private final int MAX_PENDING_TIME = 1500;
+    /** Maximum amount of preconfigured views (without autofill) to keep */
+    private final int VIEW_POOL_CAPACITY = 4;
 
     /** The tag of this Fragment */
     public static final String TAG = "NativeKeyboardFragment";
 
     public static final int REQUEST_SMS_USER_CONSENT = 143;
+
+    /** Default time (in milliseconds) to wait for a one time code, same as the timeout of the SMS User Consent API */
+    public static final int DEFAULT_ONE_TIME_CODE_TIMEOUT = 5 * 60 * 1000;
     //endregion
 
     /** The globally accessible instance of this class */
@@ -207,41 +207,84 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     public ThreadsafeQueue<IUnityEvent> unityEventQueue;
     public IUnityEvent currentEvent;
     public INativeKeyboardCallback unityCallback;
+    public NativeKeyboardStats stats;
+    /** The journal to record the session in, null when not recording */
+    public volatile SessionJournal journal;
     public boolean updatesEnabled;
-    public boolean cancelUpdateWhenDone;
     public boolean hardwareKeyboardUpdatesEnabled;
-    public boolean cancelHardwareKeyboardUpdateWhenDone;
 
-    public HashMap<AutofillType, DummyView> autofillViews;
-    public int viewY;
-    public DummyView defaultView;
+    public EnumMap<AutofillType, DummyView> autofillViews;
+    public DummyViewContainer viewContainer;
+    public DummyViewPool viewPool;
+    public HashMap<DummyViewSignature, InputFilter[]> inputFilters;
     public DummyView currentView;
     public CharacterValidation characterValidation;
     public boolean emojisAllowed;
+    public boolean richTextEditing;
+    public TextStyleRuns textStyleRuns;
     public boolean hasNext;
-    public KeyboardState state;
     public TextValidator textValidator;
+    public boolean validatorProfilingEnabled;
+    public boolean validatorAdaptiveOrdering;
+    public KeyboardHeightFilter keyboardHeightFilter;
 
     public Handler handler;
-    public Runnable updateRunnable;
-    public Runnable hardwareKeyboardUpdateRunnable;
-    public InputMethodManager inputMethodManager;
-    public boolean keyboardVisible;
-    public boolean ignoreTextChange;
+    public UpdateScheduler scheduler;
+    public IInputMethod inputMethod;
+    public IKeyboardWindow keyboardWindow;
+    public IClock clock;
+    public KeyboardStateMachine stateMachine;
     public boolean hardwareKeyboardConnected;
-    public long visibleStartTime;
-    public int bottomOffset;
 
-    private String lastText;
-    private int lastSelectionStartPosition;
-    private int lastSelectionEndPosition;
-    public int lastKeyboardHeight;
-    private SMSBroadcastReceiver smsBroadcastReceiver;
-    private String longestNumberSequence;
+    private TextEditSync textEditSync = new TextEditSync();
+    private boolean batchEditChangePending;
+    private boolean textRevalidationPending;
+    private boolean revalidatingText;
+    private SpecialKeyCode pendingSpecialKeyCode;
+    private int pendingSpecialKeyCount;
+    private boolean keyRepeatActive;
+    private boolean keyRepeatFlushScheduled;
+    private boolean keyRepeatTextEditUpdatePending;
+    private Choreographer.FrameCallback keyRepeatFrameCallback = new Choreographer.FrameCallback()
+    {
+        @Override
+        public void doFrame(long frameTimeNanos)
+        {
+            keyRepeatFlushScheduled = false;
+            flushKeyRepeat();
+        }
+    };
+    private int lastComposingRegionStart = -1;
+    private int lastComposingRegionEnd = -1;
+    private OneTimeCodeSession oneTimeCodeSession;
+    private volatile IOneTimeCodeExtractor oneTimeCodeExtractor;
 
-    private long pendingStartTime;
     private boolean navigationBarWasVisible;
     private boolean initialized;
+    private int statsPushInterval;
+    private Runnable statsPushRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            keyboardStateSnapshot = NativeKeyboardStats.createKeyboardStateJSON(NativeKeyboard.this);
+            unityCallback.OnStatsUpdate(stats.toJSON(keyboardStateSnapshot).toString());
+            handler.postDelayed(this, statsPushInterval);
+        }
+    };
+    /** The last pool, container and scheduler state, created on the UI thread so getStats can be called from the Unity thread */
+    private volatile JSONObject keyboardStateSnapshot;
+    private Runnable keyboardStateSnapshotRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            keyboardStateSnapshot = NativeKeyboardStats.createKeyboardStateJSON(NativeKeyboard.this);
+        }
+    };
+
+    private NativeKeyboardConfiguration lastConfiguration;
+    private Rect visibleDisplayFrame = new Rect();
 
     private TextEditUpdateEvent newestTextEditUpdateEvent;
     private Object newestTextEditUpdateLock = new Object();
@@ -254,9 +297,13 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     {
         instance = new NativeKeyboard();
         instance.unityEventQueue = new ThreadsafeQueue<IUnityEvent>();
-        instance.unityCallback = unityCallback;
+        instance.clock = new AndroidClock();
+        instance.stats = new NativeKeyboardStats();
+        instance.unityCallback = new StatsCallback(unityCallback, instance.stats);
         instance.textValidator = new TextValidator();
-        instance.state = KeyboardState.HIDDEN;
+        instance.keyboardHeightFilter = new KeyboardHeightFilter();
+        instance.oneTimeCodeExtractor = new OneTimeCodeExtractor();
+        instance.textStyleRuns = new TextStyleRuns();
         UnityPlayer.currentActivity.getFragmentManager().beginTransaction().add(instance, TAG).commit();
     }
 
@@ -271,150 +318,205 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
 
         setRetainInstance(true); // Retain between configuration changes (like device rotation)
 
-        int width = 250;
-        int height = 50;
-        viewY = 0;
+        viewContainer = new DummyViewContainer(UnityPlayer.currentActivity);
+        UnityPlayer.currentActivity.addContentView(viewContainer, new LinearLayout.LayoutParams(0, 0));
 
-        autofillViews = new HashMap<AutofillType, DummyView>();
+        autofillViews = new EnumMap<AutofillType, DummyView>(AutofillType.class);
+        inputFilters = new HashMap<DummyViewSignature, InputFilter[]>();
 
-        defaultView = new DummyView(UnityPlayer.currentActivity);
-        defaultView.setLayoutParams(new LinearLayout.LayoutParams(-width * 2, viewY));
-        defaultView.addTextChangedListener(this);
-        defaultView.setOnEditorActionListener(this);
-        defaultView.setOnSpecialKeyPressedListener(this);
-        defaultView.setOnSelectionChangedListener(this);
-        defaultView.setImeOptions(EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-        defaultView.autofillType = AutofillType.NONE;
-        if (Build.VERSION.SDK_INT >= 26)
+        viewPool = new DummyViewPool(VIEW_POOL_CAPACITY, new DummyViewPool.ViewFactory()
         {
-            defaultView.setImportantForAutofill(View.IMPORTANT_FOR_AUTOFILL_NO);
-        }
-        UnityPlayer.currentActivity.addContentView(defaultView, new LinearLayout.LayoutParams(width, height));
-        viewY -= height;
-
-        getViewForAutofill(AutofillType.USERNAME);
-        getViewForAutofill(AutofillType.PASSWORD);
+            @Override
+            public DummyView createView()
+            {
+                return createDefaultView();
+            }
+        });
 
-        currentView = defaultView;
+        currentView = viewPool.obtain(DummyViewSignature.EMPTY, null);
+        currentView.signature = DummyViewSignature.EMPTY;
 
         initNavigationBar();
 
         handler = new Handler();
-        updateRunnable = new Runnable()
+        createScheduler();
+
+        Activity activity = UnityPlayer.currentActivity;
+        if(inputMethod == null)
         {
-            public void run()
-            {
-                update();
+            inputMethod = new AndroidInputMethod((InputMethodManager) activity.getSystemService(Context.INPUT_METHOD_SERVICE), this);
+        }
+        if(keyboardWindow == null)
+        {
+            keyboardWindow = new AndroidKeyboardWindow(activity);
+        }
+        stateMachine = new KeyboardStateMachine(clock, inputMethod, keyboardWindow, keyboardHeightFilter, this);
+        initialized = true;
 
-                if(cancelUpdateWhenDone && unityEventQueue.getCount() == 0 && currentEvent == null)
-                {
-                    cancelUpdateWhenDone = false; //Don't repeat action anymore
-                    return;
-                }
-                else
-                {
-                    handler.postDelayed(this, UPDATE_FREQUENCY);
-                }
-            }
-        };
+        scheduler.wake(); //Process events that were added before initialization
+    }
 
-        hardwareKeyboardUpdateRunnable = new Runnable()
+    private void createScheduler()
+    {
+        scheduler = new UpdateScheduler(handler, UPDATE_FREQUENCY, new UpdateScheduler.Task()
         {
-            public void run()
+            @Override
+            public UpdateScheduler.Mode update()
             {
-                updateHardwareKeyboardConnectivity();
-
-                if(cancelHardwareKeyboardUpdateWhenDone)
+                boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.UPDATE);
+                try
                 {
-                    cancelHardwareKeyboardUpdateWhenDone = false; //Don't repeat action anymore
-                    return;
+                    NativeKeyboard.this.update();
+                    return determineUpdateMode();
                 }
-                else
+                finally
                 {
-                    handler.postDelayed(this, HARDWARE_KEYBOARD_FREQUENCY);
+                    NativeKeyboardTrace.endSection(traced);
                 }
             }
-        };
+        });
+    }
 
-        Activity activity = UnityPlayer.currentActivity;
-        inputMethodManager = (InputMethodManager) activity.getSystemService(Context.INPUT_METHOD_SERVICE);
-        initialized = true;
+    /** Wakes the update scheduler, can be called from any thread */
+    private void wakeUpdates()
+    {
+        if(scheduler != null)
+        {
+            scheduler.wake();
+        }
     }
 
-    DummyView getViewForAutofill(AutofillType type)
+    /** Creates a view without autofill support */
+    private DummyView createDefaultView()
     {
-        DummyView autofillView = null;
-        if(autofillViews.containsKey(type))
+        DummyView view = new DummyView(UnityPlayer.currentActivity);
+        view.addTextChangedListener(new ViewTextWatcher(view));
+        view.setOnEditorActionListener(this);
+        view.setOnSpecialKeyPressedListener(this);
+        view.setOnSelectionChangedListener(this);
+        view.setOnBatchEditEndedListener(this);
+        view.setOnComposingRegionChangedListener(this);
+        view.setImeOptions(EditorInfo.IME_FLAG_NO_EXTRACT_UI);
+        view.autofillType = AutofillType.NONE;
+        if (Build.VERSION.SDK_INT >= 26)
         {
-            autofillView = autofillViews.get(type);
+            view.setImportantForAutofill(View.IMPORTANT_FOR_AUTOFILL_NO);
         }
+        viewContainer.addDummyView(view);
 
+        return view;
+    }
+
+    /** Gets the view for given autofill type, the view gets created on first use */
+    DummyView getViewForAutofill(AutofillType type)
+    {
+        DummyView autofillView = autofillViews.get(type);
         if(autofillView == null)
         {
-            int width = 250;
-            int height = 50;
-
-            autofillView = new DummyView(UnityPlayer.currentActivity);
-            autofillView.setLayoutParams(new LinearLayout.LayoutParams(-width * 2, viewY));
-            autofillView.addTextChangedListener(this);
-            autofillView.setOnEditorActionListener(this);
-            autofillView.setOnSpecialKeyPressedListener(this);
-            autofillView.setOnSelectionChangedListener(this);
-            autofillView.setImeOptions(EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-            if (Build.VERSION.SDK_INT >= 26)
+            autofillView = createAutofillView(type);
+            autofillViews.put(type, autofillView);
+
+            AutofillType partnerType = getAutofillPartnerType(type);
+            if(partnerType != null) //Autofill services fill login forms as a whole
             {
-                autofillView.setImportantForAutofill(View.IMPORTANT_FOR_AUTOFILL_YES);
-                autofillView.autofillType = type;
-                switch (type)
-                {
-                    case USERNAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_USERNAME);
-                        break;
-                    case PASSWORD: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PASSWORD);
-                        break;
-                    case NEW_PASSWORD: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_NEW_PASSWORD);
-                        break;
-                    case ONE_TIME_CODE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_SMS_OTP);
-                        break;
-                    case NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME);
-                        break;
-                    case GIVEN_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME_GIVEN);
-                        break;
-                    case MIDDLE_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME_MIDDLE);
-                        break;
-                    case FAMILY_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME_FAMILY);
-                        break;
-                    case LOCATION: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_LOCALITY);
-                        break;
-                    case FULL_STREET_ADDRESS: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_STREET_ADDRESS);
-                        break;
-                    case STREET_ADDRESS_LINE_1: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_STREET_ADDRESS);
-                        break;
-                    case STREET_ADDRESS_LINE_2: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_EXTENDED_ADDRESS);
-                        break;
-                    case ADDRESS_CITY: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_LOCALITY);
-                        break;
-                    case ADDRESS_STATE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_REGION);
-                        break;
-                    case ADDRESS_CITY_AND_STATE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_LOCALITY);
-                        break;
-                    case COUNTRY_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_COUNTRY);
-                        break;
-                    case POSTAL_CODE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_CODE);
-                        break;
-                    case TELEPHONE_NUMBER: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PHONE_NUMBER);
-                        break;
-                    default:
-                        Log.d(TAG, "Unknown type: " + type);
-                        break;
-                }
+                getViewForAutofill(partnerType);
             }
-            UnityPlayer.currentActivity.addContentView(autofillView, new LinearLayout.LayoutParams(width, height));
-            viewY -= height;
+        }
 
-            autofillViews.put(type, autofillView);
+        return autofillView;
+    }
+
+    /** Gets the autofill type that is always hosted together with given type, null if none */
+    private AutofillType getAutofillPartnerType(AutofillType type)
+    {
+        switch(type)
+        {
+            case USERNAME: return AutofillType.PASSWORD;
+            case PASSWORD: return AutofillType.USERNAME;
+        }
+
+        return null;
+    }
+
+    private DummyView createAutofillView(AutofillType type)
+    {
+        DummyView autofillView = new DummyView(UnityPlayer.currentActivity);
+        autofillView.addTextChangedListener(new ViewTextWatcher(autofillView));
+        autofillView.setOnEditorActionListener(this);
+        autofillView.setOnSpecialKeyPressedListener(this);
+        autofillView.setOnSelectionChangedListener(this);
+        autofillView.setOnBatchEditEndedListener(this);
+        autofillView.setOnComposingRegionChangedListener(this);
+        autofillView.setImeOptions(EditorInfo.IME_FLAG_NO_EXTRACT_UI);
+        autofillView.autofillType = type;
+        if (Build.VERSION.SDK_INT >= 26)
+        {
+            autofillView.setImportantForAutofill(View.IMPORTANT_FOR_AUTOFILL_YES);
+            switch (type)
+            {
+                case USERNAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_USERNAME);
+                    break;
+                case PASSWORD: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PASSWORD);
+                    break;
+                case NEW_PASSWORD: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_NEW_PASSWORD);
+                    break;
+                case ONE_TIME_CODE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_SMS_OTP);
+                    break;
+                case NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME);
+                    break;
+                case GIVEN_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME_GIVEN);
+                    break;
+                case MIDDLE_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME_MIDDLE);
+                    break;
+                case FAMILY_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PERSON_NAME_FAMILY);
+                    break;
+                case LOCATION: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_LOCALITY);
+                    break;
+                case FULL_STREET_ADDRESS: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_STREET_ADDRESS);
+                    break;
+                case STREET_ADDRESS_LINE_1: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_STREET_ADDRESS);
+                    break;
+                case STREET_ADDRESS_LINE_2: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_EXTENDED_ADDRESS);
+                    break;
+                case ADDRESS_CITY: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_LOCALITY);
+                    break;
+                case ADDRESS_STATE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_REGION);
+                    break;
+                case ADDRESS_CITY_AND_STATE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_LOCALITY);
+                    break;
+                case COUNTRY_NAME: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_ADDRESS_COUNTRY);
+                    break;
+                case POSTAL_CODE: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_POSTAL_CODE);
+                    break;
+                case TELEPHONE_NUMBER: autofillView.setAutofillHints(HintConstants.AUTOFILL_HINT_PHONE_NUMBER);
+                    break;
+                default:
+                    Log.d(TAG, "Unknown type: " + type);
+                    break;
+            }
         }
+        viewContainer.addDummyView(autofillView);
+
+        return autofillView;
+    }
 
-        return  autofillView;
+    /** Releases the autofill views when the autofill session has ended.
+     *  The current view is kept, together with its username/password partner, because autofill services fill login forms as a whole.
+     */
+    private void releaseAutofillViews()
+    {
+        AutofillType partnerType = getAutofillPartnerType(currentView.autofillType);
+        Iterator<Map.Entry<AutofillType, DummyView>> iterator = autofillViews.entrySet().iterator();
+        while(iterator.hasNext())
+        {
+            Map.Entry<AutofillType, DummyView> entry = iterator.next();
+            DummyView autofillView = entry.getValue();
+            if(autofillView != currentView && entry.getKey() != partnerType)
+            {
+                viewContainer.removeView(autofillView);
+                iterator.remove();
+            }
+        }
     }
 
     @Override
@@ -427,17 +529,39 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         }
     }
 
+    @Override
+    public void onResume()
+    {
+        super.onResume();
+
+        if(hardwareKeyboardUpdatesEnabled)
+        {
+            updateHardwareKeyboardConnectivity();
+        }
+        wakeUpdates();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig)
+    {
+        super.onConfigurationChanged(newConfig);
+
+        if(hardwareKeyboardUpdatesEnabled) //Connecting a hardware keyboard changes the configuration
+        {
+            updateHardwareKeyboardConnectivity();
+        }
+        wakeUpdates();
+    }
+
     @Override
     public void onPause()
     {
-        if(inputMethodManager != null && currentView != null)
+        if(stateMachine != null && currentView != null)
         {
             if(currentView.autofillType == AutofillType.NONE)
             {
-                inputMethodManager.hideSoftInputFromWindow(currentView.getWindowToken(), 0);
-                state = KeyboardState.HIDDEN;
-                unityCallback.OnKeyboardCancel();
-                hideNavigationBar();
+                inputMethod.hideSoftInput();
+                stateMachine.cancel();
             }
         }
 
@@ -447,12 +571,20 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     @Override
     public void onDestroy()
     {
-        if(inputMethodManager != null && currentView != null)
+        if(oneTimeCodeSession != null)
         {
-            inputMethodManager.hideSoftInputFromWindow(currentView.getWindowToken(), 0);
-            state = KeyboardState.HIDDEN;
-            unityCallback.OnKeyboardCancel();
-            hideNavigationBar();
+            oneTimeCodeSession.stop();
+        }
+
+        if(handler != null)
+        {
+            handler.removeCallbacks(statsPushRunnable);
+        }
+
+        if(stateMachine != null && currentView != null)
+        {
+            inputMethod.hideSoftInput();
+            stateMachine.cancel();
         }
 
         super.onDestroy();
@@ -463,14 +595,21 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     {
         if(requestCode == REQUEST_SMS_USER_CONSENT)
         {
+            OneTimeCodeSession.Outcome outcome = OneTimeCodeSession.Outcome.CONSENT_DENIED;
             if (resultCode == Activity.RESULT_OK && data != null)
             {
+                outcome = OneTimeCodeSession.Outcome.NO_CODE_FOUND;
                 String message = data.getStringExtra(SmsRetriever.EXTRA_SMS_MESSAGE);
-                if(message != null)
+                if(message != null && parseSMSMessage(message))
                 {
-                    parseSMSMessage(message);
+                    outcome = OneTimeCodeSession.Outcome.CODE_RECEIVED;
                 }
             }
+
+            if(oneTimeCodeSession != null)
+            {
+                oneTimeCodeSession.finish(outcome);
+            }
         }
 
         super.onActivityResult(requestCode, resultCode, data);
@@ -493,84 +632,39 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         }
     }
 
-    private void startSmsUserConsent()
+    private void createOneTimeCodeSession()
     {
-        SmsRetrieverClient client = SmsRetriever.getClient(getActivity());
-        if(client != null)
+        oneTimeCodeSession = new OneTimeCodeSession(getActivity(), handler, new OneTimeCodeSession.OneTimeCodeSessionListener()
         {
-            //We can add user phone number or leave it blank
-            client.startSmsUserConsent(null).addOnSuccessListener(new OnSuccessListener<Void>()
-            {
-                @Override
-                public void onSuccess(Void aVoid)
-                {
-                    //Log.d(TAG, "LISTENING_SUCCESS");
-                }
-            });
-            client.startSmsUserConsent(null).addOnFailureListener(new OnFailureListener()
-            {
-                @Override
-                public void onFailure(Exception exception)
-                {
-                    //Log.d(TAG, "LISTENING_FAILURE");
-                }
-            });
-        }
-    }
-
-    private void registerToSmsBroadcastReceiver()
-    {
-        smsBroadcastReceiver = new SMSBroadcastReceiver();
-        smsBroadcastReceiver.smsBroadcastReceiverListener = new SMSBroadcastReceiverListener() {
             @Override
-            public void onSuccess(Intent intent)
+            public void onConsentRequired(Intent consentIntent)
             {
-                if(intent != null)
-                {
-                    startActivityForResult(intent, REQUEST_SMS_USER_CONSENT);
-                }
+                startActivityForResult(consentIntent, REQUEST_SMS_USER_CONSENT);
             }
 
             @Override
-            public void onFailure()
+            public void onSessionEnded(OneTimeCodeSession.Outcome outcome)
             {
-                //Log.d(TAG, "Register failed");
+                unityCallback.OnOneTimeCodeSessionEnded(outcome.ordinal());
             }
-        };
-
-        IntentFilter intentFilter = new IntentFilter(SmsRetriever.SMS_RETRIEVED_ACTION);
-        getActivity().registerReceiver(smsBroadcastReceiver, intentFilter);
+        });
     }
 
-    public void parseSMSMessage(String message)
+    /** Extracts the one time code from given message and autofills it
+     * @return Whether a one time code was found
+     */
+    public boolean parseSMSMessage(String message)
     {
-        longestNumberSequence = "";
-        String currentNumberSequence = "";
-
-        int length = message.length();
-        for(int i = 0; i < length; i++)
-        {
-            char c = message.charAt(i);
-            if(Character.isDigit(c))
-            {
-                currentNumberSequence += c;
-                if(currentNumberSequence.length() > longestNumberSequence.length())
-                {
-                    longestNumberSequence = currentNumberSequence;
-                }
-            }
-            else
-            {
-                currentNumberSequence = "";
-            }
-        }
-
-        if(longestNumberSequence.length() > 0)
+        String oneTimeCode = oneTimeCodeExtractor.extract(message);
+        if(oneTimeCode != null && oneTimeCode.length() > 0)
         {
             DummyView oneTimeCodeView = getViewForAutofill(AutofillType.ONE_TIME_CODE);
-            oneTimeCodeView.setText(longestNumberSequence);
-            unityCallback.OnAutofillUpdate(longestNumberSequence, AutofillType.ONE_TIME_CODE.ordinal());
+            oneTimeCodeView.setText(oneTimeCode);
+            unityCallback.OnAutofillUpdate(oneTimeCode, AutofillType.ONE_TIME_CODE.ordinal());
+            return true;
         }
+
+        return false;
     }
 
     //For some reason this makes sure the navigation bar stays visible when shown
@@ -589,7 +683,7 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
 
     public boolean isStatusBarVisible()
     {
-        Rect rectangle = new Rect();
+        Rect rectangle = visibleDisplayFrame;
         Window window = getActivity().getWindow();
         window.getDecorView().getWindowVisibleDisplayFrame(rectangle);
         int statusBarHeight = rectangle.top;
@@ -653,64 +747,9 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     //region PROCESS
     private void update()
     {
-        if(state == KeyboardState.PENDING_RELOAD)
-        {
-            updateKeyboardVisibility();
-
-            if(!keyboardVisible)
-            {
-                state = KeyboardState.PENDING_SHOW;
-                currentView.requestFocus();
-                inputMethodManager.showSoftInput(currentView, InputMethodManager.SHOW_FORCED);
-            }
-            return;
-        }
-        else if(state == KeyboardState.PENDING_SHOW)
-        {
-            updateKeyboardVisibility();
-
-            if(!keyboardVisible && SystemClock.elapsedRealtime() - pendingStartTime <= MAX_PENDING_TIME)
-            {
-                currentView.requestFocus();
-                inputMethodManager.showSoftInput(currentView, InputMethodManager.SHOW_FORCED);
-                return;
-            }
-
-            state = KeyboardState.VISIBLE;
-            visibleStartTime = SystemClock.elapsedRealtime();
-            unityCallback.OnKeyboardShow();
-            if(isLandscape())
-            {
-                hideNavigationBar();
-            }
-            else
-            {
-                showNavigationBar();
-            }
-        }
-        else if(state == KeyboardState.PENDING_HIDE)
-        {
-            updateKeyboardVisibility();
-
-            if(keyboardVisible && SystemClock.elapsedRealtime() - pendingStartTime <= MAX_PENDING_TIME)
-            {
-                inputMethodManager.hideSoftInputFromWindow(currentView.getWindowToken(), 0);
-                return;
-            }
-
-            currentView.clearFocus();
-            state = KeyboardState.HIDDEN;
-            unityCallback.OnKeyboardHide();
-            hideNavigationBar();
-        }
-
-        if(state == KeyboardState.VISIBLE)
+        if(!stateMachine.update())
         {
-            if(!inputMethodManager.isActive())
-            {
-                currentView.requestFocus();
-                inputMethodManager.showSoftInput(currentView, InputMethodManager.SHOW_IMPLICIT);
-            }
+            return; //Keyboard is still in transition
         }
 
         currentEvent = null;
@@ -730,18 +769,62 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
 
             unityEvent = popEvent();
         }
+        NativeKeyboardTrace.setCounter(NativeKeyboardTrace.QUEUE_DEPTH, 0);
+
+        stateMachine.updateKeyboardHeight();
+    }
+
+    /** Determines how the next update should be scheduled */
+    private UpdateScheduler.Mode determineUpdateMode()
+    {
+        boolean eventsPending = (unityEventQueue.getCount() > 0);
+        if(!updatesEnabled) //Only finish processing the remaining events
+        {
+            return eventsPending ? UpdateScheduler.Mode.POLL : UpdateScheduler.Mode.IDLE;
+        }
+
+        if(stateMachine.isTransitioning())
+        {
+            return UpdateScheduler.Mode.FRAME; //Active transition
+        }
+        else if(stateMachine.getState() == KeyboardState.VISIBLE)
+        {
+            return UpdateScheduler.Mode.POLL; //Keyboard height can change at any time
+        }
+
+        if(eventsPending)
+        {
+            return UpdateScheduler.Mode.FRAME;
+        }
+        else if(stateMachine.isKeyboardHeightChanging())
+        {
+            return UpdateScheduler.Mode.POLL; //Keyboard is still animating
+        }
 
-        updateKeyboardHeight();
+        return UpdateScheduler.Mode.IDLE;
     }
 
     private IUnityEvent popEvent()
     {
-        if(unityEventQueue.getCount() == 0)
+        IUnityEvent event = unityEventQueue.dequeue();
+        if(event != null)
         {
-            return null;
+            stats.recordDequeue(event);
         }
+        return event;
+    }
 
-        return unityEventQueue.dequeue();
+    /** Adds an event to process on the next update, can be called from any thread */
+    private void enqueueEvent(IUnityEvent event)
+    {
+        unityEventQueue.enqueue(event);
+        if(stats.isEnabled() || NativeKeyboardTrace.isEnabled())
+        {
+            int queueDepth = unityEventQueue.getCount();
+            stats.recordEnqueue(event, queueDepth);
+            NativeKeyboardTrace.setCounter(NativeKeyboardTrace.QUEUE_DEPTH, queueDepth);
+        }
+        wakeUpdates();
     }
 
     private void processTextEditUpdateEvent(TextEditUpdateEvent textEditUpdateEvent)
@@ -755,118 +838,249 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         int selectionStartPosition = textEditUpdateEvent.selectionStartPosition;
         int selectionEndPosition = textEditUpdateEvent.selectionEndPosition;
         applyTextEditUpdate(text, selectionStartPosition, selectionEndPosition, false);
+        if(richTextEditing)
+        {
+            textStyleRuns.apply(currentView.getText(), textEditUpdateEvent.styleRuns);
+        }
+        stats.recordTextEditApplied(textEditUpdateEvent);
     }
 
     private void applyTextEditUpdate(String text, int selectionStartPosition, int selectionEndPosition, boolean forced)
     {
+        boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.APPLY_TEXT_EDIT_UPDATE);
         try
         {
-            if(!text.equals(lastText) || forced)
-            {
-                currentView.setText(text);
-                lastText = text;
-
-                currentView.setSelection(selectionStartPosition, selectionEndPosition); //Always update selection after text change
-                lastSelectionStartPosition = selectionStartPosition;
-                lastSelectionEndPosition = selectionEndPosition;
-            }
-            else if(selectionStartPosition != lastSelectionStartPosition || selectionEndPosition != lastSelectionEndPosition)
+            try
             {
-                currentView.setSelection(selectionStartPosition, selectionEndPosition);
-                lastSelectionStartPosition = selectionStartPosition;
-                lastSelectionEndPosition = selectionEndPosition;
+                if(textEditSync.apply(currentView, text, selectionStartPosition, selectionEndPosition, forced))
+                {
+                    onTextReplaced(text);
+                }
             }
+            catch(Exception e) { e.printStackTrace(); }
+        }
+        finally
+        {
+            NativeKeyboardTrace.endSection(traced);
         }
-        catch(Exception e) { e.printStackTrace(); }
     }
 
-    private void processKeyboardShowEvent(KeyboardShowEvent keyboardShowEvent)
+    /** Applies the text and selection of a show request, the text only gets replaced when it differs from the text in the view */
+    private void applyShowTextEditUpdate(KeyboardShowEvent keyboardShowEvent)
     {
-        if(state == KeyboardState.HIDDEN)
+        boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.APPLY_TEXT_EDIT_UPDATE);
+        try
         {
-            bottomOffset = getKeyboardHeight(); //Get the offset caused by the navigation bar if any
-            Window window = getActivity().getWindow();
-            View decorView = window.getDecorView();
-            navigationBarWasVisible = (decorView.getSystemUiVisibility() & View.SYSTEM_UI_FLAG_HIDE_NAVIGATION) == 0;
-
-            if(isStatusBarVisible())
+            try
             {
-                window.setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_ADJUST_RESIZE);
+                String text = keyboardShowEvent.text;
+                if(textEditSync.applyShow(currentView, text, keyboardShowEvent.selectionStartPosition, keyboardShowEvent.selectionEndPosition))
+                {
+                    onTextReplaced(text);
+                }
             }
+            catch(Exception e) { e.printStackTrace(); }
+        }
+        finally
+        {
+            NativeKeyboardTrace.endSection(traced);
         }
 
-        NativeKeyboardConfiguration configuration = keyboardShowEvent.configuration;
-        characterValidation = configuration.characterValidation;
-        emojisAllowed = configuration.emojisAllowed;
-        LineType lineType = configuration.lineType;
-        CharacterValidator characterValidator = configuration.characterValidator;
-        textValidator.setValidation(characterValidation);
-        textValidator.setLineType(lineType);
-        textValidator.setValidator(characterValidator);
-        determineCurrentView(configuration.autofillType);
-        configureInputFilters(configuration.characterLimit);
-        configureLineType(configuration.lineType);
-        configureKeyboardType(keyboardShowEvent);
-
-        String text = keyboardShowEvent.text;
-        int selectionStartPosition = keyboardShowEvent.selectionStartPosition;
-        int selectionEndPosition = keyboardShowEvent.selectionEndPosition;
-        applyTextEditUpdate(text, selectionStartPosition, selectionEndPosition, true);
+        textStyleRuns.apply(currentView.getText(), null); //Formatting gets sent with the next text edit update
+    }
 
-        state = KeyboardState.PENDING_SHOW;
-        pendingStartTime = SystemClock.elapsedRealtime();
-        visibleStartTime = SystemClock.elapsedRealtime();
-        currentView.requestFocus();
-        inputMethodManager.showSoftInput(currentView, InputMethodManager.SHOW_FORCED);
+    /** Called after the text of the current view got replaced by the text of Unity */
+    private void onTextReplaced(String text)
+    {
+        NativeKeyboardTrace.setCounter(NativeKeyboardTrace.TEXT_LENGTH, (text != null) ? text.length() : 0);
+        lastComposingRegionStart = -1; //Replacing the text ends the composition
+        lastComposingRegionEnd = -1;
     }
 
-    private void determineCurrentView(AutofillType autofillType)
+    private void processKeyboardShowEvent(KeyboardShowEvent keyboardShowEvent)
     {
-        if (Build.VERSION.SDK_INT >= 26)
+        boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.PROCESS_KEYBOARD_SHOW);
+        try
         {
-            DummyView nextView = null;
-            if(autofillType == AutofillType.NONE)
-            {
-                nextView = defaultView;
-            }
-            else
+            NativeKeyboardTrace.endHide(); //Hide request got superseded
+
+            if(stateMachine.prepareShow())
             {
-                nextView = getViewForAutofill(autofillType);
+                processFieldSwitch(keyboardShowEvent);
+                return;
             }
 
-            if(currentView != nextView)
+            if(stateMachine.getState() == KeyboardState.HIDDEN)
             {
-                state = KeyboardState.PENDING_RELOAD;
-                inputMethodManager.hideSoftInputFromWindow(currentView.getWindowToken(), 0);
-                currentView = nextView;
+                Window window = getActivity().getWindow();
+                View decorView = window.getDecorView();
+                navigationBarWasVisible = (decorView.getSystemUiVisibility() & View.SYSTEM_UI_FLAG_HIDE_NAVIGATION) == 0;
+
+                if(isStatusBarVisible())
+                {
+                    window.setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_ADJUST_RESIZE);
+                }
             }
+
+            NativeKeyboardConfiguration configuration = keyboardShowEvent.configuration;
+            configureValidation(configuration);
+            DummyViewSignature signature = createViewSignature(configuration);
+            determineCurrentView(configuration.autofillType, signature);
+            configureView(signature);
+
+            applyShowTextEditUpdate(keyboardShowEvent);
+
+            stateMachine.requestShow();
+        }
+        finally
+        {
+            NativeKeyboardTrace.endSection(traced);
         }
     }
 
-    private void configureInputFilters(int characterLimit)
+    /** Switches to the next inputfield while the keyboard is already visible (for example when the Next key was pressed).
+     *  The keyboard doesn't get hidden and shown again, the reported keyboard height is kept stable during the switch.
+     */
+    private void processFieldSwitch(KeyboardShowEvent keyboardShowEvent)
     {
-        if (characterLimit > 0)
+        boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.PROCESS_FIELD_SWITCH);
+        try
         {
-            if(emojisAllowed)
-            {
-                currentView.setFilters(new InputFilter[]{});
-            }
-            else
+            NativeKeyboardConfiguration configuration = keyboardShowEvent.configuration;
+            configureValidation(configuration);
+            DummyViewSignature signature = createViewSignature(configuration);
+
+            if(isCurrentViewFor(configuration.autofillType, signature)) //Same field shown again (for example on re-focus), keep the input connection as is
             {
-                currentView.setFilters(new InputFilter[]{new EmojiExcludeFilter(), new InputFilter.LengthFilter(characterLimit)});
+                applyShowTextEditUpdate(keyboardShowEvent);
+                stateMachine.keepVisible();
+                unityCallback.OnKeyboardShow();
+                NativeKeyboardTrace.endShow();
+                return;
             }
+
+            //Configure a view that isn't connected to the IME yet, so the configuration calls don't restart the input connection
+            DummyView previousView = currentView;
+            currentView = getViewForFieldSwitch(configuration.autofillType, signature);
+            configureView(signature);
+
+            applyShowTextEditUpdate(keyboardShowEvent);
+
+            stateMachine.switchField(currentView != previousView);
+            unityCallback.OnKeyboardShow();
+            NativeKeyboardTrace.endShow();
         }
-        else
+        finally
         {
-            if(emojisAllowed)
-            {
-                currentView.setFilters(new InputFilter[]{});
+            NativeKeyboardTrace.endSection(traced);
+        }
+    }
+
+    /** Checks whether the current view is already the configured view for given autofill type and signature */
+    private boolean isCurrentViewFor(AutofillType autofillType, DummyViewSignature signature)
+    {
+        AutofillType viewAutofillType = (Build.VERSION.SDK_INT >= 26) ? autofillType : AutofillType.NONE;
+        return currentView.autofillType == viewAutofillType && signature.equals(currentView.signature);
+    }
+
+    /** Gets a view for the next inputfield that is preferably not the view currently connected to the IME */
+    private DummyView getViewForFieldSwitch(AutofillType autofillType, DummyViewSignature signature)
+    {
+        if (Build.VERSION.SDK_INT >= 26 && autofillType != AutofillType.NONE)
+        {
+            return getViewForAutofill(autofillType);
+        }
+
+        return viewPool.obtain(signature, currentView);
+    }
+
+    private void configureValidation(NativeKeyboardConfiguration configuration)
+    {
+        emojisAllowed = configuration.emojisAllowed;
+        richTextEditing = configuration.richTextEditing;
+        hasNext = configuration.hasNext;
+
+        if(!configuration.hasSameValidation(lastConfiguration)) //Only reapply when the validation settings changed
+        {
+            characterValidation = configuration.characterValidation;
+            LineType lineType = configuration.lineType;
+            CharacterValidator characterValidator = configuration.characterValidator;
+            textValidator.setValidation(characterValidation);
+            textValidator.setLineType(lineType);
+            textValidator.setValidator(characterValidator);
+            textValidator.setPatternMask(configuration.compiledPatternMask);
+            if(characterValidator != null)
+            {
+                characterValidator.setProfilingEnabled(validatorProfilingEnabled);
+                characterValidator.setAdaptiveOrdering(validatorAdaptiveOrdering);
             }
-            else
+        }
+
+        lastConfiguration = configuration;
+    }
+
+    private void determineCurrentView(AutofillType autofillType, DummyViewSignature signature)
+    {
+        DummyView nextView = null;
+        if (Build.VERSION.SDK_INT >= 26 && autofillType != AutofillType.NONE)
+        {
+            nextView = getViewForAutofill(autofillType);
+        }
+        else
+        {
+            nextView = viewPool.obtain(signature, null);
+        }
+
+        if(currentView != nextView)
+        {
+            stateMachine.requestReload(); //Hides the keyboard of the previous view
+            currentView = nextView;
+        }
+    }
+
+    /** Configures the current view, unless it's already configured with given signature */
+    private void configureView(DummyViewSignature signature)
+    {
+        if(signature.equals(currentView.signature))
+        {
+            return;
+        }
+
+        configureInputFilters(signature);
+        configureLineType(signature.lineType);
+        configureKeyboardType(signature);
+        currentView.signature = signature;
+    }
+
+    private DummyViewSignature createViewSignature(NativeKeyboardConfiguration configuration)
+    {
+        int inputType = determineInputType(configuration);
+        int imeOptions = determineImeOptions(configuration);
+        boolean digitsKeyListener = false;
+        if(configuration.lineType != LineType.MULTI_LINE_NEWLINE)
+        {
+            digitsKeyListener = (configuration.characterValidation == CharacterValidation.DECIMAL || configuration.characterValidation == CharacterValidation.DECIMAL_FORCE_POINT);
+        }
+
+        return new DummyViewSignature(inputType, imeOptions, configuration.lineType, configuration.characterLimit, configuration.emojisAllowed, configuration.emojiFilterMode, digitsKeyListener);
+    }
+
+    private void configureInputFilters(DummyViewSignature signature)
+    {
+        InputFilter[] filters = inputFilters.get(signature);
+        if(filters == null)
+        {
+            EmojiExcludeFilter emojiFilter = null;
+            if(!signature.emojisAllowed)
             {
-                currentView.setFilters(new InputFilter[]{new EmojiExcludeFilter()});
+                emojiFilter = new EmojiExcludeFilter(signature.emojiFilterMode);
             }
+
+            filters = new InputFilter[]{new TextEditFilter(this, emojiFilter, signature.characterLimit)};
+            inputFilters.put(signature, filters);
         }
+
+        currentView.setFilters(filters);
     }
 
     private void configureLineType(LineType lineType)
@@ -888,22 +1102,60 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         }
     }
 
-    private void configureKeyboardType(KeyboardShowEvent keyboardShowEvent)
+    private void configureKeyboardType(DummyViewSignature signature)
+    {
+        boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.CONFIGURE_KEYBOARD_TYPE);
+        try
+        {
+            currentView.setImeOptions(signature.imeOptions);
+            currentView.setInputType(signature.inputType);
+
+            if(signature.digitsKeyListener)
+            {
+                currentView.setKeyListener(DigitsKeyListener.getInstance("0123456789.,-"));
+            }
+        }
+        finally
+        {
+            NativeKeyboardTrace.endSection(traced);
+        }
+    }
+
+    private int determineImeOptions(NativeKeyboardConfiguration configuration)
+    {
+        if(configuration.lineType == LineType.MULTI_LINE_NEWLINE)
+        {
+            return EditorInfo.IME_ACTION_UNSPECIFIED | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+        }
+
+        switch (configuration.returnKeyType)
+        {
+            case GO: return EditorInfo.IME_ACTION_GO | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+            case SEND: return EditorInfo.IME_ACTION_SEND | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+            case SEARCH: return EditorInfo.IME_ACTION_SEARCH | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+        }
+
+        if (configuration.hasNext)
+        {
+            return EditorInfo.IME_ACTION_NEXT | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+        }
+        else
+        {
+            return EditorInfo.IME_ACTION_DONE | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+        }
+    }
+
+    private int determineInputType(NativeKeyboardConfiguration configuration)
     {
-        NativeKeyboardConfiguration configuration = keyboardShowEvent.configuration;
         LineType lineType = configuration.lineType;
         KeyboardType keyboardType = configuration.keyboardType;
         AutocapitalizationType autocapitalizationType = configuration.autocapitalizationType;
-        ReturnKeyType returnKeyType = configuration.returnKeyType;
         boolean autocorrection = configuration.autocorrection;
         boolean secure = configuration.secure;
-        hasNext = configuration.hasNext;
         int inputType = 0;
 
         if(lineType == LineType.MULTI_LINE_NEWLINE)
         {
-            currentView.setImeOptions(EditorInfo.IME_ACTION_UNSPECIFIED | EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-
             inputType = TYPE_CLASS_TEXT | TYPE_TEXT_FLAG_MULTI_LINE;
             if (!autocorrection || secure)
             {
@@ -911,54 +1163,10 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
                 inputType += TYPE_TEXT_VARIATION_FILTER;
             }
 
-            if(autocapitalizationType != AutocapitalizationType.NONE)
-            {
-                switch (autocapitalizationType)
-                {
-                    case CHARACTERS:
-                        inputType += TYPE_TEXT_FLAG_CAP_CHARACTERS;
-                        break;
-                    case WORDS:
-                        inputType += TYPE_TEXT_FLAG_CAP_WORDS;
-                        break;
-                    case SENTENCES:
-                        inputType += TYPE_TEXT_FLAG_CAP_SENTENCES;
-                        break;
-                }
-            }
-
-            currentView.setInputType(inputType);
-            return;
-        }
-
-        if(returnKeyType == ReturnKeyType.DEFAULT)
-        {
-            if (hasNext)
-            {
-                currentView.setImeOptions(EditorInfo.IME_ACTION_NEXT | EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-            }
-            else
-            {
-                currentView.setImeOptions(EditorInfo.IME_ACTION_DONE | EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-            }
-        }
-        else
-        {
-            switch (returnKeyType)
-            {
-                case GO:
-                    currentView.setImeOptions(EditorInfo.IME_ACTION_GO | EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-                    break;
-                case SEND:
-                    currentView.setImeOptions(EditorInfo.IME_ACTION_SEND | EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-                    break;
-                case SEARCH:
-                    currentView.setImeOptions(EditorInfo.IME_ACTION_SEARCH | EditorInfo.IME_FLAG_NO_EXTRACT_UI);
-                    break;
-            }
+            return inputType + getAutocapitalizationFlags(autocapitalizationType);
         }
 
-        switch (configuration.keyboardType)
+        switch (keyboardType)
         {
             case DEFAULT:
                 inputType = TYPE_CLASS_TEXT;
@@ -1001,97 +1209,72 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
             }
         }
 
-        if(autocapitalizationType != AutocapitalizationType.NONE)
-        {
-            switch (autocapitalizationType)
-            {
-                case CHARACTERS:
-                    inputType += TYPE_TEXT_FLAG_CAP_CHARACTERS;
-                    break;
-                case WORDS:
-                    inputType += TYPE_TEXT_FLAG_CAP_WORDS;
-                    break;
-                case SENTENCES:
-                    inputType += TYPE_TEXT_FLAG_CAP_SENTENCES;
-                    break;
-            }
-        }
-
-        currentView.setInputType(inputType);
+        return inputType + getAutocapitalizationFlags(autocapitalizationType);
+    }
 
-        if(characterValidation == CharacterValidation.DECIMAL || characterValidation == CharacterValidation.DECIMAL_FORCE_POINT)
+    private int getAutocapitalizationFlags(AutocapitalizationType autocapitalizationType)
+    {
+        switch (autocapitalizationType)
         {
-            currentView.setKeyListener(DigitsKeyListener.getInstance("0123456789.,-"));
+            case CHARACTERS: return TYPE_TEXT_FLAG_CAP_CHARACTERS;
+            case WORDS: return TYPE_TEXT_FLAG_CAP_WORDS;
+            case SENTENCES: return TYPE_TEXT_FLAG_CAP_SENTENCES;
         }
+
+        return 0;
     }
 
     private void processKeyboardHideEvent(KeyboardHideEvent keyboardHideEvent)
     {
-        state = KeyboardState.PENDING_HIDE;
-        pendingStartTime = SystemClock.elapsedRealtime();
-        inputMethodManager.hideSoftInputFromWindow(currentView.getWindowToken(), 0);
+        NativeKeyboardTrace.endShow(); //Show request got superseded
+        stateMachine.requestHide(!updatesEnabled); //Immediately report zero if we don't have updates enabled any more
         hideNavigationBar();
-        if(!updatesEnabled)
-        {
-            lastKeyboardHeight = 0; //Immediately report zero if we don't have updates enabled any more
-            unityCallback.OnKeyboardHeightChanged(lastKeyboardHeight);
-        }
     }
 
-    private void updateKeyboardHeight()
+    @Override
+    public void onKeyboardShow()
     {
-        int keyboardHeight = getKeyboardHeight();
-        if(keyboardHeight != lastKeyboardHeight)
+        unityCallback.OnKeyboardShow();
+        NativeKeyboardTrace.endShow();
+        if(isLandscape())
         {
-            if(keyboardHeight < lastKeyboardHeight && state == KeyboardState.VISIBLE)
-            {
-                long timeElapsed = SystemClock.elapsedRealtime() - visibleStartTime;
-                InputMethodSubtype subType = inputMethodManager.getCurrentInputMethodSubtype();
-                boolean subTypeActive = (subType != null && subType.getMode() != null && subType.getMode().length() > 0);
-                if(timeElapsed >= MIN_VISIBLE_TIME_FOR_CANCEL && !subTypeActive)
-                {
-                    state = KeyboardState.HIDDEN;
-                    unityCallback.OnKeyboardCancel();
-                    hideNavigationBar();
-                }
-            }
-
-            if(keyboardHeight == bottomOffset && (state == KeyboardState.PENDING_SHOW || state == KeyboardState.VISIBLE))
-            {
-                return;
-            }
-            else if(keyboardHeight > bottomOffset && (state == KeyboardState.PENDING_HIDE || state == KeyboardState.HIDDEN))
-            {
-                return;
-            }
-
-            unityCallback.OnKeyboardHeightChanged(keyboardHeight - bottomOffset);
+            hideNavigationBar();
         }
+        else
+        {
+            showNavigationBar();
+        }
+    }
 
-        lastKeyboardHeight = keyboardHeight;
+    @Override
+    public void onKeyboardHide()
+    {
+        unityCallback.OnKeyboardHide();
+        NativeKeyboardTrace.endHide();
+        hideNavigationBar();
     }
 
-    public void updateKeyboardVisibility()
+    @Override
+    public void onKeyboardCancel()
     {
-        int keyboardHeight = getKeyboardHeight();
-        if(keyboardHeight > bottomOffset && state == KeyboardState.PENDING_SHOW)
-        {
-            keyboardVisible = true;
-        }
-        else if(keyboardHeight == bottomOffset && state == KeyboardState.PENDING_HIDE)
-        {
-            keyboardVisible = false;
-        }
+        unityCallback.OnKeyboardCancel();
+        hideNavigationBar();
     }
 
-    /** Gets current keyboard height */
-    private int getKeyboardHeight()
+    @Override
+    public void onKeyboardHeightChanged(int keyboardHeight)
     {
-        View view = UnityPlayer.currentActivity.getWindow().getDecorView();
-        Rect rect = new Rect();
-        view.getWindowVisibleDisplayFrame(rect);
+        unityCallback.OnKeyboardHeightChanged(keyboardHeight);
+    }
 
-        return Math.round(view.getHeight() - rect.height());
+    @Override
+    public void onKeyboardHeightMeasured(int keyboardHeight)
+    {
+        SessionJournal journal = this.journal;
+        if(journal != null)
+        {
+            journal.recordKeyboardHeight(keyboardHeight);
+        }
     }
 
     private void updateHardwareKeyboardConnectivity()
@@ -1123,22 +1306,46 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     //endregion
 
     //region INPUTFIELD_EVENTS
-    @Override
-    public void beforeTextChanged(CharSequence s, int start, int count, int after)
+    /** TextWatcher bound to a single view, so the source of a text change is known directly */
+    private class ViewTextWatcher implements TextWatcher
     {
-    }
+        private final DummyView view;
 
-    @Override
-    public void onTextChanged(CharSequence charSequence, int start, int before, int count)
-    {
+        public ViewTextWatcher(DummyView view)
+        {
+            this.view = view;
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after)
+        {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence charSequence, int start, int before, int count)
+        {
+        }
+
+        @Override
+        public void afterTextChanged(Editable editable)
+        {
+            boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.AFTER_TEXT_CHANGED);
+            try
+            {
+                onViewTextChanged(view, editable);
+            }
+            finally
+            {
+                NativeKeyboardTrace.endSection(traced);
+            }
+        }
     }
 
-    @Override
-    public void afterTextChanged(Editable editable)
+    private void onViewTextChanged(DummyView view, Editable editable)
     {
-        if(editable.hashCode() != currentView.getText().hashCode())
+        if(view != currentView) //Text of another view changed, most likely by the autofill service
         {
-            AutofillType autofillType = getAutofillTypeForHashCode(editable.hashCode());
+            AutofillType autofillType = view.autofillType;
             if(autofillType != AutofillType.NONE)
             {
                 unityCallback.OnAutofillUpdate(editable.toString(), autofillType.ordinal());
@@ -1146,71 +1353,85 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
             return;
         }
 
-        if(currentEvent != null || ignoreTextChange)
+        if(currentEvent != null || revalidatingText)
         {
             return;
         }
 
-        if(characterValidation != CharacterValidation.NONE)
+        if(textRevalidationPending)
         {
-            String lastText = currentView.getText().toString();
-            String text = "";
+            textRevalidationPending = false;
+            revalidateText();
+        }
 
-            int caretPosition = currentView.getSelectionStart();
-            int selectionStartPosition = -1;
-            if(currentView.getSelectionEnd() - currentView.getSelectionStart() > 0)
-            {
-                selectionStartPosition = currentView.getSelectionStart();
-            }
+        SessionJournal journal = this.journal;
+        if(journal != null)
+        {
+            journal.recordTextChange(editable, currentView.getSelectionStart(), currentView.getSelectionEnd());
+        }
+        stats.recordImeChange();
 
-            textValidator.validate(text, lastText, caretPosition, selectionStartPosition);
-            text = textValidator.getResultText();
+        if(currentView.isInBatchEdit()) //Report once when the batch edit ends
+        {
+            batchEditChangePending = true;
+            return;
+        }
 
-            if(!lastText.equals(text))
-            {
-                int lastSelectionStart = currentView.getSelectionStart();
+        if(isCoalescingKeyRepeat()) //Report once with the held down key
+        {
+            keyRepeatTextEditUpdatePending = true;
+            return;
+        }
 
-                ignoreTextChange = true;
-                currentView.setText(text);
-                ignoreTextChange = false;
+        sendTextEditUpdate();
+    }
 
-                int amountChanged = text.length() - lastText.length();
-                try
-                {
-                    caretPosition = lastSelectionStart + amountChanged;
-                    currentView.setSelection(caretPosition, caretPosition);
-                }
-                catch(Exception e) { e.printStackTrace(); };
-            }
-        }
+    @Override
+    public CharacterValidation getCharacterValidation() { return characterValidation; }
+    @Override
+    public TextValidator getTextValidator() { return textValidator; }
+    @Override
+    public NativeKeyboardStats getKeyboardStats() { return stats; }
+    @Override
+    public boolean isApplyingUnityEvent() { return (currentEvent != null); }
 
-        String text = currentView.getText().toString();
-        int selectionStartPosition = currentView.getSelectionStart();
-        int selectionEndPosition = currentView.getSelectionEnd();
-        if(selectionStartPosition > selectionEndPosition) //Check if they are swapped
+    /** Requests the whole text to be validated after the current text change, for edits the input filter can't fully validate */
+    @Override
+    public void requestTextRevalidation()
+    {
+        textRevalidationPending = true;
+    }
+
+    /** Validates the whole text of the current view and replaces it when the validation changed it */
+    private void revalidateText()
+    {
+        long validationStartTime = stats.startValidation();
+        boolean changed = false;
+        revalidatingText = true;
+        try
         {
-            selectionStartPosition = currentView.getSelectionEnd();
-            selectionEndPosition = currentView.getSelectionStart();
+            changed = textEditSync.revalidate(currentView, textValidator);
+        }
+        catch(Exception e) { e.printStackTrace(); }
+        finally
+        {
+            revalidatingText = false;
+            stats.recordValidation(validationStartTime, changed);
         }
-        unityCallback.OnTextEditUpdate(text, selectionStartPosition, selectionEndPosition);
-
-        lastText = text;
-        lastSelectionStartPosition = selectionStartPosition;
-        lastSelectionEndPosition = selectionEndPosition;
     }
 
-    public AutofillType getAutofillTypeForHashCode(int hashCode)
+    /** Sends the current text and selection of the current view to Unity, preceded by the composing region if it changed */
+    private void sendTextEditUpdate()
     {
-        for(Map.Entry<AutofillType, DummyView> entry: autofillViews.entrySet())
+        sendComposingRegionUpdate();
+        if(richTextEditing)
         {
-            DummyView autofillView = entry.getValue();
-            if(autofillView.getText().hashCode() == hashCode)
-            {
-                return autofillView.autofillType;
-            }
+            sendTextStyleRunsUpdate();
         }
 
-        return AutofillType.NONE;
+        String text = textEditSync.read(currentView);
+        unityCallback.OnTextEditUpdate(text, textEditSync.getLastSelectionStartPosition(), textEditSync.getLastSelectionEndPosition());
+        NativeKeyboardTrace.setCounter(NativeKeyboardTrace.TEXT_LENGTH, text.length());
     }
 
     @Override
@@ -1235,16 +1456,86 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     @Override
     public void onSpecialKeyPressed(SpecialKeyCode specialKeyCode)
     {
+        SessionJournal journal = this.journal;
+        if(journal != null)
+        {
+            journal.recordSpecialKey(specialKeyCode.ordinal());
+        }
+
+        if(specialKeyCode == SpecialKeyCode.BACKSPACE) //Can repeat very fast when held down, so report at most once per frame
+        {
+            if(pendingSpecialKeyCount > 0 && pendingSpecialKeyCode != specialKeyCode)
+            {
+                flushKeyRepeat();
+            }
+
+            pendingSpecialKeyCode = specialKeyCode;
+            pendingSpecialKeyCount++;
+            scheduleKeyRepeatFlush();
+            return;
+        }
+
+        flushKeyRepeat();
         unityCallback.OnSpecialKeyPressed(specialKeyCode.ordinal());
 
         if(specialKeyCode == SpecialKeyCode.BACK)
         {
-            state = KeyboardState.HIDDEN;
-            unityCallback.OnKeyboardCancel();
-            hideNavigationBar();
+            stateMachine.cancel();
+        }
+    }
+
+    @Override
+    public void onKeyRepeated()
+    {
+        keyRepeatActive = true; //Text changes of this frame get reported together
+        scheduleKeyRepeatFlush();
+    }
+
+    private void scheduleKeyRepeatFlush()
+    {
+        if(!keyRepeatFlushScheduled)
+        {
+            keyRepeatFlushScheduled = true;
+            Choreographer.getInstance().postFrameCallback(keyRepeatFrameCallback);
+        }
+    }
+
+    /** Reports the special keys and text changes collected since the last frame */
+    private void flushKeyRepeat()
+    {
+        if(keyRepeatFlushScheduled)
+        {
+            keyRepeatFlushScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(keyRepeatFrameCallback);
+        }
+
+        if(pendingSpecialKeyCount == 1)
+        {
+            unityCallback.OnSpecialKeyPressed(pendingSpecialKeyCode.ordinal());
+        }
+        else if(pendingSpecialKeyCount > 1)
+        {
+            unityCallback.OnSpecialKeyRepeated(pendingSpecialKeyCode.ordinal(), pendingSpecialKeyCount);
+        }
+        pendingSpecialKeyCount = 0;
+        keyRepeatActive = false;
+
+        if(keyRepeatTextEditUpdatePending)
+        {
+            keyRepeatTextEditUpdatePending = false;
+            if(currentEvent == null)
+            {
+                sendTextEditUpdate();
+            }
         }
     }
 
+    /** Checks whether text edit updates should wait for the key repeat flush */
+    private boolean isCoalescingKeyRepeat()
+    {
+        return (pendingSpecialKeyCount > 0 || keyRepeatActive);
+    }
+
     @Override
     public void onSelectionChanged(int selectionStart, int selectionEnd)
     {
@@ -1253,20 +1544,92 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
             return;
         }
 
-        if(selectionStart != lastSelectionStartPosition || selectionEnd != lastSelectionEndPosition)
+        SessionJournal journal = this.journal;
+        if(journal != null)
+        {
+            journal.recordSelectionChange(selectionStart, selectionEnd);
+        }
+
+        if(textEditSync.hasSelectionChanged(selectionStart, selectionEnd))
+        {
+            if(currentView.isInBatchEdit()) //Report once when the batch edit ends
+            {
+                batchEditChangePending = true;
+                return;
+            }
+
+            if(isCoalescingKeyRepeat()) //Report once with the held down key
+            {
+                keyRepeatTextEditUpdatePending = true;
+                return;
+            }
+
+            sendTextEditUpdate();
+        }
+    }
+
+    @Override
+    public void onBatchEditEnded()
+    {
+        if(currentEvent != null)
+        {
+            return;
+        }
+
+        if(batchEditChangePending)
         {
-            String text = currentView.getText().toString();
-            int selectionStartPosition = currentView.getSelectionStart();
-            int selectionEndPosition = currentView.getSelectionEnd();
-            if(selectionStartPosition > selectionEndPosition) //Check if they are swapped
+            batchEditChangePending = false;
+            if(isCoalescingKeyRepeat())
+            {
+                keyRepeatTextEditUpdatePending = true;
+            }
+            else
             {
-                selectionStartPosition = currentView.getSelectionEnd();
-                selectionEndPosition = currentView.getSelectionStart();
+                sendTextEditUpdate();
             }
-            unityCallback.OnTextEditUpdate(text, selectionStartPosition, selectionEndPosition);
+        }
+        else
+        {
+            sendComposingRegionUpdate();
+        }
+    }
+
+    @Override
+    public void onComposingRegionChanged()
+    {
+        if(currentEvent != null || currentView.isInBatchEdit()) //Gets sent when the batch edit ends
+        {
+            return;
+        }
+
+        sendComposingRegionUpdate();
+    }
+
+    /** Sends the changed style runs of the current view to Unity */
+    private void sendTextStyleRunsUpdate()
+    {
+        if(textStyleRuns.update(currentView.getText()))
+        {
+            unityCallback.OnTextStyleRunsChanged(textStyleRuns.getDeltaStartRun(), textStyleRuns.getDeltaRemovedRunCount(), textStyleRuns.getDeltaOffsetShift(), textStyleRuns.getDeltaRuns());
+        }
+    }
+
+    /** Sends the composing region of the current view to Unity if it changed since the last time */
+    private void sendComposingRegionUpdate()
+    {
+        int composingRegionStart = currentView.getComposingRegionStart();
+        int composingRegionEnd = currentView.getComposingRegionEnd();
+        if(composingRegionStart > composingRegionEnd) //Check if they are swapped
+        {
+            composingRegionStart = currentView.getComposingRegionEnd();
+            composingRegionEnd = currentView.getComposingRegionStart();
+        }
 
-            lastSelectionStartPosition = selectionStartPosition;
-            lastSelectionEndPosition = selectionEndPosition;
+        if(composingRegionStart != lastComposingRegionStart || composingRegionEnd != lastComposingRegionEnd)
+        {
+            unityCallback.OnComposingRegionChanged(composingRegionStart, composingRegionEnd);
+            lastComposingRegionStart = composingRegionStart;
+            lastComposingRegionEnd = composingRegionEnd;
         }
     }
     //endregion
@@ -1280,15 +1643,7 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         if(!instance.updatesEnabled)
         {
             instance.updatesEnabled = true;
-
-            if(instance.cancelUpdateWhenDone) //Thread action haven't been cancelled yet
-            {
-                instance.cancelUpdateWhenDone = false;
-            }
-            else
-            {
-                instance.handler.post(instance.updateRunnable);
-            }
+            instance.wakeUpdates();
         }
     }
 
@@ -1325,7 +1680,11 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
 
         if(instance.handler == null) //Still not ready, create it now
         {
-            try { instance.handler = new Handler(); }
+            try
+            {
+                instance.handler = new Handler();
+                instance.createScheduler();
+            }
             catch (Exception e) { e.printStackTrace(); }
         }
     }
@@ -1337,8 +1696,7 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
 
         if(instance.updatesEnabled)
         {
-            instance.updatesEnabled = false;
-            instance.cancelUpdateWhenDone = true;
+            instance.updatesEnabled = false; //Scheduler goes idle when the remaining events are processed
         }
     }
 
@@ -1351,14 +1709,15 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         {
             instance.hardwareKeyboardUpdatesEnabled = true;
 
-            if(instance.cancelHardwareKeyboardUpdateWhenDone) //Thread action haven't been cancelled yet
-            {
-                instance.cancelHardwareKeyboardUpdateWhenDone = false;
-            }
-            else
+            //Check once now, changes after this are received in onConfigurationChanged
+            instance.handler.post(new Runnable()
             {
-                instance.handler.post(instance.hardwareKeyboardUpdateRunnable);
-            }
+                @Override
+                public void run()
+                {
+                    instance.updateHardwareKeyboardConnectivity();
+                }
+            });
         }
     }
 
@@ -1370,19 +1729,222 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         if(instance.hardwareKeyboardUpdatesEnabled)
         {
             instance.hardwareKeyboardUpdatesEnabled = false;
-            instance.cancelHardwareKeyboardUpdateWhenDone = true;
         }
     }
 
+    /** Configures how sampled keyboard heights get filtered before reporting them
+     * @param minDelta The minimum height difference (in pixels) to report
+     * @param settleTime The time (in milliseconds) a lower height needs to be stable before reporting it
+     */
+    public static void setKeyboardHeightFilter(final int minDelta, final int settleTime)
+    {
+        ensureInitialization();
+        ensureHandler();
+
+        instance.handler.post(new Runnable() //The height gets filtered on this thread
+        {
+            @Override
+            public void run()
+            {
+                instance.keyboardHeightFilter.configure(minDelta, settleTime);
+            }
+        });
+    }
+
+    /** Gets the amount of update ticks per second, to verify the updates idle when nothing is pending */
+    public static float getWakeupsPerSecond()
+    {
+        if(instance.scheduler == null) { return 0; }
+        return instance.scheduler.getWakeupsPerSecond();
+    }
+
+    /** Enables or disables recording of the runtime metrics, enabling resets them */
+    public static void setStatsEnabled(boolean enabled)
+    {
+        instance.stats.setEnabled(enabled);
+    }
+
+    /** Starts recording the commands of Unity and the events of the IME in a journal, restarts it if already recording
+     * @param capacity The size (in bytes) of the ring buffer, the oldest records get dropped when it's full
+     */
+    public static void startJournal(int capacity)
+    {
+        instance.journal = new SessionJournal((capacity > 0) ? capacity : SessionJournal.DEFAULT_CAPACITY);
+    }
+
+    /** Stops recording the journal, the records are discarded */
+    public static void stopJournal()
+    {
+        instance.journal = null;
+    }
+
+    /** Writes the records of the journal to given file, can be read with SessionJournalReader
+     * @return true if the journal was written
+     */
+    public static boolean dumpJournal(String filePath)
+    {
+        SessionJournal journal = instance.journal;
+        if(journal == null) { return false; }
+
+        try
+        {
+            journal.dump(filePath);
+            return true;
+        }
+        catch(IOException e)
+        {
+            Log.d(TAG, "Failed to dump journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Enables or disables the trace sections, async slices and counters in system traces (Perfetto/systrace) */
+    public static void setTraceEnabled(final boolean enabled)
+    {
+        ensureInitialization();
+        ensureHandler();
+
+        instance.handler.post(new Runnable() //Toggle between tasks on the main thread, so no section is left open
+        {
+            @Override
+            public void run()
+            {
+                NativeKeyboardTrace.setEnabled(enabled);
+            }
+        });
+    }
+
+    /** Enables or disables the profiling mode of custom character validators, enabling resets the counters */
+    public static void setValidatorProfilingEnabled(final boolean enabled)
+    {
+        ensureInitialization();
+        ensureHandler();
+
+        instance.handler.post(new Runnable() //Validation runs on this thread
+        {
+            @Override
+            public void run()
+            {
+                instance.validatorProfilingEnabled = enabled;
+                CharacterValidator characterValidator = instance.textValidator.getValidator();
+                if(characterValidator != null)
+                {
+                    characterValidator.setProfilingEnabled(enabled);
+                }
+            }
+        });
+    }
+
+    /** Enables or disables adaptive rule ordering of custom character validators: rules with a lower expected cost to reach a match get evaluated earlier where that can't change the results, otherwise the declaration order is kept */
+    public static void setValidatorAdaptiveOrdering(final boolean enabled)
+    {
+        ensureInitialization();
+        ensureHandler();
+
+        instance.handler.post(new Runnable() //Validation runs on this thread
+        {
+            @Override
+            public void run()
+            {
+                instance.validatorAdaptiveOrdering = enabled;
+                CharacterValidator characterValidator = instance.textValidator.getValidator();
+                if(characterValidator != null)
+                {
+                    characterValidator.setAdaptiveOrdering(enabled);
+                }
+            }
+        });
+    }
+
+    /** Gets a JSON report of the rule and condition counters of the current custom character validator, empty when not profiling */
+    public static String getValidatorProfile()
+    {
+        CharacterValidator characterValidator = instance.textValidator.getValidator();
+        CharacterValidatorProfile profile = (characterValidator != null) ? characterValidator.profile : null;
+        if(profile == null)
+        {
+            return "{}";
+        }
+
+        return profile.toJSON().toString();
+    }
+
+    /** Configures the latency budget of a round trip, samples above it are counted in the runtime metrics
+     * @param roundTrip The ordinal of the NativeKeyboardStats.RoundTrip
+     * @param budget The budget (in microseconds), 0 for no budget
+     */
+    public static void setLatencyBudget(int roundTrip, int budget)
+    {
+        instance.stats.setLatencyBudget(NativeKeyboardStats.RoundTrip.values()[roundTrip], budget);
+    }
+
+    /** Gets a JSON snapshot of the runtime metrics.
+     *  The pool, container and scheduler state can only be read on the UI thread, so that part is from the previous call (or stats push).
+     */
+    public static String getStats()
+    {
+        String statsJSON = instance.stats.toJSON(instance.keyboardStateSnapshot).toString();
+        Handler handler = instance.handler;
+        if(handler != null)
+        {
+            handler.post(instance.keyboardStateSnapshotRunnable);
+        }
+
+        return statsJSON;
+    }
+
+    /** Configures the interval to push the runtime metrics to Unity
+     * @param interval The interval (in milliseconds), 0 to stop pushing
+     */
+    public static void setStatsPushInterval(final int interval)
+    {
+        ensureInitialization();
+        ensureHandler();
+
+        instance.handler.post(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                instance.handler.removeCallbacks(instance.statsPushRunnable);
+                instance.statsPushInterval = interval;
+                if(interval > 0)
+                {
+                    instance.handler.postDelayed(instance.statsPushRunnable, interval);
+                }
+            }
+        });
+    }
+
     public static void updateTextEdit(String text, int selectionStartPosition, int selectionEndPosition)
     {
-        TextEditUpdateEvent textEditUpdateEvent = new TextEditUpdateEvent(text, selectionStartPosition, selectionEndPosition);
-        instance.unityEventQueue.enqueue(textEditUpdateEvent);
+        updateTextEdit(text, selectionStartPosition, selectionEndPosition, null);
+    }
+
+    /** Updates the text with its formatting (only used in rich text editing mode)
+     * @param styleRuns The style runs of the text: offset, length and style id for each run
+     */
+    public static void updateTextEdit(String text, int selectionStartPosition, int selectionEndPosition, int[] styleRuns)
+    {
+        SessionJournal journal = instance.journal;
+        if(journal != null)
+        {
+            journal.recordUpdateTextEdit(text, selectionStartPosition, selectionEndPosition);
+        }
+
+        TextEditUpdateEvent textEditUpdateEvent = new TextEditUpdateEvent(text, selectionStartPosition, selectionEndPosition, styleRuns);
         instance.setNewestTextEditUpdateEvent(textEditUpdateEvent);
+        instance.enqueueEvent(textEditUpdateEvent);
     }
 
     public static void showKeyboard(String text, int selectionStartPosition, int selectionEndPosition, String configurationJSON)
     {
+        SessionJournal journal = instance.journal;
+        if(journal != null)
+        {
+            journal.recordShowKeyboard(text, selectionStartPosition, selectionEndPosition, configurationJSON);
+        }
+
         NativeKeyboardConfiguration configuration = null;
         if(configurationJSON != null && configurationJSON.length() > 0)
         {
@@ -1397,8 +1959,9 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
             }
         }
         KeyboardShowEvent keyboardShowEvent = new KeyboardShowEvent(text, selectionStartPosition, selectionEndPosition, configuration);
+        NativeKeyboardTrace.beginShow();
 
-        instance.unityEventQueue.enqueue(keyboardShowEvent);
+        instance.enqueueEvent(keyboardShowEvent);
     }
 
     public static void restoreKeyboard()
@@ -1411,11 +1974,8 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
                 @Override
                 public void run()
                 {
-                    instance.state = KeyboardState.PENDING_SHOW;
-                    instance.pendingStartTime = SystemClock.elapsedRealtime();
-                    instance.visibleStartTime = SystemClock.elapsedRealtime();
-                    instance.currentView.requestFocus();
-                    instance.inputMethodManager.showSoftInput(instance.currentView, InputMethodManager.SHOW_FORCED);
+                    instance.stateMachine.requestShow();
+                    instance.wakeUpdates();
                 }
             };
             mainHandler.post(runnable);
@@ -1425,8 +1985,15 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
 
     public static void hideKeyboard()
     {
+        SessionJournal journal = instance.journal;
+        if(journal != null)
+        {
+            journal.recordHideKeyboard();
+        }
+
         KeyboardHideEvent keyboardHideEvent = new KeyboardHideEvent();
-        instance.unityEventQueue.enqueue(keyboardHideEvent);
+        NativeKeyboardTrace.beginHide();
+        instance.enqueueEvent(keyboardHideEvent);
     }
 
     public static void resetAutofill()
@@ -1450,6 +2017,7 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
                             afm.cancel();
                         }
                     }
+                    instance.releaseAutofillViews();
                 }
             };
             mainHandler.post(runnable);
@@ -1458,6 +2026,14 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
     }
 
     public static void startListeningForOneTimeCodes()
+    {
+        startListeningForOneTimeCodes(DEFAULT_ONE_TIME_CODE_TIMEOUT);
+    }
+
+    /** Starts a one time code session, or restarts the timeout of the active session
+     * @param timeout The time (in milliseconds) to wait for an SMS
+     */
+    public static void startListeningForOneTimeCodes(final int timeout)
     {
         try
         {
@@ -1471,11 +2047,11 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
                     {
                         try
                         {
-                            if(instance.smsBroadcastReceiver == null)
+                            if(instance.oneTimeCodeSession == null)
                             {
-                                instance.registerToSmsBroadcastReceiver();
+                                instance.createOneTimeCodeSession();
                             }
-                            instance.startSmsUserConsent();
+                            instance.oneTimeCodeSession.start(timeout);
                         }
                         catch (Exception e)
                         {
@@ -1489,6 +2065,47 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
         catch(Exception e) {}
     }
 
+    public static void stopListeningForOneTimeCodes()
+    {
+        try
+        {
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            Runnable runnable = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if(instance.oneTimeCodeSession != null)
+                    {
+                        instance.oneTimeCodeSession.stop();
+                    }
+                }
+            };
+            mainHandler.post(runnable);
+        }
+        catch(Exception e) {}
+    }
+
+    /** Configures how one time codes get extracted from SMS messages
+     * @param minLength The minimum length of a code
+     * @param maxLength The maximum length of a code
+     * @param alphanumeric Whether codes can contain letters
+     * @param prefixAnchors Texts that can precede a code (like "code:"), null or empty to use the defaults
+     * @param suffixAnchors Texts that can follow a code (like "is your code"), null or empty to use the defaults
+     */
+    public static void setOneTimeCodeConfiguration(int minLength, int maxLength, boolean alphanumeric, String[] prefixAnchors, String[] suffixAnchors)
+    {
+        if(prefixAnchors == null || prefixAnchors.length == 0) { prefixAnchors = OneTimeCodeExtractor.DEFAULT_PREFIX_ANCHORS; }
+        if(suffixAnchors == null || suffixAnchors.length == 0) { suffixAnchors = OneTimeCodeExtractor.DEFAULT_SUFFIX_ANCHORS; }
+        instance.oneTimeCodeExtractor = new OneTimeCodeExtractor(minLength, maxLength, alphanumeric, prefixAnchors, suffixAnchors);
+    }
+
+    /** Replaces the extractor used to get one time codes from SMS messages */
+    public static void setOneTimeCodeExtractor(IOneTimeCodeExtractor oneTimeCodeExtractor)
+    {
+        instance.oneTimeCodeExtractor = (oneTimeCodeExtractor != null) ? oneTimeCodeExtractor : new OneTimeCodeExtractor();
+    }
+
     public static void saveCredentials()
     {
         try
@@ -1504,6 +2121,7 @@ public class NativeKeyboard extends Fragment implements TextWatcher, TextView.On
                         AutofillManager autofillManager = instance.getActivity().getSystemService(AutofillManager.class);
                         autofillManager.commit();
                     }
+                    instance.releaseAutofillViews();
                 }
             };
             mainHandler.post(runnable);
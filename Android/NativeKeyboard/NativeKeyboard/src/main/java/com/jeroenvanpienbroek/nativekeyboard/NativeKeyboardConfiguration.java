@@ -1,8 +1,10 @@
 package com.jeroenvanpienbroek.nativekeyboard;
 
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterValidator;
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.PatternMask;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -15,6 +17,7 @@ public class NativeKeyboardConfiguration
     private final NativeKeyboard.AutocapitalizationType[] autocapitalizationTypeValues = NativeKeyboard.AutocapitalizationType.values();
     private final NativeKeyboard.AutofillType[] autofillTypeValues = NativeKeyboard.AutofillType.values();
     private final NativeKeyboard.ReturnKeyType[] returnKeyTypeValues = NativeKeyboard.ReturnKeyType.values();
+    private final EmojiExcludeFilter.Mode[] emojiFilterModeValues = EmojiExcludeFilter.Mode.values();
 
     public NativeKeyboard.KeyboardType keyboardType;
     public NativeKeyboard.CharacterValidation characterValidation;
@@ -26,9 +29,13 @@ public class NativeKeyboardConfiguration
     public boolean secure;
     public boolean richTextEditing;
     public boolean emojisAllowed;
+    public EmojiExcludeFilter.Mode emojiFilterMode;
     public boolean hasNext;
     public int characterLimit;
+    public String characterValidatorJSON;
     public CharacterValidator characterValidator;
+    public String patternMask;
+    public PatternMask compiledPatternMask;
 
     public NativeKeyboardConfiguration(JSONObject jsonObject)
     {
@@ -49,10 +56,11 @@ public class NativeKeyboardConfiguration
             secure = jsonObject.getBoolean("secure");
             richTextEditing = jsonObject.getBoolean("richTextEditing");
             emojisAllowed = jsonObject.getBoolean("emojisAllowed");
+            emojiFilterMode = emojiFilterModeValues[jsonObject.optInt("emojiFilterMode", EmojiExcludeFilter.Mode.REJECT.ordinal())];
             hasNext = jsonObject.getBoolean("hasNext");
             characterLimit = jsonObject.getInt("characterLimit");
 
-            String characterValidatorJSON = jsonObject.getString("characterValidatorJSON");
+            characterValidatorJSON = jsonObject.getString("characterValidatorJSON");
             if(characterValidatorJSON != null && characterValidatorJSON.length() > 0)
             {
                 try
@@ -65,10 +73,66 @@ public class NativeKeyboardConfiguration
                     e.printStackTrace();
                 }
             }
+
+            patternMask = jsonObject.optString("patternMask");
+            compiledPatternMask = PatternMask.compile(patternMask);
         }
         catch (Exception e)
         {
             e.printStackTrace();
         }
     }
+
+    /** Checks whether given configuration uses the same text validation settings */
+    public boolean hasSameValidation(NativeKeyboardConfiguration other)
+    {
+        if(other == null) { return false; }
+
+        return characterValidation == other.characterValidation
+                && lineType == other.lineType
+                && TextUtils.equals(characterValidatorJSON, other.characterValidatorJSON)
+                && TextUtils.equals(patternMask, other.patternMask);
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if(this == other) { return true; }
+        if(!(other instanceof NativeKeyboardConfiguration)) { return false; }
+
+        NativeKeyboardConfiguration configuration = (NativeKeyboardConfiguration)other;
+        return keyboardType == configuration.keyboardType
+                && autocapitalizationType == configuration.autocapitalizationType
+                && autofillType == configuration.autofillType
+                && returnKeyType == configuration.returnKeyType
+                && autocorrection == configuration.autocorrection
+                && secure == configuration.secure
+                && richTextEditing == configuration.richTextEditing
+                && emojisAllowed == configuration.emojisAllowed
+                && emojiFilterMode == configuration.emojiFilterMode
+                && hasNext == configuration.hasNext
+                && characterLimit == configuration.characterLimit
+                && hasSameValidation(configuration);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = (keyboardType != null) ? keyboardType.ordinal() : -1;
+        hash = 31 * hash + ((characterValidation != null) ? characterValidation.ordinal() : -1);
+        hash = 31 * hash + ((lineType != null) ? lineType.ordinal() : -1);
+        hash = 31 * hash + ((autocapitalizationType != null) ? autocapitalizationType.ordinal() : -1);
+        hash = 31 * hash + ((autofillType != null) ? autofillType.ordinal() : -1);
+        hash = 31 * hash + ((returnKeyType != null) ? returnKeyType.ordinal() : -1);
+        hash = 31 * hash + (autocorrection ? 1 : 0);
+        hash = 31 * hash + (secure ? 1 : 0);
+        hash = 31 * hash + (richTextEditing ? 1 : 0);
+        hash = 31 * hash + (emojisAllowed ? 1 : 0);
+        hash = 31 * hash + ((emojiFilterMode != null) ? emojiFilterMode.ordinal() : -1);
+        hash = 31 * hash + (hasNext ? 1 : 0);
+        hash = 31 * hash + characterLimit;
+        hash = 31 * hash + ((characterValidatorJSON != null) ? characterValidatorJSON.hashCode() : 0);
+        hash = 31 * hash + ((patternMask != null) ? patternMask.hashCode() : 0);
+        return hash;
+    }
 }
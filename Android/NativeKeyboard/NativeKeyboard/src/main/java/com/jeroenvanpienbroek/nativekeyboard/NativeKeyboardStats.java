@@ -0,0 +1,411 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Runtime metrics of the keyboard bridge. Counters are lock-free and only get updated when enabled. */
+public class NativeKeyboardStats
+{
+    public enum Callback
+    {
+        TEXT_EDIT_UPDATE,
+        AUTOFILL_UPDATE,
+        KEYBOARD_SHOW,
+        KEYBOARD_HIDE,
+        KEYBOARD_DONE,
+        KEYBOARD_NEXT,
+        KEYBOARD_CANCEL,
+        SPECIAL_KEY_PRESSED,
+        SPECIAL_KEY_REPEATED,
+        KEYBOARD_HEIGHT_CHANGED,
+        HARDWARE_KEYBOARD_CHANGED,
+        ONE_TIME_CODE_SESSION_ENDED,
+        COMPOSING_REGION_CHANGED,
+        TEXT_STYLE_RUNS_CHANGED
+    }
+
+    /** The round trips between Unity and the IME that get their latency measured */
+    public enum RoundTrip
+    {
+        /** From the showKeyboard call until OnKeyboardShow */
+        SHOW,
+        /** From the updateTextEdit call until the text of the view is updated */
+        TEXT_EDIT_APPLY,
+        /** From a text change by the IME until OnTextEditUpdate */
+        IME_COMMIT,
+        /** From the hideKeyboard call until OnKeyboardHeightChanged(0) */
+        HIDE
+    }
+
+    /** Default latency budgets (in microseconds) for each RoundTrip */
+    private static final long[] DEFAULT_LATENCY_BUDGETS = new long[]{ 500000, 16000, 16000, 500000 };
+
+    /** The amount of most recent latency samples to keep for each RoundTrip */
+    private static final int LATENCY_SAMPLE_CAPACITY = 512;
+
+    private static final long NOT_PENDING = Long.MIN_VALUE;
+
+    /** Upper bounds (in microseconds) of the validation time buckets, the last bucket counts everything above */
+    private static final long[] VALIDATION_BUCKETS = new long[]{ 5, 10, 25, 50, 100, 250, 1000 };
+
+    private static final String TAG = "NativeKeyboardStats";
+
+    private volatile boolean enabled;
+    private volatile long startTime;
+
+    private final AtomicLongArray eventsEnqueued = new AtomicLongArray(NativeKeyboard.EventType.values().length);
+    private final AtomicLongArray eventsDequeued = new AtomicLongArray(NativeKeyboard.EventType.values().length);
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final AtomicLongArray callbacks = new AtomicLongArray(Callback.values().length);
+    private final AtomicLong textBytesFromUnity = new AtomicLong();
+    private final AtomicLong textBytesToUnity = new AtomicLong();
+    private final AtomicLongArray validationTimes = new AtomicLongArray(VALIDATION_BUCKETS.length + 1);
+    private final AtomicLong validationChanges = new AtomicLong();
+    private final AtomicLong showRequestTime = new AtomicLong(NOT_PENDING);
+    private final AtomicLong hideRequestTime = new AtomicLong(NOT_PENDING);
+    private final AtomicLong imeChangeTime = new AtomicLong(NOT_PENDING);
+    private final LatencyRecorder[] latencies;
+
+    public NativeKeyboardStats()
+    {
+        RoundTrip[] roundTrips = RoundTrip.values();
+        latencies = new LatencyRecorder[roundTrips.length];
+        for(int i = 0; i < roundTrips.length; i++)
+        {
+            latencies[i] = new LatencyRecorder(LATENCY_SAMPLE_CAPACITY, DEFAULT_LATENCY_BUDGETS[i]);
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled)
+    {
+        if(enabled && !this.enabled)
+        {
+            reset();
+        }
+        this.enabled = enabled;
+    }
+
+    public void reset()
+    {
+        clear(eventsEnqueued);
+        clear(eventsDequeued);
+        peakQueueDepth.set(0);
+        clear(callbacks);
+        textBytesFromUnity.set(0);
+        textBytesToUnity.set(0);
+        clear(validationTimes);
+        validationChanges.set(0);
+        showRequestTime.set(NOT_PENDING);
+        hideRequestTime.set(NOT_PENDING);
+        imeChangeTime.set(NOT_PENDING);
+        for(LatencyRecorder latencyRecorder: latencies)
+        {
+            latencyRecorder.clear();
+        }
+        startTime = SystemClock.elapsedRealtime();
+    }
+
+    public void recordEnqueue(IUnityEvent event, int queueDepth)
+    {
+        if(!enabled) { return; }
+
+        NativeKeyboard.EventType type = event.getType();
+        eventsEnqueued.incrementAndGet(type.ordinal());
+
+        int peak = peakQueueDepth.get();
+        while(queueDepth > peak && !peakQueueDepth.compareAndSet(peak, queueDepth))
+        {
+            peak = peakQueueDepth.get();
+        }
+
+        switch(type)
+        {
+            case TEXT_EDIT_UPDATE:
+                TextEditUpdateEvent textEditUpdateEvent = (TextEditUpdateEvent)event;
+                addTextBytes(textBytesFromUnity, textEditUpdateEvent.text);
+                textEditUpdateEvent.enqueueTime = System.nanoTime();
+                break;
+            case KEYBOARD_SHOW:
+                addTextBytes(textBytesFromUnity, ((KeyboardShowEvent)event).text);
+                showRequestTime.compareAndSet(NOT_PENDING, System.nanoTime()); //Measure from the first request
+                break;
+            case KEYBOARD_HIDE: hideRequestTime.compareAndSet(NOT_PENDING, System.nanoTime()); break;
+        }
+    }
+
+    public void recordDequeue(IUnityEvent event)
+    {
+        if(!enabled) { return; }
+
+        eventsDequeued.incrementAndGet(event.getType().ordinal());
+    }
+
+    public void recordCallback(Callback callback, String text)
+    {
+        if(!enabled) { return; }
+
+        callbacks.incrementAndGet(callback.ordinal());
+        addTextBytes(textBytesToUnity, text);
+
+        if(callback == Callback.KEYBOARD_SHOW)
+        {
+            recordLatency(RoundTrip.SHOW, showRequestTime.getAndSet(NOT_PENDING));
+        }
+        else if(callback == Callback.TEXT_EDIT_UPDATE)
+        {
+            recordLatency(RoundTrip.IME_COMMIT, imeChangeTime.getAndSet(NOT_PENDING));
+        }
+    }
+
+    public void recordKeyboardHeightChanged(int height)
+    {
+        if(!enabled) { return; }
+
+        if(height == 0)
+        {
+            recordLatency(RoundTrip.HIDE, hideRequestTime.getAndSet(NOT_PENDING));
+        }
+    }
+
+    /** Records that the text of the view got updated with given event */
+    public void recordTextEditApplied(TextEditUpdateEvent textEditUpdateEvent)
+    {
+        if(!enabled) { return; }
+
+        recordLatency(RoundTrip.TEXT_EDIT_APPLY, textEditUpdateEvent.enqueueTime);
+    }
+
+    /** Records that the IME changed the text, measured until the next OnTextEditUpdate (changes can get coalesced) */
+    public void recordImeChange()
+    {
+        if(!enabled) { return; }
+
+        imeChangeTime.compareAndSet(NOT_PENDING, System.nanoTime());
+    }
+
+    /** Configures the latency budget of given round trip
+     * @param budget The budget (in microseconds), 0 for no budget
+     */
+    public void setLatencyBudget(RoundTrip roundTrip, long budget)
+    {
+        latencies[roundTrip.ordinal()].setBudget(budget);
+    }
+
+    /** Gets the start time for a validation measurement, 0 when disabled */
+    public long startValidation()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void recordValidation(long startTime, boolean changed)
+    {
+        if(!enabled || startTime == 0) { return; }
+
+        long microseconds = (System.nanoTime() - startTime) / 1000;
+        validationTimes.incrementAndGet(findBucket(VALIDATION_BUCKETS, microseconds));
+        if(changed)
+        {
+            validationChanges.incrementAndGet();
+        }
+    }
+
+    /** Creates a snapshot of the metrics, only reads atomics so it can be called from any thread
+     * @param keyboardState The pool, container and scheduler state to add (see createKeyboardStateJSON), can be null
+     */
+    public JSONObject toJSON(JSONObject keyboardState)
+    {
+        JSONObject jsonObject = new JSONObject();
+        try
+        {
+            jsonObject.put("enabled", enabled);
+            jsonObject.put("duration", enabled ? SystemClock.elapsedRealtime() - startTime : 0);
+
+            JSONObject eventsJSON = new JSONObject();
+            NativeKeyboard.EventType[] eventTypes = NativeKeyboard.EventType.values();
+            for(int i = 0; i < eventTypes.length; i++)
+            {
+                JSONObject eventJSON = new JSONObject();
+                eventJSON.put("enqueued", eventsEnqueued.get(i));
+                eventJSON.put("dequeued", eventsDequeued.get(i));
+                eventsJSON.put(eventTypes[i].name(), eventJSON);
+            }
+            jsonObject.put("events", eventsJSON);
+            jsonObject.put("peakQueueDepth", peakQueueDepth.get());
+
+            JSONObject callbacksJSON = new JSONObject();
+            Callback[] callbackTypes = Callback.values();
+            for(int i = 0; i < callbackTypes.length; i++)
+            {
+                callbacksJSON.put(callbackTypes[i].name(), callbacks.get(i));
+            }
+            jsonObject.put("callbacks", callbacksJSON);
+
+            jsonObject.put("textBytesFromUnity", textBytesFromUnity.get());
+            jsonObject.put("textBytesToUnity", textBytesToUnity.get());
+            jsonObject.put("validationTimes", toHistogramJSON(VALIDATION_BUCKETS, validationTimes, "us"));
+            jsonObject.put("validationChanges", validationChanges.get());
+
+            JSONObject latenciesJSON = new JSONObject();
+            RoundTrip[] roundTrips = RoundTrip.values();
+            for(int i = 0; i < roundTrips.length; i++)
+            {
+                latenciesJSON.put(roundTrips[i].name(), latencies[i].toJSON());
+            }
+            jsonObject.put("latencies", latenciesJSON); //In microseconds
+
+            if(keyboardState != null)
+            {
+                Iterator<String> keys = keyboardState.keys();
+                while(keys.hasNext())
+                {
+                    String key = keys.next();
+                    jsonObject.put(key, keyboardState.get(key));
+                }
+            }
+        }
+        catch(JSONException e)
+        {
+            Log.d(TAG, "Failed to create stats JSON: " + e.getMessage());
+        }
+
+        return jsonObject;
+    }
+
+    /** Creates a snapshot of the pool, container and scheduler state of given keyboard, should only be called on the UI thread */
+    public static JSONObject createKeyboardStateJSON(NativeKeyboard keyboard)
+    {
+        JSONObject jsonObject = new JSONObject();
+        try
+        {
+            if(keyboard.scheduler != null)
+            {
+                jsonObject.put("wakeups", keyboard.scheduler.getTotalWakeups());
+                jsonObject.put("wakeupsPerSecond", (double)keyboard.scheduler.getWakeupsPerSecond());
+                jsonObject.put("updateMode", keyboard.scheduler.getMode().name());
+            }
+            if(keyboard.viewPool != null)
+            {
+                JSONObject poolJSON = new JSONObject();
+                poolJSON.put("count", keyboard.viewPool.getCount());
+                poolJSON.put("capacity", keyboard.viewPool.getCapacity());
+                poolJSON.put("hits", keyboard.viewPool.getHitCount());
+                poolJSON.put("misses", keyboard.viewPool.getMissCount());
+                jsonObject.put("viewPool", poolJSON);
+            }
+            if(keyboard.viewContainer != null)
+            {
+                JSONObject containerJSON = new JSONObject();
+                containerJSON.put("layoutPasses", keyboard.viewContainer.getLayoutPassCount());
+                containerJSON.put("localLayoutRequests", keyboard.viewContainer.getLocalLayoutRequestCount());
+                containerJSON.put("retainedViews", keyboard.viewContainer.getRetainedViewCount());
+                containerJSON.put("retainedMemoryEstimate", keyboard.viewContainer.getRetainedMemoryEstimate());
+                jsonObject.put("viewContainer", containerJSON);
+            }
+        }
+        catch(JSONException e)
+        {
+            Log.d(TAG, "Failed to create keyboard state JSON: " + e.getMessage());
+        }
+
+        return jsonObject;
+    }
+
+    private void recordLatency(RoundTrip roundTrip, long startTime)
+    {
+        if(startTime != NOT_PENDING)
+        {
+            latencies[roundTrip.ordinal()].record((System.nanoTime() - startTime) / 1000);
+        }
+    }
+
+    private static void addTextBytes(AtomicLong counter, String text)
+    {
+        if(text != null)
+        {
+            counter.addAndGet(getUTF8Length(text));
+        }
+    }
+
+    /** Gets the length of given text in UTF-8 bytes, without encoding it */
+    static int getUTF8Length(String text)
+    {
+        int byteCount = 0;
+        int length = text.length();
+        for(int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+            if(c < 0x80)
+            {
+                byteCount += 1;
+            }
+            else if(c < 0x800)
+            {
+                byteCount += 2;
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)))
+            {
+                byteCount += 4;
+                i++;
+            }
+            else
+            {
+                byteCount += 3;
+            }
+        }
+        return byteCount;
+    }
+
+    private static int findBucket(long[] buckets, long value)
+    {
+        int length = buckets.length;
+        for(int i = 0; i < length; i++)
+        {
+            if(value <= buckets[i])
+            {
+                return i;
+            }
+        }
+
+        return length;
+    }
+
+    private static void clear(AtomicLongArray array)
+    {
+        int length = array.length();
+        for(int i = 0; i < length; i++)
+        {
+            array.set(i, 0);
+        }
+    }
+
+    private static JSONArray toHistogramJSON(long[] buckets, AtomicLongArray counts, String unit) throws JSONException
+    {
+        JSONArray jsonArray = new JSONArray();
+        int length = counts.length();
+        for(int i = 0; i < length; i++)
+        {
+            JSONObject bucketJSON = new JSONObject();
+            bucketJSON.put("max", (i < buckets.length) ? (buckets[i] + unit) : "inf");
+            bucketJSON.put("count", counts.get(i));
+            jsonArray.put(bucketJSON);
+        }
+
+        return jsonArray;
+    }
+}
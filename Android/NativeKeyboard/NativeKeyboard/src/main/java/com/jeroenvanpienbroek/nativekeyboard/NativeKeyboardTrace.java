@@ -0,0 +1,130 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Adds the work of the keyboard bridge to system traces (Perfetto/systrace) when enabled.
+ *  Sections need API 18, async slices and counters need API 29.
+ */
+public class NativeKeyboardTrace
+{
+    //region SECTIONS
+    public static final String UPDATE = "NativeKeyboard.update";
+    public static final String PROCESS_KEYBOARD_SHOW = "NativeKeyboard.processKeyboardShowEvent";
+    public static final String PROCESS_FIELD_SWITCH = "NativeKeyboard.processFieldSwitch";
+    public static final String CONFIGURE_KEYBOARD_TYPE = "NativeKeyboard.configureKeyboardType";
+    public static final String APPLY_TEXT_EDIT_UPDATE = "NativeKeyboard.applyTextEditUpdate";
+    public static final String AFTER_TEXT_CHANGED = "NativeKeyboard.afterTextChanged";
+    public static final String VALIDATE = "NativeKeyboard.validate";
+    //endregion
+
+    //region ASYNC SLICES
+    /** From the show request of Unity until the keyboard is visible */
+    public static final String SHOW = "NativeKeyboard.show";
+    /** From the hide request of Unity until the keyboard is hidden */
+    public static final String HIDE = "NativeKeyboard.hide";
+    //endregion
+
+    //region COUNTERS
+    public static final String QUEUE_DEPTH = "NativeKeyboard.queueDepth";
+    public static final String TEXT_LENGTH = "NativeKeyboard.textLength";
+    //endregion
+
+    private static volatile boolean enabled;
+    private static final AtomicInteger nextCookie = new AtomicInteger(1);
+    private static final AtomicInteger showCookie = new AtomicInteger();
+    private static final AtomicInteger hideCookie = new AtomicInteger();
+
+    public static boolean isEnabled() { return enabled; }
+
+    public static void setEnabled(boolean enabled)
+    {
+        NativeKeyboardTrace.enabled = enabled;
+        if(!enabled)
+        {
+            endAsyncSection(SHOW, showCookie.getAndSet(0));
+            endAsyncSection(HIDE, hideCookie.getAndSet(0));
+        }
+    }
+
+    /** Begins a section when tracing is enabled
+     * @return Whether the section got started, pass it to endSection so it stays balanced when tracing gets toggled in between
+     */
+    public static boolean beginSection(String sectionName)
+    {
+        if(enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+        {
+            Trace.beginSection(sectionName);
+            return true;
+        }
+        return false;
+    }
+
+    /** Ends the last section, should be called on the same thread as beginSection
+     * @param sectionStarted The result of the matching beginSection call
+     */
+    public static void endSection(boolean sectionStarted)
+    {
+        if(sectionStarted)
+        {
+            Trace.endSection();
+        }
+    }
+
+    public static void setCounter(String counterName, long value)
+    {
+        if(enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            Trace.setCounter(counterName, value);
+        }
+    }
+
+    /** Begins the show slice, a pending slice is kept so it measures from the first request. Can be called from any thread */
+    public static void beginShow()
+    {
+        beginAsyncSection(SHOW, showCookie);
+    }
+
+    public static void endShow()
+    {
+        endAsyncSection(SHOW, showCookie.getAndSet(0));
+    }
+
+    /** Begins the hide slice, a pending slice is kept so it measures from the first request. Can be called from any thread */
+    public static void beginHide()
+    {
+        beginAsyncSection(HIDE, hideCookie);
+    }
+
+    public static void endHide()
+    {
+        endAsyncSection(HIDE, hideCookie.getAndSet(0));
+    }
+
+    private static void beginAsyncSection(String sectionName, AtomicInteger cookie)
+    {
+        if(enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            int newCookie = nextCookie.getAndIncrement();
+            if(cookie.compareAndSet(0, newCookie))
+            {
+                Trace.beginAsyncSection(sectionName, newCookie);
+            }
+        }
+    }
+
+    private static void endAsyncSection(String sectionName, int cookie)
+    {
+        if(cookie != 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            Trace.endAsyncSection(sectionName, cookie);
+        }
+    }
+}
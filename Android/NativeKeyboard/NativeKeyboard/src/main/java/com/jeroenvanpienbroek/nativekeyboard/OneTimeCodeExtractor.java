@@ -0,0 +1,278 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+/** Extracts one time codes from SMS messages in a single pass.
+ *  Every run of code characters within the configured length range is a candidate.
+ *  Candidates get ranked on nearby anchors (like "code:") and penalized when they look like phone numbers, amounts or dates.
+ *  Candidates with a negative score are rejected, so a message without a plausible code doesn't autofill anything.
+ *  Digit groups separated by dashes (like 123-456) only form a single code when the groups have an equal OTP group length or a prefix anchor precedes them,
+ *  otherwise the groups are separate candidates (so "call 555-1234" doesn't give 5551234).
+ */
+public class OneTimeCodeExtractor implements IOneTimeCodeExtractor
+{
+    public static final int DEFAULT_MIN_LENGTH = 4;
+    public static final int DEFAULT_MAX_LENGTH = 8;
+    public static final String[] DEFAULT_PREFIX_ANCHORS = new String[]{ "code", "code is", "otp", "otp is", "pin", "pin is", "passcode", "password" };
+    public static final String[] DEFAULT_SUFFIX_ANCHORS = new String[]{ "is your", "is the" };
+
+    private static final int ANCHOR_BEFORE_SCORE = 4;
+    private static final int ANCHOR_AFTER_SCORE = 3;
+    private static final int DIGITS_ONLY_SCORE = 1;
+    private static final int NUMBER_PART_PENALTY = 4;
+    private static final int NON_CODE_SYMBOL_PENALTY = 4;
+    private static final int MIN_SCORE = 0;
+    /** Group lengths used by dash grouped codes, like 123-456 and 1234-5678 */
+    private static final int MIN_GROUP_LENGTH = 3;
+    private static final int MAX_GROUP_LENGTH = 4;
+
+    private int minLength;
+    private int maxLength;
+    private boolean alphanumeric;
+    private String[] prefixAnchors;
+    private String[] suffixAnchors;
+
+    public OneTimeCodeExtractor()
+    {
+        this(DEFAULT_MIN_LENGTH, DEFAULT_MAX_LENGTH, false, DEFAULT_PREFIX_ANCHORS, DEFAULT_SUFFIX_ANCHORS);
+    }
+
+    /** Creates an extractor
+     * @param minLength The minimum length of a code
+     * @param maxLength The maximum length of a code
+     * @param alphanumeric Whether codes can contain letters (a code always needs at least one digit)
+     * @param prefixAnchors Texts that can precede a code (case insensitive), can be null
+     * @param suffixAnchors Texts that can follow a code (case insensitive), can be null
+     */
+    public OneTimeCodeExtractor(int minLength, int maxLength, boolean alphanumeric, String[] prefixAnchors, String[] suffixAnchors)
+    {
+        this.minLength = Math.max(minLength, 1);
+        this.maxLength = Math.max(maxLength, this.minLength);
+        this.alphanumeric = alphanumeric;
+        this.prefixAnchors = (prefixAnchors != null) ? prefixAnchors : new String[0];
+        this.suffixAnchors = (suffixAnchors != null) ? suffixAnchors : new String[0];
+    }
+
+    public int getMinLength() { return minLength; }
+    public int getMaxLength() { return maxLength; }
+    public boolean isAlphanumeric() { return alphanumeric; }
+
+    @Override
+    public String extract(String message)
+    {
+        if(message == null) { return null; }
+
+        int length = message.length();
+        int bestStart = -1;
+        int bestEnd = -1;
+        int bestCodeLength = 0;
+        int bestScore = MIN_SCORE - 1;
+        int ungroupedEnd = -1; //Dashes before this index don't group digits, because the grouping wasn't a valid code
+
+        int i = 0;
+        while(i < length)
+        {
+            if(!isCodeCharacter(message.charAt(i)))
+            {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int codeLength = 0;
+            boolean hasDigit = false;
+            boolean hasLetter = false;
+            int groupCount = 1;
+            int groupLength = 0;
+            int firstGroupLength = 0;
+            boolean equalGroups = true;
+            while(i < length)
+            {
+                char ch = message.charAt(i);
+                if(isCodeCharacter(ch))
+                {
+                    if(Character.isDigit(ch)) { hasDigit = true; }
+                    else { hasLetter = true; }
+                    codeLength++;
+                    groupLength++;
+                    i++;
+                }
+                else if(ch == '-' && i >= ungroupedEnd && i + 1 < length && Character.isDigit(message.charAt(i - 1)) && Character.isDigit(message.charAt(i + 1)))
+                {
+                    if(groupCount == 1) { firstGroupLength = groupLength; }
+                    else if(groupLength != firstGroupLength) { equalGroups = false; }
+                    groupCount++;
+                    groupLength = 0;
+                    i++; //Grouped code, like 123-456
+                }
+                else
+                {
+                    break;
+                }
+            }
+
+            if(groupCount > 1)
+            {
+                equalGroups = equalGroups && (groupLength == firstGroupLength);
+                boolean otpGroups = equalGroups && firstGroupLength >= MIN_GROUP_LENGTH && firstGroupLength <= MAX_GROUP_LENGTH;
+                if(!otpGroups && !hasAnchorBefore(message, start))
+                {
+                    ungroupedEnd = i; //Rescan the groups as separate candidates
+                    i = start;
+                    continue;
+                }
+            }
+
+            if(!hasDigit || codeLength < minLength || codeLength > maxLength)
+            {
+                continue;
+            }
+
+            int score = calculateScore(message, start, i, hasLetter);
+            if(score > bestScore) //On equal scores the first candidate wins
+            {
+                bestScore = score;
+                bestStart = start;
+                bestEnd = i;
+                bestCodeLength = codeLength;
+            }
+        }
+
+        if(bestStart == -1)
+        {
+            return null;
+        }
+
+        char[] code = new char[bestCodeLength];
+        int position = 0;
+        for(int j = bestStart; j < bestEnd; j++)
+        {
+            char ch = message.charAt(j);
+            if(Character.isDigit(ch))
+            {
+                code[position++] = (char)('0' + Character.digit(ch, 10)); //Normalize non-ASCII digits
+            }
+            else if(ch != '-')
+            {
+                code[position++] = ch;
+            }
+        }
+
+        return new String(code, 0, position);
+    }
+
+    private boolean isCodeCharacter(char ch)
+    {
+        if(Character.isDigit(ch)) { return true; }
+        return alphanumeric && Character.isLetter(ch);
+    }
+
+    private int calculateScore(String message, int start, int end, boolean hasLetter)
+    {
+        int score = 0;
+        if(hasAnchorBefore(message, start)) { score += ANCHOR_BEFORE_SCORE; }
+        if(hasAnchorAfter(message, end)) { score += ANCHOR_AFTER_SCORE; }
+        if(!hasLetter) { score += DIGITS_ONLY_SCORE; }
+        if(isPartOfNumber(message, start, end)) { score -= NUMBER_PART_PENALTY; }
+        if(hasNonCodeSymbol(message, start, end)) { score -= NON_CODE_SYMBOL_PENALTY; }
+
+        return score;
+    }
+
+    private boolean hasAnchorBefore(String message, int start)
+    {
+        int end = start;
+        while(end > 0 && isAnchorSeparator(message.charAt(end - 1)))
+        {
+            end--;
+        }
+
+        int length = prefixAnchors.length;
+        for(int i = 0; i < length; i++)
+        {
+            String anchor = prefixAnchors[i];
+            int anchorStart = end - anchor.length();
+            if(anchorStart < 0) { continue; }
+            if(anchorStart > 0 && Character.isLetterOrDigit(message.charAt(anchorStart - 1))) { continue; } //Only match whole words
+
+            if(message.regionMatches(true, anchorStart, anchor, 0, anchor.length()))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean hasAnchorAfter(String message, int end)
+    {
+        int messageLength = message.length();
+        int start = end;
+        while(start < messageLength && isAnchorSeparator(message.charAt(start)))
+        {
+            start++;
+        }
+
+        int length = suffixAnchors.length;
+        for(int i = 0; i < length; i++)
+        {
+            String anchor = suffixAnchors[i];
+            int anchorEnd = start + anchor.length();
+            if(anchorEnd > messageLength) { continue; }
+            if(anchorEnd < messageLength && Character.isLetterOrDigit(message.charAt(anchorEnd))) { continue; } //Only match whole words
+
+            if(message.regionMatches(true, start, anchor, 0, anchor.length()))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isAnchorSeparator(char ch)
+    {
+        return Character.isWhitespace(ch) || ch == ':' || ch == '#' || ch == '=' || ch == '-';
+    }
+
+    /** Checks whether the candidate is part of a larger number, like an amount (12.50), date (12/05/2024), time (12:30) or phone number (555-1234) */
+    private boolean isPartOfNumber(String message, int start, int end)
+    {
+        if(start >= 2 && isNumberSeparator(message.charAt(start - 1)) && Character.isDigit(message.charAt(start - 2)))
+        {
+            return true;
+        }
+
+        return (end + 1 < message.length() && isNumberSeparator(message.charAt(end)) && Character.isDigit(message.charAt(end + 1)));
+    }
+
+    private boolean isNumberSeparator(char ch)
+    {
+        return ch == '.' || ch == ',' || ch == '/' || ch == ':' || ch == '-';
+    }
+
+    /** Checks whether the candidate is next to a symbol that doesn't belong to codes, like a phone number prefix, currency or percentage */
+    private boolean hasNonCodeSymbol(String message, int start, int end)
+    {
+        int before = start - 1;
+        if(before >= 0 && message.charAt(before) == ' ') { before--; }
+        if(before >= 0)
+        {
+            char ch = message.charAt(before);
+            if(ch == '+' || Character.getType(ch) == Character.CURRENCY_SYMBOL) { return true; }
+        }
+
+        int after = end;
+        if(after < message.length() && message.charAt(after) == ' ') { after++; }
+        if(after < message.length())
+        {
+            char ch = message.charAt(after);
+            if(ch == '%' || Character.getType(ch) == Character.CURRENCY_SYMBOL) { return true; }
+        }
+
+        return false;
+    }
+}
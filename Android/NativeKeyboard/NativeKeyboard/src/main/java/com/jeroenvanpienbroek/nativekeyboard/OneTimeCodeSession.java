@@ -0,0 +1,181 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.util.Log;
+
+import com.google.android.gms.auth.api.phone.SmsRetriever;
+import com.google.android.gms.auth.api.phone.SmsRetrieverClient;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+
+/** A single attempt to receive a one time code with the SMS User Consent API.
+ *  Owns the consent task and the broadcast receiver: the receiver gets unregistered as soon as the session ends.
+ */
+public class OneTimeCodeSession
+{
+    public enum Outcome { CODE_RECEIVED, NO_CODE_FOUND, CONSENT_DENIED, TIMEOUT, FAILED, CANCELLED }
+
+    private enum State { IDLE, LISTENING, AWAITING_CONSENT }
+
+    public interface OneTimeCodeSessionListener
+    {
+        /** Called when an SMS has been received and the user needs to give consent to read it */
+        void onConsentRequired(Intent consentIntent);
+
+        /** Called once when the session ends */
+        void onSessionEnded(Outcome outcome);
+    }
+
+    private static final String TAG = "OneTimeCodeSession";
+
+    private Context context;
+    private Handler handler;
+    private OneTimeCodeSessionListener listener;
+    private SMSBroadcastReceiver smsBroadcastReceiver;
+    private State state;
+    private Runnable timeoutRunnable;
+
+    public OneTimeCodeSession(Context context, Handler handler, OneTimeCodeSessionListener listener)
+    {
+        this.context = context;
+        this.handler = handler;
+        this.listener = listener;
+        state = State.IDLE;
+
+        timeoutRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                finish(Outcome.TIMEOUT);
+            }
+        };
+    }
+
+    public boolean isActive()
+    {
+        return (state != State.IDLE);
+    }
+
+    /** Starts listening for an SMS, restarts the timeout if already listening
+     * @param timeout The time (in milliseconds) to wait for an SMS, 0 to only use the timeout of the SMS User Consent API
+     */
+    public void start(long timeout)
+    {
+        if(state == State.IDLE)
+        {
+            registerReceiver();
+            startSmsUserConsent();
+            state = State.LISTENING;
+        }
+        else if(state == State.AWAITING_CONSENT)
+        {
+            return; //The consent dialog is already being shown
+        }
+
+        handler.removeCallbacks(timeoutRunnable);
+        if(timeout > 0)
+        {
+            handler.postDelayed(timeoutRunnable, timeout);
+        }
+    }
+
+    /** Stops the session (if active) */
+    public void stop()
+    {
+        finish(Outcome.CANCELLED);
+    }
+
+    /** Ends the session (if active) with given outcome */
+    public void finish(Outcome outcome)
+    {
+        if(state == State.IDLE) { return; }
+
+        state = State.IDLE;
+        handler.removeCallbacks(timeoutRunnable);
+        unregisterReceiver();
+        listener.onSessionEnded(outcome);
+    }
+
+    private void startSmsUserConsent()
+    {
+        SmsRetrieverClient client = SmsRetriever.getClient(context);
+        if(client == null) { return; }
+
+        //We can add user phone number or leave it blank
+        client.startSmsUserConsent(null).addOnSuccessListener(new OnSuccessListener<Void>()
+        {
+            @Override
+            public void onSuccess(Void aVoid)
+            {
+                //Log.d(TAG, "LISTENING_SUCCESS");
+            }
+        }).addOnFailureListener(new OnFailureListener()
+        {
+            @Override
+            public void onFailure(Exception exception)
+            {
+                Log.d(TAG, "Failed to start SMS User Consent: " + exception.getMessage());
+                finish(Outcome.FAILED);
+            }
+        });
+    }
+
+    private void registerReceiver()
+    {
+        smsBroadcastReceiver = new SMSBroadcastReceiver();
+        smsBroadcastReceiver.smsBroadcastReceiverListener = new SMSBroadcastReceiverListener()
+        {
+            @Override
+            public void onSuccess(Intent intent)
+            {
+                if(state != State.LISTENING) { return; }
+
+                if(intent == null)
+                {
+                    finish(Outcome.FAILED);
+                    return;
+                }
+
+                //The retriever only broadcasts once per consent task, so the receiver isn't needed anymore
+                state = State.AWAITING_CONSENT;
+                handler.removeCallbacks(timeoutRunnable);
+                unregisterReceiver();
+                listener.onConsentRequired(intent);
+            }
+
+            @Override
+            public void onFailure()
+            {
+                finish(Outcome.TIMEOUT);
+            }
+        };
+
+        IntentFilter intentFilter = new IntentFilter(SmsRetriever.SMS_RETRIEVED_ACTION);
+        context.registerReceiver(smsBroadcastReceiver, intentFilter);
+    }
+
+    private void unregisterReceiver()
+    {
+        if(smsBroadcastReceiver == null) { return; }
+
+        try
+        {
+            context.unregisterReceiver(smsBroadcastReceiver);
+        }
+        catch(IllegalArgumentException e)
+        {
+            Log.d(TAG, "Receiver was not registered: " + e.getMessage());
+        }
+        smsBroadcastReceiver.smsBroadcastReceiverListener = null;
+        smsBroadcastReceiver = null;
+    }
+}
@@ -0,0 +1,357 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Records the commands of Unity and the events of the IME in a binary ring buffer, so a session can be replayed later.
+ *  When the buffer is full, the oldest records get dropped.
+ *  Dump format: MAGIC, VERSION, record count, then for each record: type (byte), time (long, nanoseconds since start), payload.
+ *  Strings are written as a length (int, -1 for null) followed by the UTF-8 bytes.
+ */
+public class SessionJournal
+{
+    public enum RecordType
+    {
+        /** text, selectionStart, selectionEnd, configurationJSON */
+        SHOW_KEYBOARD,
+        /** text, selectionStart, selectionEnd */
+        UPDATE_TEXT_EDIT,
+        /** no payload */
+        HIDE_KEYBOARD,
+        /** text, selectionStart, selectionEnd */
+        TEXT_CHANGE,
+        /** selectionStart, selectionEnd */
+        SELECTION_CHANGE,
+        /** specialKeyCode */
+        SPECIAL_KEY,
+        /** keyboardHeight */
+        KEYBOARD_HEIGHT
+    }
+
+    public static final int MAGIC = 0x4E4B4A52; //NKJR
+    public static final int VERSION = 1;
+
+    /** Default size (in bytes) of the ring buffer */
+    public static final int DEFAULT_CAPACITY = 256 * 1024;
+
+    /** Size (in bytes) of the header of a record in the ring buffer: length (int) */
+    private static final int RECORD_HEADER_SIZE = 4;
+    private static final int RECORD_TYPE_SIZE = 1;
+    private static final int RECORD_TIME_SIZE = 8;
+
+    private byte[] buffer;
+    private int head; //Position of the oldest record
+    private int tail; //Position to write the next record
+    private int size;
+    private int recordCount;
+    private long startTime;
+
+    /** Length (in bytes) of the record being written, excluding its header */
+    private int recordLength;
+    /** Position to write the next byte of the record being written */
+    private int writePosition;
+
+    public SessionJournal(int capacity)
+    {
+        buffer = new byte[capacity];
+        startTime = System.nanoTime();
+    }
+
+    public int getCapacity() { return buffer.length; }
+    public synchronized int getRecordCount() { return recordCount; }
+
+    public synchronized void clear()
+    {
+        head = 0;
+        tail = 0;
+        size = 0;
+        recordCount = 0;
+        startTime = System.nanoTime();
+    }
+
+    public synchronized void recordShowKeyboard(String text, int selectionStart, int selectionEnd, String configurationJSON)
+    {
+        int textLength = getEncodedLength(text);
+        int configurationLength = getEncodedLength(configurationJSON);
+        if(beginRecord(RecordType.SHOW_KEYBOARD, getStringSize(textLength) + 8 + getStringSize(configurationLength)))
+        {
+            writeString(text, textLength);
+            writeInt(selectionStart);
+            writeInt(selectionEnd);
+            writeString(configurationJSON, configurationLength);
+            endRecord();
+        }
+    }
+
+    public synchronized void recordUpdateTextEdit(String text, int selectionStart, int selectionEnd)
+    {
+        int textLength = getEncodedLength(text);
+        if(beginRecord(RecordType.UPDATE_TEXT_EDIT, getStringSize(textLength) + 8))
+        {
+            writeString(text, textLength);
+            writeInt(selectionStart);
+            writeInt(selectionEnd);
+            endRecord();
+        }
+    }
+
+    public synchronized void recordHideKeyboard()
+    {
+        if(beginRecord(RecordType.HIDE_KEYBOARD, 0))
+        {
+            endRecord();
+        }
+    }
+
+    /** Records a text change of the IME, the text gets encoded directly from given CharSequence (no copy to a String) */
+    public synchronized void recordTextChange(CharSequence text, int selectionStart, int selectionEnd)
+    {
+        int textLength = getEncodedLength(text);
+        if(beginRecord(RecordType.TEXT_CHANGE, getStringSize(textLength) + 8))
+        {
+            writeString(text, textLength);
+            writeInt(selectionStart);
+            writeInt(selectionEnd);
+            endRecord();
+        }
+    }
+
+    public synchronized void recordSelectionChange(int selectionStart, int selectionEnd)
+    {
+        if(beginRecord(RecordType.SELECTION_CHANGE, 8))
+        {
+            writeInt(selectionStart);
+            writeInt(selectionEnd);
+            endRecord();
+        }
+    }
+
+    public synchronized void recordSpecialKey(int specialKeyCode)
+    {
+        if(beginRecord(RecordType.SPECIAL_KEY, 4))
+        {
+            writeInt(specialKeyCode);
+            endRecord();
+        }
+    }
+
+    public synchronized void recordKeyboardHeight(int keyboardHeight)
+    {
+        if(beginRecord(RecordType.KEYBOARD_HEIGHT, 4))
+        {
+            writeInt(keyboardHeight);
+            endRecord();
+        }
+    }
+
+    /** Writes the records (oldest first) to given file */
+    public void dump(String filePath) throws IOException
+    {
+        FileOutputStream outputStream = new FileOutputStream(filePath);
+        try
+        {
+            dump(outputStream);
+        }
+        finally
+        {
+            outputStream.close();
+        }
+    }
+
+    /** Writes the records (oldest first) to given stream */
+    public synchronized void dump(OutputStream outputStream) throws IOException
+    {
+        DataOutputStream dataStream = new DataOutputStream(outputStream);
+        dataStream.writeInt(MAGIC);
+        dataStream.writeInt(VERSION);
+        dataStream.writeInt(recordCount);
+
+        int position = head;
+        for(int i = 0; i < recordCount; i++)
+        {
+            int length = readRingInt(position);
+            position = (position + RECORD_HEADER_SIZE) % buffer.length;
+
+            int firstPart = Math.min(length, buffer.length - position);
+            dataStream.write(buffer, position, firstPart);
+            dataStream.write(buffer, 0, length - firstPart);
+            position = (position + length) % buffer.length;
+        }
+        dataStream.flush();
+    }
+
+    /** Reserves space for a record at the tail of the ring buffer (dropping the oldest records if needed) and writes its type and time
+     * @param payloadLength The length (in bytes) of the payload that will be written
+     * @return false if the record doesn't fit in the buffer at all, it gets skipped then
+     */
+    private boolean beginRecord(RecordType recordType, int payloadLength)
+    {
+        recordLength = RECORD_TYPE_SIZE + RECORD_TIME_SIZE + payloadLength;
+        int totalLength = RECORD_HEADER_SIZE + recordLength;
+        if(totalLength > buffer.length)
+        {
+            return false;
+        }
+
+        while(buffer.length - size < totalLength) //Drop the oldest records until it fits
+        {
+            int length = readRingInt(head);
+            head = (head + RECORD_HEADER_SIZE + length) % buffer.length;
+            size -= RECORD_HEADER_SIZE + length;
+            recordCount--;
+        }
+
+        writeRingInt(tail, recordLength);
+        writePosition = (tail + RECORD_HEADER_SIZE) % buffer.length;
+        writeByte(recordType.ordinal());
+        writeLong(System.nanoTime() - startTime);
+        return true;
+    }
+
+    private void endRecord()
+    {
+        tail = writePosition;
+        size += RECORD_HEADER_SIZE + recordLength;
+        recordCount++;
+    }
+
+    /** Gets the size (in bytes) of a string in a record: the length (int) and the encoded characters */
+    private static int getStringSize(int encodedLength)
+    {
+        return 4 + Math.max(encodedLength, 0);
+    }
+
+    /** Gets the length (in bytes) of given text encoded as UTF-8, -1 for null. Unpaired surrogates get encoded as '?' */
+    private static int getEncodedLength(CharSequence value)
+    {
+        if(value == null)
+        {
+            return -1;
+        }
+
+        int length = value.length();
+        int encodedLength = 0;
+        for(int i = 0; i < length; i++)
+        {
+            char ch = value.charAt(i);
+            if(ch < 0x80)
+            {
+                encodedLength++;
+            }
+            else if(ch < 0x800)
+            {
+                encodedLength += 2;
+            }
+            else if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                encodedLength += 4;
+                i++;
+            }
+            else if(Character.isSurrogate(ch))
+            {
+                encodedLength++;
+            }
+            else
+            {
+                encodedLength += 3;
+            }
+        }
+
+        return encodedLength;
+    }
+
+    /** Writes given text as UTF-8 straight into the ring buffer
+     * @param encodedLength The length from getEncodedLength
+     */
+    private void writeString(CharSequence value, int encodedLength)
+    {
+        writeInt(encodedLength);
+        if(value == null)
+        {
+            return;
+        }
+
+        int length = value.length();
+        for(int i = 0; i < length; i++)
+        {
+            char ch = value.charAt(i);
+            if(ch < 0x80)
+            {
+                writeByte(ch);
+            }
+            else if(ch < 0x800)
+            {
+                writeByte(0xC0 | (ch >> 6));
+                writeByte(0x80 | (ch & 0x3F));
+            }
+            else if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(ch, value.charAt(i + 1));
+                writeByte(0xF0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                writeByte(0x80 | (codePoint & 0x3F));
+                i++;
+            }
+            else if(Character.isSurrogate(ch))
+            {
+                writeByte('?');
+            }
+            else
+            {
+                writeByte(0xE0 | (ch >> 12));
+                writeByte(0x80 | ((ch >> 6) & 0x3F));
+                writeByte(0x80 | (ch & 0x3F));
+            }
+        }
+    }
+
+    private void writeInt(int value)
+    {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeLong(long value)
+    {
+        writeInt((int)(value >>> 32));
+        writeInt((int)value);
+    }
+
+    private void writeByte(int value)
+    {
+        buffer[writePosition] = (byte)value;
+        writePosition++;
+        if(writePosition == buffer.length)
+        {
+            writePosition = 0;
+        }
+    }
+
+    private int readRingInt(int position)
+    {
+        int value = 0;
+        for(int i = 0; i < 4; i++)
+        {
+            value = (value << 8) | (buffer[(position + i) % buffer.length] & 0xFF);
+        }
+        return value;
+    }
+
+    private void writeRingInt(int position, int value)
+    {
+        for(int i = 0; i < 4; i++)
+        {
+            buffer[(position + i) % buffer.length] = (byte)(value >>> (24 - (i * 8)));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Reads a dump of the SessionJournal, has no Android dependencies so it can be used to replay a session on a desktop JVM */
+public class SessionJournalReader
+{
+    /** Receives the records of a journal in order, time is in nanoseconds since the start of the journal */
+    public interface RecordListener
+    {
+        void onShowKeyboard(long time, String text, int selectionStart, int selectionEnd, String configurationJSON);
+        void onUpdateTextEdit(long time, String text, int selectionStart, int selectionEnd);
+        void onHideKeyboard(long time);
+        void onTextChange(long time, String text, int selectionStart, int selectionEnd);
+        void onSelectionChange(long time, int selectionStart, int selectionEnd);
+        void onSpecialKey(long time, int specialKeyCode);
+        void onKeyboardHeight(long time, int keyboardHeight);
+    }
+
+    /** Reads the journal in given file
+     * @return The amount of records read
+     */
+    public static int read(String filePath, RecordListener listener) throws IOException
+    {
+        FileInputStream inputStream = new FileInputStream(filePath);
+        try
+        {
+            return read(inputStream, listener);
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    /** Reads the journal in given stream
+     * @return The amount of records read
+     */
+    public static int read(InputStream inputStream, RecordListener listener) throws IOException
+    {
+        DataInputStream dataStream = new DataInputStream(inputStream);
+        if(dataStream.readInt() != SessionJournal.MAGIC)
+        {
+            throw new IOException("Not a session journal");
+        }
+
+        int version = dataStream.readInt();
+        if(version != SessionJournal.VERSION)
+        {
+            throw new IOException("Unsupported session journal version: " + version);
+        }
+
+        SessionJournal.RecordType[] recordTypes = SessionJournal.RecordType.values();
+        int recordCount = dataStream.readInt();
+        for(int i = 0; i < recordCount; i++)
+        {
+            int recordType = dataStream.readUnsignedByte();
+            if(recordType >= recordTypes.length)
+            {
+                throw new IOException("Unknown record type: " + recordType);
+            }
+
+            long time = dataStream.readLong();
+            switch(recordTypes[recordType])
+            {
+                case SHOW_KEYBOARD: listener.onShowKeyboard(time, readString(dataStream), dataStream.readInt(), dataStream.readInt(), readString(dataStream)); break;
+                case UPDATE_TEXT_EDIT: listener.onUpdateTextEdit(time, readString(dataStream), dataStream.readInt(), dataStream.readInt()); break;
+                case HIDE_KEYBOARD: listener.onHideKeyboard(time); break;
+                case TEXT_CHANGE: listener.onTextChange(time, readString(dataStream), dataStream.readInt(), dataStream.readInt()); break;
+                case SELECTION_CHANGE: listener.onSelectionChange(time, dataStream.readInt(), dataStream.readInt()); break;
+                case SPECIAL_KEY: listener.onSpecialKey(time, dataStream.readInt()); break;
+                case KEYBOARD_HEIGHT: listener.onKeyboardHeight(time, dataStream.readInt()); break;
+            }
+        }
+
+        return recordCount;
+    }
+
+    private static String readString(DataInputStream dataStream) throws IOException
+    {
+        int length = dataStream.readInt();
+        if(length < 0)
+        {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        dataStream.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,126 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboardStats.Callback;
+
+/** Callback that records each callback in the stats before passing it on to Unity */
+public class StatsCallback implements INativeKeyboardCallback
+{
+    private INativeKeyboardCallback callback;
+    private NativeKeyboardStats stats;
+
+    public StatsCallback(INativeKeyboardCallback callback, NativeKeyboardStats stats)
+    {
+        this.callback = callback;
+        this.stats = stats;
+    }
+
+    @Override
+    public void OnTextEditUpdate(String text, int selectionStartPosition, int selectionEndPosition)
+    {
+        stats.recordCallback(Callback.TEXT_EDIT_UPDATE, text);
+        callback.OnTextEditUpdate(text, selectionStartPosition, selectionEndPosition);
+    }
+
+    @Override
+    public void OnAutofillUpdate(String text, int autofillType)
+    {
+        stats.recordCallback(Callback.AUTOFILL_UPDATE, text);
+        callback.OnAutofillUpdate(text, autofillType);
+    }
+
+    @Override
+    public void OnKeyboardShow()
+    {
+        stats.recordCallback(Callback.KEYBOARD_SHOW, null);
+        callback.OnKeyboardShow();
+    }
+
+    @Override
+    public void OnKeyboardHide()
+    {
+        stats.recordCallback(Callback.KEYBOARD_HIDE, null);
+        callback.OnKeyboardHide();
+    }
+
+    @Override
+    public void OnKeyboardDone()
+    {
+        stats.recordCallback(Callback.KEYBOARD_DONE, null);
+        callback.OnKeyboardDone();
+    }
+
+    @Override
+    public void OnKeyboardNext()
+    {
+        stats.recordCallback(Callback.KEYBOARD_NEXT, null);
+        callback.OnKeyboardNext();
+    }
+
+    @Override
+    public void OnKeyboardCancel()
+    {
+        stats.recordCallback(Callback.KEYBOARD_CANCEL, null);
+        callback.OnKeyboardCancel();
+    }
+
+    @Override
+    public void OnSpecialKeyPressed(int specialKeyCode)
+    {
+        stats.recordCallback(Callback.SPECIAL_KEY_PRESSED, null);
+        callback.OnSpecialKeyPressed(specialKeyCode);
+    }
+
+    @Override
+    public void OnSpecialKeyRepeated(int specialKeyCode, int repeatCount)
+    {
+        stats.recordCallback(Callback.SPECIAL_KEY_REPEATED, null);
+        callback.OnSpecialKeyRepeated(specialKeyCode, repeatCount);
+    }
+
+    @Override
+    public void OnKeyboardHeightChanged(int height)
+    {
+        stats.recordCallback(Callback.KEYBOARD_HEIGHT_CHANGED, null);
+        stats.recordKeyboardHeightChanged(height);
+        callback.OnKeyboardHeightChanged(height);
+    }
+
+    @Override
+    public void OnHardwareKeyboardChanged(boolean connected)
+    {
+        stats.recordCallback(Callback.HARDWARE_KEYBOARD_CHANGED, null);
+        callback.OnHardwareKeyboardChanged(connected);
+    }
+
+    @Override
+    public void OnOneTimeCodeSessionEnded(int outcome)
+    {
+        stats.recordCallback(Callback.ONE_TIME_CODE_SESSION_ENDED, null);
+        callback.OnOneTimeCodeSessionEnded(outcome);
+    }
+
+    @Override
+    public void OnComposingRegionChanged(int composingRegionStart, int composingRegionEnd)
+    {
+        stats.recordCallback(Callback.COMPOSING_REGION_CHANGED, null);
+        callback.OnComposingRegionChanged(composingRegionStart, composingRegionEnd);
+    }
+
+    @Override
+    public void OnTextStyleRunsChanged(int startRun, int removedRunCount, int offsetShift, int[] runs)
+    {
+        stats.recordCallback(Callback.TEXT_STYLE_RUNS_CHANGED, null);
+        callback.OnTextStyleRunsChanged(startRun, removedRunCount, offsetShift, runs);
+    }
+
+    @Override
+    public void OnStatsUpdate(String statsJSON)
+    {
+        callback.OnStatsUpdate(statsJSON); //Not recorded, would change the stats it reports
+    }
+}
@@ -0,0 +1,115 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.text.InputFilter;
+import android.text.Spanned;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.TextValidator;
+
+/** Applies emoji exclusion, character validation and the character limit to inserted text in a single filter,
+ *  so invalid characters never reach the Editable and the text doesn't need to be rewritten afterwards
+ */
+public class TextEditFilter implements InputFilter
+{
+    /** The keyboard state the filter validates with */
+    public interface Host
+    {
+        NativeKeyboard.CharacterValidation getCharacterValidation();
+        TextValidator getTextValidator();
+        NativeKeyboardStats getKeyboardStats();
+        /** Whether the text change comes from Unity (already validated) instead of the input method */
+        boolean isApplyingUnityEvent();
+        /** Requests the whole text to be validated after the current text change */
+        void requestTextRevalidation();
+    }
+
+    private Host host;
+    private EmojiExcludeFilter emojiFilter;
+    private int characterLimit;
+
+    /** Creates the filter
+     * @param host The keyboard to get the current character validation from
+     * @param emojiFilter The filter to exclude emojis with, null when emojis are allowed
+     * @param characterLimit The maximum amount of characters, 0 for no limit
+     */
+    public TextEditFilter(Host host, EmojiExcludeFilter emojiFilter, int characterLimit)
+    {
+        this.host = host;
+        this.emojiFilter = emojiFilter;
+        this.characterLimit = characterLimit;
+    }
+
+    @Override
+    public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend)
+    {
+        CharSequence result = null; //Stays null as long as the source doesn't need to change
+
+        if(emojiFilter != null)
+        {
+            result = emojiFilter.filter(source, start, end, dest, dstart, dend);
+            if(result != null)
+            {
+                source = result;
+                start = 0;
+                end = result.length();
+            }
+        }
+
+        if(host.getCharacterValidation() != NativeKeyboard.CharacterValidation.NONE && !host.isApplyingUnityEvent()) //Text from Unity is already validated
+        {
+            TextValidator textValidator = host.getTextValidator();
+            NativeKeyboardStats stats = host.getKeyboardStats();
+            CharSequence validatedText;
+            boolean traced = NativeKeyboardTrace.beginSection(NativeKeyboardTrace.VALIDATE);
+            try
+            {
+                long validationStartTime = stats.startValidation();
+                validatedText = textValidator.validateReplacement(source, start, end, dest, dstart, dend);
+                stats.recordValidation(validationStartTime, validatedText != null);
+            }
+            finally
+            {
+                NativeKeyboardTrace.endSection(traced);
+            }
+            if(textValidator.isFullValidationRequired())
+            {
+                host.requestTextRevalidation();
+            }
+            if(validatedText != null)
+            {
+                result = validatedText;
+                source = result;
+                start = 0;
+                end = result.length();
+            }
+        }
+
+        if(characterLimit > 0)
+        {
+            int keep = characterLimit - (dest.length() - (dend - dstart));
+            if(keep <= 0)
+            {
+                return "";
+            }
+            else if(keep < end - start)
+            {
+                keep += start;
+                if(Character.isHighSurrogate(source.charAt(keep - 1)))
+                {
+                    keep--;
+                    if(keep == start)
+                    {
+                        return "";
+                    }
+                }
+                return source.subSequence(start, keep);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.TextValidator;
+
+/** Keeps the text and selection of the view that receives the input in sync with the inputfield in Unity.
+ *  The text and selection only get replaced when they differ from the last synced values, so echoed updates don't disturb the input method.
+ */
+public class TextEditSync
+{
+    /** The view that receives the input */
+    public interface Target
+    {
+        CharSequence getText();
+        int getSelectionStart();
+        int getSelectionEnd();
+        void setText(CharSequence text);
+        void setSelection(int start, int end);
+    }
+
+    private String lastText;
+    private int lastSelectionStartPosition;
+    private int lastSelectionEndPosition;
+
+    public String getLastText() { return lastText; }
+    public int getLastSelectionStartPosition() { return lastSelectionStartPosition; }
+    public int getLastSelectionEndPosition() { return lastSelectionEndPosition; }
+
+    /** Applies the text and selection of Unity to given target
+     * @param forced Whether to replace the text, even when it didn't change
+     * @return Whether the text got replaced
+     */
+    public boolean apply(Target target, String text, int selectionStartPosition, int selectionEndPosition, boolean forced)
+    {
+        if(forced || !text.equals(lastText))
+        {
+            target.setText(text);
+            lastText = text;
+
+            target.setSelection(selectionStartPosition, selectionEndPosition); //Always update selection after text change
+            lastSelectionStartPosition = selectionStartPosition;
+            lastSelectionEndPosition = selectionEndPosition;
+            return true;
+        }
+        else if(hasSelectionChanged(selectionStartPosition, selectionEndPosition))
+        {
+            target.setSelection(selectionStartPosition, selectionEndPosition);
+            lastSelectionStartPosition = selectionStartPosition;
+            lastSelectionEndPosition = selectionEndPosition;
+        }
+
+        return false;
+    }
+
+    /** Applies the text and selection of a show request, the text only gets replaced when it differs from the text of given target
+     * @return Whether the text got replaced
+     */
+    public boolean applyShow(Target target, String text, int selectionStartPosition, int selectionEndPosition)
+    {
+        if(text != null && text.contentEquals(target.getText()))
+        {
+            lastText = text;
+            if(target.getSelectionStart() != selectionStartPosition || target.getSelectionEnd() != selectionEndPosition)
+            {
+                target.setSelection(selectionStartPosition, selectionEndPosition);
+            }
+            lastSelectionStartPosition = selectionStartPosition;
+            lastSelectionEndPosition = selectionEndPosition;
+            return false;
+        }
+
+        return apply(target, text, selectionStartPosition, selectionEndPosition, true);
+    }
+
+    /** Reads the text and selection of given target to send to Unity, the selection positions get ordered
+     * @return The text of the target
+     */
+    public String read(Target target)
+    {
+        String text = target.getText().toString();
+        int selectionStartPosition = target.getSelectionStart();
+        int selectionEndPosition = target.getSelectionEnd();
+        if(selectionStartPosition > selectionEndPosition) //Check if they are swapped
+        {
+            int temp = selectionStartPosition;
+            selectionStartPosition = selectionEndPosition;
+            selectionEndPosition = temp;
+        }
+
+        lastText = text;
+        lastSelectionStartPosition = selectionStartPosition;
+        lastSelectionEndPosition = selectionEndPosition;
+        return text;
+    }
+
+    /** Validates the whole text of given target and replaces it when the validation changed it, for edits the input filter can't fully validate
+     * @return Whether the text got replaced
+     */
+    public boolean revalidate(Target target, TextValidator textValidator)
+    {
+        String text = target.getText().toString();
+        int selectionStart = target.getSelectionStart();
+        int selectionEnd = target.getSelectionEnd();
+        int selectionStartPosition = (selectionEnd - selectionStart > 0) ? selectionStart : -1;
+
+        textValidator.validate("", text, selectionStart, selectionStartPosition);
+        String validatedText = textValidator.getResultText();
+        if(validatedText.equals(text))
+        {
+            return false;
+        }
+
+        target.setText(validatedText);
+        int caretPosition;
+        if(textValidator.getValidation() == NativeKeyboard.CharacterValidation.PATTERN_MASK)
+        {
+            caretPosition = Math.min(selectionStart, validatedText.length()); //The mask only changes the text after the edit, characters shifted past its end get dropped
+        }
+        else
+        {
+            caretPosition = Util.clamp(selectionStart + (validatedText.length() - text.length()), 0, validatedText.length());
+        }
+        target.setSelection(caretPosition, caretPosition);
+        return true;
+    }
+
+    /** Checks whether given selection differs from the last synced selection */
+    public boolean hasSelectionChanged(int selectionStartPosition, int selectionEndPosition)
+    {
+        return (selectionStartPosition != lastSelectionStartPosition || selectionEndPosition != lastSelectionEndPosition);
+    }
+}
@@ -7,11 +7,21 @@ public class TextEditUpdateEvent implements IUnityEvent
     public String text;
     public int selectionStartPosition;
     public int selectionEndPosition;
+    /** The style runs (offset, length, style id) in rich text editing mode, null otherwise */
+    public int[] styleRuns;
+    /** The time (System.nanoTime) it got enqueued, only set when the stats are enabled */
+    public long enqueueTime = Long.MIN_VALUE;
 
     public TextEditUpdateEvent(String text, int selectionStartPosition, int selectionEndPosition)
+    {
+        this(text, selectionStartPosition, selectionEndPosition, null);
+    }
+
+    public TextEditUpdateEvent(String text, int selectionStartPosition, int selectionEndPosition, int[] styleRuns)
     {
         this.text = text;
         this.selectionStartPosition = selectionStartPosition;
         this.selectionEndPosition = selectionEndPosition;
+        this.styleRuns = styleRuns;
     }
 }
@@ -0,0 +1,194 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.text.Spannable;
+import android.text.Spanned;
+
+/** Keeps the rich text formatting of a DummyView as spans and encodes it as style runs (offset, length, style id).
+ *  Changes get exchanged as deltas: a range of runs to replace, so only the runs around an edit need to be sent.
+ */
+public class TextStyleRuns
+{
+    /** The amount of ints per run: offset, length and style id */
+    public static final int RUN_SIZE = 3;
+
+    private static final int[] NO_RUNS = new int[0];
+
+    /** Span that marks a range of text with a style id (the style itself is only known to Unity) */
+    public static class TextStyleSpan
+    {
+        public final int styleId;
+
+        public TextStyleSpan(int styleId)
+        {
+            this.styleId = styleId;
+        }
+    }
+
+    private int[] runs;
+    private int runCount;
+    private int textLength;
+
+    private int[] encodeBuffer;
+    private int deltaStartRun;
+    private int deltaRemovedRunCount;
+    private int deltaOffsetShift;
+    private int[] deltaRuns;
+
+    public TextStyleRuns()
+    {
+        runs = NO_RUNS;
+        encodeBuffer = NO_RUNS;
+        deltaRuns = NO_RUNS;
+    }
+
+    public int getRunCount() { return runCount; }
+    /** Gets the first run index the last delta replaces */
+    public int getDeltaStartRun() { return deltaStartRun; }
+    /** Gets the amount of previous runs the last delta replaces */
+    public int getDeltaRemovedRunCount() { return deltaRemovedRunCount; }
+    /** Gets the offset change of the runs after the replaced runs */
+    public int getDeltaOffsetShift() { return deltaOffsetShift; }
+    /** Gets the runs to insert at the start run index, the array gets reused by the next update */
+    public int[] getDeltaRuns() { return deltaRuns; }
+
+    /** Replaces the style spans of given text with given runs
+     * @param runs The runs (offset, length, style id) to apply, null to clear the formatting
+     */
+    public void apply(Spannable text, int[] runs)
+    {
+        TextStyleSpan[] spans = text.getSpans(0, text.length(), TextStyleSpan.class);
+        for(int i = 0; i < spans.length; i++)
+        {
+            text.removeSpan(spans[i]);
+        }
+
+        int length = text.length();
+        if(runs != null)
+        {
+            for(int i = 0; i + RUN_SIZE <= runs.length; i += RUN_SIZE)
+            {
+                int start = Math.min(Math.max(runs[i], 0), length);
+                int end = Math.min(start + Math.max(runs[i + 1], 0), length);
+                if(end > start)
+                {
+                    //Text typed at the end of a run gets the same style
+                    text.setSpan(new TextStyleSpan(runs[i + 2]), start, end, Spanned.SPAN_EXCLUSIVE_INCLUSIVE);
+                }
+            }
+        }
+
+        update(text); //Unity already knows these runs, so this delta doesn't need to be sent
+    }
+
+    /** Encodes the current spans of given text and computes the delta with the previous runs
+     * @return Whether the runs changed
+     */
+    public boolean update(Spanned text)
+    {
+        int previousRunCount = runCount;
+        int previousTextLength = textLength;
+        int[] previousRuns = runs;
+
+        TextStyleSpan[] spans = text.getSpans(0, text.length(), TextStyleSpan.class);
+        int count = 0;
+        ensureCapacity(spans.length);
+        for(int i = 0; i < spans.length; i++)
+        {
+            int start = text.getSpanStart(spans[i]);
+            int end = text.getSpanEnd(spans[i]);
+            if(end > start) //Spans of deleted text are empty
+            {
+                insertSorted(encodeBuffer, count, start, end - start, spans[i].styleId);
+                count++;
+            }
+        }
+
+        int newTextLength = text.length();
+        int prefix = 0;
+        int maxShared = Math.min(previousRunCount, count);
+        while(prefix < maxShared && runEquals(previousRuns, prefix, encodeBuffer, prefix, 0))
+        {
+            prefix++;
+        }
+
+        int shift = newTextLength - previousTextLength;
+        int suffix = 0;
+        while(suffix < maxShared - prefix && runEquals(previousRuns, previousRunCount - 1 - suffix, encodeBuffer, count - 1 - suffix, shift))
+        {
+            suffix++;
+        }
+
+        textLength = newTextLength;
+        if(prefix == previousRunCount && prefix == count)
+        {
+            return false;
+        }
+
+        int addedRunCount = count - prefix - suffix;
+        deltaStartRun = prefix;
+        deltaRemovedRunCount = previousRunCount - prefix - suffix;
+        deltaOffsetShift = shift;
+        if(deltaRuns.length != addedRunCount * RUN_SIZE) //Typing inside a styled word keeps replacing a single run
+        {
+            deltaRuns = new int[addedRunCount * RUN_SIZE];
+        }
+        System.arraycopy(encodeBuffer, prefix * RUN_SIZE, deltaRuns, 0, deltaRuns.length);
+
+        swapBuffers(count);
+        return true;
+    }
+
+    /** Forgets the previous runs, so the next update sends all runs */
+    public void reset()
+    {
+        runCount = 0;
+        textLength = 0;
+    }
+
+    private void ensureCapacity(int count)
+    {
+        if(encodeBuffer.length < count * RUN_SIZE)
+        {
+            encodeBuffer = new int[count * RUN_SIZE];
+        }
+    }
+
+    private void swapBuffers(int count)
+    {
+        int[] previousRuns = runs;
+        runs = encodeBuffer;
+        encodeBuffer = previousRuns;
+        runCount = count;
+    }
+
+    /** Inserts a run in the sorted (by offset) part of the buffer, spans aren't returned in a guaranteed order */
+    private static void insertSorted(int[] buffer, int count, int offset, int length, int styleId)
+    {
+        int index = count * RUN_SIZE;
+        while(index > 0 && buffer[index - RUN_SIZE] > offset)
+        {
+            buffer[index] = buffer[index - RUN_SIZE];
+            buffer[index + 1] = buffer[index - RUN_SIZE + 1];
+            buffer[index + 2] = buffer[index - RUN_SIZE + 2];
+            index -= RUN_SIZE;
+        }
+
+        buffer[index] = offset;
+        buffer[index + 1] = length;
+        buffer[index + 2] = styleId;
+    }
+
+    private static boolean runEquals(int[] previousRuns, int previousRun, int[] currentRuns, int currentRun, int offsetShift)
+    {
+        int previousIndex = previousRun * RUN_SIZE;
+        int currentIndex = currentRun * RUN_SIZE;
+        return previousRuns[previousIndex] + offsetShift == currentRuns[currentIndex]
+                && previousRuns[previousIndex + 1] == currentRuns[currentIndex + 1]
+                && previousRuns[previousIndex + 2] == currentRuns[currentIndex + 2];
+    }
+}
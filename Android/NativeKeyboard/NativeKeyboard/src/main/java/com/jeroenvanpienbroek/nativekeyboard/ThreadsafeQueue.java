@@ -1,7 +1,7 @@
 package com.jeroenvanpienbroek.nativekeyboard;
 
+import java.util.ArrayDeque;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /** Class that wraps Queue in a threadsafe way */
 public class ThreadsafeQueue<T>
@@ -11,7 +11,7 @@ public class ThreadsafeQueue<T>
 
     public ThreadsafeQueue()
     {
-        this.queue = new LinkedBlockingQueue<T>();
+        this.queue = new ArrayDeque<T>(); //Reuses its backing array, the lock already makes it threadsafe
     }
 
     public void enqueue(T item)
@@ -22,6 +22,7 @@ public class ThreadsafeQueue<T>
         }
     }
 
+    /** Removes and returns the oldest item, or null if the queue is empty */
     public T dequeue()
     {
         synchronized (queueLock)
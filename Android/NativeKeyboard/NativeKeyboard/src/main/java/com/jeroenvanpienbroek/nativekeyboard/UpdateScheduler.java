@@ -0,0 +1,164 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Schedules update ticks on the thread of given Handler.
+ *  Ticks are frame aligned during transitions, polled while waiting for external changes and stop completely when idle.
+ *  An idle scheduler only runs again when woken up.
+ */
+public class UpdateScheduler implements Choreographer.FrameCallback
+{
+    public enum Mode
+    {
+        /** Don't tick until woken up */
+        IDLE,
+        /** Tick on the next frame */
+        FRAME,
+        /** Tick after the poll interval */
+        POLL
+    }
+
+    public interface Task
+    {
+        /** Performs an update and returns how the next update should be scheduled */
+        public Mode update();
+    }
+
+    private final Handler handler;
+    private final Task task;
+    private final int pollInterval;
+    private final AtomicBoolean wakeRequested;
+    private final Runnable wakeRunnable;
+    private final Runnable pollRunnable;
+    private Choreographer choreographer;
+    private boolean frameCallbackPosted;
+    private Mode mode;
+
+    private long totalWakeups;
+    private int windowWakeups;
+    private long windowStartTime;
+    private float wakeupsPerSecond;
+
+    public UpdateScheduler(Handler handler, int pollInterval, Task task)
+    {
+        this.handler = handler;
+        this.pollInterval = pollInterval;
+        this.task = task;
+        this.mode = Mode.IDLE;
+        this.wakeRequested = new AtomicBoolean(false);
+        this.wakeRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                wakeRequested.set(false);
+                tick();
+            }
+        };
+        this.pollRunnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                tick();
+            }
+        };
+    }
+
+    public Mode getMode() { return mode; }
+    public long getTotalWakeups() { return totalWakeups; }
+
+    /** The amount of ticks per second, measured over the last completed second (0 when the scheduler idled) */
+    public float getWakeupsPerSecond()
+    {
+        if(SystemClock.elapsedRealtime() - windowStartTime > 2000)
+        {
+            return 0; //No ticks for a while
+        }
+        return wakeupsPerSecond;
+    }
+
+    /** Runs an update as soon as possible, can be called from any thread */
+    public void wake()
+    {
+        if(wakeRequested.compareAndSet(false, true))
+        {
+            handler.post(wakeRunnable);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos)
+    {
+        frameCallbackPosted = false;
+        tick();
+    }
+
+    private void tick()
+    {
+        countWakeup();
+
+        handler.removeCallbacks(pollRunnable);
+        mode = task.update();
+
+        switch(mode)
+        {
+            case FRAME:
+                if(!frameCallbackPosted)
+                {
+                    getChoreographer().postFrameCallback(this);
+                    frameCallbackPosted = true;
+                }
+                break;
+            case POLL:
+                cancelFrameCallback();
+                handler.postDelayed(pollRunnable, pollInterval);
+                break;
+            case IDLE:
+                cancelFrameCallback();
+                break;
+        }
+    }
+
+    private void cancelFrameCallback()
+    {
+        if(frameCallbackPosted)
+        {
+            getChoreographer().removeFrameCallback(this);
+            frameCallbackPosted = false;
+        }
+    }
+
+    private Choreographer getChoreographer()
+    {
+        if(choreographer == null)
+        {
+            choreographer = Choreographer.getInstance(); //Needs to be retrieved on the thread of the handler
+        }
+        return choreographer;
+    }
+
+    private void countWakeup()
+    {
+        totalWakeups++;
+        windowWakeups++;
+
+        long time = SystemClock.elapsedRealtime();
+        long elapsed = time - windowStartTime;
+        if(elapsed >= 1000)
+        {
+            wakeupsPerSecond = (elapsed > 2000) ? 0 : (windowWakeups * 1000f) / elapsed;
+            windowWakeups = 0;
+            windowStartTime = time;
+        }
+    }
+}
@@ -106,7 +106,7 @@ public class CharacterCondition
                 }
                 break;
             case VALUE_IN_STRING:
-                if (conditionStringValue.contains(ch + ""))
+                if (conditionStringValue.indexOf(ch) != -1)
                 {
                     return true;
                 }
@@ -21,12 +21,29 @@ public class CharacterRule
     public CharacterCondition[] conditions;
     public CharacterAction action;
     public int actionIntValue;
+    /** The index of this rule as declared in the validator */
+    public int index;
+    /** The amount of evaluations in adaptive ordering mode, decays on each reordering */
+    public int evaluationCount;
+    /** The amount of matches in adaptive ordering mode, decays on each reordering */
+    public int matchCount;
+    private CharacterValidatorOptimizer.RuleConstraints constraints;
 
-    public CharacterRule(JSONObject jsonObject)
+    public CharacterRule(JSONObject jsonObject, int index)
     {
+        this.index = index;
         parseJSON(jsonObject);
     }
 
+    public CharacterValidatorOptimizer.RuleConstraints getConstraints()
+    {
+        if(constraints == null)
+        {
+            constraints = new CharacterValidatorOptimizer.RuleConstraints(this);
+        }
+        return constraints;
+    }
+
     private void parseJSON(JSONObject jsonObject)
     {
         try
@@ -59,4 +76,20 @@ public class CharacterRule
 
         return (length > 0);
     }
+
+    /** Same as areConditionsMet, but records each evaluated condition in given profile */
+    public boolean areConditionsMetProfiled(char ch, char[] text, int textLength, int pos, int selectionStartPosition, CharacterValidatorProfile profile)
+    {
+        int length = conditions.length;
+        for(int i = 0; i < length; i++)
+        {
+            CharacterCondition condition = conditions[i];
+            long startTime = System.nanoTime();
+            boolean met = condition.isConditionMet(ch, text, textLength, pos, selectionStartPosition);
+            profile.recordCondition(condition.conditionOperator, met, System.nanoTime() - startTime);
+            if(!met) { return false; }
+        }
+
+        return (length > 0);
+    }
 }
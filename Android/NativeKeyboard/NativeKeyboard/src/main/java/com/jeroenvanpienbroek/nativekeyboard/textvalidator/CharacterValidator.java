@@ -7,9 +7,20 @@ import static com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterRule.
 
 public class CharacterValidator
 {
+    /** The amount of validations between reorderings in adaptive ordering mode */
+    private static final int ADAPTIVE_ORDERING_INTERVAL = 256;
+
+    /** The rules in evaluation order */
     public CharacterRule[] rules;
+    /** The rules in declaration order */
+    public CharacterRule[] declaredRules;
     public CharacterRule.CharacterAction otherCharacterAction;
     public int otherCharacterActionIntValue;
+    /** The counters of the profiling mode, null when not profiling */
+    public CharacterValidatorProfile profile;
+    private boolean adaptiveOrdering;
+    private int adaptiveValidationCount;
+    private float[] ruleScores;
 
     public CharacterValidator(JSONObject jsonObject)
     {
@@ -26,11 +37,13 @@ public class CharacterValidator
             for(int i = 0; i < length; i++)
             {
                 JSONObject ruleJSON = rulesJSON.getJSONObject(i);
-                rules[i] = new CharacterRule(ruleJSON);
+                rules[i] = new CharacterRule(ruleJSON, i);
             }
+            declaredRules = rules.clone();
 
             otherCharacterAction= CHARACTER_ACTION_VALUES[jsonObject.getInt("otherCharacterAction")];
             otherCharacterActionIntValue = jsonObject.getInt("otherCharacterActionIntValue");
+            optimize();
         }
         catch (Exception e)
         {
@@ -38,18 +51,124 @@ public class CharacterValidator
         }
     }
 
+    /** Sorts the conditions of each rule by estimated cost, the rules keep their declaration order until adaptive ordering measures how often they match */
+    private void optimize()
+    {
+        ruleScores = new float[declaredRules.length];
+        for(CharacterRule rule: declaredRules)
+        {
+            CharacterValidatorOptimizer.sortConditions(rule);
+        }
+    }
+
+    /** Enables or disables adaptive ordering: periodically moves rules with a lower expected cost to reach a match forward where that can't change the results.
+     *  Disabling restores the declaration order.
+     */
+    public void setAdaptiveOrdering(boolean enabled)
+    {
+        adaptiveOrdering = enabled;
+        adaptiveValidationCount = 0;
+        for(CharacterRule rule: declaredRules)
+        {
+            rule.evaluationCount = 0;
+            rule.matchCount = 0;
+        }
+        if(!enabled)
+        {
+            System.arraycopy(declaredRules, 0, rules, 0, declaredRules.length);
+        }
+    }
+
+    /** Scores each rule by its observed selectivity (the chance that it matches when evaluated) per unit of estimated cost.
+     *  Evaluating the rules in descending score order minimizes the expected cost to reach a match.
+     */
+    private void reorderAdaptively()
+    {
+        int length = declaredRules.length;
+        for(int i = 0; i < length; i++)
+        {
+            CharacterRule rule = declaredRules[i];
+            float selectivity = (rule.matchCount + 1f) / (rule.evaluationCount + 2f); //Rules that weren't evaluated yet count as a coin flip
+            ruleScores[i] = selectivity / Math.max(CharacterValidatorOptimizer.estimateCost(rule), 1);
+            rule.evaluationCount /= 2; //Decay, so the order follows changes in the input
+            rule.matchCount /= 2;
+        }
+
+        CharacterValidatorOptimizer.orderRules(rules, ruleScores);
+    }
+
+    /** Enables or disables the profiling mode, enabling resets the counters */
+    public void setProfilingEnabled(boolean enabled)
+    {
+        profile = enabled ? new CharacterValidatorProfile(declaredRules) : null;
+    }
+
     public char validate(char ch, char[] text, int textLength, int pos, int selectionStartPosition)
     {
+        if(profile != null)
+        {
+            return validateProfiled(ch, text, textLength, pos, selectionStartPosition, profile);
+        }
+
+        if(adaptiveOrdering)
+        {
+            return validateAdaptively(ch, text, textLength, pos, selectionStartPosition);
+        }
+
+        int length = rules.length;
+        for(int i = 0; i < length; i++)
+        {
+            CharacterRule rule = rules[i];
+            if(rule.areConditionsMet(ch, text, textLength, pos, selectionStartPosition))
+            {
+                return executeAction(ch, rule.action, rule.actionIntValue);
+            }
+        }
+
+        return executeAction(ch, otherCharacterAction, otherCharacterActionIntValue);
+    }
+
+    private char validateAdaptively(char ch, char[] text, int textLength, int pos, int selectionStartPosition)
+    {
+        if(++adaptiveValidationCount >= ADAPTIVE_ORDERING_INTERVAL)
+        {
+            adaptiveValidationCount = 0;
+            reorderAdaptively();
+        }
+
         int length = rules.length;
         for(int i = 0; i < length; i++)
         {
             CharacterRule rule = rules[i];
+            rule.evaluationCount++;
             if(rule.areConditionsMet(ch, text, textLength, pos, selectionStartPosition))
+            {
+                rule.matchCount++;
+                return executeAction(ch, rule.action, rule.actionIntValue);
+            }
+        }
+
+        return executeAction(ch, otherCharacterAction, otherCharacterActionIntValue);
+    }
+
+    private char validateProfiled(char ch, char[] text, int textLength, int pos, int selectionStartPosition, CharacterValidatorProfile profile)
+    {
+        profile.recordValidation();
+
+        int length = rules.length;
+        for(int i = 0; i < length; i++)
+        {
+            CharacterRule rule = rules[i];
+            long startTime = System.nanoTime();
+            boolean matched = rule.areConditionsMetProfiled(ch, text, textLength, pos, selectionStartPosition, profile);
+            profile.recordRule(rule.index, matched, System.nanoTime() - startTime);
+            if(matched)
             {
                 return executeAction(ch, rule.action, rule.actionIntValue);
             }
         }
 
+        profile.recordOtherCharacter();
         return executeAction(ch, otherCharacterAction, otherCharacterActionIntValue);
     }
 
@@ -0,0 +1,220 @@
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** Reorders the rules and conditions of a CharacterValidator to reduce the evaluation cost, without changing its results.
+ *  Conditions of a rule are all required, so they can be evaluated cheapest first.
+ *  Rules are matched in order, so two adjacent rules only get swapped when they can't both match the same character or have the same action.
+ */
+public class CharacterValidatorOptimizer
+{
+    /** Estimated cost of a condition that scans the whole text */
+    private static final int OCCURENCES_COST = 16;
+
+    private static final Comparator<CharacterCondition> CONDITION_COST_COMPARATOR = new Comparator<CharacterCondition>()
+    {
+        @Override
+        public int compare(CharacterCondition condition1, CharacterCondition condition2)
+        {
+            return estimateCost(condition1) - estimateCost(condition2);
+        }
+    };
+
+    /** Sorts the conditions of given rule by estimated cost (stable) */
+    public static void sortConditions(CharacterRule rule)
+    {
+        Arrays.sort(rule.conditions, CONDITION_COST_COMPARATOR);
+    }
+
+    public static int estimateCost(CharacterCondition condition)
+    {
+        switch(condition.conditionOperator)
+        {
+            case VALUE_IN_STRING: return 1 + (condition.conditionStringValue.length() / 8);
+            case OCCURENCES_SMALLER_THAN:
+            case OCCURENCES_SMALLER_THAN_OR_EQUALS:
+            case OCCURENCES_GREATER_THAN:
+            case OCCURENCES_GREATER_THAN_OR_EQUALS:
+                return OCCURENCES_COST;
+            default: return 1;
+        }
+    }
+
+    public static int estimateCost(CharacterRule rule)
+    {
+        int cost = 0;
+        for(CharacterCondition condition: rule.conditions)
+        {
+            cost += estimateCost(condition);
+        }
+        return cost;
+    }
+
+    /** Moves rules with a higher score before rules with a lower score, as far as that can't change the results
+     * @param rules The rules in evaluation order, reordered in place
+     * @param scores The score of each rule, indexed by CharacterRule.index
+     * @return true if the order changed
+     */
+    public static boolean orderRules(CharacterRule[] rules, float[] scores)
+    {
+        boolean changed = false;
+        int length = rules.length;
+        for(int i = 1; i < length; i++) //Insertion sort with adjacent swaps, each swap keeps the results the same
+        {
+            CharacterRule rule = rules[i];
+            int j = i;
+            while(j > 0 && scores[rules[j - 1].index] < scores[rule.index] && canSwap(rules[j - 1], rule))
+            {
+                rules[j] = rules[j - 1];
+                j--;
+            }
+
+            if(j != i)
+            {
+                rules[j] = rule;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /** Checks whether two adjacent rules can be evaluated in the other order without changing the results */
+    public static boolean canSwap(CharacterRule rule1, CharacterRule rule2)
+    {
+        if(rule1.action == rule2.action && rule1.actionIntValue == rule2.actionIntValue)
+        {
+            return true; //Same result regardless of which one matches
+        }
+
+        return rule1.getConstraints().isDisjoint(rule2.getConstraints());
+    }
+
+    /** The character values and indices a rule can match, derived from its value, index and string conditions.
+     *  Conditions on occurrences or the previous character aren't included, so the constraints can match more than the rule.
+     */
+    public static class RuleConstraints
+    {
+        public int valueMin = Integer.MIN_VALUE;
+        public int valueMax = Integer.MAX_VALUE;
+        public int indexMin = Integer.MIN_VALUE;
+        public int indexMax = Integer.MAX_VALUE;
+        /** The characters the rule can match, null when not limited by a string condition */
+        public String characters;
+        /** Whether the rule can never match (for example without conditions) */
+        public boolean impossible;
+
+        public RuleConstraints(CharacterRule rule)
+        {
+            if(rule.conditions.length == 0)
+            {
+                impossible = true;
+                return;
+            }
+
+            for(CharacterCondition condition: rule.conditions)
+            {
+                int value1 = condition.conditionIntValue1;
+                int value2 = condition.conditionIntValue2;
+                switch(condition.conditionOperator)
+                {
+                    case VALUE_EQUALS: limitValue(value1, value1); break;
+                    case VALUE_SMALLER_THAN: limitValue(Integer.MIN_VALUE, value1 - 1); break;
+                    case VALUE_SMALLER_THAN_OR_EQUALS: limitValue(Integer.MIN_VALUE, value1); break;
+                    case VALUE_GREATER_THAN: limitValue(value1 + 1, Integer.MAX_VALUE); break;
+                    case VALUE_GREATER_THAN_OR_EQUALS: limitValue(value1, Integer.MAX_VALUE); break;
+                    case VALUE_BETWEEN_INCLUSIVE: limitValue(value1, value2); break;
+                    case VALUE_BETWEEN_EXCLUSIVE: limitValue(value1 + 1, value2 - 1); break;
+                    case INDEX_EQUALS: limitIndex(value1, value1); break;
+                    case INDEX_SMALLER_THAN: limitIndex(Integer.MIN_VALUE, value1 - 1); break;
+                    case INDEX_SMALLER_THAN_OR_EQUALS: limitIndex(Integer.MIN_VALUE, value1); break;
+                    case INDEX_GREATER_THAN: limitIndex(value1 + 1, Integer.MAX_VALUE); break;
+                    case INDEX_GREATER_THAN_OR_EQUALS: limitIndex(value1, Integer.MAX_VALUE); break;
+                    case INDEX_BETWEEN_INCLUSIVE: limitIndex(value1, value2); break;
+                    case INDEX_BETWEEN_EXCLUSIVE: limitIndex(value1 + 1, value2 - 1); break;
+                    case VALUE_IN_STRING: limitCharacters(condition.conditionStringValue); break;
+                }
+            }
+
+            if(valueMin > valueMax || indexMin > indexMax || (characters != null && !hasCharacterInRange(characters, valueMin, valueMax)))
+            {
+                impossible = true;
+            }
+        }
+
+        /** Checks whether no character can match both constraints */
+        public boolean isDisjoint(RuleConstraints other)
+        {
+            if(impossible || other.impossible) { return true; }
+            if(valueMax < other.valueMin || other.valueMax < valueMin) { return true; }
+            if(indexMax < other.indexMin || other.indexMax < indexMin) { return true; }
+
+            if(characters != null && !other.canMatchAny(characters)) { return true; }
+            if(other.characters != null && !canMatchAny(other.characters)) { return true; }
+
+            return false;
+        }
+
+        private boolean canMatchAny(String candidates)
+        {
+            int length = candidates.length();
+            for(int i = 0; i < length; i++)
+            {
+                char ch = candidates.charAt(i);
+                if(ch >= valueMin && ch <= valueMax && (characters == null || characters.indexOf(ch) != -1))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void limitValue(int min, int max)
+        {
+            valueMin = Math.max(valueMin, min);
+            valueMax = Math.min(valueMax, max);
+        }
+
+        private void limitIndex(int min, int max)
+        {
+            indexMin = Math.max(indexMin, min);
+            indexMax = Math.min(indexMax, max);
+        }
+
+        private void limitCharacters(String value)
+        {
+            if(characters == null)
+            {
+                characters = value;
+                return;
+            }
+
+            StringBuilder builder = new StringBuilder();
+            int length = characters.length();
+            for(int i = 0; i < length; i++)
+            {
+                char ch = characters.charAt(i);
+                if(value.indexOf(ch) != -1)
+                {
+                    builder.append(ch);
+                }
+            }
+            characters = builder.toString();
+        }
+
+        private static boolean hasCharacterInRange(String characters, int min, int max)
+        {
+            int length = characters.length();
+            for(int i = 0; i < length; i++)
+            {
+                char ch = characters.charAt(i);
+                if(ch >= min && ch <= max)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import static com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterCondition.CHARACTER_CONDITION_OPERATOR_VALUES;
+
+/** Counters of a CharacterValidator in profiling mode: evaluations, matches and cost of each rule and each condition operator.
+ *  Updated on the thread that validates, a snapshot taken from another thread can be slightly behind.
+ */
+public class CharacterValidatorProfile
+{
+    private static final String TAG = "ValidatorProfile";
+
+    private CharacterRule[] rules;
+    private long validations;
+    private long[] ruleEvaluations;
+    private long[] ruleMatches;
+    private long[] ruleNanos;
+    private long otherCharacterMatches;
+    private long[] operatorEvaluations;
+    private long[] operatorMatches;
+    private long[] operatorNanos;
+
+    /** @param rules The rules in declaration order */
+    public CharacterValidatorProfile(CharacterRule[] rules)
+    {
+        this.rules = rules;
+        int ruleCount = rules.length;
+        ruleEvaluations = new long[ruleCount];
+        ruleMatches = new long[ruleCount];
+        ruleNanos = new long[ruleCount];
+
+        int operatorCount = CHARACTER_CONDITION_OPERATOR_VALUES.length;
+        operatorEvaluations = new long[operatorCount];
+        operatorMatches = new long[operatorCount];
+        operatorNanos = new long[operatorCount];
+    }
+
+    public long getRuleEvaluations(int ruleIndex) { return ruleEvaluations[ruleIndex]; }
+    public long getRuleMatches(int ruleIndex) { return ruleMatches[ruleIndex]; }
+    public long getRuleNanos(int ruleIndex) { return ruleNanos[ruleIndex]; }
+
+    public void recordValidation()
+    {
+        validations++;
+    }
+
+    /** @param ruleIndex The index of the rule as declared in the validator (CharacterRule.index) */
+    public void recordRule(int ruleIndex, boolean matched, long nanos)
+    {
+        ruleEvaluations[ruleIndex]++;
+        ruleNanos[ruleIndex] += nanos;
+        if(matched)
+        {
+            ruleMatches[ruleIndex]++;
+        }
+    }
+
+    public void recordOtherCharacter()
+    {
+        otherCharacterMatches++;
+    }
+
+    public void recordCondition(CharacterCondition.CharacterConditionOperator conditionOperator, boolean met, long nanos)
+    {
+        int operatorIndex = conditionOperator.ordinal();
+        operatorEvaluations[operatorIndex]++;
+        operatorNanos[operatorIndex] += nanos;
+        if(met)
+        {
+            operatorMatches[operatorIndex]++;
+        }
+    }
+
+    public void reset()
+    {
+        validations = 0;
+        otherCharacterMatches = 0;
+        for(int i = 0; i < ruleEvaluations.length; i++)
+        {
+            ruleEvaluations[i] = 0;
+            ruleMatches[i] = 0;
+            ruleNanos[i] = 0;
+        }
+        for(int i = 0; i < operatorEvaluations.length; i++)
+        {
+            operatorEvaluations[i] = 0;
+            operatorMatches[i] = 0;
+            operatorNanos[i] = 0;
+        }
+    }
+
+    public JSONObject toJSON()
+    {
+        JSONObject jsonObject = new JSONObject();
+        try
+        {
+            jsonObject.put("validations", validations);
+            jsonObject.put("otherCharacterMatches", otherCharacterMatches);
+
+            JSONArray rulesJSON = new JSONArray();
+            for(int i = 0; i < rules.length; i++)
+            {
+                JSONObject ruleJSON = new JSONObject();
+                ruleJSON.put("index", i);
+                ruleJSON.put("action", rules[i].action.name());
+                ruleJSON.put("conditions", rules[i].conditions.length);
+                ruleJSON.put("evaluations", ruleEvaluations[i]);
+                ruleJSON.put("matches", ruleMatches[i]);
+                ruleJSON.put("nanos", ruleNanos[i]);
+                rulesJSON.put(ruleJSON);
+            }
+            jsonObject.put("rules", rulesJSON);
+
+            JSONObject operatorsJSON = new JSONObject();
+            for(int i = 0; i < operatorEvaluations.length; i++)
+            {
+                if(operatorEvaluations[i] == 0) { continue; }
+
+                JSONObject operatorJSON = new JSONObject();
+                operatorJSON.put("evaluations", operatorEvaluations[i]);
+                operatorJSON.put("matches", operatorMatches[i]);
+                operatorJSON.put("nanos", operatorNanos[i]);
+                operatorsJSON.put(CHARACTER_CONDITION_OPERATOR_VALUES[i].name(), operatorJSON);
+            }
+            jsonObject.put("operators", operatorsJSON);
+        }
+        catch(JSONException e)
+        {
+            Log.d(TAG, "Failed to create profile JSON: " + e.getMessage());
+        }
+
+        return jsonObject;
+    }
+}
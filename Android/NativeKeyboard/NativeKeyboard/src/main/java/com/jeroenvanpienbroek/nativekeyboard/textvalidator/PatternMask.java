@@ -0,0 +1,155 @@
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A fixed format mask (like "#### #### #### ####") compiled to an automaton where the state is the position in the text.
+ *  Each character gets validated with a single lookup, literal separators can be inserted automatically.
+ *  Mask characters:
+ *  '#' a digit,
+ *  'L' a letter,
+ *  'U' a letter that gets converted to uppercase,
+ *  'l' a letter that gets converted to lowercase,
+ *  '*' a letter or digit,
+ *  '?' any character,
+ *  '\' escapes the next character, so it's a literal,
+ *  any other character is a literal separator.
+ */
+public class PatternMask
+{
+    private static final byte LITERAL = 0;
+    private static final byte DIGIT = 1;
+    private static final byte LETTER = 2;
+    private static final byte UPPERCASE_LETTER = 3;
+    private static final byte LOWERCASE_LETTER = 4;
+    private static final byte LETTER_OR_DIGIT = 5;
+    private static final byte ANY = 6;
+
+    /** The maximum amount of compiled masks to keep */
+    private static final int CACHE_CAPACITY = 16;
+
+    private static final Map<String, PatternMask> cache = new LinkedHashMap<String, PatternMask>(CACHE_CAPACITY, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PatternMask> eldest)
+        {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    /** The character class of each state */
+    private byte[] classes;
+    /** The literal of each state, only used for LITERAL states */
+    private char[] literals;
+    /** The amount of consecutive literal states starting at each state */
+    private int[] literalRuns;
+    private int length;
+
+    /** Gets the compiled version of given mask, masks are only compiled the first time */
+    public static PatternMask compile(String mask)
+    {
+        if(mask == null || mask.length() == 0)
+        {
+            return null;
+        }
+
+        synchronized(cache)
+        {
+            PatternMask patternMask = cache.get(mask);
+            if(patternMask == null)
+            {
+                patternMask = new PatternMask(mask);
+                cache.put(mask, patternMask);
+            }
+            return patternMask;
+        }
+    }
+
+    private PatternMask(String mask)
+    {
+        int maskLength = mask.length();
+        classes = new byte[maskLength];
+        literals = new char[maskLength];
+
+        for(int i = 0; i < maskLength; i++)
+        {
+            char ch = mask.charAt(i);
+            byte characterClass = LITERAL;
+            switch(ch)
+            {
+                case '#': characterClass = DIGIT; break;
+                case 'L': characterClass = LETTER; break;
+                case 'U': characterClass = UPPERCASE_LETTER; break;
+                case 'l': characterClass = LOWERCASE_LETTER; break;
+                case '*': characterClass = LETTER_OR_DIGIT; break;
+                case '?': characterClass = ANY; break;
+                case '\\':
+                    if(i + 1 < maskLength)
+                    {
+                        i++;
+                        ch = mask.charAt(i);
+                    }
+                    break;
+            }
+
+            classes[length] = characterClass;
+            literals[length] = ch;
+            length++;
+        }
+
+        literalRuns = new int[length + 1];
+        for(int i = length - 1; i >= 0; i--)
+        {
+            literalRuns[i] = (classes[i] == LITERAL) ? literalRuns[i + 1] + 1 : 0;
+        }
+    }
+
+    /** The maximum length of the text */
+    public int getLength() { return length; }
+
+    /** Gets the literal at given state (position) */
+    public char getLiteral(int state) { return literals[state]; }
+
+    /** Validates a character at given state (position)
+     * @return The (converted) character, or 0 if it's not allowed
+     */
+    public char transition(int state, char ch)
+    {
+        if(state < 0 || state >= length)
+        {
+            return 0;
+        }
+
+        switch(classes[state])
+        {
+            case LITERAL: return (ch == literals[state]) ? ch : 0;
+            case DIGIT: return (ch >= '0' && ch <= '9') ? ch : 0;
+            case LETTER: return Character.isLetter(ch) ? ch : 0;
+            case UPPERCASE_LETTER: return Character.isLetter(ch) ? Character.toUpperCase(ch) : 0;
+            case LOWERCASE_LETTER: return Character.isLetter(ch) ? Character.toLowerCase(ch) : 0;
+            case LETTER_OR_DIGIT: return Character.isLetterOrDigit(ch) ? ch : 0;
+            case ANY: return ch;
+        }
+
+        return 0;
+    }
+
+    /** Gets the amount of literals to insert at given state (position), so given character can be accepted after them
+     * @return The amount of literals, 0 if the character can't be accepted that way
+     */
+    public int getLiteralInsertCount(int state, char ch)
+    {
+        if(state < 0 || state >= length)
+        {
+            return 0;
+        }
+
+        int literalRun = literalRuns[state];
+        if(literalRun == 0 || transition(state + literalRun, ch) == 0)
+        {
+            return 0;
+        }
+
+        return literalRun;
+    }
+}
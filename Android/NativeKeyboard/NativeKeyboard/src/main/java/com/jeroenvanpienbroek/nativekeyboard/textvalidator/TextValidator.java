@@ -5,6 +5,8 @@
 
 package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
 
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
 import android.util.Log;
 
 import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard;
@@ -16,19 +18,32 @@ public class TextValidator
 
     private NativeKeyboard.CharacterValidation validation;
     private CharacterValidator validator;
+    private PatternMask patternMask;
     private NativeKeyboard.LineType lineType;
     private String resultText;
     private int resultCaretPosition;
+    private char[] validationBuffer;
+    private char[] replacementBuffer;
+    private StringBuilder replacementCharacter = new StringBuilder(1);
+    /** State of the text before the current position, reset at the start of each validation pass */
+    private final TextValidatorState state = new TextValidatorState();
+    private boolean fullValidationRequired;
 
     public NativeKeyboard.CharacterValidation getValidation()
     {
         return validation;
     }
+    public CharacterValidator getValidator()
+    {
+        return validator;
+    }
     public NativeKeyboard.LineType getLineType()
     {
         return lineType;
     }
     public String getResultText(){ return resultText; }
+    /** Whether the last validateReplacement call affected the text after the replaced range in a way an input filter can't apply */
+    public boolean isFullValidationRequired(){ return fullValidationRequired; }
     public int getResultCaretPosition(){ return resultCaretPosition; }
 
     public  void setValidation(NativeKeyboard.CharacterValidation validation)
@@ -41,6 +56,11 @@ public class TextValidator
         this.validator = validator;
     }
 
+    public void setPatternMask(PatternMask patternMask)
+    {
+        this.patternMask = patternMask;
+    }
+
     public void setLineType(NativeKeyboard.LineType lineType)
     {
         this.lineType = lineType;
@@ -52,14 +72,31 @@ public class TextValidator
         int textToAppendLength = textToAppend.length();
 
         int startCaretPosition = caretPosition;
-        char[] buffer = new char[textLength + textToAppendLength];
+        int bufferLength = textLength + textToAppendLength + getMaxLiteralInsertLength();
+        if(validationBuffer == null || validationBuffer.length < bufferLength)
+        {
+            validationBuffer = new char[Math.max(bufferLength, 64)];
+        }
+        char[] buffer = validationBuffer;
         Util.stringCopy(buffer, text);
+        state.reset();
 
         int position = 0;
         for(int i = 0; i < textToAppendLength; i++)
         {
             char ch = textToAppend.charAt(i);
             char result = validateChar(ch, buffer, position, position, caretPosition, selectionStartPosition);
+            if(result == 0)
+            {
+                int literalCount = insertLiterals(ch, buffer, position);
+                if(literalCount > 0)
+                {
+                    position += literalCount;
+                    caretPosition += literalCount;
+                    result = validateChar(ch, buffer, position, position, caretPosition, selectionStartPosition);
+                }
+            }
+
             if(result != 0)
             {
                 buffer[position] = result;
@@ -88,6 +125,151 @@ public class TextValidator
         resultCaretPosition = caretPosition;
     }
 
+    /** Validates the replacement of dest[dstart, dend) with source[start, end). The text around the replaced range is expected to be valid already.
+     *  When the text after the replaced range would need to change (for example deleting the space between two NAME words),
+     *  isFullValidationRequired() returns true afterwards and the whole text should be validated after the change.
+     * @return The validated replacement (keeping the spans of a Spanned source), or null if the replacement is valid as is
+     */
+    public CharSequence validateReplacement(CharSequence source, int start, int end, Spanned dest, int dstart, int dend)
+    {
+        fullValidationRequired = false;
+        int destLength = dest.length();
+        int bufferLength = dstart + (end - start) + (destLength - dend) + getMaxLiteralInsertLength();
+        if(replacementBuffer == null || replacementBuffer.length < bufferLength)
+        {
+            replacementBuffer = new char[Math.max(bufferLength, 64)];
+        }
+        char[] buffer = replacementBuffer;
+        state.reset();
+
+        for(int i = 0; i < dstart; i++)
+        {
+            buffer[i] = dest.charAt(i);
+        }
+
+        boolean spannedSource = (source instanceof Spanned); //Plain text gets copied from the validated characters instead
+        boolean replacementChanged = false;
+        SpannableStringBuilder builder = null; //Only allocated when the replacement of a Spanned source needs to change
+        int builderOffset = 0; //Amount of inserted minus removed characters in the builder
+        int position = dstart;
+        for(int i = start; i < end; i++)
+        {
+            char ch = source.charAt(i);
+            char result = validateChar(ch, buffer, position, position, position, -1);
+            int literalCount = 0;
+            if(result == 0)
+            {
+                literalCount = insertLiterals(ch, buffer, position);
+                if(literalCount > 0)
+                {
+                    position += literalCount;
+                    result = validateChar(ch, buffer, position, position, position, -1);
+                }
+            }
+
+            if(result != ch || literalCount > 0)
+            {
+                replacementChanged = true;
+            }
+
+            if(spannedSource && (result != ch || literalCount > 0))
+            {
+                if(builder == null)
+                {
+                    builder = new SpannableStringBuilder(source, start, end);
+                }
+
+                int builderIndex = i - start + builderOffset;
+                if(literalCount > 0)
+                {
+                    replacementCharacter.setLength(0);
+                    replacementCharacter.append(buffer, position - literalCount, literalCount);
+                    builder.insert(builderIndex, replacementCharacter);
+                    builderOffset += literalCount;
+                    builderIndex += literalCount;
+                }
+
+                if(result == 0)
+                {
+                    builder.delete(builderIndex, builderIndex + 1);
+                    builderOffset--;
+                }
+                else if(result != ch)
+                {
+                    replacementCharacter.setLength(0);
+                    replacementCharacter.append(result);
+                    builder.replace(builderIndex, builderIndex + 1, replacementCharacter);
+                }
+            }
+
+            if(result != 0)
+            {
+                buffer[position] = result;
+                position++;
+            }
+        }
+
+        int replacementEnd = position;
+        boolean inserted = (position > dstart);
+        if(inserted || dend > dstart) //Check whether the text after the replaced range is still valid
+        {
+            for(int i = dend; i < destLength; i++)
+            {
+                char ch = dest.charAt(i);
+                char result = validateChar(ch, buffer, position, position, position, -1);
+                if(result != ch)
+                {
+                    if(result == 0 && inserted && validation != NativeKeyboard.CharacterValidation.PATTERN_MASK)
+                    {
+                        return ""; //Reject the insertion if it makes the existing text after it invalid
+                    }
+
+                    fullValidationRequired = true; //The filter can only change the replacement, the text after it gets validated afterwards
+                    return createReplacement(builder, replacementChanged, buffer, dstart, replacementEnd);
+                }
+
+                buffer[position] = ch;
+                position++;
+            }
+        }
+
+        return createReplacement(builder, replacementChanged, buffer, dstart, replacementEnd);
+    }
+
+    /** Gets the validated replacement: the builder that kept the spans, or a copy of the validated characters when the source had no spans */
+    private CharSequence createReplacement(SpannableStringBuilder builder, boolean replacementChanged, char[] buffer, int start, int end)
+    {
+        if(builder != null || !replacementChanged)
+        {
+            return builder;
+        }
+        return new String(buffer, start, end - start);
+    }
+
+    /** The maximum amount of literals the pattern mask can insert, 0 when not in pattern mask mode */
+    private int getMaxLiteralInsertLength()
+    {
+        return (validation == NativeKeyboard.CharacterValidation.PATTERN_MASK && patternMask != null) ? patternMask.getLength() : 0;
+    }
+
+    /** Inserts the literal separators of the pattern mask at given position, when given character is only accepted after them
+     * @return The amount of inserted literals
+     */
+    private int insertLiterals(char ch, char[] buffer, int position)
+    {
+        if(validation != NativeKeyboard.CharacterValidation.PATTERN_MASK || patternMask == null)
+        {
+            return 0;
+        }
+
+        int literalCount = patternMask.getLiteralInsertCount(position, ch);
+        for(int i = 0; i < literalCount; i++)
+        {
+            buffer[position + i] = patternMask.getLiteral(position + i);
+        }
+        return literalCount;
+    }
+
     private char validateChar(char ch, char[] text, int textLength, int pos, int caretPosition, int selectionStartPosition)
     {
         if(lineType != NativeKeyboard.LineType.MULTI_LINE_NEWLINE && (ch == '\r' || ch == '\n'))
@@ -110,9 +292,19 @@ public class TextValidator
             }
         }
 
+        if(validation == NativeKeyboard.CharacterValidation.PATTERN_MASK)
+        {
+            if(patternMask == null) { return ch; }
+            else
+            {
+                return patternMask.transition(pos, ch);
+            }
+        }
+
         if(validation == NativeKeyboard.CharacterValidation.INTEGER || validation == NativeKeyboard.CharacterValidation.DECIMAL || validation == NativeKeyboard.CharacterValidation.DECIMAL_FORCE_POINT)
         {
             // Integer and decimal
+            state.sync(text, textLength);
             boolean cursorBeforeDash = (pos == 0 && textLength > 0 && text[0] == '-');
             boolean dashInSelection = textLength > 0 && text[0] == '-' && ((caretPosition == 0 && selectionStartPosition > 0) || (selectionStartPosition == 0 && caretPosition > 0));
             boolean selectionAtStart = caretPosition == 0 || selectionStartPosition == 0;
@@ -124,13 +316,13 @@ public class TextValidator
                 {
                     if(ch == '.' || ch == ',')
                     {
-                        if(!Util.contains('.', text, textLength) && !Util.contains(',', text, textLength)) return ch;
+                        if(!state.hasPoint && !state.hasComma) return ch;
                     }
                 }
                 else if(validation == NativeKeyboard.CharacterValidation.DECIMAL_FORCE_POINT)
                 {
-                    if (ch == '.' && !Util.contains('.', text, textLength)) return ch;
-                    if (ch == ',' && !Util.contains('.', text, textLength)) return '.';
+                    if (ch == '.' && !state.hasPoint) return ch;
+                    if (ch == ',' && !state.hasPoint) return '.';
                 }
             }
         }
@@ -176,7 +368,8 @@ public class TextValidator
             if(ch == '\'')
             {
                 // Don't allow more than one apostrophe
-                if(!Util.contains('\'', text, textLength))
+                state.sync(text, textLength);
+                if(!state.hasApostrophe)
                 {
                     // Don't allow consecutive spaces and apostrophes.
                     if(!(((pos > 0) && ((text[pos - 1] == ' ') || (text[pos - 1] == '\''))) ||
@@ -207,7 +400,11 @@ public class TextValidator
             // and provided also that it does not appear two or more times consecutively.
 
             if(Character.isLetterOrDigit(ch)) return ch;
-            if(ch == '@' && Util.indexOf('@', text, textLength) == -1) return ch;
+            if(ch == '@')
+            {
+                state.sync(text, textLength);
+                if(!state.hasAt) return ch;
+            }
             if(EMAIL_SPECIAL_CHARACTERS.indexOf(ch) != -1) return ch;
             if(ch == '.')
             {
@@ -221,21 +418,48 @@ public class TextValidator
         }
         else if(validation == NativeKeyboard.CharacterValidation.IP_ADDRESS)
         {
-            int lastDotIndex = Util.lastIndexOf('.', text, textLength);
-            if(lastDotIndex == -1)
+            // IPv4: 4 sections of max 3 digits separated by dots
+            state.sync(text, textLength);
+            if(ch >= '0' && ch <= '9')
             {
-                int numbersInSection = textLength;
-                if(numbersInSection < 3 && ch >= '0' && ch <= '9') return ch; //Less than 3 numbers, so number add allowed
-                if(ch == '.' && textLength > 0) { return ch; } //Don't start with dot
+                if(state.digitsInSection < 3) return ch; //Less than 3 numbers, so number add allowed
             }
-            else
+            else if(ch == '.')
+            {
+                if(state.digitsInSection > 0 && state.dotCount < 3) return ch; //Don't start with dot and max 4 sections (3 dot characters)
+            }
+        }
+        else if(validation == NativeKeyboard.CharacterValidation.IP_ADDRESS_V6)
+        {
+            // IPv6: max 8 sections of max 4 hexadecimal digits separated by colons, one "::" allowed and optionally ending with an IPv4 address
+            state.sync(text, textLength);
+            if(state.length == 1 && state.lastChar == ':') //A leading colon is only valid as part of "::"
+            {
+                if(ch == ':') { return ch; }
+            }
+            else if(ch >= '0' && ch <= '9')
+            {
+                int maxDigits = (state.dotCount > 0) ? 3 : 4;
+                if(state.digitsInSection < maxDigits) return ch;
+            }
+            else if(TextValidatorState.isHexLetter(ch))
+            {
+                if(state.dotCount == 0 && state.digitsInSection < 4) return ch;
+            }
+            else if(ch == '.')
+            {
+                //The IPv4 address takes the place of the last 2 sections, so it needs at least "::" before it
+                int maxColonCount = state.hasDoubleColon ? 7 : 6;
+                if(state.colonCount >= 2 && state.colonCount <= maxColonCount && state.digitsInSection > 0 && state.digitsInSection <= 3
+                        && !state.sectionHasHexLetter && state.dotCount < 3) return ch;
+            }
+            else if(ch == ':' && state.dotCount == 0)
             {
-                if(ch >= '0' && ch <= '9')
+                if(state.lastChar == ':')
                 {
-                    int numbersInSection = (textLength - 1) - lastDotIndex;
-                    if(numbersInSection < 3 && ch >= '0' && ch <= '9') return ch; //Less than 3 numbers, so number add allowed
+                    if(!state.hasDoubleColon && state.colonCount < 8) return ch; //Only one "::" allowed
                 }
-                if(ch == '.' && lastDotIndex != textLength - 1 && Util.countOccurences('.', text, textLength) < 3) { return ch; } //Max 4 sections (3 dot characters)
+                else if(state.colonCount < 7 || (state.colonCount == 7 && state.hasDoubleColon)) { return ch; } //Max 8 sections
             }
         }
         else if(validation == NativeKeyboard.CharacterValidation.SENTENCE)
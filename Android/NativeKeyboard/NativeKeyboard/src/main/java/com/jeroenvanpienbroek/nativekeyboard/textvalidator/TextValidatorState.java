@@ -0,0 +1,99 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+/** Summary of the already validated text before the current position, so the built-in validations don't need to rescan the text for each character.
+ *  Gets advanced with the characters that got added since the last call, so validating a whole text is linear instead of quadratic.
+ */
+class TextValidatorState
+{
+    /** The amount of characters of the text that are included in this state */
+    int length;
+    char lastChar;
+
+    boolean hasAt;
+    boolean hasPoint;
+    boolean hasComma;
+    boolean hasApostrophe;
+
+    int dotCount;
+    int colonCount;
+    boolean hasDoubleColon;
+    /** The amount of (hexadecimal) digits since the last separator */
+    int digitsInSection;
+    /** Whether the current section contains the hexadecimal letters a-f, so it can't be an IPv4 section */
+    boolean sectionHasHexLetter;
+
+    void reset()
+    {
+        length = 0;
+        lastChar = 0;
+        hasAt = false;
+        hasPoint = false;
+        hasComma = false;
+        hasApostrophe = false;
+        dotCount = 0;
+        colonCount = 0;
+        hasDoubleColon = false;
+        digitsInSection = 0;
+        sectionHasHexLetter = false;
+    }
+
+    /** Makes this state match the first textLength characters of the text, only the characters added since the last call get processed */
+    void sync(char[] text, int textLength)
+    {
+        if(length > textLength) //Text got shorter, start over
+        {
+            reset();
+        }
+
+        for(int i = length; i < textLength; i++)
+        {
+            advance(text[i]);
+        }
+    }
+
+    private void advance(char ch)
+    {
+        switch(ch)
+        {
+            case '@': hasAt = true; break;
+            case ',': hasComma = true; break;
+            case '\'': hasApostrophe = true; break;
+            case '.':
+                hasPoint = true;
+                dotCount++;
+                digitsInSection = 0;
+                sectionHasHexLetter = false;
+                break;
+            case ':':
+                if(lastChar == ':') { hasDoubleColon = true; }
+                colonCount++;
+                digitsInSection = 0;
+                sectionHasHexLetter = false;
+                break;
+            default:
+                if(ch >= '0' && ch <= '9')
+                {
+                    digitsInSection++;
+                }
+                else if(isHexLetter(ch))
+                {
+                    digitsInSection++;
+                    sectionHasHexLetter = true;
+                }
+                break;
+        }
+
+        lastChar = ch;
+        length++;
+    }
+
+    static boolean isHexLetter(char ch)
+    {
+        return (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+    }
+}
@@ -0,0 +1,210 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.TextValidator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/** Checks the allocations per operation of the hot paths against a budget, so new allocations don't creep into them */
+public class AllocationBudgetTest
+{
+    private static final int ITERATIONS = 20000;
+
+    /** Bytes the whole measurement may exceed the budget with, for one-off allocations of the JIT (like a deoptimization) */
+    private static final int MEASUREMENT_TOLERANCE = 4096;
+
+    /** Maximum bytes of a String result besides its characters (object header, fields and array header) */
+    private static final int STRING_OVERHEAD = 64;
+
+    private static final String[] TYPED_TEXTS = { "h", "he", "hel", "hell", "hello", "hello ", "hello w", "hello wo", "hello wor", "hello worl", "hello world" };
+
+    /** Text view without Android dependencies, the text is kept in a reused builder like an Editable */
+    private static class FakeTarget implements TextEditSync.Target
+    {
+        StringBuilder text = new StringBuilder(64);
+        int selectionStart;
+        int selectionEnd;
+
+        @Override public CharSequence getText() { return text; }
+        @Override public int getSelectionStart() { return selectionStart; }
+        @Override public int getSelectionEnd() { return selectionEnd; }
+
+        @Override
+        public void setText(CharSequence text)
+        {
+            this.text.setLength(0);
+            this.text.append(text);
+        }
+
+        @Override
+        public void setSelection(int start, int end)
+        {
+            selectionStart = start;
+            selectionEnd = end;
+        }
+    }
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+    private long threadId;
+
+    @Before
+    public void setUp()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean)bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void validateOnlyAllocatesResultText()
+    {
+        final TextValidator textValidator = new TextValidator();
+        textValidator.setValidation(NativeKeyboard.CharacterValidation.NAME);
+        textValidator.setLineType(NativeKeyboard.LineType.SINGLE_LINE);
+
+        Runnable operation = new Runnable()
+        {
+            int index;
+
+            @Override
+            public void run()
+            {
+                String text = TYPED_TEXTS[index++ % TYPED_TEXTS.length];
+                textValidator.validate("", text, text.length(), -1);
+            }
+        };
+
+        assertBudget("TextValidator.validate", operation, STRING_OVERHEAD + 2 * TYPED_TEXTS[TYPED_TEXTS.length - 1].length());
+    }
+
+    @Test
+    public void eventQueueDoesNotAllocate()
+    {
+        final ThreadsafeQueue<IUnityEvent> queue = new ThreadsafeQueue<IUnityEvent>();
+        final IUnityEvent event = new KeyboardHideEvent();
+
+        Runnable operation = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                queue.enqueue(event);
+                queue.enqueue(event);
+                queue.dequeue();
+                queue.dequeue();
+            }
+        };
+
+        assertBudget("ThreadsafeQueue", operation, 0);
+    }
+
+    @Test
+    public void applyingTextEditUpdatesDoesNotAllocate()
+    {
+        final TextEditSync textEditSync = new TextEditSync();
+        final FakeTarget target = new FakeTarget();
+
+        Runnable operation = new Runnable()
+        {
+            int index;
+
+            @Override
+            public void run()
+            {
+                String text = TYPED_TEXTS[index++ % TYPED_TEXTS.length];
+                textEditSync.apply(target, text, text.length(), text.length(), false); //Text changed
+                textEditSync.apply(target, text, 0, text.length(), false); //Selection changed
+                textEditSync.apply(target, text, 0, text.length(), false); //Nothing changed
+            }
+        };
+
+        assertBudget("TextEditSync.apply", operation, 0);
+    }
+
+    @Test
+    public void readingTextEditOnlyAllocatesText()
+    {
+        final TextEditSync textEditSync = new TextEditSync();
+        final FakeTarget target = new FakeTarget();
+
+        Runnable operation = new Runnable()
+        {
+            int index;
+
+            @Override
+            public void run()
+            {
+                String text = TYPED_TEXTS[index++ % TYPED_TEXTS.length];
+                target.setText(text); //Typed by the input method
+                target.setSelection(text.length(), 0);
+                textEditSync.read(target);
+            }
+        };
+
+        assertBudget("TextEditSync.read", operation, STRING_OVERHEAD + 2 * TYPED_TEXTS[TYPED_TEXTS.length - 1].length());
+    }
+
+    @Test
+    public void keyboardUpdateDoesNotAllocate()
+    {
+        final KeyboardSimulation simulation = new KeyboardSimulation(0);
+        simulation.show();
+
+        Runnable operation = new Runnable()
+        {
+            int index;
+
+            @Override
+            public void run()
+            {
+                if(++index % 1000 == 0)
+                {
+                    simulation.getKeyboard().startLayoutTransient(KeyboardHeightFilter.DEFAULT_SETTLE_TIME / 2);
+                }
+                simulation.update();
+            }
+        };
+
+        assertBudget("KeyboardStateMachine.update", operation, 0);
+    }
+
+    /** Runs given operation until it's warmed up and asserts its average allocated bytes */
+    private void assertBudget(String name, Runnable operation, long budget)
+    {
+        for(int i = 0; i < ITERATIONS; i++) //Warm up, so the measurement doesn't include class loading and interpreter allocations
+        {
+            operation.run();
+        }
+
+        long measurementOverhead = getAllocatedBytes();
+        measurementOverhead = getAllocatedBytes() - measurementOverhead;
+
+        long startBytes = getAllocatedBytes();
+        for(int i = 0; i < ITERATIONS; i++)
+        {
+            operation.run();
+        }
+        long allocatedBytes = Math.max(getAllocatedBytes() - startBytes - measurementOverhead, 0);
+        double bytesPerOperation = (double)allocatedBytes / ITERATIONS;
+
+        assertTrue(name + " allocates " + bytesPerOperation + " bytes per operation, budget is " + budget, allocatedBytes <= budget * ITERATIONS + MEASUREMENT_TOLERANCE);
+    }
+
+    private long getAllocatedBytes()
+    {
+        return threadMXBean.getThreadAllocatedBytes(threadId);
+    }
+}
@@ -0,0 +1,87 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardHeightFilterTest
+{
+    private static final int SETTLE_TIME = 200;
+
+    private KeyboardHeightFilter filter;
+
+    @Before
+    public void setUp()
+    {
+        filter = new KeyboardHeightFilter();
+        filter.configure(10, SETTLE_TIME);
+    }
+
+    @Test
+    public void increaseIsAcceptedImmediately()
+    {
+        assertTrue(filter.accept(900, 800, 0, false));
+    }
+
+    @Test
+    public void expectedChangeIsAcceptedImmediately()
+    {
+        assertTrue(filter.accept(0, 800, 0, true));
+    }
+
+    @Test
+    public void changeBelowMinDeltaIsIgnored()
+    {
+        assertFalse(filter.accept(795, 800, 0, false));
+        assertFalse(filter.accept(795, 800, SETTLE_TIME * 2, false));
+    }
+
+    @Test
+    public void decreaseIsAcceptedWhenStable()
+    {
+        assertFalse(filter.accept(600, 800, 0, false));
+        assertFalse(filter.accept(600, 800, SETTLE_TIME - 1, false));
+        assertTrue(filter.accept(600, 800, SETTLE_TIME, false));
+    }
+
+    @Test
+    public void sameDipAfterRecoveryNeedsToSettleAgain()
+    {
+        assertFalse(filter.accept(600, 800, 0, false)); //Dip
+        assertFalse(filter.accept(800, 800, 50, false)); //Recover
+        assertFalse(filter.accept(600, 800, SETTLE_TIME + 100, false)); //Same dip, much later
+        assertFalse(filter.accept(600, 800, SETTLE_TIME + 150, false));
+        assertTrue(filter.accept(600, 800, SETTLE_TIME * 2 + 100, false));
+    }
+
+    @Test
+    public void sameDipAfterResetNeedsToSettleAgain()
+    {
+        assertFalse(filter.accept(600, 800, 0, false));
+        filter.reset();
+        assertFalse(filter.accept(600, 800, SETTLE_TIME + 100, false));
+        assertTrue(filter.accept(600, 800, SETTLE_TIME * 2 + 100, false));
+    }
+
+    @Test
+    public void differentDipRestartsSettleTime()
+    {
+        assertFalse(filter.accept(600, 800, 0, false));
+        assertFalse(filter.accept(500, 800, SETTLE_TIME, false));
+        assertTrue(filter.accept(500, 800, SETTLE_TIME * 2, false));
+    }
+
+    @Test
+    public void zeroSettleTimeAcceptsDecreaseImmediately()
+    {
+        filter.configure(1, 0);
+        assertTrue(filter.accept(600, 800, 0, false));
+    }
+}
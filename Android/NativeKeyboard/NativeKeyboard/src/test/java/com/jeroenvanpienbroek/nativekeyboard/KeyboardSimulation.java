@@ -0,0 +1,791 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard.KeyboardState;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/** Drives the update loop of the plugin on a desktop JVM with a simulated clock, keyboard and Unity inputfield:
+ *  the KeyboardStateMachine, the TextEditLoop with updates of Unity (inline or from a concurrent Unity thread),
+ *  an input method typing at a configurable rate and device rotations.
+ *  Measures the throughput of the loop and the latencies (in simulated milliseconds) of the transitions and text edits.
+ */
+public class KeyboardSimulation implements KeyboardStateMachine.Listener
+{
+    /** Time (in milliseconds) between updates, like the frame aligned updates of the scheduler */
+    public static final int FRAME_TIME = 16;
+
+    /** Height (in pixels) of the simulated keyboard in portrait and landscape */
+    public static final int PORTRAIT_KEYBOARD_HEIGHT = 800;
+    public static final int LANDSCAPE_KEYBOARD_HEIGHT = 500;
+
+    /** Text length at which the simulated inputfield clears its text, keeps the text edits of long simulations comparable */
+    private static final int MAX_TEXT_LENGTH = 200;
+
+    /** The characters the simulated input method types */
+    private static final String TYPED_CHARACTERS = "abcdefghijklmnopqrstuvwxyz ";
+
+    /** Maximum simulated time (in milliseconds) to wait for a transition */
+    private static final int MAX_TRANSITION_TIME = 5000;
+
+    /** The amount of most recent samples to keep for the percentiles */
+    private static final int SAMPLE_CAPACITY = 65536;
+
+    /** Clock that only advances when told to */
+    public static class SimulatedClock implements IClock
+    {
+        private volatile long time;
+
+        @Override
+        public long elapsedRealtime()
+        {
+            return time;
+        }
+
+        public synchronized void advance(long milliseconds)
+        {
+            time += milliseconds;
+            notifyAll();
+        }
+
+        /** Blocks the calling thread until the time reached given time */
+        public synchronized void waitUntil(long time) throws InterruptedException
+        {
+            while(this.time < time)
+            {
+                wait();
+            }
+        }
+    }
+
+    /** Input method and window of a simulated device, the keyboard animates linearly between its hidden and shown height */
+    public static class SimulatedKeyboard implements IInputMethod, IKeyboardWindow
+    {
+        private IClock clock;
+        private int navigationBarHeight;
+        private int height;
+        private int animationTime;
+        private boolean focused;
+        private boolean shown;
+        private boolean subtypeActive;
+        private int ignoredShowRequestCount;
+        private int animationStartHeight;
+        private int animationEndHeight;
+        private long animationStartTime;
+        private long transientEndTime = -1;
+
+        private int showRequestCount;
+        private int hideRequestCount;
+        private int restartCount;
+
+        /** @param navigationBarHeight The height (in pixels) covered by the navigation bar, also when the keyboard is hidden
+         *  @param height The height (in pixels) of the keyboard when shown
+         *  @param animationTime The duration (in milliseconds) of the show and hide animations
+         */
+        public SimulatedKeyboard(IClock clock, int navigationBarHeight, int height, int animationTime)
+        {
+            this.clock = clock;
+            this.navigationBarHeight = navigationBarHeight;
+            this.height = height;
+            this.animationTime = animationTime;
+            this.animationStartTime = clock.elapsedRealtime() - animationTime;
+        }
+
+        public int getNavigationBarHeight() { return navigationBarHeight; }
+        public int getHeight() { return height; }
+        public boolean isShown() { return shown; }
+        public boolean isFocused() { return focused; }
+        public int getShowRequestCount() { return showRequestCount; }
+        public int getHideRequestCount() { return hideRequestCount; }
+        public int getRestartCount() { return restartCount; }
+
+        /** Simulates an input method that uses a subtype with a mode (like voice input) */
+        public void setSubtypeActive(boolean subtypeActive)
+        {
+            this.subtypeActive = subtypeActive;
+        }
+
+        /** Simulates an input method that ignores the next show requests, like when it's still busy binding */
+        public void ignoreShowRequests(int count)
+        {
+            ignoredShowRequestCount = count;
+        }
+
+        /** Simulates the user closing the keyboard (for example with the hide button of the input method) */
+        public void dismiss()
+        {
+            if(shown)
+            {
+                shown = false;
+                animateTo(0);
+            }
+        }
+
+        /** Changes the height of the keyboard (for example on rotation), a shown keyboard gets laid out with it right away */
+        public void setHeight(int height)
+        {
+            this.height = height;
+            if(shown)
+            {
+                animationStartHeight = height;
+                animationEndHeight = height;
+                animationStartTime = clock.elapsedRealtime() - animationTime;
+            }
+        }
+
+        /** Simulates a layout pass (for example on rotation) that temporarily reports the window without keyboard */
+        public void startLayoutTransient(int duration)
+        {
+            transientEndTime = clock.elapsedRealtime() + duration;
+        }
+
+        @Override
+        public void focus()
+        {
+            focused = true;
+        }
+
+        @Override
+        public void clearFocus()
+        {
+            focused = false;
+        }
+
+        @Override
+        public void showSoftInput(boolean forced)
+        {
+            showRequestCount++;
+            if(!focused)
+            {
+                return;
+            }
+            else if(ignoredShowRequestCount > 0)
+            {
+                ignoredShowRequestCount--;
+                return;
+            }
+
+            if(!shown)
+            {
+                shown = true;
+                animateTo(height);
+            }
+        }
+
+        @Override
+        public void hideSoftInput()
+        {
+            hideRequestCount++;
+            if(shown)
+            {
+                shown = false;
+                animateTo(0);
+            }
+        }
+
+        @Override
+        public void restartInput()
+        {
+            restartCount++;
+        }
+
+        @Override
+        public boolean isActive()
+        {
+            return focused;
+        }
+
+        @Override
+        public boolean isSubtypeActive()
+        {
+            return subtypeActive;
+        }
+
+        @Override
+        public int getKeyboardHeight()
+        {
+            long time = clock.elapsedRealtime();
+            if(time < transientEndTime)
+            {
+                return navigationBarHeight;
+            }
+
+            long animationProgress = time - animationStartTime;
+            if(animationProgress >= animationTime)
+            {
+                return navigationBarHeight + animationEndHeight;
+            }
+
+            return navigationBarHeight + animationStartHeight + (int)((animationEndHeight - animationStartHeight) * animationProgress / animationTime);
+        }
+
+        private void animateTo(int targetHeight)
+        {
+            animationStartHeight = getKeyboardHeight() - navigationBarHeight;
+            animationEndHeight = targetHeight;
+            animationStartTime = clock.elapsedRealtime();
+        }
+    }
+
+    /** Inputfield on the Unity side: adopts the text edit updates of the plugin on its next frame and sends its own changes back */
+    public static class SimulatedInputField implements TextEditLoop.Listener
+    {
+        private final Object lock = new Object();
+        private IClock clock;
+        private Random random;
+        private int editChance;
+
+        private String text = "";
+        private int selectionStart;
+        private int selectionEnd;
+
+        private String receivedText;
+        private int receivedSelectionStart;
+        private int receivedSelectionEnd;
+        /** The time the oldest unprocessed update got received, -1 when there is none */
+        private long receivedTime = -1;
+
+        /** The time (in simulated milliseconds) between receiving an update of the plugin and processing it on a frame */
+        private LatencyRecorder receiveLatencies;
+        private int frameCount;
+        private int sentUpdateCount;
+
+        public SimulatedInputField(IClock clock, long seed)
+        {
+            this.clock = clock;
+            random = new Random(seed);
+            receiveLatencies = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        }
+
+        /** Sets the chance (in percent) that a processed update gets changed by Unity, like the live processing of an inputfield does */
+        public void setEditChance(int editChance)
+        {
+            synchronized (lock)
+            {
+                this.editChance = editChance;
+            }
+        }
+
+        public String getText()
+        {
+            synchronized (lock)
+            {
+                return text;
+            }
+        }
+
+        /** Checks whether an update of the plugin is waiting for the next frame */
+        public boolean hasReceivedUpdate()
+        {
+            synchronized (lock)
+            {
+                return (receivedText != null);
+            }
+        }
+
+        public int getFrameCount() { synchronized (lock) { return frameCount; } }
+        public int getSentUpdateCount() { synchronized (lock) { return sentUpdateCount; } }
+        public LatencyRecorder getReceiveLatencies() { return receiveLatencies; }
+
+        /** Shows the keyboard with the text and selection of the inputfield, like a show event of Unity */
+        public void show(TextEditLoop textEditLoop)
+        {
+            synchronized (lock)
+            {
+                textEditLoop.show(text, selectionStart, selectionEnd);
+            }
+        }
+
+        @Override
+        public void onTextEditUpdate(String text, int selectionStartPosition, int selectionEndPosition)
+        {
+            synchronized (lock)
+            {
+                receivedText = text;
+                receivedSelectionStart = selectionStartPosition;
+                receivedSelectionEnd = selectionEndPosition;
+                if(receivedTime == -1)
+                {
+                    receivedTime = clock.elapsedRealtime();
+                }
+            }
+        }
+
+        /** Runs a frame of Unity: processes the last received update and sends the text back when the inputfield changed it */
+        public void frame(TextEditLoop textEditLoop)
+        {
+            String sentText = null;
+            int sentSelectionStart = 0;
+            int sentSelectionEnd = 0;
+            synchronized (lock)
+            {
+                frameCount++;
+                if(receivedText == null)
+                {
+                    return;
+                }
+
+                text = receivedText;
+                selectionStart = receivedSelectionStart;
+                selectionEnd = receivedSelectionEnd;
+                receivedText = null;
+                receiveLatencies.record(clock.elapsedRealtime() - receivedTime);
+                receivedTime = -1;
+
+                if(text.length() > MAX_TEXT_LENGTH)
+                {
+                    text = "";
+                    selectionStart = 0;
+                    selectionEnd = 0;
+                    sentText = text;
+                }
+                else if(selectionStart > 0 && random.nextInt(100) < editChance) //Capitalize the character before the caret
+                {
+                    char ch = text.charAt(selectionStart - 1);
+                    if(Character.isLowerCase(ch))
+                    {
+                        text = text.substring(0, selectionStart - 1) + Character.toUpperCase(ch) + text.substring(selectionStart);
+                        sentText = text;
+                    }
+                }
+
+                if(sentText != null)
+                {
+                    sentSelectionStart = selectionStart;
+                    sentSelectionEnd = selectionEnd;
+                    sentUpdateCount++;
+                }
+            }
+
+            if(sentText != null)
+            {
+                textEditLoop.updateTextEdit(sentText, sentSelectionStart, sentSelectionEnd);
+            }
+        }
+    }
+
+    private SimulatedClock clock;
+    private SimulatedKeyboard keyboard;
+    private KeyboardHeightFilter keyboardHeightFilter;
+    private KeyboardStateMachine stateMachine;
+    private TextEditLoop textEditLoop;
+    private SimulatedInputField inputField;
+    private Random random;
+
+    private int unityFrameTime = FRAME_TIME;
+    private long nextUnityFrameTime;
+    private Thread unityThread;
+    /** The time (in milliseconds) between the characters typed by the input method, 0 when not typing */
+    private int typingInterval;
+    private long nextTypingTime;
+    private boolean landscape;
+
+    /** The duration (in nanoseconds) of each update */
+    private LatencyRecorder updateTimes;
+    /** The duration (in nanoseconds) of each text edit of the input method, including the filter, revalidation and read back */
+    private LatencyRecorder imeCommitTimes;
+    private LatencyRecorder showLatencies;
+    private LatencyRecorder hideLatencies;
+    private LatencyRecorder cancelLatencies;
+    private long transitionStartTime;
+
+    private int showCount;
+    private int hideCount;
+    private int cancelCount;
+    private int heightChangeCount;
+    private int lastReportedHeight;
+    private int sessionCount;
+    private int failedTransitionCount;
+    private int imeCommitCount;
+    private int rotationCount;
+    /** The amount of sessions that ended with a different text in Unity than in the view */
+    private int textMismatchCount;
+    private long updateCount;
+    private long wallTime;
+
+    public KeyboardSimulation(long seed)
+    {
+        clock = new SimulatedClock();
+        keyboard = new SimulatedKeyboard(clock, 48, PORTRAIT_KEYBOARD_HEIGHT, 250);
+        keyboardHeightFilter = new KeyboardHeightFilter();
+        stateMachine = new KeyboardStateMachine(clock, keyboard, keyboard, keyboardHeightFilter, this);
+        textEditLoop = new TextEditLoop(clock);
+        inputField = new SimulatedInputField(clock, seed + 1);
+        textEditLoop.setListener(inputField);
+        random = new Random(seed);
+        nextUnityFrameTime = FRAME_TIME / 2; //Frames of Unity aren't aligned with the updates of the plugin
+
+        updateTimes = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        imeCommitTimes = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        showLatencies = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        hideLatencies = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        cancelLatencies = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+    }
+
+    public SimulatedClock getClock() { return clock; }
+    public SimulatedKeyboard getKeyboard() { return keyboard; }
+    public KeyboardStateMachine getStateMachine() { return stateMachine; }
+    public TextEditLoop getTextEditLoop() { return textEditLoop; }
+    public SimulatedInputField getInputField() { return inputField; }
+    public int getShowCount() { return showCount; }
+    public int getHideCount() { return hideCount; }
+    public int getCancelCount() { return cancelCount; }
+    public int getHeightChangeCount() { return heightChangeCount; }
+    /** Gets the last keyboard height reported to Unity */
+    public int getLastReportedHeight() { return lastReportedHeight; }
+    public int getSessionCount() { return sessionCount; }
+    /** Gets the amount of transitions that didn't finish within the maximum transition time */
+    public int getFailedTransitionCount() { return failedTransitionCount; }
+    public long getUpdateCount() { return updateCount; }
+    public int getImeCommitCount() { return imeCommitCount; }
+    public int getRotationCount() { return rotationCount; }
+    public int getTextMismatchCount() { return textMismatchCount; }
+
+    /** Sets the rate (in characters per second) the input method types with while the keyboard is visible, 0 to not type */
+    public void setTypingRate(int charactersPerSecond)
+    {
+        typingInterval = (charactersPerSecond > 0) ? Math.max(1000 / charactersPerSecond, 1) : 0;
+    }
+
+    /** Sets the time (in milliseconds) between the frames of Unity */
+    public void setUnityFrameTime(int unityFrameTime)
+    {
+        this.unityFrameTime = unityFrameTime;
+    }
+
+    /** Runs the frames of Unity on their own thread, concurrent with the updates of the plugin, instead of in between the updates */
+    public void startUnityThread()
+    {
+        unityThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while(!Thread.currentThread().isInterrupted())
+                    {
+                        clock.waitUntil(nextUnityFrameTime);
+                        runUnityFrame();
+                    }
+                }
+                catch(InterruptedException e)
+                {
+                    //Stopped
+                }
+            }
+        }, "Unity");
+        unityThread.start();
+    }
+
+    /** Stops the Unity thread and waits for it, the frames run in between the updates again */
+    public void stopUnityThread() throws InterruptedException
+    {
+        if(unityThread != null)
+        {
+            unityThread.interrupt();
+            unityThread.join();
+            unityThread = null;
+        }
+    }
+
+    /** Starts showing the keyboard, like a show event of Unity */
+    public void show()
+    {
+        inputField.show(textEditLoop);
+        if(stateMachine.prepareShow())
+        {
+            stateMachine.switchField(true);
+            return;
+        }
+
+        transitionStartTime = clock.elapsedRealtime();
+        stateMachine.requestShow();
+    }
+
+    /** Starts hiding the keyboard, like a hide event of Unity */
+    public void hide()
+    {
+        transitionStartTime = clock.elapsedRealtime();
+        stateMachine.requestHide(false);
+    }
+
+    /** Simulates the user closing the keyboard */
+    public void dismiss()
+    {
+        transitionStartTime = clock.elapsedRealtime();
+        keyboard.dismiss();
+    }
+
+    /** Simulates a rotation of the device: a layout pass without keyboard and a keyboard with the height of the new orientation */
+    public void rotate()
+    {
+        landscape = !landscape;
+        keyboard.startLayoutTransient(random.nextInt(KeyboardHeightFilter.DEFAULT_SETTLE_TIME / 2));
+        keyboard.setHeight(landscape ? LANDSCAPE_KEYBOARD_HEIGHT : PORTRAIT_KEYBOARD_HEIGHT);
+        rotationCount++;
+    }
+
+    /** Advances the simulated time by one frame and runs an update, like the update scheduler does.
+     *  The frames of Unity (when not on their own thread) and the characters of the input method that are due run before it, at their own time.
+     */
+    public void update()
+    {
+        long updateTime = clock.elapsedRealtime() + FRAME_TIME;
+        runInputUntil(updateTime);
+        clock.advance(updateTime - clock.elapsedRealtime());
+
+        long startTime = System.nanoTime();
+        if(stateMachine.update())
+        {
+            textEditLoop.update();
+            stateMachine.updateKeyboardHeight();
+        }
+        long time = System.nanoTime() - startTime;
+
+        updateTimes.record(time);
+        wallTime += time;
+        updateCount++;
+    }
+
+    /** Runs the frames of Unity and the characters typed by the input method until given time, in the order of their time.
+     *  The input method only types while the keyboard is visible.
+     */
+    private void runInputUntil(long time)
+    {
+        boolean typing = (typingInterval > 0 && stateMachine.getState() == KeyboardState.VISIBLE);
+        if(!typing)
+        {
+            nextTypingTime = time + typingInterval;
+        }
+
+        while(true)
+        {
+            boolean unityFrameNext = (unityThread == null);
+            long nextTime = unityFrameNext ? nextUnityFrameTime : Long.MAX_VALUE;
+            if(typing && nextTypingTime < nextTime)
+            {
+                nextTime = nextTypingTime;
+                unityFrameNext = false;
+            }
+
+            if(nextTime > time)
+            {
+                return;
+            }
+
+            clock.advance(Math.max(nextTime - clock.elapsedRealtime(), 0));
+            if(unityFrameNext)
+            {
+                runUnityFrame();
+            }
+            else
+            {
+                typeCharacter();
+                nextTypingTime += typingInterval;
+            }
+        }
+    }
+
+    /** Runs a frame of Unity, frames that were missed get skipped like a frame rate drop */
+    private void runUnityFrame()
+    {
+        inputField.frame(textEditLoop);
+
+        long time = clock.elapsedRealtime();
+        while(nextUnityFrameTime <= time)
+        {
+            nextUnityFrameTime += unityFrameTime;
+        }
+    }
+
+    /** Types a character or a backspace at the selection, like the input method does */
+    private void typeCharacter()
+    {
+        TextEditLoop.FilteredText view = textEditLoop.getView();
+        int selectionStart = Math.min(view.getSelectionStart(), view.getSelectionEnd());
+        int selectionEnd = Math.max(view.getSelectionStart(), view.getSelectionEnd());
+
+        long startTime = System.nanoTime();
+        if(random.nextInt(8) == 0) //Backspace
+        {
+            textEditLoop.imeReplace((selectionStart == selectionEnd) ? Math.max(selectionStart - 1, 0) : selectionStart, selectionEnd, "");
+        }
+        else
+        {
+            int index = random.nextInt(TYPED_CHARACTERS.length());
+            textEditLoop.imeReplace(selectionStart, selectionEnd, TYPED_CHARACTERS.substring(index, index + 1));
+        }
+        long time = System.nanoTime() - startTime;
+
+        imeCommitTimes.record(time);
+        wallTime += time;
+        imeCommitCount++;
+    }
+
+    /** Runs updates for given simulated time (in milliseconds) */
+    public void run(long duration)
+    {
+        long endTime = clock.elapsedRealtime() + duration;
+        while(clock.elapsedRealtime() < endTime)
+        {
+            update();
+        }
+    }
+
+    /** Runs updates until the keyboard reaches given state and stopped animating, with a maximum of the maximum transition time
+     * @return Whether the state got reached
+     */
+    public boolean runUntil(KeyboardState state)
+    {
+        long endTime = clock.elapsedRealtime() + MAX_TRANSITION_TIME;
+        int keyboardHeight = -1;
+        while(stateMachine.getState() != state || keyboard.getKeyboardHeight() != keyboardHeight)
+        {
+            if(clock.elapsedRealtime() >= endTime)
+            {
+                failedTransitionCount++;
+                return false;
+            }
+
+            keyboardHeight = keyboard.getKeyboardHeight();
+            update();
+        }
+        return true;
+    }
+
+    /** Runs updates until Unity processed the updates of the plugin and the plugin applied the updates of Unity, with a maximum of the maximum transition time
+     * @return Whether the text of Unity and the view are the same afterwards
+     */
+    public boolean runUntilSynchronized()
+    {
+        long endTime = clock.elapsedRealtime() + MAX_TRANSITION_TIME;
+        while((inputField.hasReceivedUpdate() || textEditLoop.getQueueDepth() > 0) && clock.elapsedRealtime() < endTime)
+        {
+            update();
+            if(unityThread != null)
+            {
+                Thread.yield(); //Give the Unity thread a chance to catch up
+            }
+        }
+        return inputField.getText().equals(textEditLoop.getView().toString());
+    }
+
+    /** Simulates given amount of sessions with random show, type, field switch, layout transient, rotation, hide and dismiss actions */
+    public void runSessions(int count)
+    {
+        for(int i = 0; i < count; i++)
+        {
+            show();
+            runUntil(KeyboardState.VISIBLE);
+
+            int actionCount = 1 + random.nextInt(4);
+            for(int j = 0; j < actionCount; j++)
+            {
+                int action = random.nextInt(4);
+                if(action == 0)
+                {
+                    show(); //Next inputfield
+                }
+                else if(action == 1)
+                {
+                    keyboard.startLayoutTransient(random.nextInt(KeyboardHeightFilter.DEFAULT_SETTLE_TIME / 2));
+                }
+                else if(action == 2)
+                {
+                    rotate();
+                }
+                run(200 + random.nextInt(2000)); //Typing
+            }
+
+            if(random.nextInt(4) == 0)
+            {
+                run(2000); //Keyboard needs to be visible for a while before a dismissal counts as cancel
+                dismiss();
+            }
+            else
+            {
+                hide();
+            }
+            runUntil(KeyboardState.HIDDEN);
+            if(!runUntilSynchronized())
+            {
+                textMismatchCount++;
+            }
+            run(random.nextInt(500));
+            sessionCount++;
+        }
+    }
+
+    /** Creates a report of the transitions and text edits, the latencies (in simulated milliseconds) and the update and commit times (in nanoseconds).
+     *  The throughput is the amount of updates and text edits (commits of the input method and applied updates of Unity) per second of wall time spent in the loop.
+     */
+    public JSONObject toJSON() throws JSONException
+    {
+        long textEditCount = imeCommitCount + textEditLoop.getAppliedUpdateCount();
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("sessions", sessionCount);
+        jsonObject.put("simulatedTime", clock.elapsedRealtime());
+        jsonObject.put("updates", updateCount);
+        jsonObject.put("updatesPerSecond", (wallTime > 0) ? (long)(updateCount * 1000000000.0 / wallTime) : 0);
+        jsonObject.put("textEditsPerSecond", (wallTime > 0) ? (long)(textEditCount * 1000000000.0 / wallTime) : 0);
+        jsonObject.put("imeCommits", imeCommitCount);
+        jsonObject.put("unityUpdates", inputField.getSentUpdateCount());
+        jsonObject.put("appliedUnityUpdates", textEditLoop.getAppliedUpdateCount());
+        jsonObject.put("rotations", rotationCount);
+        jsonObject.put("textMismatches", textMismatchCount);
+        jsonObject.put("keyboardShow", showCount);
+        jsonObject.put("keyboardHide", hideCount);
+        jsonObject.put("keyboardCancel", cancelCount);
+        jsonObject.put("keyboardHeightChanged", heightChangeCount);
+        jsonObject.put("failedTransitions", failedTransitionCount);
+        jsonObject.put("showLatencies", showLatencies.toJSON());
+        jsonObject.put("hideLatencies", hideLatencies.toJSON());
+        jsonObject.put("cancelLatencies", cancelLatencies.toJSON());
+        jsonObject.put("imeLatencies", inputField.getReceiveLatencies().toJSON());
+        jsonObject.put("applyLatencies", textEditLoop.getApplyLatencies().toJSON());
+        jsonObject.put("updateTimes", updateTimes.toJSON());
+        jsonObject.put("imeCommitTimes", imeCommitTimes.toJSON());
+        return jsonObject;
+    }
+
+    @Override
+    public void onKeyboardShow()
+    {
+        showCount++;
+        showLatencies.record(clock.elapsedRealtime() - transitionStartTime);
+    }
+
+    @Override
+    public void onKeyboardHide()
+    {
+        hideCount++;
+        hideLatencies.record(clock.elapsedRealtime() - transitionStartTime);
+    }
+
+    @Override
+    public void onKeyboardCancel()
+    {
+        cancelCount++;
+        cancelLatencies.record(clock.elapsedRealtime() - transitionStartTime);
+    }
+
+    @Override
+    public void onKeyboardHeightChanged(int keyboardHeight)
+    {
+        heightChangeCount++;
+        lastReportedHeight = keyboardHeight;
+    }
+
+    @Override
+    public void onKeyboardHeightMeasured(int keyboardHeight)
+    {
+    }
+}
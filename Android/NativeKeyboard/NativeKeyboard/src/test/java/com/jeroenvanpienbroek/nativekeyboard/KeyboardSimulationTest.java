@@ -0,0 +1,101 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard.KeyboardState;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardSimulationTest
+{
+    private KeyboardSimulation simulation;
+
+    @Before
+    public void setUp()
+    {
+        simulation = new KeyboardSimulation(0);
+        simulation.setTypingRate(10);
+    }
+
+    @Test
+    public void typedTextReachesUnity()
+    {
+        simulation.show();
+        assertTrue(simulation.runUntil(KeyboardState.VISIBLE));
+        int imeCommitCount = simulation.getImeCommitCount();
+        simulation.run(1000);
+
+        assertEquals(10, simulation.getImeCommitCount() - imeCommitCount);
+        assertTrue(simulation.runUntilSynchronized());
+        assertEquals(simulation.getTextEditLoop().getView().toString(), simulation.getInputField().getText());
+    }
+
+    @Test
+    public void noTypingWhileHidden()
+    {
+        simulation.run(1000);
+        assertEquals(0, simulation.getImeCommitCount());
+    }
+
+    @Test
+    public void editsOfUnityGetApplied() throws Exception
+    {
+        simulation.getInputField().setEditChance(100);
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        simulation.run(2000);
+
+        assertTrue(simulation.runUntilSynchronized());
+        TextEditLoop textEditLoop = simulation.getTextEditLoop();
+        assertTrue(textEditLoop.getAppliedUpdateCount() > 0);
+
+        JSONObject applyLatencies = simulation.toJSON().getJSONObject("applyLatencies");
+        assertEquals(KeyboardSimulation.FRAME_TIME / 2, applyLatencies.getLong("max")); //Applied on the first update after the frame of Unity
+    }
+
+    @Test
+    public void sessionsReportTextEditThroughputAndLatencies() throws Exception
+    {
+        simulation.getInputField().setEditChance(20);
+        simulation.runSessions(100);
+
+        assertEquals(0, simulation.getFailedTransitionCount());
+        assertEquals(0, simulation.getTextMismatchCount());
+        assertTrue(simulation.getRotationCount() > 0);
+
+        JSONObject report = simulation.toJSON();
+        assertTrue(report.getLong("textEditsPerSecond") > 0);
+        assertEquals(simulation.getImeCommitCount(), report.getJSONObject("imeCommitTimes").getLong("count"));
+        JSONObject imeLatencies = report.getJSONObject("imeLatencies");
+        assertTrue(imeLatencies.getLong("p50") <= imeLatencies.getLong("p99"));
+        assertTrue(imeLatencies.getLong("p99") <= KeyboardSimulation.FRAME_TIME); //Processed on the next frame of Unity
+    }
+
+    @Test
+    public void concurrentUnityThread() throws Exception
+    {
+        simulation.getInputField().setEditChance(20);
+        simulation.startUnityThread();
+        try
+        {
+            simulation.runSessions(50);
+        }
+        finally
+        {
+            simulation.stopUnityThread();
+        }
+
+        assertEquals(0, simulation.getFailedTransitionCount());
+        assertTrue(simulation.getInputField().getFrameCount() > 0);
+        assertTrue(simulation.getTextEditLoop().getAppliedUpdateCount() <= simulation.getInputField().getSentUpdateCount());
+        assertTrue(simulation.toJSON().getJSONObject("imeLatencies").getLong("count") > 0);
+    }
+}
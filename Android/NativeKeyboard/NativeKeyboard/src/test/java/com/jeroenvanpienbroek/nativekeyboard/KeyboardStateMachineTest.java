@@ -0,0 +1,182 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard.KeyboardState;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardStateMachineTest
+{
+    private KeyboardSimulation simulation;
+    private KeyboardSimulation.SimulatedKeyboard keyboard;
+    private KeyboardStateMachine stateMachine;
+
+    @Before
+    public void setUp()
+    {
+        simulation = new KeyboardSimulation(0);
+        keyboard = simulation.getKeyboard();
+        stateMachine = simulation.getStateMachine();
+    }
+
+    @Test
+    public void showReportsKeyboardHeight()
+    {
+        simulation.show();
+        assertEquals(KeyboardState.PENDING_SHOW, stateMachine.getState());
+        assertTrue(simulation.runUntil(KeyboardState.VISIBLE));
+
+        assertEquals(1, simulation.getShowCount());
+        assertEquals(keyboard.getHeight(), simulation.getLastReportedHeight());
+        assertEquals(keyboard.getNavigationBarHeight(), stateMachine.getBottomOffset());
+    }
+
+    @Test
+    public void ignoredShowRequestGetsRepeated()
+    {
+        keyboard.ignoreShowRequests(2);
+        simulation.show();
+        assertTrue(simulation.runUntil(KeyboardState.VISIBLE));
+
+        assertEquals(3, keyboard.getShowRequestCount());
+        assertEquals(keyboard.getHeight(), simulation.getLastReportedHeight());
+    }
+
+    @Test
+    public void showGivesUpAfterMaxPendingTime()
+    {
+        keyboard.ignoreShowRequests(Integer.MAX_VALUE);
+        simulation.show();
+        simulation.run(1000);
+        assertEquals(KeyboardState.PENDING_SHOW, stateMachine.getState());
+
+        simulation.run(1000);
+        assertEquals(KeyboardState.VISIBLE, stateMachine.getState()); //Reported as shown, so Unity doesn't wait forever
+        assertEquals(0, simulation.getHeightChangeCount());
+    }
+
+    @Test
+    public void hideReportsZeroHeight()
+    {
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        simulation.hide();
+        assertTrue(simulation.runUntil(KeyboardState.HIDDEN));
+
+        assertEquals(1, simulation.getHideCount());
+        assertEquals(0, simulation.getCancelCount());
+        assertEquals(0, simulation.getLastReportedHeight());
+        assertFalse(keyboard.isFocused());
+    }
+
+    @Test
+    public void hideWithoutUpdatesReportsZeroImmediately()
+    {
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        stateMachine.requestHide(true);
+
+        assertEquals(0, simulation.getLastReportedHeight());
+        assertEquals(0, stateMachine.getLastKeyboardHeight());
+    }
+
+    @Test
+    public void dismissAfterMinVisibleTimeCancels()
+    {
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        simulation.run(2000);
+        simulation.dismiss();
+        simulation.run(1000);
+
+        assertEquals(KeyboardState.HIDDEN, stateMachine.getState());
+        assertEquals(1, simulation.getCancelCount());
+        assertEquals(0, simulation.getLastReportedHeight());
+    }
+
+    @Test
+    public void dismissWithActiveSubtypeDoesNotCancel()
+    {
+        keyboard.setSubtypeActive(true);
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        simulation.run(2000);
+        simulation.dismiss();
+        simulation.run(1000);
+
+        assertEquals(KeyboardState.VISIBLE, stateMachine.getState());
+        assertEquals(0, simulation.getCancelCount());
+    }
+
+    @Test
+    public void layoutTransientIsNotReported()
+    {
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        simulation.run(2000);
+        int heightChangeCount = simulation.getHeightChangeCount();
+
+        keyboard.startLayoutTransient(KeyboardHeightFilter.DEFAULT_SETTLE_TIME / 2);
+        simulation.run(1000);
+
+        assertEquals(KeyboardState.VISIBLE, stateMachine.getState());
+        assertEquals(heightChangeCount, simulation.getHeightChangeCount());
+        assertEquals(0, simulation.getCancelCount());
+    }
+
+    @Test
+    public void fieldSwitchKeepsKeyboardVisible()
+    {
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+        int hideRequestCount = keyboard.getHideRequestCount();
+
+        simulation.show(); //Next inputfield
+        assertEquals(KeyboardState.VISIBLE, stateMachine.getState());
+        assertEquals(1, keyboard.getRestartCount());
+        assertEquals(hideRequestCount, keyboard.getHideRequestCount());
+    }
+
+    @Test
+    public void reloadHidesBeforeShowing()
+    {
+        simulation.show();
+        simulation.runUntil(KeyboardState.VISIBLE);
+
+        stateMachine.requestReload();
+        assertEquals(KeyboardState.PENDING_RELOAD, stateMachine.getState());
+        assertFalse(keyboard.isShown());
+
+        simulation.run(1000);
+        assertTrue(simulation.runUntil(KeyboardState.VISIBLE));
+        assertTrue(keyboard.isShown());
+    }
+
+    @Test
+    public void simulatedSessionsReportPercentiles() throws Exception
+    {
+        simulation.runSessions(200);
+
+        assertEquals(200, simulation.getSessionCount());
+        assertEquals(0, simulation.getFailedTransitionCount());
+        assertTrue(simulation.getHideCount() + simulation.getCancelCount() >= 200); //Rotating to the lower landscape keyboard also reports a cancel
+
+        JSONObject report = simulation.toJSON();
+        JSONObject showLatencies = report.getJSONObject("showLatencies");
+        assertTrue(showLatencies.getLong("count") >= 200);
+        assertTrue(showLatencies.getLong("p50") <= showLatencies.getLong("p95"));
+        assertTrue(showLatencies.getLong("p95") <= showLatencies.getLong("p99"));
+        assertTrue(showLatencies.getLong("p99") <= KeyboardSimulation.FRAME_TIME * 2); //Visible on the first animation frame
+        assertTrue(report.getJSONObject("updateTimes").getLong("count") > 0);
+    }
+}
@@ -0,0 +1,119 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard.KeyboardState;
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboardStats.RoundTrip;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/** Measures the Unity/IME round trips through the plugin logic with the KeyboardSimulation and compares the percentiles against the checked-in budgets.
+ *  Everything runs on the simulated clock, so the latencies are exact simulated milliseconds that only change when the logic changes.
+ */
+public class LatencyBenchmarkTest
+{
+    private static final String BUDGET_FILE = "latency_budgets.properties";
+    private static final int[] PERCENTILES = { 50, 95, 99 };
+    private static final int SESSION_COUNT = 500;
+    private static final int TEXT_EDIT_SESSION_COUNT = 200;
+
+    private static Properties budgets = new Properties();
+
+    @BeforeClass
+    public static void loadBudgets() throws IOException
+    {
+        InputStream stream = LatencyBenchmarkTest.class.getClassLoader().getResourceAsStream(BUDGET_FILE);
+        assertNotNull("Missing " + BUDGET_FILE, stream);
+        try
+        {
+            budgets.load(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void showAndHide() throws Exception
+    {
+        KeyboardSimulation simulation = new KeyboardSimulation(0);
+        LatencyRecorder showLatencies = new LatencyRecorder(SESSION_COUNT, 0);
+        LatencyRecorder hideLatencies = new LatencyRecorder(SESSION_COUNT, 0);
+        for(int i = 0; i < SESSION_COUNT; i++)
+        {
+            simulation.getKeyboard().ignoreShowRequests(i % 4); //Input method that is slow to bind
+
+            long startTime = simulation.getClock().elapsedRealtime();
+            int showCount = simulation.getShowCount();
+            simulation.show();
+            while(simulation.getShowCount() == showCount)
+            {
+                simulation.update();
+            }
+            showLatencies.record(simulation.getClock().elapsedRealtime() - startTime);
+            assertTrue(simulation.runUntil(KeyboardState.VISIBLE));
+
+            startTime = simulation.getClock().elapsedRealtime();
+            simulation.hide();
+            while(simulation.getStateMachine().getState() != KeyboardState.HIDDEN || simulation.getLastReportedHeight() != 0)
+            {
+                simulation.update();
+            }
+            hideLatencies.record(simulation.getClock().elapsedRealtime() - startTime);
+            simulation.run(100);
+        }
+
+        assertEquals(0, simulation.getFailedTransitionCount());
+        assertWithinBudget(RoundTrip.SHOW.name(), showLatencies.toJSON());
+        assertWithinBudget(RoundTrip.HIDE.name(), hideLatencies.toJSON());
+    }
+
+    @Test
+    public void textEdits() throws Exception
+    {
+        KeyboardSimulation simulation = new KeyboardSimulation(0);
+        simulation.setTypingRate(12);
+        simulation.getInputField().setEditChance(25);
+        simulation.runSessions(TEXT_EDIT_SESSION_COUNT);
+
+        assertEquals(0, simulation.getFailedTransitionCount());
+        assertEquals(0, simulation.getTextMismatchCount());
+        JSONObject report = simulation.toJSON();
+        assertWithinBudget(RoundTrip.TEXT_EDIT_APPLY.name(), report.getJSONObject("applyLatencies"));
+        assertWithinBudget(RoundTrip.IME_COMMIT.name(), report.getJSONObject("imeLatencies"));
+    }
+
+    /** Compares the percentiles of given latencies with the budgets of given key */
+    private static void assertWithinBudget(String key, JSONObject latencies) throws Exception
+    {
+        StringBuilder failures = new StringBuilder();
+        for(int percentile: PERCENTILES)
+        {
+            String budgetKey = key + ".p" + percentile;
+            long value = latencies.getLong("p" + percentile);
+
+            String budget = budgets.getProperty(budgetKey);
+            assertNotNull("Missing budget " + budgetKey + " in " + BUDGET_FILE, budget);
+            if(value > Long.parseLong(budget))
+            {
+                failures.append(String.format("\n%s is %d, budget is %s", budgetKey, value, budget));
+            }
+        }
+
+        assertTrue("Latency budgets exceeded:" + failures, failures.length() == 0);
+    }
+}
@@ -0,0 +1,98 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyRecorderTest
+{
+    @Test
+    public void percentilesOfSamples() throws Exception
+    {
+        LatencyRecorder recorder = new LatencyRecorder(100, 90);
+        for(int i = 100; i >= 1; i--)
+        {
+            recorder.record(i);
+        }
+
+        JSONObject json = recorder.toJSON();
+        assertEquals(100, json.getLong("count"));
+        assertEquals(50, json.getLong("p50"));
+        assertEquals(95, json.getLong("p95"));
+        assertEquals(99, json.getLong("p99"));
+        assertEquals(100, json.getLong("max"));
+        assertEquals(10, json.getLong("overBudget"));
+    }
+
+    @Test
+    public void oldestSamplesGetReplaced() throws Exception
+    {
+        LatencyRecorder recorder = new LatencyRecorder(10, 0);
+        for(int i = 0; i < 10; i++)
+        {
+            recorder.record(1000);
+        }
+        for(int i = 0; i < 10; i++)
+        {
+            recorder.record(1);
+        }
+
+        JSONObject json = recorder.toJSON();
+        assertEquals(20, json.getLong("count"));
+        assertEquals(1, json.getLong("p99"));
+        assertEquals(1000, json.getLong("max"));
+    }
+
+    @Test
+    public void clearRemovesSamples() throws Exception
+    {
+        LatencyRecorder recorder = new LatencyRecorder(10, 0);
+        recorder.record(5);
+        recorder.clear();
+
+        JSONObject json = recorder.toJSON();
+        assertEquals(0, json.getLong("count"));
+        assertEquals(0, json.getLong("p50"));
+        assertEquals(0, json.getLong("max"));
+    }
+
+    @Test
+    public void concurrentRecordsAreCounted() throws Exception
+    {
+        final LatencyRecorder recorder = new LatencyRecorder(256, 500);
+        final int recordsPerThread = 100000;
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++)
+        {
+            final int threadIndex = i;
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for(int j = 0; j < recordsPerThread; j++)
+                    {
+                        recorder.record(threadIndex * 1000 + (j % 1000));
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for(Thread thread: threads)
+        {
+            thread.join();
+        }
+
+        JSONObject json = recorder.toJSON();
+        assertEquals(threads.length * recordsPerThread, json.getLong("count"));
+        assertEquals((threads.length - 1) * 1000 + 999, json.getLong("max"));
+        long firstThreadOverBudgetCount = (recordsPerThread / 1000) * 499; //501 to 999 of each 1000 records
+        assertEquals(firstThreadOverBudgetCount + (threads.length - 1) * (long)recordsPerThread, json.getLong("overBudget"));
+    }
+}
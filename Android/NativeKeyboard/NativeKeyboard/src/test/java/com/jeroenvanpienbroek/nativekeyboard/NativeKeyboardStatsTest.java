@@ -0,0 +1,29 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+public class NativeKeyboardStatsTest
+{
+    @Test
+    public void textBytesAreCountedAsUTF8()
+    {
+        assertEquals(0, NativeKeyboardStats.getUTF8Length(""));
+        assertEquals(5, NativeKeyboardStats.getUTF8Length("hello"));
+        assertEquals(2, NativeKeyboardStats.getUTF8Length("\u00e9"));
+        assertEquals(3, NativeKeyboardStats.getUTF8Length("\u20ac"));
+        assertEquals(4, NativeKeyboardStats.getUTF8Length("\ud83d\ude00")); //Surrogate pair
+        assertEquals(3, NativeKeyboardStats.getUTF8Length("\ud83d")); //A lone surrogate takes 3 bytes, like in the modified UTF-8 of JNI
+
+        String text = "a\u00e9\u20ac\ud83d\ude00z";
+        assertEquals(text.getBytes(Charset.forName("UTF-8")).length, NativeKeyboardStats.getUTF8Length(text));
+    }
+}
@@ -0,0 +1,140 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OneTimeCodeExtractorTest
+{
+    private static final String CORPUS_FILE = "one_time_code_corpus.txt";
+    /** Maximum average time (in microseconds) to extract a code from a corpus message */
+    private static final double MAX_AVERAGE_EXTRACT_TIME = 20;
+    private static final int BENCHMARK_ITERATIONS = 20000;
+
+    private static List<String> expectedCodes = new ArrayList<String>();
+    private static List<String> messages = new ArrayList<String>();
+
+    @BeforeClass
+    public static void loadCorpus() throws IOException
+    {
+        InputStream stream = OneTimeCodeExtractorTest.class.getClassLoader().getResourceAsStream(CORPUS_FILE);
+        assertNotNull("Missing " + CORPUS_FILE, stream);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+        try
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                if(line.length() == 0 || line.startsWith("#")) { continue; }
+
+                int separatorIndex = line.indexOf('\t');
+                String expectedCode = line.substring(0, separatorIndex);
+                expectedCodes.add(expectedCode.equals("-") ? null : expectedCode);
+                messages.add(line.substring(separatorIndex + 1));
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void corpusPrecision()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor();
+        int length = messages.size();
+        int correctCount = 0;
+        StringBuilder failures = new StringBuilder();
+        for(int i = 0; i < length; i++)
+        {
+            String code = extractor.extract(messages.get(i));
+            String expectedCode = expectedCodes.get(i);
+            if((expectedCode == null) ? (code == null) : expectedCode.equals(code))
+            {
+                correctCount++;
+            }
+            else
+            {
+                failures.append('\n').append(messages.get(i)).append(" -> ").append(code).append(", expected ").append(expectedCode);
+            }
+        }
+
+        assertEquals("Incorrect extractions:" + failures, length, correctCount);
+    }
+
+    @Test
+    public void phoneNumberIsNotGroupedIntoCode()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor();
+        assertNull(extractor.extract("call 555-1234"));
+        assertEquals("482913", extractor.extract("call 555-1234, your code is 482913"));
+    }
+
+    @Test
+    public void equalGroupsFormSingleCode()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor();
+        assertEquals("123456", extractor.extract("123-456"));
+        assertEquals("12345678", extractor.extract("1234-5678"));
+    }
+
+    @Test
+    public void lengthRangeIsConfigurable()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor(6, 6, false, null, null);
+        assertEquals("654321", extractor.extract("Ref 1234, code 654321"));
+        assertNull(extractor.extract("Ref 1234"));
+    }
+
+    @Test
+    public void alphanumericCodes()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor(4, 8, true, OneTimeCodeExtractor.DEFAULT_PREFIX_ANCHORS, OneTimeCodeExtractor.DEFAULT_SUFFIX_ANCHORS);
+        assertEquals("A7K29Q", extractor.extract("Your code is A7K29Q"));
+    }
+
+    @Test
+    public void prefixAnchorWins()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor(4, 8, false, new String[]{ "token" }, null);
+        assertEquals("9999", extractor.extract("Order 123456, token 9999"));
+    }
+
+    @Test
+    public void corpusBenchmark()
+    {
+        OneTimeCodeExtractor extractor = new OneTimeCodeExtractor();
+        int length = messages.size();
+        for(int i = 0; i < BENCHMARK_ITERATIONS / 10; i++) //Warm up
+        {
+            extractor.extract(messages.get(i % length));
+        }
+
+        long startTime = System.nanoTime();
+        for(int i = 0; i < BENCHMARK_ITERATIONS; i++)
+        {
+            extractor.extract(messages.get(i % length));
+        }
+        double averageTime = (System.nanoTime() - startTime) / 1000.0 / BENCHMARK_ITERATIONS;
+
+        assertTrue("Average extract time " + averageTime + " us exceeds " + MAX_AVERAGE_EXTRACT_TIME + " us", averageTime <= MAX_AVERAGE_EXTRACT_TIME);
+    }
+}
@@ -0,0 +1,179 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Replays a dump of the SessionJournal through the TextEditLoop on a desktop JVM, to reproduce and benchmark a recorded session.
+ *  The updates of Unity get applied through TextEditSync and the text changes of the input method go through the TextEditFilter and the revalidation.
+ */
+public class SessionJournalReplay implements SessionJournalReader.RecordListener
+{
+    /** The amount of most recent times to keep for the percentiles */
+    private static final int SAMPLE_CAPACITY = 65536;
+
+    private TextEditLoop textEditLoop;
+    private LatencyRecorder textChangeTimes;
+    private LatencyRecorder updateTimes;
+
+    private int showCount;
+    private int updateCount;
+    private int hideCount;
+    private int textChangeCount;
+    private int selectionChangeCount;
+    private int specialKeyCount;
+    private int keyboardHeightCount;
+    /** The amount of recorded text changes that the replayed input didn't produce, because the filter or revalidation changed them */
+    private int invalidTextChangeCount;
+    private long duration;
+
+    public SessionJournalReplay()
+    {
+        textEditLoop = new TextEditLoop();
+        textChangeTimes = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        updateTimes = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+    }
+
+    public TextEditLoop getTextEditLoop() { return textEditLoop; }
+    public int getShowCount() { return showCount; }
+    public int getUpdateCount() { return updateCount; }
+    public int getHideCount() { return hideCount; }
+    public int getTextChangeCount() { return textChangeCount; }
+    public int getSelectionChangeCount() { return selectionChangeCount; }
+    public int getSpecialKeyCount() { return specialKeyCount; }
+    public int getKeyboardHeightCount() { return keyboardHeightCount; }
+    public int getInvalidTextChangeCount() { return invalidTextChangeCount; }
+    /** Gets the duration (in nanoseconds) of the recorded session */
+    public long getDuration() { return duration; }
+
+    /** Replays the journal in given stream
+     * @return The amount of records replayed
+     */
+    public int replay(InputStream inputStream) throws IOException
+    {
+        return SessionJournalReader.read(inputStream, this);
+    }
+
+    /** Creates a report of the replayed records and the times (in microseconds) of the replayed text changes and updates */
+    public JSONObject toJSON() throws JSONException
+    {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("duration", duration / 1000000); //In milliseconds
+        jsonObject.put("showKeyboard", showCount);
+        jsonObject.put("updateTextEdit", updateCount);
+        jsonObject.put("hideKeyboard", hideCount);
+        jsonObject.put("textChanges", textChangeCount);
+        jsonObject.put("selectionChanges", selectionChangeCount);
+        jsonObject.put("specialKeys", specialKeyCount);
+        jsonObject.put("keyboardHeights", keyboardHeightCount);
+        jsonObject.put("invalidTextChanges", invalidTextChangeCount);
+        jsonObject.put("textChangeTimes", textChangeTimes.toJSON());
+        jsonObject.put("updateTimes", updateTimes.toJSON());
+        return jsonObject;
+    }
+
+    @Override
+    public void onShowKeyboard(long time, String text, int selectionStart, int selectionEnd, String configurationJSON)
+    {
+        showCount++;
+        duration = time;
+
+        if(configurationJSON != null)
+        {
+            try
+            {
+                textEditLoop.configure(new NativeKeyboardConfiguration(new JSONObject(configurationJSON)));
+            }
+            catch(JSONException e)
+            {
+                throw new IllegalArgumentException("Invalid configuration JSON in journal", e);
+            }
+        }
+        textEditLoop.show(text, selectionStart, selectionEnd);
+    }
+
+    @Override
+    public void onUpdateTextEdit(long time, String text, int selectionStart, int selectionEnd)
+    {
+        updateCount++;
+        duration = time;
+
+        long startTime = System.nanoTime();
+        textEditLoop.updateTextEdit(text, selectionStart, selectionEnd);
+        textEditLoop.update();
+        updateTimes.record((System.nanoTime() - startTime) / 1000);
+    }
+
+    @Override
+    public void onHideKeyboard(long time)
+    {
+        hideCount++;
+        duration = time;
+    }
+
+    /** Replays the recorded text as the smallest replacement of the current text, the way an input method commits it */
+    @Override
+    public void onTextChange(long time, String text, int selectionStart, int selectionEnd)
+    {
+        textChangeCount++;
+        duration = time;
+
+        String currentText = textEditLoop.getView().getText().toString();
+        int prefixLength = 0;
+        int maxPrefixLength = Math.min(currentText.length(), text.length());
+        while(prefixLength < maxPrefixLength && currentText.charAt(prefixLength) == text.charAt(prefixLength))
+        {
+            prefixLength++;
+        }
+        int suffixLength = 0;
+        int maxSuffixLength = maxPrefixLength - prefixLength;
+        while(suffixLength < maxSuffixLength && currentText.charAt(currentText.length() - 1 - suffixLength) == text.charAt(text.length() - 1 - suffixLength))
+        {
+            suffixLength++;
+        }
+
+        long startTime = System.nanoTime();
+        textEditLoop.imeReplace(prefixLength, currentText.length() - suffixLength, text.substring(prefixLength, text.length() - suffixLength));
+        textChangeTimes.record((System.nanoTime() - startTime) / 1000);
+
+        if(!textEditLoop.getView().getText().toString().equals(text))
+        {
+            invalidTextChangeCount++;
+        }
+        else
+        {
+            textEditLoop.imeSetSelection(selectionStart, selectionEnd);
+        }
+    }
+
+    @Override
+    public void onSelectionChange(long time, int selectionStart, int selectionEnd)
+    {
+        selectionChangeCount++;
+        duration = time;
+
+        int textLength = textEditLoop.getView().length();
+        textEditLoop.imeSetSelection(Util.clamp(selectionStart, 0, textLength), Util.clamp(selectionEnd, 0, textLength));
+    }
+
+    @Override
+    public void onSpecialKey(long time, int specialKeyCode)
+    {
+        specialKeyCount++;
+        duration = time;
+    }
+
+    @Override
+    public void onKeyboardHeight(long time, int keyboardHeight)
+    {
+        keyboardHeightCount++;
+        duration = time;
+    }
+}
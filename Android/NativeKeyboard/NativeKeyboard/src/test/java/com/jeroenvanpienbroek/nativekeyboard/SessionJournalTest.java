@@ -0,0 +1,197 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionJournalTest
+{
+    /** Collects the records of a journal as readable lines */
+    private static class RecordCollector implements SessionJournalReader.RecordListener
+    {
+        List<String> records = new ArrayList<String>();
+
+        @Override
+        public void onShowKeyboard(long time, String text, int selectionStart, int selectionEnd, String configurationJSON)
+        {
+            records.add("show " + text + " " + selectionStart + " " + selectionEnd + " " + configurationJSON);
+        }
+
+        @Override
+        public void onUpdateTextEdit(long time, String text, int selectionStart, int selectionEnd)
+        {
+            records.add("update " + text + " " + selectionStart + " " + selectionEnd);
+        }
+
+        @Override
+        public void onHideKeyboard(long time)
+        {
+            records.add("hide");
+        }
+
+        @Override
+        public void onTextChange(long time, String text, int selectionStart, int selectionEnd)
+        {
+            records.add("text " + text + " " + selectionStart + " " + selectionEnd);
+        }
+
+        @Override
+        public void onSelectionChange(long time, int selectionStart, int selectionEnd)
+        {
+            records.add("selection " + selectionStart + " " + selectionEnd);
+        }
+
+        @Override
+        public void onSpecialKey(long time, int specialKeyCode)
+        {
+            records.add("key " + specialKeyCode);
+        }
+
+        @Override
+        public void onKeyboardHeight(long time, int keyboardHeight)
+        {
+            records.add("height " + keyboardHeight);
+        }
+    }
+
+    @Test
+    public void recordsRoundTrip() throws IOException
+    {
+        SessionJournal journal = new SessionJournal(SessionJournal.DEFAULT_CAPACITY);
+        journal.recordShowKeyboard("abc", 1, 2, null);
+        journal.recordUpdateTextEdit("caf\u00E9 \u4E2D", 6, 6);
+        journal.recordTextChange(new StringBuilder("smile \uD83D\uDE00"), 8, 8);
+        journal.recordTextChange("lone \uD800 surrogate", 0, 0);
+        journal.recordSelectionChange(3, 5);
+        journal.recordSpecialKey(2);
+        journal.recordKeyboardHeight(800);
+        journal.recordHideKeyboard();
+
+        List<String> records = readRecords(journal);
+        assertEquals(8, records.size());
+        assertEquals("show abc 1 2 null", records.get(0));
+        assertEquals("update caf\u00E9 \u4E2D 6 6", records.get(1));
+        assertEquals("text smile \uD83D\uDE00 8 8", records.get(2));
+        assertEquals("text lone ? surrogate 0 0", records.get(3));
+        assertEquals("selection 3 5", records.get(4));
+        assertEquals("key 2", records.get(5));
+        assertEquals("height 800", records.get(6));
+        assertEquals("hide", records.get(7));
+    }
+
+    @Test
+    public void oldestRecordsGetDropped() throws IOException
+    {
+        SessionJournal journal = new SessionJournal(100); //Each height record takes 17 bytes
+        for(int i = 0; i < 20; i++)
+        {
+            journal.recordKeyboardHeight(i);
+        }
+
+        List<String> records = readRecords(journal);
+        assertEquals(5, records.size());
+        assertEquals("height 15", records.get(0));
+        assertEquals("height 19", records.get(4));
+    }
+
+    @Test
+    public void recordsWrapAroundTheBuffer() throws IOException
+    {
+        SessionJournal journal = new SessionJournal(64);
+        for(int i = 0; i < 10; i++)
+        {
+            journal.recordTextChange("text " + i, i, i);
+        }
+
+        List<String> records = readRecords(journal);
+        assertEquals("text text 9 9 9", records.get(records.size() - 1));
+        for(int i = 0; i < records.size(); i++)
+        {
+            assertTrue(records.get(i), records.get(i).startsWith("text text "));
+        }
+    }
+
+    @Test
+    public void recordTooLargeForBufferIsSkipped() throws IOException
+    {
+        SessionJournal journal = new SessionJournal(32);
+        journal.recordKeyboardHeight(1);
+        journal.recordTextChange("this text doesn't fit in the journal", 0, 0);
+
+        List<String> records = readRecords(journal);
+        assertEquals(1, records.size());
+        assertEquals("height 1", records.get(0));
+    }
+
+    @Test
+    public void replayValidatesTextChanges() throws Exception
+    {
+        SessionJournal journal = new SessionJournal(SessionJournal.DEFAULT_CAPACITY);
+        journal.recordShowKeyboard("", 0, 0, createConfigurationJSON(NativeKeyboard.CharacterValidation.INTEGER));
+        journal.recordTextChange("1", 1, 1);
+        journal.recordTextChange("12", 2, 2);
+        journal.recordTextChange("12a", 3, 3); //Not a valid integer
+        journal.recordUpdateTextEdit("123", 3, 3);
+        journal.recordHideKeyboard();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        journal.dump(outputStream);
+
+        SessionJournalReplay replay = new SessionJournalReplay();
+        assertEquals(6, replay.replay(new ByteArrayInputStream(outputStream.toByteArray())));
+        assertEquals(1, replay.getShowCount());
+        assertEquals(3, replay.getTextChangeCount());
+        assertEquals(1, replay.getInvalidTextChangeCount());
+        assertEquals(1, replay.getUpdateCount());
+        assertEquals(1, replay.getHideCount());
+        assertEquals(3, replay.toJSON().getJSONObject("textChangeTimes").getLong("count"));
+
+        TextEditLoop textEditLoop = replay.getTextEditLoop();
+        assertEquals(2, textEditLoop.getSentUpdateCount()); //The rejected change didn't change the text
+        assertEquals(1, textEditLoop.getAppliedUpdateCount());
+        assertEquals("123", textEditLoop.getView().toString());
+        assertEquals(3, textEditLoop.getView().getSelectionStart());
+    }
+
+    static String createConfigurationJSON(NativeKeyboard.CharacterValidation characterValidation) throws Exception
+    {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("keyboardType", 0);
+        jsonObject.put("characterValidation", characterValidation.ordinal());
+        jsonObject.put("lineType", NativeKeyboard.LineType.SINGLE_LINE.ordinal());
+        jsonObject.put("autocapitalizationType", 0);
+        jsonObject.put("autofillType", 0);
+        jsonObject.put("returnKeyType", 0);
+        jsonObject.put("autocorrection", false);
+        jsonObject.put("secure", false);
+        jsonObject.put("richTextEditing", false);
+        jsonObject.put("emojisAllowed", false);
+        jsonObject.put("hasNext", false);
+        jsonObject.put("characterLimit", 0);
+        jsonObject.put("characterValidatorJSON", "");
+        return jsonObject.toString();
+    }
+
+    private static List<String> readRecords(SessionJournal journal) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        journal.dump(outputStream);
+
+        RecordCollector collector = new RecordCollector();
+        SessionJournalReader.read(new ByteArrayInputStream(outputStream.toByteArray()), collector);
+        return collector.records;
+    }
+}
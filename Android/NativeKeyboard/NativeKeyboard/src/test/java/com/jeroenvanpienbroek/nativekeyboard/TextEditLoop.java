@@ -0,0 +1,274 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.text.InputFilter;
+import android.text.Spanned;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.TextValidator;
+
+/** Runs the text edit loop of NativeKeyboard without the Android framework:
+ *  updates of Unity get queued and applied through TextEditSync, edits of the input method go through the TextEditFilter
+ *  and the text revalidation, and the resulting text gets read back to Unity the same way sendTextEditUpdate does.
+ */
+public class TextEditLoop implements TextEditFilter.Host
+{
+    /** Receives the text edit updates that would be sent to Unity */
+    public interface Listener
+    {
+        void onTextEditUpdate(String text, int selectionStartPosition, int selectionEndPosition);
+    }
+
+    /** Text of the view that receives the input, runs the input filters on every change like EditText does */
+    public static class FilteredText implements TextEditSync.Target, Spanned
+    {
+        private static final Spanned EMPTY = new FilteredText();
+
+        private String text = "";
+        private int selectionStart;
+        private int selectionEnd;
+        private InputFilter[] filters = new InputFilter[0];
+
+        public void setFilters(InputFilter[] filters) { this.filters = filters; }
+
+        /** Replaces the range [start, end) with given source after running it through the filters
+         * @return Whether the text changed
+         */
+        public boolean replace(int start, int end, CharSequence source)
+        {
+            CharSequence filteredSource = filter(source, this, start, end);
+            String oldText = text;
+            text = text.substring(0, start) + filteredSource + text.substring(end);
+            int caretPosition = start + filteredSource.length();
+            selectionStart = caretPosition;
+            selectionEnd = caretPosition;
+            return !text.equals(oldText);
+        }
+
+        private CharSequence filter(CharSequence source, Spanned dest, int start, int end)
+        {
+            for(InputFilter filter: filters)
+            {
+                CharSequence result = filter.filter(source, 0, source.length(), dest, start, end);
+                if(result != null)
+                {
+                    source = result;
+                }
+            }
+            return source;
+        }
+
+        @Override public CharSequence getText() { return text; }
+        @Override public int getSelectionStart() { return selectionStart; }
+        @Override public int getSelectionEnd() { return selectionEnd; }
+
+        @Override
+        public void setText(CharSequence text)
+        {
+            this.text = filter(text, EMPTY, 0, 0).toString(); //TextView filters the whole new text
+            selectionStart = 0;
+            selectionEnd = 0;
+        }
+
+        @Override
+        public void setSelection(int start, int end)
+        {
+            selectionStart = start;
+            selectionEnd = end;
+        }
+
+        @Override public int length() { return text.length(); }
+        @Override public char charAt(int index) { return text.charAt(index); }
+        @Override public CharSequence subSequence(int start, int end) { return text.subSequence(start, end); }
+        @Override public String toString() { return text; }
+
+        @SuppressWarnings("unchecked")
+        @Override public <T> T[] getSpans(int start, int end, Class<T> type) { return (T[])java.lang.reflect.Array.newInstance(type, 0); }
+        @Override public int getSpanStart(Object tag) { return -1; }
+        @Override public int getSpanEnd(Object tag) { return -1; }
+        @Override public int getSpanFlags(Object tag) { return 0; }
+        @SuppressWarnings("rawtypes") //Spanned declares the raw type
+        @Override public int nextSpanTransition(int start, int limit, Class type) { return limit; }
+    }
+
+    /** Text edit update that remembers when it got queued */
+    private static class QueuedTextEditUpdate extends TextEditUpdateEvent
+    {
+        long queueTime;
+
+        QueuedTextEditUpdate(String text, int selectionStartPosition, int selectionEndPosition, long queueTime)
+        {
+            super(text, selectionStartPosition, selectionEndPosition);
+            this.queueTime = queueTime;
+        }
+    }
+
+    /** The amount of most recent samples to keep for the percentiles */
+    private static final int SAMPLE_CAPACITY = 65536;
+
+    private IClock clock;
+    private ThreadsafeQueue<QueuedTextEditUpdate> unityEventQueue;
+    private TextEditUpdateEvent newestTextEditUpdateEvent;
+    private Object newestTextEditUpdateLock = new Object();
+
+    private FilteredText view;
+    private TextEditSync textEditSync;
+    private TextValidator textValidator;
+    private NativeKeyboardStats stats;
+    private NativeKeyboard.CharacterValidation characterValidation;
+    private Listener listener;
+    /** The time (in milliseconds of the clock) between queueing an update of Unity and applying it */
+    private LatencyRecorder applyLatencies;
+
+    private IUnityEvent currentEvent;
+    private boolean textRevalidationPending;
+    private int appliedUpdateCount;
+    private int sentUpdateCount;
+
+    public TextEditLoop()
+    {
+        this(null);
+    }
+
+    /** @param clock The clock to measure the apply latencies with, null to not measure them */
+    public TextEditLoop(IClock clock)
+    {
+        this.clock = clock;
+        unityEventQueue = new ThreadsafeQueue<QueuedTextEditUpdate>();
+        applyLatencies = new LatencyRecorder(SAMPLE_CAPACITY, 0);
+        view = new FilteredText();
+        textEditSync = new TextEditSync();
+        textValidator = new TextValidator();
+        stats = new NativeKeyboardStats();
+        characterValidation = NativeKeyboard.CharacterValidation.NONE;
+        textValidator.setValidation(characterValidation);
+        textValidator.setLineType(NativeKeyboard.LineType.SINGLE_LINE);
+    }
+
+    public FilteredText getView() { return view; }
+    public TextEditSync getTextEditSync() { return textEditSync; }
+    public void setListener(Listener listener) { this.listener = listener; }
+    /** Gets the amount of Unity updates applied to the view, superseded updates are skipped */
+    public int getAppliedUpdateCount() { return appliedUpdateCount; }
+    /** Gets the amount of text edit updates sent back to Unity */
+    public int getSentUpdateCount() { return sentUpdateCount; }
+    public int getQueueDepth() { return unityEventQueue.getCount(); }
+    public LatencyRecorder getApplyLatencies() { return applyLatencies; }
+
+    @Override public NativeKeyboard.CharacterValidation getCharacterValidation() { return characterValidation; }
+    @Override public TextValidator getTextValidator() { return textValidator; }
+    @Override public NativeKeyboardStats getKeyboardStats() { return stats; }
+    @Override public boolean isApplyingUnityEvent() { return (currentEvent != null); }
+    @Override public void requestTextRevalidation() { textRevalidationPending = true; }
+
+    /** Applies the validation and input filters of given configuration, like NativeKeyboard does when showing the keyboard */
+    public void configure(NativeKeyboardConfiguration configuration)
+    {
+        characterValidation = configuration.characterValidation;
+        textValidator.setValidation(characterValidation);
+        textValidator.setLineType(configuration.lineType);
+        textValidator.setValidator(configuration.characterValidator);
+        textValidator.setPatternMask(configuration.compiledPatternMask);
+
+        EmojiExcludeFilter emojiFilter = null;
+        if(!configuration.emojisAllowed)
+        {
+            emojiFilter = new EmojiExcludeFilter(configuration.emojiFilterMode);
+        }
+        view.setFilters(new InputFilter[]{new TextEditFilter(this, emojiFilter, configuration.characterLimit)});
+    }
+
+    /** Applies the text and selection of a show request */
+    public void show(String text, int selectionStartPosition, int selectionEndPosition)
+    {
+        currentEvent = new KeyboardShowEvent(text, selectionStartPosition, selectionEndPosition, null);
+        textEditSync.applyShow(view, text, selectionStartPosition, selectionEndPosition);
+        currentEvent = null;
+    }
+
+    /** Queues a text edit update of Unity, can be called from any thread */
+    public void updateTextEdit(String text, int selectionStartPosition, int selectionEndPosition)
+    {
+        long queueTime = (clock != null) ? clock.elapsedRealtime() : 0;
+        QueuedTextEditUpdate textEditUpdateEvent = new QueuedTextEditUpdate(text, selectionStartPosition, selectionEndPosition, queueTime);
+        synchronized (newestTextEditUpdateLock)
+        {
+            newestTextEditUpdateEvent = textEditUpdateEvent;
+        }
+        unityEventQueue.enqueue(textEditUpdateEvent);
+    }
+
+    /** Processes the queued updates of Unity, only the newest one gets applied
+     * @return The amount of processed updates
+     */
+    public int update()
+    {
+        int processedCount = 0;
+        QueuedTextEditUpdate textEditUpdateEvent = unityEventQueue.dequeue();
+        while(textEditUpdateEvent != null)
+        {
+            processedCount++;
+            currentEvent = textEditUpdateEvent;
+            TextEditUpdateEvent newestEvent;
+            synchronized (newestTextEditUpdateLock)
+            {
+                newestEvent = newestTextEditUpdateEvent;
+            }
+            if(newestEvent == textEditUpdateEvent)
+            {
+                textEditSync.apply(view, textEditUpdateEvent.text, textEditUpdateEvent.selectionStartPosition, textEditUpdateEvent.selectionEndPosition, false);
+                appliedUpdateCount++;
+                if(clock != null)
+                {
+                    applyLatencies.record(clock.elapsedRealtime() - textEditUpdateEvent.queueTime);
+                }
+            }
+            currentEvent = null;
+
+            textEditUpdateEvent = unityEventQueue.dequeue();
+        }
+        return processedCount;
+    }
+
+    /** Replaces the range [start, end) with given text like the input method does
+     * @return Whether the text changed
+     */
+    public boolean imeReplace(int start, int end, CharSequence source)
+    {
+        if(!view.replace(start, end, source))
+        {
+            return false;
+        }
+
+        if(textRevalidationPending)
+        {
+            textRevalidationPending = false;
+            textEditSync.revalidate(view, textValidator);
+        }
+        sendTextEditUpdate();
+        return true;
+    }
+
+    /** Moves the selection like the input method does */
+    public void imeSetSelection(int selectionStart, int selectionEnd)
+    {
+        view.setSelection(selectionStart, selectionEnd);
+        if(textEditSync.hasSelectionChanged(selectionStart, selectionEnd))
+        {
+            sendTextEditUpdate();
+        }
+    }
+
+    private void sendTextEditUpdate()
+    {
+        String text = textEditSync.read(view);
+        sentUpdateCount++;
+        if(listener != null)
+        {
+            listener.onTextEditUpdate(text, textEditSync.getLastSelectionStartPosition(), textEditSync.getLastSelectionEndPosition());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.PatternMask;
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.TextValidator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TextEditSyncTest
+{
+    /** Counts the changes made to the target */
+    private static class CountingTarget implements TextEditSync.Target
+    {
+        CharSequence text = "";
+        int selectionStart;
+        int selectionEnd;
+        int setTextCount;
+        int setSelectionCount;
+
+        @Override public CharSequence getText() { return text; }
+        @Override public int getSelectionStart() { return selectionStart; }
+        @Override public int getSelectionEnd() { return selectionEnd; }
+
+        @Override
+        public void setText(CharSequence text)
+        {
+            this.text = text;
+            setTextCount++;
+        }
+
+        @Override
+        public void setSelection(int start, int end)
+        {
+            selectionStart = start;
+            selectionEnd = end;
+            setSelectionCount++;
+        }
+    }
+
+    private TextEditSync textEditSync;
+    private CountingTarget target;
+
+    @Before
+    public void setUp()
+    {
+        textEditSync = new TextEditSync();
+        target = new CountingTarget();
+    }
+
+    @Test
+    public void unchangedUpdateIsSkipped()
+    {
+        assertTrue(textEditSync.apply(target, "abc", 3, 3, false));
+        assertFalse(textEditSync.apply(target, "abc", 3, 3, false));
+
+        assertEquals(1, target.setTextCount);
+        assertEquals(1, target.setSelectionCount);
+    }
+
+    @Test
+    public void selectionChangeOnlySetsSelection()
+    {
+        textEditSync.apply(target, "abc", 3, 3, false);
+        assertFalse(textEditSync.apply(target, "abc", 0, 2, false));
+
+        assertEquals(1, target.setTextCount);
+        assertEquals(2, target.setSelectionCount);
+        assertEquals(0, target.selectionStart);
+        assertEquals(2, target.selectionEnd);
+    }
+
+    @Test
+    public void forcedUpdateReplacesText()
+    {
+        textEditSync.apply(target, "abc", 3, 3, false);
+        assertTrue(textEditSync.apply(target, "abc", 3, 3, true));
+        assertEquals(2, target.setTextCount);
+    }
+
+    @Test
+    public void showWithSameTextKeepsText()
+    {
+        target.text = new StringBuilder("abc");
+        assertFalse(textEditSync.applyShow(target, "abc", 1, 2));
+
+        assertEquals(0, target.setTextCount);
+        assertEquals(1, target.setSelectionCount);
+        assertEquals("abc", textEditSync.getLastText());
+    }
+
+    @Test
+    public void readOrdersSelection()
+    {
+        target.text = new StringBuilder("hello");
+        target.selectionStart = 4;
+        target.selectionEnd = 1;
+
+        assertEquals("hello", textEditSync.read(target));
+        assertEquals(1, textEditSync.getLastSelectionStartPosition());
+        assertEquals(4, textEditSync.getLastSelectionEndPosition());
+        assertFalse(textEditSync.hasSelectionChanged(1, 4));
+        assertFalse(textEditSync.apply(target, "hello", 1, 4, false)); //Echo of the reported edit
+    }
+
+    @Test
+    public void revalidationShiftsTailThroughMask()
+    {
+        TextValidator textValidator = new TextValidator();
+        textValidator.setValidation(NativeKeyboard.CharacterValidation.PATTERN_MASK);
+        textValidator.setLineType(NativeKeyboard.LineType.SINGLE_LINE);
+        textValidator.setPatternMask(PatternMask.compile("###-###"));
+
+        target.text = "1923-456"; //Insertion of 9 that still needs the full validation
+        target.selectionStart = 2;
+        target.selectionEnd = 2;
+
+        assertTrue(textEditSync.revalidate(target, textValidator));
+        assertEquals("192-345", target.text.toString());
+        assertEquals(2, target.selectionStart);
+        assertFalse(textEditSync.revalidate(target, textValidator));
+        assertEquals(1, target.setTextCount);
+    }
+}
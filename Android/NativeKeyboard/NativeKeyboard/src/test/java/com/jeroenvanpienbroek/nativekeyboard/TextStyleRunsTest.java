@@ -0,0 +1,154 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard;
+
+import android.text.Spannable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TextStyleRunsTest
+{
+    /** Spannable that only stores the span ranges, edits move them by hand like the framework would */
+    private static class SpanStore implements Spannable
+    {
+        private String text;
+        private List<Object> spans = new ArrayList<Object>();
+        private List<int[]> ranges = new ArrayList<int[]>();
+
+        SpanStore(String text) { this.text = text; }
+
+        void setText(String text) { this.text = text; }
+
+        void moveSpan(int index, int start, int end)
+        {
+            ranges.get(index)[0] = start;
+            ranges.get(index)[1] = end;
+        }
+
+        @Override public int length() { return text.length(); }
+        @Override public char charAt(int index) { return text.charAt(index); }
+        @Override public CharSequence subSequence(int start, int end) { return text.subSequence(start, end); }
+        @Override public String toString() { return text; }
+
+        @Override public void setSpan(Object what, int start, int end, int flags)
+        {
+            spans.add(what);
+            ranges.add(new int[]{ start, end });
+        }
+
+        @Override public void removeSpan(Object what)
+        {
+            int index = spans.indexOf(what);
+            spans.remove(index);
+            ranges.remove(index);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override public <T> T[] getSpans(int start, int end, Class<T> type)
+        {
+            T[] result = (T[])java.lang.reflect.Array.newInstance(type, spans.size());
+            return spans.toArray(result);
+        }
+
+        @Override public int getSpanStart(Object tag) { return ranges.get(spans.indexOf(tag))[0]; }
+        @Override public int getSpanEnd(Object tag) { return ranges.get(spans.indexOf(tag))[1]; }
+        @Override public int getSpanFlags(Object tag) { return 0; }
+        @SuppressWarnings("rawtypes") //Spanned declares the raw type
+        @Override public int nextSpanTransition(int start, int limit, Class type) { return limit; }
+    }
+
+    private TextStyleRuns textStyleRuns;
+    private SpanStore text;
+
+    @Before
+    public void setUp()
+    {
+        textStyleRuns = new TextStyleRuns();
+        text = new SpanStore("hello world");
+        textStyleRuns.apply(text, new int[]{ 0, 5, 1, 6, 5, 2 });
+    }
+
+    @Test
+    public void appliedRunsDontProduceDelta()
+    {
+        assertEquals(2, textStyleRuns.getRunCount());
+        assertFalse(textStyleRuns.update(text));
+    }
+
+    @Test
+    public void typingInsideStyledWordSendsSingleRun()
+    {
+        text.setText("helxlo world");
+        text.moveSpan(0, 0, 6);
+        text.moveSpan(1, 7, 12);
+
+        assertTrue(textStyleRuns.update(text));
+        assertEquals(0, textStyleRuns.getDeltaStartRun());
+        assertEquals(1, textStyleRuns.getDeltaRemovedRunCount());
+        assertEquals(1, textStyleRuns.getDeltaOffsetShift());
+        assertArrayEquals(new int[]{ 0, 6, 1 }, textStyleRuns.getDeltaRuns());
+    }
+
+    @Test
+    public void deltaRunsGetReused()
+    {
+        text.setText("helxlo world");
+        text.moveSpan(0, 0, 6);
+        text.moveSpan(1, 7, 12);
+        assertTrue(textStyleRuns.update(text));
+        int[] deltaRuns = textStyleRuns.getDeltaRuns();
+
+        text.setText("helxxlo world");
+        text.moveSpan(0, 0, 7);
+        text.moveSpan(1, 8, 13);
+        assertTrue(textStyleRuns.update(text));
+        assertSame(deltaRuns, textStyleRuns.getDeltaRuns());
+        assertArrayEquals(new int[]{ 0, 7, 1 }, deltaRuns);
+    }
+
+    @Test
+    public void deletedRunGetsRemoved()
+    {
+        text.setText("hello ");
+        text.moveSpan(1, 6, 6);
+
+        assertTrue(textStyleRuns.update(text));
+        assertEquals(1, textStyleRuns.getDeltaStartRun());
+        assertEquals(1, textStyleRuns.getDeltaRemovedRunCount());
+        assertEquals(0, textStyleRuns.getDeltaRuns().length);
+        assertEquals(1, textStyleRuns.getRunCount());
+    }
+
+    @Test
+    public void spansGetSortedByOffset()
+    {
+        SpanStore reversedText = new SpanStore("hello world");
+        reversedText.setSpan(new TextStyleRuns.TextStyleSpan(2), 6, 11, 0);
+        reversedText.setSpan(new TextStyleRuns.TextStyleSpan(1), 0, 5, 0);
+
+        TextStyleRuns reversedRuns = new TextStyleRuns();
+        assertTrue(reversedRuns.update(reversedText));
+        assertArrayEquals(new int[]{ 0, 5, 1, 6, 5, 2 }, reversedRuns.getDeltaRuns());
+    }
+
+    @Test
+    public void clearingRemovesAllSpans()
+    {
+        textStyleRuns.apply(text, null);
+        assertEquals(0, textStyleRuns.getRunCount());
+        assertEquals(0, text.getSpans(0, text.length(), TextStyleRuns.TextStyleSpan.class).length);
+    }
+}
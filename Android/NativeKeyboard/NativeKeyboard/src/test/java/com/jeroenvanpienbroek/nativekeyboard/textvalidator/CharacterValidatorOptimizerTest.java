@@ -0,0 +1,288 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterCondition.CharacterConditionOperator;
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterRule.CharacterAction;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CharacterValidatorOptimizerTest
+{
+    private static final String CHARACTERS = "abcxyzABCXYZ0159 .-_@<>:\"|?*/\\";
+    private static final int FUZZ_VALIDATOR_COUNT = 3000;
+    private static final int FUZZ_INPUT_COUNT = 600; //Enough validations for a couple of adaptive reorderings
+
+    @Test
+    public void conditionsAreSortedByCost() throws Exception
+    {
+        CharacterRule rule = new CharacterRule(createRule(CharacterAction.BLOCK, 0,
+                createCondition(CharacterConditionOperator.OCCURENCES_GREATER_THAN, 0, 1, ""),
+                createCondition(CharacterConditionOperator.VALUE_IN_STRING, 0, 0, "abcdefghijklmnop"), //Long strings cost more than an index check
+                createCondition(CharacterConditionOperator.INDEX_EQUALS, 0, 0, "")), 0);
+        CharacterValidatorOptimizer.sortConditions(rule);
+
+        assertEquals(CharacterConditionOperator.INDEX_EQUALS, rule.conditions[0].conditionOperator);
+        assertEquals(CharacterConditionOperator.VALUE_IN_STRING, rule.conditions[1].conditionOperator);
+        assertEquals(CharacterConditionOperator.OCCURENCES_GREATER_THAN, rule.conditions[2].conditionOperator);
+    }
+
+    @Test
+    public void overlappingRulesWithDifferentActionsDontSwap() throws Exception
+    {
+        CharacterRule blockDigits = new CharacterRule(createRule(CharacterAction.BLOCK, 0,
+                createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, '0', '9', "")), 0);
+        CharacterRule allowSome = new CharacterRule(createRule(CharacterAction.ALLOW, 0,
+                createCondition(CharacterConditionOperator.VALUE_IN_STRING, 0, 0, "5x")), 1);
+        CharacterRule allowLetters = new CharacterRule(createRule(CharacterAction.ALLOW, 0,
+                createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 'a', 'z', "")), 2);
+
+        assertFalse(CharacterValidatorOptimizer.canSwap(blockDigits, allowSome));
+        assertTrue(CharacterValidatorOptimizer.canSwap(blockDigits, allowLetters)); //Disjoint
+        assertTrue(CharacterValidatorOptimizer.canSwap(allowSome, allowLetters)); //Same action
+    }
+
+    @Test
+    public void adaptiveOrderingMovesSelectiveRulesForward() throws Exception
+    {
+        CharacterValidator validator = new CharacterValidator(createValidator(CharacterAction.BLOCK, '-',
+                createRule(CharacterAction.BLOCK, 0, createCondition(CharacterConditionOperator.VALUE_EQUALS, '~', 0, "")), //Cheap, but never matches
+                createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 0, 0, "abcdefghijklmnop"))));
+        assertEquals(0, validator.rules[0].index); //Declaration order until matches got observed
+
+        validator.setAdaptiveOrdering(true);
+        char[] text = "abc".toCharArray();
+        for(int i = 0; i < 512; i++)
+        {
+            assertEquals('a', validator.validate('a', text, text.length, 0, -1));
+        }
+        assertEquals(1, validator.rules[0].index);
+
+        validator.setAdaptiveOrdering(false);
+        assertEquals(0, validator.rules[0].index);
+    }
+
+    @Test
+    public void fuzzedValidatorsKeepDeclaredResults() throws Exception
+    {
+        Random random = new Random(48);
+        char[] text = new char[16];
+        int reorderedCount = 0;
+        for(int v = 0; v < FUZZ_VALIDATOR_COUNT; v++)
+        {
+            JSONObject validatorJSON = createRandomValidator(random);
+            CharacterValidator validator = new CharacterValidator(validatorJSON);
+            boolean adaptiveOrdering = (v % 2 == 0);
+            validator.setAdaptiveOrdering(adaptiveOrdering);
+
+            for(int i = 0; i < FUZZ_INPUT_COUNT; i++)
+            {
+                int textLength = random.nextInt(text.length);
+                for(int j = 0; j < textLength; j++)
+                {
+                    text[j] = CHARACTERS.charAt(random.nextInt(CHARACTERS.length()));
+                }
+                char ch = CHARACTERS.charAt(random.nextInt(CHARACTERS.length()));
+                int pos = random.nextInt(textLength + 1);
+
+                char expected = validateInDeclaredOrder(validator, ch, text, textLength, pos);
+                char result = validator.validate(ch, text, textLength, pos, -1);
+                if(result != expected)
+                {
+                    assertEquals("Validator " + validatorJSON + " with '" + ch + "' at " + pos + " of \"" + new String(text, 0, textLength) + "\"", expected, result);
+                }
+            }
+
+            if(adaptiveOrdering)
+            {
+                if(isReordered(validator)) { reorderedCount++; }
+            }
+            else
+            {
+                assertFalse(isReordered(validator)); //Declaration order without adaptive ordering
+            }
+        }
+
+        assertTrue("Only " + reorderedCount + " fuzzed validators got reordered", reorderedCount > FUZZ_VALIDATOR_COUNT / 10);
+    }
+
+    @Test
+    public void bundledValidatorsKeepDeclaredResults() throws Exception
+    {
+        for(JSONObject validatorJSON: createBundledValidators())
+        {
+            CharacterValidator validator = new CharacterValidator(validatorJSON);
+            char[] text = "report.final-v2".toCharArray();
+            for(char ch = 0; ch < 256; ch++)
+            {
+                for(int pos = 0; pos <= text.length; pos++)
+                {
+                    assertEquals(validateInDeclaredOrder(validator, ch, text, text.length, pos), validator.validate(ch, text, text.length, pos, -1));
+                }
+            }
+        }
+    }
+
+    /** Validates with the rules in declaration order, like the validator did before optimizing */
+    private static char validateInDeclaredOrder(CharacterValidator validator, char ch, char[] text, int textLength, int pos)
+    {
+        for(CharacterRule rule: validator.declaredRules)
+        {
+            if(rule.areConditionsMet(ch, text, textLength, pos, -1))
+            {
+                return executeAction(ch, rule.action, rule.actionIntValue);
+            }
+        }
+
+        return executeAction(ch, validator.otherCharacterAction, validator.otherCharacterActionIntValue);
+    }
+
+    private static char executeAction(char ch, CharacterAction action, int actionValue)
+    {
+        switch(action)
+        {
+            case ALLOW: return ch;
+            case BLOCK: return (char)0;
+            case TO_LOWERCASE: return Character.toLowerCase(ch);
+            case TO_UPPERCASE: return Character.toUpperCase(ch);
+            case REPLACE: return (char)actionValue;
+        }
+
+        return ch;
+    }
+
+    private static boolean isReordered(CharacterValidator validator)
+    {
+        for(int i = 0; i < validator.rules.length; i++)
+        {
+            if(validator.rules[i] != validator.declaredRules[i]) { return true; }
+        }
+        return false;
+    }
+
+    private static JSONObject createRandomValidator(Random random) throws Exception
+    {
+        CharacterConditionOperator[] operators = CharacterConditionOperator.values();
+        CharacterAction[] actions = CharacterAction.values();
+
+        JSONArray rulesJSON = new JSONArray();
+        int ruleCount = 1 + random.nextInt(6);
+        for(int r = 0; r < ruleCount; r++)
+        {
+            JSONArray conditionsJSON = new JSONArray();
+            int conditionCount = random.nextInt(4); //Rules without conditions never match
+            for(int c = 0; c < conditionCount; c++)
+            {
+                CharacterConditionOperator operator = operators[random.nextInt(operators.length)];
+                int value1, value2;
+                if(operator.name().startsWith("INDEX_"))
+                {
+                    value1 = random.nextInt(8);
+                    value2 = value1 + random.nextInt(8);
+                }
+                else if(operator.name().startsWith("OCCURENCES_"))
+                {
+                    value1 = 0;
+                    value2 = random.nextInt(4);
+                }
+                else
+                {
+                    value1 = CHARACTERS.charAt(random.nextInt(CHARACTERS.length()));
+                    value2 = value1 + random.nextInt(40);
+                }
+
+                StringBuilder stringValue = new StringBuilder();
+                int stringLength = random.nextInt(6);
+                for(int i = 0; i < stringLength; i++)
+                {
+                    stringValue.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+                }
+                conditionsJSON.put(createCondition(operator, value1, value2, stringValue.toString()));
+            }
+
+            JSONObject ruleJSON = new JSONObject();
+            ruleJSON.put("conditions", conditionsJSON);
+            ruleJSON.put("action", actions[random.nextInt(actions.length)].ordinal());
+            ruleJSON.put("actionIntValue", (int)CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+            rulesJSON.put(ruleJSON);
+        }
+
+        JSONObject validatorJSON = new JSONObject();
+        validatorJSON.put("rules", rulesJSON);
+        validatorJSON.put("otherCharacterAction", actions[random.nextInt(actions.length)].ordinal());
+        validatorJSON.put("otherCharacterActionIntValue", '-');
+        return validatorJSON;
+    }
+
+    /** Creates the validators of Assets/AdvancedInputField/Prefabs/CharacterValidation */
+    private static JSONObject[] createBundledValidators() throws Exception
+    {
+        JSONObject fileNameValidator = createValidator(CharacterAction.BLOCK, '-',
+                createRule(CharacterAction.BLOCK, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 32, 122, "<>:\"|?*/\\")),
+                createRule(CharacterAction.BLOCK, 0, createCondition(CharacterConditionOperator.VALUE_EQUALS, 46, 122, ""),
+                        createCondition(CharacterConditionOperator.OCCURENCES_GREATER_THAN_OR_EQUALS, 46, 0, "")),
+                createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 32, 122, "")));
+
+        JSONObject asciiLettersValidator = createValidator(CharacterAction.BLOCK, '-',
+                createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 65, 90, "")),
+                createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 97, 122, "")),
+                createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 128, 165, "")));
+
+        JSONObject hexadecimalValidator = createValidator(CharacterAction.BLOCK, '-',
+                createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 60, 0, "0123456789ABCDEF")),
+                createRule(CharacterAction.TO_UPPERCASE, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 0, 0, "abcdef")));
+
+        return new JSONObject[]{ fileNameValidator, asciiLettersValidator, hexadecimalValidator };
+    }
+
+    private static JSONObject createValidator(CharacterAction otherCharacterAction, int otherCharacterActionIntValue, JSONObject... rules) throws Exception
+    {
+        JSONArray rulesJSON = new JSONArray();
+        for(JSONObject rule: rules)
+        {
+            rulesJSON.put(rule);
+        }
+
+        JSONObject validatorJSON = new JSONObject();
+        validatorJSON.put("rules", rulesJSON);
+        validatorJSON.put("otherCharacterAction", otherCharacterAction.ordinal());
+        validatorJSON.put("otherCharacterActionIntValue", otherCharacterActionIntValue);
+        return validatorJSON;
+    }
+
+    private static JSONObject createRule(CharacterAction action, int actionIntValue, JSONObject... conditions) throws Exception
+    {
+        JSONArray conditionsJSON = new JSONArray();
+        for(JSONObject condition: conditions)
+        {
+            conditionsJSON.put(condition);
+        }
+
+        JSONObject ruleJSON = new JSONObject();
+        ruleJSON.put("conditions", conditionsJSON);
+        ruleJSON.put("action", action.ordinal());
+        ruleJSON.put("actionIntValue", actionIntValue);
+        return ruleJSON;
+    }
+
+    private static JSONObject createCondition(CharacterConditionOperator operator, int value1, int value2, String stringValue) throws Exception
+    {
+        JSONObject conditionJSON = new JSONObject();
+        conditionJSON.put("conditionOperator", operator.ordinal());
+        conditionJSON.put("conditionIntValue1", value1);
+        conditionJSON.put("conditionIntValue2", value2);
+        conditionJSON.put("conditionStringValue", stringValue);
+        return conditionJSON;
+    }
+}
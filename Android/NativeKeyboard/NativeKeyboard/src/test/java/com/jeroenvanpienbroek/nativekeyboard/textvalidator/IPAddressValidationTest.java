@@ -0,0 +1,96 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IPAddressValidationTest
+{
+    @Test
+    public void ipv4AddressesAreAccepted()
+    {
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS, "192.168.0.1");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS, "255.255.255.255");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS, "10.");
+    }
+
+    @Test
+    public void ipv4ModeRejectsIpv6Characters()
+    {
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS, "fe80::1", "801");
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS, "::ffff:1.2.3.4", "1.2.3.4");
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS, "1234", "123"); //Max 3 digits per section
+    }
+
+    @Test
+    public void ipv4ModeLimitsDots()
+    {
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS, ".1", "1"); //Don't start with dot
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS, "1..2", "1.2");
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS, "1.2.3.4.5", "1.2.3.45");
+    }
+
+    @Test
+    public void ipv6AddressesAreAccepted()
+    {
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "2001:0db8:85a3:0000:0000:8a2e:0370:7334");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "fe80::1");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::1");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "1:2:3:4:5:6:7::");
+    }
+
+    @Test
+    public void ipv6ModeAcceptsEmbeddedIpv4Address()
+    {
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::ffff:1.2.3.4");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::ffff:192.168.100.200");
+        assertValid(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "1:2:3:4:5:6:1.2.3.4");
+
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::ffff:1.2.3.4.5", "::ffff:1.2.3.45"); //Max 4 IPv4 sections
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::ffff:1.2:3", "::ffff:1.23"); //No colons after the IPv4 address
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::ffff:1.a", "::ffff:1."); //No hexadecimal letters in the IPv4 address
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::ab.1", "::ab1"); //Hexadecimal section can't become an IPv4 section
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "::1234.1", "::1234"); //Too many digits for an IPv4 section
+    }
+
+    @Test
+    public void ipv6ModeRejectsPlainIpv4Address()
+    {
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "1.2.3.4", "1234");
+    }
+
+    @Test
+    public void ipv6ModeLimitsSections()
+    {
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "12345", "1234"); //Max 4 hexadecimal digits per section
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "1::2::3", "1::2:3"); //Only one "::" allowed
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, ":::", "::");
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, ":1", ":"); //A leading colon can only be followed by a colon
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:89"); //Max 8 sections
+        assertValidated(NativeKeyboard.CharacterValidation.IP_ADDRESS_V6, "fg", "f");
+    }
+
+    private static void assertValid(NativeKeyboard.CharacterValidation validation, String text)
+    {
+        assertValidated(validation, text, text);
+    }
+
+    /** Validates given text as if it was typed character by character and compares the result */
+    private static void assertValidated(NativeKeyboard.CharacterValidation validation, String text, String expected)
+    {
+        TextValidator textValidator = new TextValidator();
+        textValidator.setValidation(validation);
+        textValidator.setLineType(NativeKeyboard.LineType.SINGLE_LINE);
+
+        textValidator.validate("", text, 0, -1);
+        assertEquals(expected, textValidator.getResultText());
+    }
+}
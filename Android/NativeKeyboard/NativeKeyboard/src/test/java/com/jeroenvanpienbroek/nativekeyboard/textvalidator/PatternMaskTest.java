@@ -0,0 +1,141 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import android.text.Spanned;
+
+import com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PatternMaskTest
+{
+    /** Spanned text without spans, so the input filter path can run without the Android framework */
+    private static class PlainSpanned implements Spanned
+    {
+        private String text;
+
+        PlainSpanned(String text) { this.text = text; }
+
+        @Override public int length() { return text.length(); }
+        @Override public char charAt(int index) { return text.charAt(index); }
+        @Override public CharSequence subSequence(int start, int end) { return text.subSequence(start, end); }
+        @Override public String toString() { return text; }
+
+        @SuppressWarnings("unchecked")
+        @Override public <T> T[] getSpans(int start, int end, Class<T> type) { return (T[])java.lang.reflect.Array.newInstance(type, 0); }
+        @Override public int getSpanStart(Object tag) { return -1; }
+        @Override public int getSpanEnd(Object tag) { return -1; }
+        @Override public int getSpanFlags(Object tag) { return 0; }
+        @SuppressWarnings("rawtypes") //Spanned declares the raw type
+        @Override public int nextSpanTransition(int start, int limit, Class type) { return limit; }
+    }
+
+    @Test
+    public void compiledMasksAreCached()
+    {
+        assertSame(PatternMask.compile("##-##"), PatternMask.compile("##-##"));
+        assertNull(PatternMask.compile(""));
+        assertNull(PatternMask.compile(null));
+    }
+
+    @Test
+    public void characterClasses()
+    {
+        PatternMask patternMask = PatternMask.compile("#LUl*?");
+        assertEquals(6, patternMask.getLength());
+
+        assertEquals('5', patternMask.transition(0, '5'));
+        assertEquals(0, patternMask.transition(0, 'a'));
+        assertEquals('b', patternMask.transition(1, 'b'));
+        assertEquals(0, patternMask.transition(1, '1'));
+        assertEquals('C', patternMask.transition(2, 'c'));
+        assertEquals('d', patternMask.transition(3, 'D'));
+        assertEquals('7', patternMask.transition(4, '7'));
+        assertEquals(0, patternMask.transition(4, '-'));
+        assertEquals('-', patternMask.transition(5, '-'));
+        assertEquals(0, patternMask.transition(6, '1')); //Past the end of the mask
+    }
+
+    @Test
+    public void escapedCharactersAreLiterals()
+    {
+        PatternMask patternMask = PatternMask.compile("\\##");
+        assertEquals(2, patternMask.getLength());
+        assertEquals('#', patternMask.getLiteral(0));
+        assertEquals(0, patternMask.transition(0, '1'));
+        assertEquals('1', patternMask.transition(1, '1'));
+    }
+
+    @Test
+    public void literalsAreInsertedBeforeAcceptedCharacter()
+    {
+        PatternMask patternMask = PatternMask.compile("(##) ##");
+        assertEquals(1, patternMask.getLiteralInsertCount(0, '1'));
+        assertEquals(2, patternMask.getLiteralInsertCount(3, '1'));
+        assertEquals(0, patternMask.getLiteralInsertCount(3, 'a'));
+        assertEquals(0, patternMask.getLiteralInsertCount(1, '1')); //Not at a literal
+    }
+
+    @Test
+    public void typedTextGetsMasked()
+    {
+        TextValidator textValidator = createTextValidator("####-####");
+        textValidator.validate("", "12345678", 0, -1);
+        assertEquals("1234-5678", textValidator.getResultText());
+
+        textValidator.validate("", "1234-56789", 0, -1);
+        assertEquals("1234-5678", textValidator.getResultText()); //Characters past the end of the mask are dropped
+    }
+
+    @Test
+    public void insertionInMiddleShiftsTailThroughMask()
+    {
+        TextValidator textValidator = createTextValidator("###-###");
+
+        CharSequence result = textValidator.validateReplacement("9", 0, 1, new PlainSpanned("123-456"), 1, 1);
+        assertNull(result); //The insertion itself is valid
+        assertTrue(textValidator.isFullValidationRequired());
+
+        textValidator.validate("", "1923-456", 0, -1); //The full validation that follows the change
+        assertEquals("192-345", textValidator.getResultText());
+    }
+
+    @Test
+    public void deletionInMiddleShiftsTailThroughMask()
+    {
+        TextValidator textValidator = createTextValidator("###-###");
+
+        assertNull(textValidator.validateReplacement("", 0, 0, new PlainSpanned("123-456"), 2, 3));
+        assertTrue(textValidator.isFullValidationRequired());
+
+        textValidator.validate("", "12-456", 0, -1);
+        assertEquals("124-56", textValidator.getResultText());
+    }
+
+    @Test
+    public void appendingDoesNotRequireFullValidation()
+    {
+        TextValidator textValidator = createTextValidator("###-###");
+        assertNull(textValidator.validateReplacement("4", 0, 1, new PlainSpanned("123-"), 4, 4));
+        assertFalse(textValidator.isFullValidationRequired());
+    }
+
+    private static TextValidator createTextValidator(String mask)
+    {
+        TextValidator textValidator = new TextValidator();
+        textValidator.setValidation(NativeKeyboard.CharacterValidation.PATTERN_MASK);
+        textValidator.setLineType(NativeKeyboard.LineType.SINGLE_LINE);
+        textValidator.setPatternMask(PatternMask.compile(mask));
+        return textValidator;
+    }
+}
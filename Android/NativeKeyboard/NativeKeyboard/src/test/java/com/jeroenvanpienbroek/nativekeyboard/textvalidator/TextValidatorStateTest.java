@@ -0,0 +1,93 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TextValidatorStateTest
+{
+    private TextValidatorState state;
+
+    @Before
+    public void setUp()
+    {
+        state = new TextValidatorState();
+    }
+
+    @Test
+    public void tracksSeenCharacters()
+    {
+        sync("o'neil@mail.com");
+        assertTrue(state.hasAt);
+        assertTrue(state.hasPoint);
+        assertTrue(state.hasApostrophe);
+        assertFalse(state.hasComma);
+        assertEquals('m', state.lastChar);
+        assertEquals(15, state.length);
+    }
+
+    @Test
+    public void tracksSections()
+    {
+        sync("fe80::1:ab");
+        assertEquals(3, state.colonCount);
+        assertTrue(state.hasDoubleColon);
+        assertEquals(2, state.digitsInSection);
+        assertTrue(state.sectionHasHexLetter);
+
+        sync("fe80::1:ab:1.25");
+        assertEquals(1, state.dotCount);
+        assertEquals(2, state.digitsInSection);
+        assertFalse(state.sectionHasHexLetter);
+    }
+
+    @Test
+    public void onlyProcessesAddedCharacters()
+    {
+        char[] text = "1.2".toCharArray();
+        state.sync(text, 1);
+        assertEquals(1, state.length);
+        assertEquals(0, state.dotCount);
+
+        text[0] = '.'; //Characters that are already included don't get processed again
+        state.sync(text, 3);
+        assertEquals(3, state.length);
+        assertEquals(1, state.dotCount);
+        assertEquals(1, state.digitsInSection);
+    }
+
+    @Test
+    public void startsOverWhenTextGotShorter()
+    {
+        sync("1.2.3");
+        sync("1:");
+        assertEquals(2, state.length);
+        assertEquals(0, state.dotCount);
+        assertEquals(1, state.colonCount);
+        assertFalse(state.hasPoint);
+    }
+
+    @Test
+    public void resetClearsState()
+    {
+        sync("a::b@c,d.e'");
+        state.reset();
+        assertEquals(0, state.length);
+        assertEquals(0, state.lastChar);
+        assertFalse(state.hasAt || state.hasPoint || state.hasComma || state.hasApostrophe || state.hasDoubleColon || state.sectionHasHexLetter);
+        assertEquals(0, state.dotCount + state.colonCount + state.digitsInSection);
+    }
+
+    private void sync(String text)
+    {
+        state.sync(text.toCharArray(), text.length());
+    }
+}
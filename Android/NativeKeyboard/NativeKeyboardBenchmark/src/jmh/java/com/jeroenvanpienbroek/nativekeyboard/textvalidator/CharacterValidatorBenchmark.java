@@ -0,0 +1,134 @@
+//-----------------------------------------
+//			Advanced Input Field
+// Copyright (c) 2017 Jeroen van Pienbroek
+//------------------------------------------
+
+package com.jeroenvanpienbroek.nativekeyboard.textvalidator;
+
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterCondition.CharacterConditionOperator;
+import com.jeroenvanpienbroek.nativekeyboard.textvalidator.CharacterRule.CharacterAction;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Compares the declaration order with adaptive ordering on the validators bundled with the Unity package */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharacterValidatorBenchmark
+{
+    private static final String TEXT = "Quarterly report (final) v2.txt";
+    private static final int TEXT_LENGTH = 31;
+
+    @Param({ "FileNameValidator", "ASCIILettersValidator", "HexadecimalValidator" })
+    public String validatorName;
+
+    @Param({ "false", "true" })
+    public boolean adaptiveOrdering;
+
+    private CharacterValidator validator;
+    private char[] text;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        validator = new CharacterValidator(createBundledValidator(validatorName));
+        validator.setAdaptiveOrdering(adaptiveOrdering);
+        text = TEXT.toCharArray();
+    }
+
+    /** Validates each character of the text at its own position, like a full validation of that text */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public void validateText(Blackhole blackhole)
+    {
+        int length = text.length;
+        for(int i = 0; i < length; i++)
+        {
+            blackhole.consume(validator.validate(text[i], text, length, i, -1));
+        }
+    }
+
+    /** Creates the validators of Assets/AdvancedInputField/Prefabs/CharacterValidation */
+    private static JSONObject createBundledValidator(String name) throws Exception
+    {
+        switch(name)
+        {
+            case "FileNameValidator":
+                return createValidator(CharacterAction.BLOCK, '-',
+                        createRule(CharacterAction.BLOCK, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 32, 122, "<>:\"|?*/\\")),
+                        createRule(CharacterAction.BLOCK, 0, createCondition(CharacterConditionOperator.VALUE_EQUALS, 46, 122, ""),
+                                createCondition(CharacterConditionOperator.OCCURENCES_GREATER_THAN_OR_EQUALS, 46, 0, "")),
+                        createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 32, 122, "")));
+            case "ASCIILettersValidator":
+                return createValidator(CharacterAction.BLOCK, '-',
+                        createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 65, 90, "")),
+                        createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 97, 122, "")),
+                        createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_BETWEEN_INCLUSIVE, 128, 165, "")));
+            case "HexadecimalValidator":
+                return createValidator(CharacterAction.BLOCK, '-',
+                        createRule(CharacterAction.ALLOW, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 60, 0, "0123456789ABCDEF")),
+                        createRule(CharacterAction.TO_UPPERCASE, 0, createCondition(CharacterConditionOperator.VALUE_IN_STRING, 0, 0, "abcdef")));
+        }
+
+        throw new IllegalArgumentException("Unknown validator: " + name);
+    }
+
+    private static JSONObject createValidator(CharacterAction otherCharacterAction, int otherCharacterActionIntValue, JSONObject... rules) throws Exception
+    {
+        JSONArray rulesJSON = new JSONArray();
+        for(JSONObject rule: rules)
+        {
+            rulesJSON.put(rule);
+        }
+
+        JSONObject validatorJSON = new JSONObject();
+        validatorJSON.put("rules", rulesJSON);
+        validatorJSON.put("otherCharacterAction", otherCharacterAction.ordinal());
+        validatorJSON.put("otherCharacterActionIntValue", otherCharacterActionIntValue);
+        return validatorJSON;
+    }
+
+    private static JSONObject createRule(CharacterAction action, int actionIntValue, JSONObject... conditions) throws Exception
+    {
+        JSONArray conditionsJSON = new JSONArray();
+        for(JSONObject condition: conditions)
+        {
+            conditionsJSON.put(condition);
+        }
+
+        JSONObject ruleJSON = new JSONObject();
+        ruleJSON.put("conditions", conditionsJSON);
+        ruleJSON.put("action", action.ordinal());
+        ruleJSON.put("actionIntValue", actionIntValue);
+        return ruleJSON;
+    }
+
+    private static JSONObject createCondition(CharacterConditionOperator operator, int value1, int value2, String stringValue) throws Exception
+    {
+        JSONObject conditionJSON = new JSONObject();
+        conditionJSON.put("conditionOperator", operator.ordinal());
+        conditionJSON.put("conditionIntValue1", value1);
+        conditionJSON.put("conditionIntValue2", value2);
+        conditionJSON.put("conditionStringValue", stringValue);
+        return conditionJSON;
+    }
+}
@@ -63,7 +63,9 @@ namespace AdvancedInputFieldPlugin.Editor
 		private SerializedProperty keyboardTypeProperty;
 		private SerializedProperty characterValidationProperty;
 		private SerializedProperty characterValidatorProperty;
+		private SerializedProperty patternMaskProperty;
 		private SerializedProperty emojisAllowedProperty;
+		private SerializedProperty emojiFilterModeProperty;
 		private SerializedProperty richTextBindingsAllowedProperty;
 
 		private static bool processingFoldout;
@@ -128,7 +130,9 @@ namespace AdvancedInputFieldPlugin.Editor
 			keyboardTypeProperty = serializedObject.FindProperty("keyboardType");
 			characterValidationProperty = serializedObject.FindProperty("characterValidation");
 			characterValidatorProperty = serializedObject.FindProperty("characterValidator");
+			patternMaskProperty = serializedObject.FindProperty("patternMask");
 			emojisAllowedProperty = serializedObject.FindProperty("emojisAllowed");
+			emojiFilterModeProperty = serializedObject.FindProperty("emojiFilterMode");
 			richTextBindingsAllowedProperty = serializedObject.FindProperty("richTextBindingsAllowed");
 			liveProcessingFilterProperty = serializedObject.FindProperty("liveProcessingFilter");
 			liveDecorationFilterProperty = serializedObject.FindProperty("liveDecorationFilter");
@@ -371,6 +375,10 @@ namespace AdvancedInputFieldPlugin.Editor
 				}
 
 				EditorGUILayout.PropertyField(emojisAllowedProperty, new GUIContent("Emojis Allowed"));
+				if(!emojisAllowedProperty.boolValue)
+				{
+					EditorGUILayout.PropertyField(emojiFilterModeProperty);
+				}
 				EditorGUILayout.PropertyField(richTextBindingsAllowedProperty, new GUIContent("Rich Text Bindings Allowed"));
 				DrawCharacterLimitProperty(inputField);
 				DrawLineLimitProperty(inputField);
@@ -445,6 +453,10 @@ namespace AdvancedInputFieldPlugin.Editor
 				{
 					EditorGUILayout.PropertyField(characterValidatorProperty);
 				}
+				else if(((CharacterValidation)characterValidationProperty.enumValueIndex) == CharacterValidation.PATTERN_MASK)
+				{
+					EditorGUILayout.PropertyField(patternMaskProperty);
+				}
 			}
 			EditorGUI.indentLevel = 0;
 		}
@@ -45,7 +45,7 @@ namespace AdvancedInputFieldPlugin
 	public enum InputFieldMode { SCROLL_TEXT, HORIZONTAL_RESIZE_FIT_TEXT, VERTICAL_RESIZE_FIT_TEXT }
 
 	/// <summary>Configuration preset for the content of this InputField</summary>
-	public enum ContentType { STANDARD, AUTOCORRECTED, INTEGER_NUMBER, DECIMAL_NUMBER, ALPHANUMERIC, NAME, EMAIL_ADDRESS, PASSWORD, PIN, CUSTOM, IP_ADDRESS, SENTENCE, DECIMAL_NUMBER_FORCE_POINT }
+	public enum ContentType { STANDARD, AUTOCORRECTED, INTEGER_NUMBER, DECIMAL_NUMBER, ALPHANUMERIC, NAME, EMAIL_ADDRESS, PASSWORD, PIN, CUSTOM, IP_ADDRESS, SENTENCE, DECIMAL_NUMBER_FORCE_POINT, IP_ADDRESS_V6 }
 
 	/// <summary>The type of input</summary>
 	public enum InputType { STANDARD, AUTOCORRECT, PASSWORD }
@@ -54,7 +54,16 @@ namespace AdvancedInputFieldPlugin
 	public enum KeyboardType { DEFAULT, ASCII_CAPABLE, DECIMAL_PAD, URL, NUMBER_PAD, PHONE_PAD, EMAIL_ADDRESS, NUMBERS_AND_PUNCTUATION }
 
 	/// <summary>The validation to use for the text</summary>
-	public enum CharacterValidation { NONE, INTEGER, DECIMAL, ALPHANUMERIC, NAME, EMAIL_ADDRESS, IP_ADDRESS, SENTENCE, CUSTOM, DECIMAL_FORCE_POINT }
+	public enum CharacterValidation { NONE, INTEGER, DECIMAL, ALPHANUMERIC, NAME, EMAIL_ADDRESS, IP_ADDRESS, SENTENCE, CUSTOM, DECIMAL_FORCE_POINT, PATTERN_MASK, IP_ADDRESS_V6 }
+
+	/// <summary>How emojis get excluded by the native keyboard when they're not allowed</summary>
+	public enum EmojiFilterMode
+	{
+		/// <summary>Rejects the whole inserted text when it contains an emoji</summary>
+		REJECT,
+		/// <summary>Removes only the emojis from the inserted text</summary>
+		STRIP
+	}
 
 	/// <summary>The type of line</summary>
 	public enum LineType { SINGLE_LINE, MULTILINE_SUBMIT, MULTILINE_NEWLINE }
@@ -238,17 +247,25 @@ namespace AdvancedInputFieldPlugin
 
 		[Tooltip("The validation to use for the text")]
 		[SerializeField]
-		[EnumOrder(new int[] { 0, 1, 2, 9, 3, 4, 5, 6, 7, 8 })] //Custom should be displayed last
+		[EnumOrder(new int[] { 0, 1, 2, 9, 3, 4, 5, 6, 7, 10, 8 })] //Custom should be displayed last
 		private CharacterValidation characterValidation;
 
 		[Tooltip("The custom character validator to use for the text")]
 		[SerializeField]
 		private CharacterValidator characterValidator;
 
+		[Tooltip("The pattern mask to use for the text, like \"#### #### #### ####\" ('#' digit, 'L' letter, 'U' uppercase letter, 'l' lowercase letter, '*' letter or digit, '?' any character, '\\' escape, other characters are literals)")]
+		[SerializeField]
+		private string patternMask;
+
 		[Tooltip("Indicates whether emojis should be allowed, requires TextMeshPro Text Renderers")]
 		[SerializeField]
 		private bool emojisAllowed;
 
+		[Tooltip("How the native keyboard excludes emojis when they're not allowed (currently Android only)")]
+		[SerializeField]
+		private EmojiFilterMode emojiFilterMode;
+
 		[Tooltip("Indicates whether rich text bindings should be allowed")]
 		[SerializeField]
 		private bool richTextBindingsAllowed;
@@ -751,6 +768,17 @@ namespace AdvancedInputFieldPlugin
 			}
 		}
 
+		/// <summary>The pattern mask to use for the text, literal separators get inserted automatically</summary>
+		public string PatternMask
+		{
+			get { return patternMask; }
+			set
+			{
+				patternMask = value;
+				Engine.UpdateSettings();
+			}
+		}
+
 		/// <summary>Indicates whether emojis should be allowed</summary>
 		public bool EmojisAllowed
 		{
@@ -769,6 +797,17 @@ namespace AdvancedInputFieldPlugin
 			}
 		}
 
+		/// <summary>How the native keyboard excludes emojis when they're not allowed (currently Android only)</summary>
+		public EmojiFilterMode EmojiFilterMode
+		{
+			get { return emojiFilterMode; }
+			set
+			{
+				emojiFilterMode = value;
+				Engine.UpdateSettings();
+			}
+		}
+
 		/// <summary>Indicates whether rich text bindings should be allowed</summary>
 		public bool RichTextBindingsAllowed
 		{
@@ -1986,6 +2025,14 @@ namespace AdvancedInputFieldPlugin
 						characterValidation = CharacterValidation.IP_ADDRESS;
 						break;
 					}
+				case ContentType.IP_ADDRESS_V6:
+					{
+						lineType = LineType.SINGLE_LINE;
+						inputType = InputType.STANDARD;
+						keyboardType = KeyboardType.ASCII_CAPABLE;
+						characterValidation = CharacterValidation.IP_ADDRESS_V6;
+						break;
+					}
 				case ContentType.SENTENCE:
 					{
 						lineType = LineType.MULTILINE_NEWLINE;
@@ -1592,6 +1592,7 @@ namespace AdvancedInputFieldPlugin
 				secure = InputField.Secure,
 				richTextEditing = InputField.RichTextEditing,
 				emojisAllowed = InputField.EmojisAllowed,
+				emojiFilterMode = InputField.EmojiFilterMode,
 				hasNext = InputField.HasNext,
 				characterLimit = InputField.CharacterLimit
 			};
@@ -1602,11 +1603,16 @@ namespace AdvancedInputFieldPlugin
 				characterValidatorJSON = JsonUtility.ToJson(InputField.CharacterValidator);
 			}
 			configuration.characterValidatorJSON = characterValidatorJSON;
+			configuration.patternMask = (InputField.CharacterValidation == CharacterValidation.PATTERN_MASK) ? InputField.PatternMask : null;
 
 #if !UNITY_EDITOR
 			KeyboardClient.Keyboard.State = KeyboardState.PENDING_SHOW;
 #endif
 			KeyboardClient.ShowKeyboard(text, selectionStartPosition, selectionEndPosition, configuration);
+			if(InputField.ShouldUseRichText && InputField.RichTextEditing) //Showing the keyboard clears the native formatting
+			{
+				KeyboardClient.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition, richTextProcessor.BuildTextStyleRuns());
+			}
 		}
 
 		public void CloseKeyboard()
@@ -1673,7 +1679,10 @@ namespace AdvancedInputFieldPlugin
 			eventHandler?.InvokeEndEdit(text, endEditReason);
 		}
 
-		internal void ApplyTextEditFrame(TextEditFrame textEditFrame)
+		/// <summary>Applies a text edit</summary>
+		/// <param name="textEditFrame">The text edit to apply</param>
+		/// <param name="textStyleRuns">The formatting of the text as style runs when the native keyboard keeps it (rich text editing mode on Android)</param>
+		internal void ApplyTextEditFrame(TextEditFrame textEditFrame, int[] textStyleRuns = null)
 		{
 			if(InputField.LineLimit > 0 && !InputField.ShouldUseRichText)
 			{
@@ -1690,6 +1699,10 @@ namespace AdvancedInputFieldPlugin
 				if(processedFrame.text != textEditFrame.text || processedFrame.selectionStartPosition != textEditFrame.selectionStartPosition
 					|| processedFrame.selectionEndPosition != textEditFrame.selectionEndPosition)
 				{
+					if(processedFrame.text != textEditFrame.text)
+					{
+						textStyleRuns = null; //The style runs belong to the text of the native keyboard
+					}
 					textEditFrame = processedFrame;
 					textDirty = true;
 					selectionDirty = true;
@@ -1717,7 +1730,16 @@ namespace AdvancedInputFieldPlugin
 
 			if(InputField.ShouldUseRichText)
 			{
-				TextEditFrame richTextEditFrame = richTextProcessor.ProcessTextEditFrame(textEditFrame);
+				TextEditFrame richTextEditFrame;
+				if(textStyleRuns != null) //The native keyboard kept the formatting, so no need to derive it from the text change
+				{
+					richTextEditFrame = richTextProcessor.ProcessTextEditFrame(textEditFrame, textStyleRuns);
+				}
+				else
+				{
+					richTextEditFrame = richTextProcessor.ProcessTextEditFrame(textEditFrame);
+				}
+
 				if(InputField.LineLimit > 0)
 				{
 					if(ApplyLineLimit(textEditFrame, out TextEditFrame resultTextEditFrame))
@@ -1733,6 +1755,17 @@ namespace AdvancedInputFieldPlugin
 			lastTextEditFrame = textEditFrame;
 		}
 
+		/// <summary>Applies the character validation to a text edit of a native keyboard that can't apply it itself</summary>
+		/// <param name="textEditFrame">The text edit of the native keyboard, replaced by the validated text edit</param>
+		internal void ValidateTextEdit(ref TextEditFrame textEditFrame)
+		{
+			if(textManipulator.ValidateTextEdit(ref textEditFrame))
+			{
+				textDirty = true;
+				selectionDirty = true; //Syncs the validated text back to the native keyboard
+			}
+		}
+
 		internal void ApplyRichTextEditFrame(TextEditFrame richTextEditFrame)
 		{
 			if(InputField.LiveProcessing)
@@ -1811,19 +1844,26 @@ namespace AdvancedInputFieldPlugin
 			{
 				if(selected)
 				{
+					int[] textStyleRuns = null;
+					if(InputField.ShouldUseRichText && InputField.RichTextEditing)
+					{
+						textStyleRuns = richTextProcessor.BuildTextStyleRuns();
+					}
+
 					TextEditFrame? lastNativeTextEditFrame = keyboardClient.LastTextEditFrame;
 					if(lastNativeTextEditFrame == null)
 					{
-						keyboardClient.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition); //Sync state with native code
+						UpdateNativeTextEdit(textStyleRuns); //Sync state with native code
 					}
 					else
 					{
 						TextEditFrame lastNativeFrame = lastNativeTextEditFrame.Value;
 						if(lastNativeFrame.text != text
 							|| lastNativeFrame.selectionStartPosition != selectionStartPosition
-							|| lastNativeFrame.selectionEndPosition != selectionEndPosition)
+							|| lastNativeFrame.selectionEndPosition != selectionEndPosition
+							|| (textStyleRuns != null && !keyboardClient.HasSameTextStyleRuns(textStyleRuns)))
 						{
-							keyboardClient.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition); //Sync state with native code
+							UpdateNativeTextEdit(textStyleRuns); //Sync state with native code
 						}
 					}
 				}
@@ -1847,6 +1887,19 @@ namespace AdvancedInputFieldPlugin
 			}
 		}
 
+		/// <summary>Sends the text and selection to the native keyboard, with the formatting as style runs in rich text editing mode</summary>
+		private void UpdateNativeTextEdit(int[] textStyleRuns)
+		{
+			if(textStyleRuns != null)
+			{
+				keyboardClient.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition, textStyleRuns);
+			}
+			else
+			{
+				keyboardClient.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition);
+			}
+		}
+
 		/// <summary>Checks if a CanvasFrontRenderer is selected</summary>
 		/// <returns>true if CanvasFrontRenderer is selected</returns>
 		internal bool IsCanvasFrontRendererSelected()
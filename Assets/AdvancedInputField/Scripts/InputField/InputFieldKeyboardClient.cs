@@ -7,28 +7,61 @@ namespace AdvancedInputFieldPlugin
 	{
 		public InputFieldEngine Engine { get; private set; }
 		public TextEditFrame? LastTextEditFrame { get; private set; }
+		public int[] LastTextStyleRuns { get; private set; }
 
 		public void Initialize(InputFieldEngine engine)
 		{
 			Engine = engine;
 			LastTextEditFrame = null;
+			LastTextStyleRuns = null;
 		}
 
 		public void ClearLastTextEditFrame()
 		{
 			LastTextEditFrame = null;
+			LastTextStyleRuns = null;
 		}
 
 		public override void UpdateTextEdit(string text, int selectionStartPosition, int selectionEndPosition)
 		{
 			base.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition);
 			LastTextEditFrame = new TextEditFrame(text, selectionStartPosition, selectionEndPosition);
+			LastTextStyleRuns = null;
+		}
+
+		public override void UpdateTextEdit(string text, int selectionStartPosition, int selectionEndPosition, int[] textStyleRuns)
+		{
+			base.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition, textStyleRuns);
+			LastTextEditFrame = new TextEditFrame(text, selectionStartPosition, selectionEndPosition);
+			LastTextStyleRuns = textStyleRuns;
+		}
+
+		/// <summary>Checks whether given style runs are the same as the last style runs exchanged with the native keyboard</summary>
+		public bool HasSameTextStyleRuns(int[] textStyleRuns)
+		{
+			if(textStyleRuns == null || LastTextStyleRuns == null) { return (textStyleRuns == LastTextStyleRuns); }
+
+			int length = textStyleRuns.Length;
+			if(length != LastTextStyleRuns.Length) { return false; }
+
+			for(int i = 0; i < length; i++)
+			{
+				if(textStyleRuns[i] != LastTextStyleRuns[i]) { return false; }
+			}
+
+			return true;
 		}
 
 		public override void OnTextEditUpdate(NativeKeyboardEvent keyboardEvent)
 		{
-			LastTextEditFrame = keyboardEvent.textEditFrame;
-			Engine.ApplyTextEditFrame(keyboardEvent.textEditFrame);
+			TextEditFrame textEditFrame = keyboardEvent.textEditFrame;
+			LastTextEditFrame = textEditFrame;
+			LastTextStyleRuns = keyboardEvent.textStyleRuns;
+			if(!Keyboard.SupportsCharacterValidation(Engine.InputField.CharacterValidation))
+			{
+				Engine.ValidateTextEdit(ref textEditFrame);
+			}
+			Engine.ApplyTextEditFrame(textEditFrame, keyboardEvent.textStyleRuns);
 		}
 
 		public override void OnDone(NativeKeyboardEvent keyboardEvent)
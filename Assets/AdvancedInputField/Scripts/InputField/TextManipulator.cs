@@ -58,12 +58,12 @@ namespace AdvancedInputFieldPlugin
 			TextNavigator = textNavigator;
 			TextRenderer = textRenderer;
 			ProcessedTextRenderer = processedTextRenderer;
-			textValidator = new TextValidator(InputField.CharacterValidation, InputField.LineType, InputField.CharacterValidator);
+			textValidator = new TextValidator(InputField.CharacterValidation, InputField.LineType, InputField.CharacterValidator, PatternMask.Compile(InputField.PatternMask));
 		}
 
 		internal void RefreshTextValidator()
 		{
-			textValidator = new TextValidator(InputField.CharacterValidation, InputField.LineType, InputField.CharacterValidator);
+			textValidator = new TextValidator(InputField.CharacterValidation, InputField.LineType, InputField.CharacterValidator, PatternMask.Compile(InputField.PatternMask));
 		}
 
 		/// <summary>Begins the edit mode</summary>
@@ -176,6 +176,34 @@ namespace AdvancedInputFieldPlugin
 			Engine.ApplyTextEditFrame(textEditFrame);
 		}
 
+		/// <summary>Validates a whole text edit with the character validation</summary>
+		/// <param name="textEditFrame">The text edit to validate, replaced when the validation changed it</param>
+		/// <returns>true if the text edit changed</returns>
+		internal bool ValidateTextEdit(ref TextEditFrame textEditFrame)
+		{
+			string text = textEditFrame.text;
+			textValidator.Validate(string.Empty, text, 0, -1);
+			string resultText = textValidator.ResultText;
+			if(resultText == text)
+			{
+				return false;
+			}
+
+			//Each character is validated by the text before it only, so the validated text before a position is a prefix of the validated text
+			int selectionStartPosition = GetValidatedPosition(text, textEditFrame.selectionStartPosition);
+			int selectionEndPosition = GetValidatedPosition(text, textEditFrame.selectionEndPosition);
+			textEditFrame = new TextEditFrame(resultText, selectionStartPosition, selectionEndPosition);
+			return true;
+		}
+
+		/// <summary>Determines the position in the validated text of given position in the original text</summary>
+		private int GetValidatedPosition(string text, int position)
+		{
+			position = Mathf.Clamp(position, 0, text.Length);
+			textValidator.Validate(string.Empty, text.Substring(0, position), 0, -1);
+			return textValidator.ResultText.Length;
+		}
+
 		public void ApplyCharacterLimit(ref string text, ref int caretPosition)
 		{
 			if(InputField.CharacterLimit != 0 && text.Length > InputField.CharacterLimit)
@@ -2,10 +2,42 @@
 // Licensed under the MIT License. See LICENSE file in the project root for full license information.
 
 #if !UNITY_EDITOR && UNITY_ANDROID
+using System;
 using UnityEngine;
 
 namespace AdvancedInputFieldPlugin
 {
+	/// <summary>The outcome of a one time code session</summary>
+	public enum OneTimeCodeSessionOutcome
+	{
+		CODE_RECEIVED, NO_CODE_FOUND, CONSENT_DENIED, TIMEOUT, FAILED, CANCELLED
+	}
+
+	/// <summary>The round trips between Unity and the native keyboard that get their latency measured in the stats</summary>
+	public enum LatencyRoundTrip
+	{
+		/// <summary>From ShowKeyboard until OnKeyboardShow</summary>
+		SHOW,
+		/// <summary>From UpdateTextEdit until the native text is updated</summary>
+		TEXT_EDIT_APPLY,
+		/// <summary>From a text change by the keyboard until OnTextEditUpdate</summary>
+		IME_COMMIT,
+		/// <summary>From HideKeyboard until the keyboard height is 0</summary>
+		HIDE
+	}
+
+	/// <summary>The delegate for One Time Code Session Ended event</summary>
+	public delegate void OnOneTimeCodeSessionEndedHandler(OneTimeCodeSessionOutcome outcome);
+
+	/// <summary>The delegate for Composing Region Changed event</summary>
+	public delegate void OnComposingRegionChangedHandler(int composingRegionStart, int composingRegionEnd);
+
+	/// <summary>The delegate for Text Style Runs Changed event</summary>
+	public delegate void OnTextStyleRunsChangedHandler(int[] textStyleRuns);
+
+	/// <summary>The delegate for Stats Update event</summary>
+	public delegate void OnStatsUpdateHandler(string statsJSON);
+
 	/// <summary>Class that acts as a bridge for the Native Android Keyboard</summary>
 	public class AndroidKeyboard: NativeKeyboard
 	{
@@ -15,9 +47,38 @@ namespace AdvancedInputFieldPlugin
 		/// <summary>The proxy Android class</summary>
 		private AndroidKeyboardProxy proxy;
 
+		/// <summary>The event for One Time Code Session Ended</summary>
+		private event OnOneTimeCodeSessionEndedHandler onOneTimeCodeSessionEnded;
+
+		/// <summary>The event for Composing Region Changed</summary>
+		private event OnComposingRegionChangedHandler onComposingRegionChanged;
+
+		/// <summary>The event for Text Style Runs Changed</summary>
+		private event OnTextStyleRunsChangedHandler onTextStyleRunsChanged;
+
+		/// <summary>The event for Stats Update</summary>
+		private event OnStatsUpdateHandler onStatsUpdate;
+
+		/// <summary>The amount of ints per style run: offset, length and style id</summary>
+		public const int TEXT_STYLE_RUN_SIZE = 3;
+
+		/// <summary>The formatting of the text in rich text editing mode as style runs (offset, length and style id for each run), null otherwise</summary>
+		public int[] TextStyleRuns { get; private set; }
+
+		/// <summary>The start of the text the keyboard is composing (provisional text), -1 when not composing</summary>
+		public int ComposingRegionStart { get; private set; }
+
+		/// <summary>The end of the text the keyboard is composing (provisional text), -1 when not composing</summary>
+		public int ComposingRegionEnd { get; private set; }
+
+		/// <summary>Indicates whether the keyboard is composing text that hasn't been committed yet</summary>
+		public bool Composing { get { return (ComposingRegionStart != -1 && ComposingRegionEnd > ComposingRegionStart); } }
+
 		internal override void Setup()
 		{
 			if(ThreadHelper.Instance == null) { ThreadHelper.CreateInstance(); }
+			ComposingRegionStart = -1;
+			ComposingRegionEnd = -1;
 			proxy = new AndroidKeyboardProxy(this);
 			mainClass = new AndroidJavaClass("com.jeroenvanpienbroek.nativekeyboard.NativeKeyboard");
 			mainClass.CallStatic("initialize", proxy);
@@ -48,8 +109,21 @@ namespace AdvancedInputFieldPlugin
 			mainClass.CallStatic("updateTextEdit", text, selectionStartPosition, selectionEndPosition);
 		}
 
+		public override void UpdateTextEdit(string text, int selectionStartPosition, int selectionEndPosition, int[] textStyleRuns)
+		{
+			if(TextStyleRuns == null || textStyleRuns == null) //Not in rich text editing mode
+			{
+				UpdateTextEdit(text, selectionStartPosition, selectionEndPosition);
+				return;
+			}
+
+			TextStyleRuns = (int[])textStyleRuns.Clone();
+			mainClass.CallStatic("updateTextEdit", text, selectionStartPosition, selectionEndPosition, TextStyleRuns);
+		}
+
 		public override void ShowKeyboard(string text, int selectionStartPosition, int selectionEndPosition, NativeKeyboardConfiguration configuration)
 		{
+			TextStyleRuns = configuration.richTextEditing ? new int[0] : null; //Formatting gets sent with the next text edit update
 			string configurationJSON = JsonUtility.ToJson(configuration);
 			mainClass.CallStatic("showKeyboard", text, selectionStartPosition, selectionEndPosition, configurationJSON);
 		}
@@ -78,6 +152,258 @@ namespace AdvancedInputFieldPlugin
 		{ 
 			mainClass.CallStatic("startListeningForOneTimeCodes");
 		}
+
+		/// <summary>Starts listening for one time codes, or restarts the timeout when already listening</summary>
+		/// <param name="timeout">The time (in milliseconds) to wait for an SMS</param>
+		public void StartListeningForOneTimeCodes(int timeout)
+		{
+			mainClass.CallStatic("startListeningForOneTimeCodes", timeout);
+		}
+
+		/// <summary>Stops listening for one time codes</summary>
+		public void StopListeningForOneTimeCodes()
+		{
+			mainClass.CallStatic("stopListeningForOneTimeCodes");
+		}
+
+		/// <summary>Adds a OneTimeCodeSessionEnded listener</summary>
+		/// <param name="listener">The OneTimeCodeSessionEndedListener to add</param>
+		public void AddOneTimeCodeSessionEndedListener(OnOneTimeCodeSessionEndedHandler listener)
+		{
+			onOneTimeCodeSessionEnded += listener;
+		}
+
+		/// <summary>Removes a OneTimeCodeSessionEnded listener</summary>
+		/// <param name="listener">The OneTimeCodeSessionEndedListener to remove</param>
+		public void RemoveOneTimeCodeSessionEndedListener(OnOneTimeCodeSessionEndedHandler listener)
+		{
+			onOneTimeCodeSessionEnded -= listener;
+		}
+
+		/// <summary>Event callback when a special key got pressed multiple times within a frame (held down)</summary>
+		/// <param name="specialKeyCode">The special key that got pressed</param>
+		/// <param name="repeatCount">The amount of times the key got pressed</param>
+		public void OnSpecialKeyRepeated(SpecialKeyCode specialKeyCode, int repeatCount)
+		{
+			for(int i = 0; i < repeatCount; i++)
+			{
+				OnSpecialKeyPressed(specialKeyCode);
+			}
+		}
+
+		/// <summary>Event callback when the text changed, enqueues the text edit update with the style runs it belongs to</summary>
+		public override void OnTextEditUpdate(string text, int selectionStartPosition, int selectionEndPosition)
+		{
+			TextEditFrame textEditFrame = new TextEditFrame(text, selectionStartPosition, selectionEndPosition);
+			NativeKeyboardEvent keyboardEvent = new NativeKeyboardEvent(NativeKeyboardEventType.TEXT_EDIT_UPDATE, textEditFrame);
+			keyboardEvent.textStyleRuns = TextStyleRuns; //Gets replaced instead of modified on each change
+			nativeEventQueue.Enqueue(keyboardEvent);
+		}
+
+		/// <summary>Adds a TextStyleRunsChanged listener</summary>
+		/// <param name="listener">The TextStyleRunsChangedListener to add</param>
+		public void AddTextStyleRunsChangedListener(OnTextStyleRunsChangedHandler listener)
+		{
+			onTextStyleRunsChanged += listener;
+		}
+
+		/// <summary>Removes a TextStyleRunsChanged listener</summary>
+		/// <param name="listener">The TextStyleRunsChangedListener to remove</param>
+		public void RemoveTextStyleRunsChangedListener(OnTextStyleRunsChangedHandler listener)
+		{
+			onTextStyleRunsChanged -= listener;
+		}
+
+		/// <summary>Event callback when the style runs changed, gets called before the text edit update it belongs to</summary>
+		/// <param name="startRun">The index of the first run to replace</param>
+		/// <param name="removedRunCount">The amount of runs to replace</param>
+		/// <param name="offsetShift">The offset change of the runs after the replaced runs</param>
+		/// <param name="runs">The runs to insert</param>
+		public void OnTextStyleRunsChanged(int startRun, int removedRunCount, int offsetShift, int[] runs)
+		{
+			int[] oldRuns = TextStyleRuns;
+			if(oldRuns == null) { return; }
+
+			int oldRunCount = oldRuns.Length / TEXT_STYLE_RUN_SIZE;
+			if(startRun + removedRunCount > oldRunCount) { return; } //Based on runs Unity replaced in the meantime, the next UpdateTextEdit sends all runs again
+
+			int addedRunCount = runs.Length / TEXT_STYLE_RUN_SIZE;
+			int[] newRuns = new int[(oldRunCount - removedRunCount + addedRunCount) * TEXT_STYLE_RUN_SIZE];
+
+			Array.Copy(oldRuns, 0, newRuns, 0, startRun * TEXT_STYLE_RUN_SIZE);
+			Array.Copy(runs, 0, newRuns, startRun * TEXT_STYLE_RUN_SIZE, runs.Length);
+
+			int newIndex = (startRun + addedRunCount) * TEXT_STYLE_RUN_SIZE;
+			for(int i = (startRun + removedRunCount) * TEXT_STYLE_RUN_SIZE; i < oldRuns.Length; i += TEXT_STYLE_RUN_SIZE)
+			{
+				newRuns[newIndex] = oldRuns[i] + offsetShift;
+				newRuns[newIndex + 1] = oldRuns[i + 1];
+				newRuns[newIndex + 2] = oldRuns[i + 2];
+				newIndex += TEXT_STYLE_RUN_SIZE;
+			}
+
+			TextStyleRuns = newRuns;
+
+			if(onTextStyleRunsChanged != null)
+			{
+				onTextStyleRunsChanged.Invoke(newRuns);
+			}
+		}
+
+		/// <summary>Adds a ComposingRegionChanged listener</summary>
+		/// <param name="listener">The ComposingRegionChangedListener to add</param>
+		public void AddComposingRegionChangedListener(OnComposingRegionChangedHandler listener)
+		{
+			onComposingRegionChanged += listener;
+		}
+
+		/// <summary>Removes a ComposingRegionChanged listener</summary>
+		/// <param name="listener">The ComposingRegionChangedListener to remove</param>
+		public void RemoveComposingRegionChangedListener(OnComposingRegionChangedHandler listener)
+		{
+			onComposingRegionChanged -= listener;
+		}
+
+		/// <summary>Event callback when the composing region changed, gets called before the text edit update it belongs to</summary>
+		/// <param name="composingRegionStart">The start of the composing region, -1 when not composing</param>
+		/// <param name="composingRegionEnd">The end of the composing region, -1 when not composing</param>
+		public void OnComposingRegionChanged(int composingRegionStart, int composingRegionEnd)
+		{
+			ComposingRegionStart = composingRegionStart;
+			ComposingRegionEnd = composingRegionEnd;
+
+			if(onComposingRegionChanged != null)
+			{
+				onComposingRegionChanged.Invoke(composingRegionStart, composingRegionEnd);
+			}
+		}
+
+		/// <summary>Event callback when a one time code session has ended</summary>
+		/// <param name="outcome">The outcome of the session</param>
+		public void OnOneTimeCodeSessionEnded(OneTimeCodeSessionOutcome outcome)
+		{
+			if(onOneTimeCodeSessionEnded != null)
+			{
+				onOneTimeCodeSessionEnded.Invoke(outcome);
+			}
+		}
+
+		/// <summary>Configures how keyboard height changes get filtered before they're reported</summary>
+		/// <param name="minDelta">The minimum height difference (in pixels) to report</param>
+		/// <param name="settleTime">The time (in milliseconds) a lower height needs to be stable before it's reported</param>
+		public void SetKeyboardHeightFilter(int minDelta, int settleTime)
+		{
+			mainClass.CallStatic("setKeyboardHeightFilter", minDelta, settleTime);
+		}
+
+		/// <summary>Configures how one time codes get extracted from SMS messages</summary>
+		/// <param name="minLength">The minimum length of a code</param>
+		/// <param name="maxLength">The maximum length of a code</param>
+		/// <param name="alphanumeric">Whether codes can contain letters</param>
+		/// <param name="prefixAnchors">Texts that can precede a code (like "code:"), null or empty to use the defaults</param>
+		/// <param name="suffixAnchors">Texts that can follow a code (like "is your code"), null or empty to use the defaults</param>
+		public void SetOneTimeCodeConfiguration(int minLength, int maxLength, bool alphanumeric, string[] prefixAnchors = null, string[] suffixAnchors = null)
+		{
+			if(prefixAnchors == null) { prefixAnchors = new string[0]; }
+			if(suffixAnchors == null) { suffixAnchors = new string[0]; }
+			mainClass.CallStatic("setOneTimeCodeConfiguration", minLength, maxLength, alphanumeric, prefixAnchors, suffixAnchors);
+		}
+
+		/// <summary>Starts recording the commands to and the events of the native keyboard in a journal, restarts it if already recording</summary>
+		/// <param name="capacity">The size (in bytes) of the ring buffer, 0 to use the default. The oldest records get dropped when it's full</param>
+		public void StartJournal(int capacity = 0)
+		{
+			mainClass.CallStatic("startJournal", capacity);
+		}
+
+		/// <summary>Stops recording the journal, the records are discarded</summary>
+		public void StopJournal()
+		{
+			mainClass.CallStatic("stopJournal");
+		}
+
+		/// <summary>Writes the records of the journal to given file (for example in Application.persistentDataPath)</summary>
+		/// <param name="filePath">The path of the file to write</param>
+		/// <returns>true if the journal was written</returns>
+		public bool DumpJournal(string filePath)
+		{
+			return mainClass.CallStatic<bool>("dumpJournal", filePath);
+		}
+
+		/// <summary>Enables or disables the trace sections, async slices and counters of the native bridge in system traces (Perfetto/systrace)</summary>
+		public void SetTraceEnabled(bool enabled)
+		{
+			mainClass.CallStatic("setTraceEnabled", enabled);
+		}
+
+		/// <summary>Enables or disables recording of the runtime metrics of the native bridge, enabling resets them</summary>
+		public void SetStatsEnabled(bool enabled)
+		{
+			mainClass.CallStatic("setStatsEnabled", enabled);
+		}
+
+		/// <summary>Gets a JSON snapshot of the runtime metrics of the native bridge</summary>
+		public string GetStats()
+		{
+			return mainClass.CallStatic<string>("getStats");
+		}
+
+		/// <summary>Enables or disables the profiling mode of custom character validators, enabling resets the counters</summary>
+		public void SetValidatorProfilingEnabled(bool enabled)
+		{
+			mainClass.CallStatic("setValidatorProfilingEnabled", enabled);
+		}
+
+		/// <summary>Enables or disables adaptive rule ordering of custom character validators: rules that match often get evaluated earlier where that can't change the results</summary>
+		public void SetValidatorAdaptiveOrdering(bool enabled)
+		{
+			mainClass.CallStatic("setValidatorAdaptiveOrdering", enabled);
+		}
+
+		/// <summary>Gets a JSON report with the evaluations, matches and cost of each rule and condition operator of the current custom character validator</summary>
+		public string GetValidatorProfile()
+		{
+			return mainClass.CallStatic<string>("getValidatorProfile");
+		}
+
+		/// <summary>Configures the latency budget of a round trip, samples above it are counted in the stats</summary>
+		/// <param name="roundTrip">The round trip to configure</param>
+		/// <param name="budget">The budget (in microseconds), 0 for no budget</param>
+		public void SetLatencyBudget(LatencyRoundTrip roundTrip, int budget)
+		{
+			mainClass.CallStatic("setLatencyBudget", (int)roundTrip, budget);
+		}
+
+		/// <summary>Configures the interval to push the runtime metrics to the StatsUpdate listeners</summary>
+		/// <param name="interval">The interval (in milliseconds), 0 to stop pushing</param>
+		public void SetStatsPushInterval(int interval)
+		{
+			mainClass.CallStatic("setStatsPushInterval", interval);
+		}
+
+		/// <summary>Adds a StatsUpdate listener</summary>
+		/// <param name="listener">The StatsUpdateListener to add</param>
+		public void AddStatsUpdateListener(OnStatsUpdateHandler listener)
+		{
+			onStatsUpdate += listener;
+		}
+
+		/// <summary>Removes a StatsUpdate listener</summary>
+		/// <param name="listener">The StatsUpdateListener to remove</param>
+		public void RemoveStatsUpdateListener(OnStatsUpdateHandler listener)
+		{
+			onStatsUpdate -= listener;
+		}
+
+		/// <summary>Event callback when the runtime metrics got pushed</summary>
+		/// <param name="statsJSON">The JSON snapshot of the runtime metrics</param>
+		public void OnStatsUpdate(string statsJSON)
+		{
+			if(onStatsUpdate != null)
+			{
+				onStatsUpdate.Invoke(statsJSON);
+			}
+		}
 	}
 }
 #endif
\ No newline at end of file
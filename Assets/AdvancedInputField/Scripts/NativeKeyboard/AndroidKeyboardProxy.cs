@@ -55,6 +55,11 @@ namespace AdvancedInputFieldPlugin
 			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnSpecialKeyPressed((SpecialKeyCode)specialKeyCode); });
 		}
 
+		public void OnSpecialKeyRepeated(int specialKeyCode, int repeatCount)
+		{
+			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnSpecialKeyRepeated((SpecialKeyCode)specialKeyCode, repeatCount); });
+		}
+
 		public void OnKeyboardHeightChanged(int height)
 		{
 			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnKeyboardHeightChanged(height); });
@@ -64,6 +69,27 @@ namespace AdvancedInputFieldPlugin
 		{
 			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnHardwareKeyboardChanged(connected); });
 		}
+
+		public void OnOneTimeCodeSessionEnded(int outcome)
+		{
+			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnOneTimeCodeSessionEnded((OneTimeCodeSessionOutcome)outcome); });
+		}
+
+		public void OnComposingRegionChanged(int composingRegionStart, int composingRegionEnd)
+		{
+			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnComposingRegionChanged(composingRegionStart, composingRegionEnd); });
+		}
+
+		public void OnTextStyleRunsChanged(int startRun, int removedRunCount, int offsetShift, AndroidJavaObject runs)
+		{
+			int[] runValues = AndroidJNIHelper.ConvertFromJNIArray<int[]>(runs.GetRawObject()); //Converted right away, the native array gets reused
+			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnTextStyleRunsChanged(startRun, removedRunCount, offsetShift, runValues); });
+		}
+
+		public void OnStatsUpdate(string statsJSON)
+		{
+			ThreadHelper.ScheduleActionOnUnityThread(() => { keyboard.OnStatsUpdate(statsJSON); });
+		}
 	}
 }
 #endif
\ No newline at end of file
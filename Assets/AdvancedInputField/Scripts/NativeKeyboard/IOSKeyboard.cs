@@ -70,8 +70,19 @@ namespace AdvancedInputFieldPlugin
 			_nativeKeyboard_requestTextEditUpdate();
 		}
 
+		/// <summary>The iOS plugin doesn't support pattern masks and IPv6 yet, the text edits get validated by the input field instead</summary>
+		public override bool SupportsCharacterValidation(CharacterValidation characterValidation)
+		{
+			return (characterValidation != CharacterValidation.PATTERN_MASK && characterValidation != CharacterValidation.IP_ADDRESS_V6);
+		}
+
 		public override void ShowKeyboard(string text, int selectionStartPosition, int selectionEndPosition, NativeKeyboardConfiguration configuration)
 		{
+			if(!SupportsCharacterValidation(configuration.characterValidation))
+			{
+				configuration.characterValidation = CharacterValidation.NONE;
+			}
+
 			string configurationJSON = JsonUtility.ToJson(configuration);
 			_nativeKeyboard_showKeyboard(text, selectionStartPosition, selectionEndPosition, configurationJSON);
 		}
@@ -29,6 +29,11 @@ namespace AdvancedInputFieldPlugin
 			Keyboard.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition);
 		}
 
+		public virtual void UpdateTextEdit(string text, int selectionStartPosition, int selectionEndPosition, int[] textStyleRuns)
+		{
+			Keyboard.UpdateTextEdit(text, selectionStartPosition, selectionEndPosition, textStyleRuns);
+		}
+
 		public virtual void Activate()
 		{
 			enabled = true;
@@ -41,6 +41,8 @@ namespace AdvancedInputFieldPlugin
 		public SpecialKeyCode specialKeyCode;
 		public bool shift;
 		public bool ctrl;
+		/// <summary>The formatting of the text as style runs (offset, length and style id for each run), only set in rich text editing mode on Android</summary>
+		public int[] textStyleRuns;
 
 		public NativeKeyboardEvent(NativeKeyboardEventType type, TextEditFrame textEditFrame = default(TextEditFrame), SpecialKeyCode specialKeyCode = default(SpecialKeyCode), bool shift = false, bool ctrl = false)
 		{
@@ -49,6 +51,7 @@ namespace AdvancedInputFieldPlugin
 			this.specialKeyCode = specialKeyCode;
 			this.shift = shift;
 			this.ctrl = ctrl;
+			this.textStyleRuns = null;
 		}
 	}
 
@@ -182,6 +185,15 @@ namespace AdvancedInputFieldPlugin
 		/// <summary>Updates the native text and selection</summary>
 		public virtual void UpdateTextEdit(string text, int selectionStartPosition, int selectionEndPosition) { }
 
+		/// <summary>Updates the native text and selection with the formatting of the text as style runs (offset, length and style id for each run)</summary>
+		public virtual void UpdateTextEdit(string text, int selectionStartPosition, int selectionEndPosition, int[] textStyleRuns)
+		{
+			UpdateTextEdit(text, selectionStartPosition, selectionEndPosition);
+		}
+
+		/// <summary>Indicates whether the native binding applies given character validation itself</summary>
+		public virtual bool SupportsCharacterValidation(CharacterValidation characterValidation) { return true; }
+
 		/// <summary>Requests a text edit update (after OS autofills a value)</summary>
 		public virtual void RequestTextEditUpdate() { }
 
@@ -204,7 +216,7 @@ namespace AdvancedInputFieldPlugin
 		/// <summary>(Android only) Starts listening for sms messages with one time codes until timeout (5 minutes)</summary>
 		public virtual void StartListeningForOneTimeCodes() { }
 
-		public void OnTextEditUpdate(string text, int selectionStartPosition, int selectionEndPosition)
+		public virtual void OnTextEditUpdate(string text, int selectionStartPosition, int selectionEndPosition)
 		{
 			TextEditFrame textEditFrame = new TextEditFrame(text, selectionStartPosition, selectionEndPosition);
 			nativeEventQueue.Enqueue(new NativeKeyboardEvent(NativeKeyboardEventType.TEXT_EDIT_UPDATE, textEditFrame));
@@ -18,8 +18,10 @@ namespace AdvancedInputFieldPlugin
 		public bool secure;
 		public bool richTextEditing;
 		public bool emojisAllowed;
+		public EmojiFilterMode emojiFilterMode;
 		public bool hasNext;
 		public int characterLimit;
 		public string characterValidatorJSON;
+		public string patternMask;
 	}
 }
@@ -264,6 +264,7 @@ namespace AdvancedInputFieldPlugin
 				JsonUtility.FromJsonOverwrite(configuration.characterValidatorJSON, characterValidator);
 			}
 			textValidator.Validator = characterValidator;
+			textValidator.PatternMask = PatternMask.Compile(configuration.patternMask);
 
 			canvas = GetComponentInParent<Canvas>(); //Update current Canvas
 
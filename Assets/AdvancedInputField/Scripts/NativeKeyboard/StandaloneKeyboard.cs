@@ -77,6 +77,7 @@ namespace AdvancedInputFieldPlugin
 				JsonUtility.FromJsonOverwrite(configuration.characterValidatorJSON, characterValidator);
 			}
 			textValidator.Validator = characterValidator;
+			textValidator.PatternMask = PatternMask.Compile(configuration.patternMask);
 
 			OnKeyboardShow();
 		}
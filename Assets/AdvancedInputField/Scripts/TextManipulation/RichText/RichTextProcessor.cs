@@ -10,6 +10,9 @@ namespace AdvancedInputFieldPlugin
 {
 	public class RichTextProcessor
 	{
+		/// <summary>The amount of ints per style run: offset, length and style id</summary>
+		public const int TEXT_STYLE_RUN_SIZE = 3;
+
 		public RichTextTagInfo[] supportedTags;
 		public bool emojisAllowed;
 		public bool richTextBindingsAllowed;
@@ -19,6 +22,10 @@ namespace AdvancedInputFieldPlugin
 
 		private List<TextRegion> textRegions;
 		private StringBuilder stringBuilder;
+
+		/// <summary>The tags of each style id in the style runs of the native keyboard (style id 0 has no tags)</summary>
+		private List<RichTextRegion> textStyles;
+		private Dictionary<string, int> textStyleIds;
 		public string RichText { get { return LastRichTextEditFrame.text; } }
 		public string Text { get { return LastTextEditFrame.text; } }
 		public List<TextRegion> TextRegions { get { return textRegions; } }
@@ -30,11 +37,13 @@ namespace AdvancedInputFieldPlugin
 			this.richTextBindingsAllowed = richTextBindingsAllowed;
 			this.textRegions = new List<TextRegion>();
 			this.stringBuilder = new StringBuilder();
+			this.textStyles = new List<RichTextRegion>();
+			this.textStyles.Add(new RichTextRegion(string.Empty));
+			this.textStyleIds = new Dictionary<string, int>();
 		}
 
 		public void SetupRichText(string richText)
 		{
-			textRegions.Clear();
 			List<RichTextRegion> richTextRegions = ParseRichTextRegions(richText);
 			List<TextRegion> parsedTextRegions = new List<TextRegion>();
 
@@ -50,7 +59,20 @@ namespace AdvancedInputFieldPlugin
 				}
 			}
 
-			length = parsedTextRegions.Count;
+			MergeTextRegions(parsedTextRegions);
+
+			string resultRichText = RebuildRichTextString();
+			string resultText = RebuildTextString();
+			LastRichTextEditFrame = new TextEditFrame(resultRichText, 0, 0);
+			LastTextEditFrame = new TextEditFrame(resultText, 0, 0);
+		}
+
+		/// <summary>Replaces the text regions with given parsed text regions, merging the consecutive regions that aren't symbols</summary>
+		private void MergeTextRegions(List<TextRegion> parsedTextRegions)
+		{
+			textRegions.Clear();
+
+			int length = parsedTextRegions.Count;
 			if(length == 1)
 			{
 				textRegions.Add(parsedTextRegions[0]);
@@ -87,11 +109,6 @@ namespace AdvancedInputFieldPlugin
 					i = mergedIndex;
 				}
 			}
-
-			string resultRichText = RebuildRichTextString();
-			string resultText = RebuildTextString();
-			LastRichTextEditFrame = new TextEditFrame(resultRichText, 0, 0);
-			LastTextEditFrame = new TextEditFrame(resultText, 0, 0);
 		}
 
 		public string RebuildRichTextString()
@@ -578,6 +595,113 @@ namespace AdvancedInputFieldPlugin
 			return richTextEditFrame;
 		}
 
+		/// <summary>Processes a text edit of a native keyboard that keeps the formatting itself (rich text editing mode on Android).
+		/// The text regions get rebuilt from its style runs, so the edit doesn't need to be derived from the text change.</summary>
+		/// <param name="textEditFrame">The text edit of the native keyboard</param>
+		/// <param name="textStyleRuns">The formatting of the text as style runs (offset, length and style id for each run)</param>
+		public TextEditFrame ProcessTextEditFrame(TextEditFrame textEditFrame, int[] textStyleRuns)
+		{
+			string text = textEditFrame.text;
+			int length = text.Length;
+			List<TextRegion> parsedTextRegions = new List<TextRegion>();
+
+			int position = 0;
+			for(int i = 0; i + TEXT_STYLE_RUN_SIZE <= textStyleRuns.Length; i += TEXT_STYLE_RUN_SIZE)
+			{
+				int start = Mathf.Clamp(textStyleRuns[i], position, length);
+				int end = Mathf.Clamp(start + textStyleRuns[i + 1], start, length);
+				AddStyledTextRegions(parsedTextRegions, text, position, start, 0);
+				AddStyledTextRegions(parsedTextRegions, text, start, end, textStyleRuns[i + 2]);
+				position = end;
+			}
+			AddStyledTextRegions(parsedTextRegions, text, position, length, 0);
+			MergeTextRegions(parsedTextRegions);
+
+			TextEditFrame richTextEditFrame = new TextEditFrame();
+			richTextEditFrame.text = RebuildRichTextString();
+			richTextEditFrame.selectionStartPosition = DeterminePositionInRichText(textEditFrame.selectionStartPosition, richTextEditFrame.text);
+			if(textEditFrame.selectionStartPosition == textEditFrame.selectionEndPosition) //No selection
+			{
+				richTextEditFrame.selectionEndPosition = richTextEditFrame.selectionStartPosition;
+			}
+			else //Has selection
+			{
+				richTextEditFrame.selectionEndPosition = DeterminePositionInRichText(textEditFrame.selectionEndPosition, richTextEditFrame.text);
+			}
+
+			LastTextEditFrame = textEditFrame;
+			LastRichTextEditFrame = richTextEditFrame;
+
+			return richTextEditFrame;
+		}
+
+		/// <summary>Encodes the formatting of the text as style runs (offset, length and style id for each run) for a native keyboard</summary>
+		public int[] BuildTextStyleRuns()
+		{
+			List<int> runs = new List<int>();
+			int position = 0;
+
+			int length = textRegions.Count;
+			for(int i = 0; i < length; i++)
+			{
+				List<RichTextRegion> richTextRegions = textRegions[i].richTextRegions;
+				int regionsLength = richTextRegions.Count;
+				for(int ri = 0; ri < regionsLength; ri++)
+				{
+					RichTextRegion richTextRegion = richTextRegions[ri];
+					int textLength = richTextRegion.Text.Length;
+					int styleId = GetTextStyleId(richTextRegion);
+					if(styleId != 0 && textLength > 0)
+					{
+						int runCount = runs.Count;
+						if(runCount > 0 && runs[runCount - 1] == styleId && runs[runCount - 3] + runs[runCount - 2] == position) //Same style as previous run
+						{
+							runs[runCount - 2] += textLength;
+						}
+						else
+						{
+							runs.Add(position);
+							runs.Add(textLength);
+							runs.Add(styleId);
+						}
+					}
+					position += textLength;
+				}
+			}
+
+			return runs.ToArray();
+		}
+
+		/// <summary>Gets the style id for the tags of given region, registers the tags as a new style when needed</summary>
+		private int GetTextStyleId(RichTextRegion richTextRegion)
+		{
+			if(richTextRegion.startTags.Count == 0) { return 0; }
+
+			string key = string.Concat(richTextRegion.startTags);
+			if(!textStyleIds.TryGetValue(key, out int styleId))
+			{
+				styleId = textStyles.Count;
+				textStyles.Add(new RichTextRegion(string.Empty, new List<string>(richTextRegion.startTags), new List<string>(richTextRegion.endTags)));
+				textStyleIds.Add(key, styleId);
+			}
+
+			return styleId;
+		}
+
+		/// <summary>Parses the text regions of given part of the text and configures them with the tags of given style id</summary>
+		private void AddStyledTextRegions(List<TextRegion> parsedTextRegions, string text, int start, int end, int styleId)
+		{
+			if(end <= start) { return; }
+
+			RichTextRegion textStyle = (styleId > 0 && styleId < textStyles.Count) ? textStyles[styleId] : textStyles[0];
+			List<TextRegion> currentTextRegions = ParseTextRegions(text.Substring(start, end - start));
+			foreach(TextRegion currentTextRegion in currentTextRegions)
+			{
+				currentTextRegion.ConfigureRichTextRegion(textStyle);
+				parsedTextRegions.Add(currentTextRegion);
+			}
+		}
+
 		public bool CheckWordReplaced(string currentText, string lastText, int textPosition, out int wordStartPosition)
 		{
 			int currentLength = currentText.Length;
@@ -0,0 +1,160 @@
+﻿// Copyright (c) Jeroen van Pienbroek. All rights reserved.
+// Licensed under the MIT License. See LICENSE file in the project root for full license information.
+
+using System.Collections.Generic;
+
+namespace AdvancedInputFieldPlugin
+{
+	/// <summary>A fixed format mask (like "#### #### #### ####") compiled to an automaton where the state is the position in the text.
+	/// Each character gets validated with a single lookup, literal separators can be inserted automatically.
+	/// Mask characters:
+	/// '#' a digit,
+	/// 'L' a letter,
+	/// 'U' a letter that gets converted to uppercase,
+	/// 'l' a letter that gets converted to lowercase,
+	/// '*' a letter or digit,
+	/// '?' any character,
+	/// '\' escapes the next character, so it's a literal,
+	/// any other character is a literal separator.
+	/// </summary>
+	public class PatternMask
+	{
+		private enum CharacterClass : byte { LITERAL, DIGIT, LETTER, UPPERCASE_LETTER, LOWERCASE_LETTER, LETTER_OR_DIGIT, ANY }
+
+		/// <summary>The maximum amount of compiled masks to keep</summary>
+		private const int CACHE_CAPACITY = 16;
+
+		private static readonly Dictionary<string, LinkedListNode<PatternMask>> cache = new Dictionary<string, LinkedListNode<PatternMask>>();
+		private static readonly LinkedList<PatternMask> cacheOrder = new LinkedList<PatternMask>(); //Most recently used first
+
+		private string mask;
+		/// <summary>The character class of each state</summary>
+		private CharacterClass[] classes;
+		/// <summary>The literal of each state, only used for LITERAL states</summary>
+		private char[] literals;
+		/// <summary>The amount of consecutive literal states starting at each state</summary>
+		private int[] literalRuns;
+
+		/// <summary>The maximum length of the text</summary>
+		public int Length { get; private set; }
+
+		/// <summary>Gets the compiled version of given mask, masks are only compiled the first time</summary>
+		public static PatternMask Compile(string mask)
+		{
+			if(string.IsNullOrEmpty(mask))
+			{
+				return null;
+			}
+
+			lock(cache)
+			{
+				LinkedListNode<PatternMask> node;
+				if(cache.TryGetValue(mask, out node))
+				{
+					cacheOrder.Remove(node);
+					cacheOrder.AddFirst(node);
+					return node.Value;
+				}
+
+				PatternMask patternMask = new PatternMask(mask);
+				cache[mask] = cacheOrder.AddFirst(patternMask);
+				if(cache.Count > CACHE_CAPACITY)
+				{
+					LinkedListNode<PatternMask> eldest = cacheOrder.Last;
+					cacheOrder.RemoveLast();
+					cache.Remove(eldest.Value.mask);
+				}
+				return patternMask;
+			}
+		}
+
+		private PatternMask(string mask)
+		{
+			this.mask = mask;
+			int maskLength = mask.Length;
+			classes = new CharacterClass[maskLength];
+			literals = new char[maskLength];
+
+			int length = 0;
+			for(int i = 0; i < maskLength; i++)
+			{
+				char ch = mask[i];
+				CharacterClass characterClass = CharacterClass.LITERAL;
+				switch(ch)
+				{
+					case '#': characterClass = CharacterClass.DIGIT; break;
+					case 'L': characterClass = CharacterClass.LETTER; break;
+					case 'U': characterClass = CharacterClass.UPPERCASE_LETTER; break;
+					case 'l': characterClass = CharacterClass.LOWERCASE_LETTER; break;
+					case '*': characterClass = CharacterClass.LETTER_OR_DIGIT; break;
+					case '?': characterClass = CharacterClass.ANY; break;
+					case '\\':
+						if(i + 1 < maskLength)
+						{
+							i++;
+							ch = mask[i];
+						}
+						break;
+				}
+
+				classes[length] = characterClass;
+				literals[length] = ch;
+				length++;
+			}
+			Length = length;
+
+			literalRuns = new int[length + 1];
+			for(int i = length - 1; i >= 0; i--)
+			{
+				literalRuns[i] = (classes[i] == CharacterClass.LITERAL) ? literalRuns[i + 1] + 1 : 0;
+			}
+		}
+
+		/// <summary>Gets the literal at given state (position)</summary>
+		public char GetLiteral(int state)
+		{
+			return literals[state];
+		}
+
+		/// <summary>Validates a character at given state (position)</summary>
+		/// <returns>The (converted) character, or 0 if it's not allowed</returns>
+		public char Transition(int state, char ch)
+		{
+			if(state < 0 || state >= Length)
+			{
+				return (char)0;
+			}
+
+			switch(classes[state])
+			{
+				case CharacterClass.LITERAL: return (ch == literals[state]) ? ch : (char)0;
+				case CharacterClass.DIGIT: return (ch >= '0' && ch <= '9') ? ch : (char)0;
+				case CharacterClass.LETTER: return char.IsLetter(ch) ? ch : (char)0;
+				case CharacterClass.UPPERCASE_LETTER: return char.IsLetter(ch) ? char.ToUpper(ch) : (char)0;
+				case CharacterClass.LOWERCASE_LETTER: return char.IsLetter(ch) ? char.ToLower(ch) : (char)0;
+				case CharacterClass.LETTER_OR_DIGIT: return char.IsLetterOrDigit(ch) ? ch : (char)0;
+				case CharacterClass.ANY: return ch;
+			}
+
+			return (char)0;
+		}
+
+		/// <summary>Gets the amount of literals to insert at given state (position), so given character can be accepted after them</summary>
+		/// <returns>The amount of literals, 0 if the character can't be accepted that way</returns>
+		public int GetLiteralInsertCount(int state, char ch)
+		{
+			if(state < 0 || state >= Length)
+			{
+				return 0;
+			}
+
+			int literalRun = literalRuns[state];
+			if(literalRun == 0 || Transition(state + literalRun, ch) == 0)
+			{
+				return 0;
+			}
+
+			return literalRun;
+		}
+	}
+}
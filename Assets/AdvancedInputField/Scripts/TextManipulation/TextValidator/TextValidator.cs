@@ -10,9 +10,13 @@ namespace AdvancedInputFieldPlugin
 	{
 		private const string EMAIL_SPECIAL_CHARACTERS = "!#$%&'*+-/=?^_`{|}~";
 
+		/// <summary>State of the text before the current position, reset at the start of each validation pass</summary>
+		private TextValidatorState state = new TextValidatorState();
+
 		public CharacterValidation Validation { get; set; }
 		public LineType LineType { get; set; }
 		public CharacterValidator Validator { get; set; }
+		public PatternMask PatternMask { get; set; }
 		public string ResultText { get; private set; }
 		public int ResultCaretPosition { get; private set; }
 
@@ -20,11 +24,12 @@ namespace AdvancedInputFieldPlugin
 		{
 		}
 
-		public TextValidator(CharacterValidation validation, LineType lineType, CharacterValidator validator = null)
+		public TextValidator(CharacterValidation validation, LineType lineType, CharacterValidator validator = null, PatternMask patternMask = null)
 		{
 			Validation = validation;
 			LineType = lineType;
 			Validator = validator;
+			PatternMask = patternMask;
 		}
 
 		/// <summary>Validates the text</summary>
@@ -38,14 +43,26 @@ namespace AdvancedInputFieldPlugin
 			int textToAppendLength = textToAppend.Length;
 
 			int startCaretPosition = caretPosition;
-			char[] buffer = new char[textLength + textToAppendLength];
+			char[] buffer = new char[textLength + textToAppendLength + GetMaxLiteralInsertLength()];
 			Util.StringCopy(ref buffer, text);
+			state.Reset();
 
 			int position = caretPosition;
 			for(int i = 0; i < textToAppendLength; i++)
 			{
 				char ch = textToAppend[i];
 				char result = ValidateChar(ch, buffer, position, position, caretPosition, selectionStartPosition);
+				if(result == 0)
+				{
+					int literalCount = InsertLiterals(ch, buffer, position);
+					if(literalCount > 0)
+					{
+						position += literalCount;
+						caretPosition += literalCount;
+						result = ValidateChar(ch, buffer, position, position, caretPosition, selectionStartPosition);
+					}
+				}
+
 				if(result != 0)
 				{
 					buffer[position] = result;
@@ -74,6 +91,29 @@ namespace AdvancedInputFieldPlugin
 			ResultCaretPosition = caretPosition;
 		}
 
+		/// <summary>The maximum amount of literals the pattern mask can insert, 0 when not in pattern mask mode</summary>
+		private int GetMaxLiteralInsertLength()
+		{
+			return (Validation == CharacterValidation.PATTERN_MASK && PatternMask != null) ? PatternMask.Length : 0;
+		}
+
+		/// <summary>Inserts the literal separators of the pattern mask at given position, when given character is only accepted after them</summary>
+		/// <returns>The amount of inserted literals</returns>
+		private int InsertLiterals(char ch, char[] buffer, int position)
+		{
+			if(Validation != CharacterValidation.PATTERN_MASK || PatternMask == null)
+			{
+				return 0;
+			}
+
+			int literalCount = PatternMask.GetLiteralInsertCount(position, ch);
+			for(int i = 0; i < literalCount; i++)
+			{
+				buffer[position + i] = PatternMask.GetLiteral(position + i);
+			}
+			return literalCount;
+		}
+
 		internal char ValidateChar(char ch, char[] text, int textLength, int pos, int caretPosition, int selectionStartPosition)
 		{
 			if(LineType != LineType.MULTILINE_NEWLINE && (ch == '\r' || ch == '\n'))
@@ -96,9 +136,19 @@ namespace AdvancedInputFieldPlugin
 				}
 			}
 
+			if(Validation == CharacterValidation.PATTERN_MASK)
+			{
+				if(PatternMask == null) { return ch; }
+				else
+				{
+					return PatternMask.Transition(pos, ch);
+				}
+			}
+
 			if(Validation == CharacterValidation.INTEGER || Validation == CharacterValidation.DECIMAL || Validation == CharacterValidation.DECIMAL_FORCE_POINT)
 			{
 				// Integer and decimal
+				state.Sync(text, textLength);
 				bool cursorBeforeDash = (pos == 0 && textLength > 0 && text[0] == '-');
 				bool dashInSelection = textLength > 0 && text[0] == '-' && ((caretPosition == 0 && selectionStartPosition > 0) || (selectionStartPosition == 0 && caretPosition > 0));
 				bool selectionAtStart = caretPosition == 0 || selectionStartPosition == 0;
@@ -110,13 +160,13 @@ namespace AdvancedInputFieldPlugin
 					{
 						if(ch == '.' || ch == ',')
 						{
-							if(!Util.Contains('.', text, textLength) && !Util.Contains(',', text, textLength)) return ch;
+							if(!state.hasPoint && !state.hasComma) return ch;
 						}
 					}
 					else if(Validation == CharacterValidation.DECIMAL_FORCE_POINT)
 					{
-						if(ch == '.' && !Util.Contains('.', text, textLength)) return ch;
-						if(ch == ',' && !Util.Contains('.', text, textLength)) return '.';
+						if(ch == '.' && !state.hasPoint) return ch;
+						if(ch == ',' && !state.hasPoint) return '.';
 					}
 				}
 			}
@@ -162,7 +212,8 @@ namespace AdvancedInputFieldPlugin
 				if(ch == '\'')
 				{
 					// Don't allow more than one apostrophe
-					if(!Util.Contains('\'', text, textLength))
+					state.Sync(text, textLength);
+					if(!state.hasApostrophe)
 					{
 						// Don't allow consecutive spaces and apostrophes.
 						if(!(((pos > 0) && ((text[pos - 1] == ' ') || (text[pos - 1] == '\''))) ||
@@ -193,7 +244,11 @@ namespace AdvancedInputFieldPlugin
 				// and provided also that it does not appear two or more times consecutively.
 
 				if(char.IsLetterOrDigit(ch)) return ch;
-				if(ch == '@' && Util.IndexOf('@', text, textLength) == -1) return ch;
+				if(ch == '@')
+				{
+					state.Sync(text, textLength);
+					if(!state.hasAt) return ch;
+				}
 				if(EMAIL_SPECIAL_CHARACTERS.IndexOf(ch) != -1) return ch;
 				if(ch == '.')
 				{
@@ -207,21 +262,48 @@ namespace AdvancedInputFieldPlugin
 			}
 			else if(Validation == CharacterValidation.IP_ADDRESS)
 			{
-				int lastDotIndex = Util.LastIndexOf('.', text, textLength);
-				if(lastDotIndex == -1)
+				// IPv4: 4 sections of max 3 digits separated by dots
+				state.Sync(text, textLength);
+				if(ch >= '0' && ch <= '9')
 				{
-					int numbersInSection = textLength;
-					if(numbersInSection < 3 && ch >= '0' && ch <= '9') return ch; //Less than 3 numbers, so number add allowed
-					if(ch == '.' && textLength > 0) { return ch; } //Don't start with dot
+					if(state.digitsInSection < 3) return ch; //Less than 3 numbers, so number add allowed
 				}
-				else
+				else if(ch == '.')
+				{
+					if(state.digitsInSection > 0 && state.dotCount < 3) return ch; //Don't start with dot and max 4 sections (3 dot characters)
+				}
+			}
+			else if(Validation == CharacterValidation.IP_ADDRESS_V6)
+			{
+				// IPv6: max 8 sections of max 4 hexadecimal digits separated by colons, one "::" allowed and optionally ending with an IPv4 address
+				state.Sync(text, textLength);
+				if(state.length == 1 && state.lastChar == ':') //A leading colon is only valid as part of "::"
+				{
+					if(ch == ':') { return ch; }
+				}
+				else if(ch >= '0' && ch <= '9')
+				{
+					int maxDigits = (state.dotCount > 0) ? 3 : 4;
+					if(state.digitsInSection < maxDigits) return ch;
+				}
+				else if(TextValidatorState.IsHexLetter(ch))
+				{
+					if(state.dotCount == 0 && state.digitsInSection < 4) return ch;
+				}
+				else if(ch == '.')
+				{
+					//The IPv4 address takes the place of the last 2 sections, so it needs at least "::" before it
+					int maxColonCount = state.hasDoubleColon ? 7 : 6;
+					if(state.colonCount >= 2 && state.colonCount <= maxColonCount && state.digitsInSection > 0 && state.digitsInSection <= 3
+						&& !state.sectionHasHexLetter && state.dotCount < 3) return ch;
+				}
+				else if(ch == ':' && state.dotCount == 0)
 				{
-					if(ch >= '0' && ch <= '9')
+					if(state.lastChar == ':')
 					{
-						int numbersInSection = (textLength - 1) - lastDotIndex;
-						if(numbersInSection < 3 && ch >= '0' && ch <= '9') return ch; //Less than 3 numbers, so number add allowed
+						if(!state.hasDoubleColon && state.colonCount < 8) return ch; //Only one "::" allowed
 					}
-					if(ch == '.' && lastDotIndex != textLength - 1 && Util.CountOccurences('.', text, textLength) < 3) { return ch; } //Max 4 sections (3 dot characters)
+					else if(state.colonCount < 7 || (state.colonCount == 7 && state.hasDoubleColon)) { return ch; } //Max 8 sections
 				}
 			}
 			else if(Validation == CharacterValidation.SENTENCE)
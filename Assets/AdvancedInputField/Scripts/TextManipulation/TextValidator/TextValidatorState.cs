@@ -0,0 +1,98 @@
+﻿// Copyright (c) Jeroen van Pienbroek. All rights reserved.
+// Licensed under the MIT License. See LICENSE file in the project root for full license information.
+
+namespace AdvancedInputFieldPlugin
+{
+	/// <summary>Summary of the already validated text before the current position, so the built-in validations don't need to rescan the text for each character.
+	/// Gets advanced with the characters that got added since the last call, so validating a whole text is linear instead of quadratic.
+	/// </summary>
+	internal class TextValidatorState
+	{
+		/// <summary>The amount of characters of the text that are included in this state</summary>
+		internal int length;
+		internal char lastChar;
+
+		internal bool hasAt;
+		internal bool hasPoint;
+		internal bool hasComma;
+		internal bool hasApostrophe;
+
+		internal int dotCount;
+		internal int colonCount;
+		internal bool hasDoubleColon;
+		/// <summary>The amount of (hexadecimal) digits since the last separator</summary>
+		internal int digitsInSection;
+		/// <summary>Whether the current section contains the hexadecimal letters a-f, so it can't be an IPv4 section</summary>
+		internal bool sectionHasHexLetter;
+
+		internal void Reset()
+		{
+			length = 0;
+			lastChar = (char)0;
+			hasAt = false;
+			hasPoint = false;
+			hasComma = false;
+			hasApostrophe = false;
+			dotCount = 0;
+			colonCount = 0;
+			hasDoubleColon = false;
+			digitsInSection = 0;
+			sectionHasHexLetter = false;
+		}
+
+		/// <summary>Makes this state match the first textLength characters of the text, only the characters added since the last call get processed</summary>
+		internal void Sync(char[] text, int textLength)
+		{
+			if(length > textLength) //Text got shorter, start over
+			{
+				Reset();
+			}
+
+			for(int i = length; i < textLength; i++)
+			{
+				Advance(text[i]);
+			}
+		}
+
+		private void Advance(char ch)
+		{
+			switch(ch)
+			{
+				case '@': hasAt = true; break;
+				case ',': hasComma = true; break;
+				case '\'': hasApostrophe = true; break;
+				case '.':
+					hasPoint = true;
+					dotCount++;
+					digitsInSection = 0;
+					sectionHasHexLetter = false;
+					break;
+				case ':':
+					if(lastChar == ':') { hasDoubleColon = true; }
+					colonCount++;
+					digitsInSection = 0;
+					sectionHasHexLetter = false;
+					break;
+				default:
+					if(ch >= '0' && ch <= '9')
+					{
+						digitsInSection++;
+					}
+					else if(IsHexLetter(ch))
+					{
+						digitsInSection++;
+						sectionHasHexLetter = true;
+					}
+					break;
+			}
+
+			lastChar = ch;
+			length++;
+		}
+
+		internal static bool IsHexLetter(char ch)
+		{
+			return (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+		}
+	}
+}